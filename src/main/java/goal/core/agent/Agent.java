@@ -3,6 +3,7 @@ package goal.core.agent;
 import goal.tools.errorhandling.Resources;
 import goal.tools.errorhandling.Warning;
 import goal.tools.errorhandling.WarningStrings;
+import goal.tools.metrics.Metrics;
 
 import java.rmi.activation.UnknownObjectException;
 
@@ -110,6 +111,7 @@ public class Agent<CONTROLLER extends Controller> {
 					new Exception(e));
 		}
 		this.logging.dispose();
+		Metrics.remove(this.id.getName());
 	}
 
 	/**
@@ -0,0 +1,92 @@
+package goal.core.agent;
+
+import goal.preferences.PMPreferences;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The ways in which the steps of agents can be scheduled on threads. A
+ * {@link Controller} asks its scheduler for an executor every time its agent
+ * is started, and submits all steps of that run to it.
+ *
+ * The scheduler to use is set by {@link PMPreferences#getAgentScheduler()}.
+ */
+public enum AgentScheduler {
+	/**
+	 * All agents share one fixed pool of
+	 * {@link PMPreferences#getThreadPoolSize()} threads, which take the steps
+	 * of agents from a single queue.
+	 */
+	FIXED {
+		@Override
+		Executor getExecutor(String agent) {
+			return FixedPool.pool;
+		}
+	},
+	/**
+	 * All agents share one work-stealing pool of
+	 * {@link PMPreferences#getThreadPoolSize()} threads. Each thread keeps the
+	 * steps submitted from it in its own queue, in the order they were
+	 * submitted, and idle threads take steps from the queues of busy ones.
+	 */
+	WORKSTEALING {
+		@Override
+		Executor getExecutor(String agent) {
+			return WorkStealingPool.pool;
+		}
+	},
+	/**
+	 * Every agent runs on a thread of its own, so an agent that blocks (e.g.
+	 * on a slow environment) never holds up the others. Only suited for MASs
+	 * with a limited number of agents. The thread is named after the agent.
+	 */
+	DEDICATED {
+		@Override
+		Executor getExecutor(final String agent) {
+			return Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, agent);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	};
+
+	/**
+	 * @param agent
+	 *            The name of the agent.
+	 * @return The executor to submit the steps of a run of the agent to. If it
+	 *         is an {@link ExecutorService} that is not shared with other
+	 *         agents, it is shut down when the agent terminates.
+	 */
+	abstract Executor getExecutor(String agent);
+
+	/**
+	 * @return {@code true} if the executors of this scheduler are not shared
+	 *         between agents.
+	 */
+	boolean isDedicated() {
+		return this == DEDICATED;
+	}
+
+	/*
+	 * The shared pools are only created once they are used.
+	 */
+
+	private static class FixedPool {
+		private final static Executor pool = Executors
+				.newFixedThreadPool(PMPreferences.getThreadPoolSize());
+	}
+
+	private static class WorkStealingPool {
+		private final static Executor pool = new ForkJoinPool(
+				PMPreferences.getThreadPoolSize(),
+				ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+	}
+}
@@ -5,8 +5,13 @@ import goal.tools.AbstractRun;
 
 import java.rmi.activation.UnknownObjectException;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import krTools.errors.exceptions.KRDatabaseException;
 import krTools.errors.exceptions.KRInitFailedException;
@@ -22,8 +27,19 @@ import krTools.errors.exceptions.KRQueryFailedException;
  * @author mpkorstanje
  */
 public abstract class Controller {
-	private final static Executor pool = Executors
-			.newFixedThreadPool(PMPreferences.getThreadPoolSize());
+	/**
+	 * The executor the steps of the current run of the agent are submitted
+	 * to; see {@link AgentScheduler}.
+	 */
+	private volatile Executor pool = null;
+	/**
+	 * The scheduler {@link #pool} was obtained from.
+	 */
+	private volatile AgentScheduler scheduler = null;
+	/**
+	 * Completes when the current run of the agent has terminated.
+	 */
+	private volatile FutureTask<Void> termination = newTermination(true);
 
 	/**
 	 * The agent controlled by the controller.
@@ -88,6 +104,27 @@ public abstract class Controller {
 		return this.terminated;
 	}
 
+	/**
+	 * @return A future that completes when the agent has completely finished
+	 *         running; see {@link #isTerminated()}. A new future is used every
+	 *         time the agent is (re)started.
+	 */
+	public final Future<Void> getTermination() {
+		return this.termination;
+	}
+
+	private static FutureTask<Void> newTermination(boolean done) {
+		FutureTask<Void> task = new FutureTask<>(new Runnable() {
+			@Override
+			public void run() {
+			}
+		}, null);
+		if (done) {
+			task.run();
+		}
+		return task;
+	}
+
 	/**
 	 * Starts the agent. Only external classes should call this.
 	 */
@@ -95,7 +132,11 @@ public abstract class Controller {
 		if (!this.running) {
 			this.running = true;
 			this.terminated = false;
-			pool.execute(getRunnable(pool, null));
+			this.termination = newTermination(false);
+			this.scheduler = PMPreferences.getAgentScheduler();
+			this.pool = this.scheduler.getExecutor(this.agent.getId()
+					.getName());
+			this.pool.execute(getRunnable(this.pool, null));
 		}
 	}
 
@@ -129,6 +170,11 @@ public abstract class Controller {
 		if (!this.terminated) {
 			terminate(); // just to be sure
 			this.terminated = true;
+			if (this.scheduler.isDedicated()) {
+				// Let the thread end once it has finished this task.
+				((ExecutorService) this.pool).shutdown();
+			}
+			this.termination.run();
 			if (this.disposeOnTermination) {
 				try {
 					dispose();
@@ -189,16 +235,16 @@ public abstract class Controller {
 	 */
 	public final void awaitTermination(long timeout)
 			throws InterruptedException {
-		if (timeout <= 0) {
-			timeout = Long.MAX_VALUE;
-		} else {
-			timeout = System.currentTimeMillis() + (timeout * 1000L);
-		}
-		while (!this.terminated) {
-			Thread.sleep(100);
-			if (System.currentTimeMillis() > timeout) {
-				break;
+		try {
+			if (timeout <= 0) {
+				this.termination.get();
+			} else {
+				this.termination.get(timeout, TimeUnit.SECONDS);
 			}
+		} catch (TimeoutException e) {
+			// Stop waiting.
+		} catch (ExecutionException e) {
+			// Cannot happen; the task does nothing.
 		}
 	}
 
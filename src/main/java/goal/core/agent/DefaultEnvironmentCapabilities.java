@@ -4,10 +4,22 @@ import eis.exceptions.EnvironmentInterfaceException;
 import eis.iilang.Action;
 import eis.iilang.Percept;
 import goal.core.runtime.service.environmentport.EnvironmentPort;
+import goal.core.runtime.service.environmentport.EnvironmentPortObserver;
+import goal.core.runtime.service.environmentport.PerceptDelta;
+import goal.core.runtime.service.environmentport.environmentport.events.EnvironmentEvent;
+import goal.core.runtime.service.environmentport.environmentport.events.NewPerceptEvent;
+import goal.tools.metrics.AgentMetrics;
+import goal.tools.metrics.Metrics;
+import goal.tools.metrics.Metrics.Timer;
 
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.Set;
 
@@ -27,11 +39,55 @@ public class DefaultEnvironmentCapabilities implements EnvironmentCapabilities {
 	 * The percept buffer of the {@link AgentMesg}.
 	 */
 	private final Queue<Percept> perceptBuffer = new LinkedList<>();
+	/**
+	 * The percepts the environment currently provides to the agent. Kept up to
+	 * date with the {@link PerceptDelta}s sent by the environment.
+	 */
+	private final Set<Percept> environmentPercepts = new HashSet<>();
+	/**
+	 * The percepts returned by the last action, which the agent perceives for
+	 * one cycle only.
+	 */
+	private Set<Percept> actionPercepts = new HashSet<>(0);
+	/**
+	 * True if the next delta should contain all percepts, e.g. after a reset.
+	 */
+	private boolean resync = false;
 
 	private final EnvironmentPort environment;
 
 	private final AgentId id;
 
+	/**
+	 * The runtime metrics of the agent; the time the environment takes to
+	 * handle a request of the agent is added to its {@link Timer#ENVIRONMENT}
+	 * timer.
+	 */
+	private final AgentMetrics metrics;
+
+	/**
+	 * Signal raised when the environment reports an event that may change the
+	 * percepts of this agent; may be {@code null}.
+	 */
+	private volatile WakeUpSignal wakeUp = null;
+
+	private final EnvironmentPortObserver observer = new EnvironmentPortObserver() {
+		@Override
+		public void EnvironmentPortEventOccured(
+				EnvironmentPort environmentPort, EnvironmentEvent e) {
+			// Percepts sent to other agents are of no concern to us.
+			if (e instanceof NewPerceptEvent
+					&& !DefaultEnvironmentCapabilities.this.id.getName().equals(
+							((NewPerceptEvent) e).getAgent())) {
+				return;
+			}
+			WakeUpSignal signal = DefaultEnvironmentCapabilities.this.wakeUp;
+			if (signal != null) {
+				signal.signal();
+			}
+		}
+	};
+
 	/**
 	 * Constructs the default environment capabilities.
 	 *
@@ -44,6 +100,8 @@ public class DefaultEnvironmentCapabilities implements EnvironmentCapabilities {
 			EnvironmentPort environmentPort) {
 		this.id = agentId;
 		this.environment = environmentPort;
+		this.metrics = Metrics.forAgent(agentId.getName());
+		this.environment.addObserver(this.observer);
 	}
 
 	/*
@@ -54,28 +112,93 @@ public class DefaultEnvironmentCapabilities implements EnvironmentCapabilities {
 	@Override
 	public Double getReward() throws MessagingException,
 	EnvironmentInterfaceException {
-		return this.environment.getReward(this.id.getName());
+		long start = this.metrics.start();
+		try {
+			return this.environment.getReward(this.id.getName());
+		} finally {
+			this.metrics.stop(Timer.ENVIRONMENT, start);
+		}
 	}
 
 	/*
 	 * (non-Javadoc)
 	 *
-	 * @see goal.core.agent.Capabilities#getPercepts()
+	 * @see goal.core.agent.EnvironmentCapabilities#getPerceptDelta()
 	 */
 	@Override
-	public Set<Percept> getPercepts() throws MessagingException,
+	public PerceptDelta getPerceptDelta() throws MessagingException,
 	EnvironmentInterfaceException {
-		Set<Percept> percepts = new LinkedHashSet<>();
-
-		percepts.addAll(this.perceptBuffer);
+		// Only the changes are sent by the environment.
+		PerceptDelta delta;
+		long start = this.metrics.start();
+		try {
+			delta = this.environment.getPerceptDelta(this.id.getName());
+		} finally {
+			this.metrics.stop(Timer.ENVIRONMENT, start);
+		}
+		// The percepts of actions are only taken once the environment
+		// answered, so that they are not lost when it fails.
+		Set<Percept> newActionPercepts = new LinkedHashSet<>(this.perceptBuffer);
 		this.perceptBuffer.clear();
 
-		// Only request percepts from environment if we are connected to an
-		// environment and that environment is running;
-		// otherwise, return the empty list.
-		percepts.addAll(this.environment.getPercepts(this.id.getName()));
+		// Record which of the percepts that may change were visible before.
+		Map<Percept, Boolean> touched = new LinkedHashMap<>();
+		markTouched(delta.getAdded(), touched);
+		markTouched(delta.getRemoved(), touched);
+		markTouched(this.actionPercepts, touched);
+		markTouched(newActionPercepts, touched);
 
-		return percepts;
+		this.environmentPercepts.removeAll(delta.getRemoved());
+		this.environmentPercepts.addAll(delta.getAdded());
+		this.actionPercepts = newActionPercepts;
+
+		if (this.resync) {
+			// Everything that is visible now has to be added again.
+			this.resync = false;
+			Set<Percept> all = new LinkedHashSet<>(this.environmentPercepts);
+			all.addAll(this.actionPercepts);
+			return new PerceptDelta(all, new LinkedHashSet<Percept>(0));
+		}
+		if (touched.isEmpty()) {
+			return PerceptDelta.EMPTY;
+		}
+		List<Percept> added = new LinkedList<>();
+		List<Percept> removed = new LinkedList<>();
+		for (Entry<Percept, Boolean> entry : touched.entrySet()) {
+			boolean visible = isVisible(entry.getKey());
+			if (visible && !entry.getValue()) {
+				added.add(entry.getKey());
+			} else if (!visible && entry.getValue()) {
+				removed.add(entry.getKey());
+			}
+		}
+		return new PerceptDelta(added, removed);
+	}
+
+	private void markTouched(Set<Percept> percepts,
+			Map<Percept, Boolean> touched) {
+		for (Percept percept : percepts) {
+			if (!touched.containsKey(percept)) {
+				touched.put(percept, isVisible(percept));
+			}
+		}
+	}
+
+	/**
+	 * @param percept
+	 *            a percept.
+	 * @return true if the percept is currently perceived by the agent, either
+	 *         from the environment or as the result of its last action.
+	 */
+	private boolean isVisible(Percept percept) {
+		return this.environmentPercepts.contains(percept)
+				|| this.actionPercepts.contains(percept);
+	}
+
+	@Override
+	public void reset() {
+		this.perceptBuffer.clear();
+		this.resync = true;
 	}
 
 	/*
@@ -88,14 +211,26 @@ public class DefaultEnvironmentCapabilities implements EnvironmentCapabilities {
 	@Override
 	public void performAction(Action action) throws MessagingException,
 	EnvironmentInterfaceException {
-		Collection<Percept> percepts = this.environment.performAction(
-				this.id.getName(), action);
+		Collection<Percept> percepts;
+		long start = this.metrics.start();
+		try {
+			percepts = this.environment.performAction(this.id.getName(),
+					action);
+		} finally {
+			this.metrics.stop(Timer.ENVIRONMENT, start);
+		}
 		this.perceptBuffer.addAll(percepts);
 	}
 
+	@Override
+	public void setWakeUpSignal(WakeUpSignal signal) {
+		this.wakeUp = signal;
+	}
+
 	@Override
 	public void dispose() throws MessagingException,
 	EnvironmentInterfaceException {
+		this.environment.deleteObserver(this.observer);
 		this.environment.freeAgent(this.id.getName());
 	}
 }
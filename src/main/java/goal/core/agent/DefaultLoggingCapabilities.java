@@ -25,6 +25,7 @@ public class DefaultLoggingCapabilities implements LoggingCapabilities {
 
 	@Override
 	public void dispose() {
-		// TODO (Wouter): Implement dispose in logger to close file.
+		// Writes out and closes the log file, if any.
+		this.logActionLogger.removeLogToFileHandler();
 	}
 }
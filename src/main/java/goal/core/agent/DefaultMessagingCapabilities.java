@@ -4,11 +4,17 @@ import goal.core.runtime.MessagingService;
 import goal.tools.errorhandling.Warning;
 import goal.tools.errorhandling.exceptions.GOALBug;
 import goal.tools.errorhandling.exceptions.GOALMessagingException;
+import goal.tools.metrics.AgentMetrics;
+import goal.tools.metrics.Metrics;
+import goal.tools.metrics.Metrics.Counter;
 
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import languageTools.program.agent.AgentId;
@@ -39,6 +45,24 @@ public class DefaultMessagingCapabilities implements MessagingCapabilities {
 
 	private final MessagingService messaging;
 
+	/**
+	 * The message boxes of the agents we have sent messages to, by agent
+	 * name. An entry is dropped when the agent is created or removed (see
+	 * {@link #updateAgentAvailability(AgentId, boolean)}) and when sending
+	 * to it fails, so that the message box is looked up again.
+	 */
+	private final Map<String, MessageBoxId> addresses = new ConcurrentHashMap<>();
+
+	/**
+	 * Signal raised when a new message comes in; may be {@code null}.
+	 */
+	private volatile WakeUpSignal wakeUp = null;
+
+	/**
+	 * The runtime metrics of the agent.
+	 */
+	private final AgentMetrics metrics;
+
 	/**
 	 * Constructs the default messaging capabilities.
 	 *
@@ -51,6 +75,7 @@ public class DefaultMessagingCapabilities implements MessagingCapabilities {
 			MessageBox messageBox) {
 		this.messaging = messaging;
 		this.messageBox = messageBox;
+		this.metrics = Metrics.forAgent(getId());
 
 		this.messageBox.addListener(this.listener);
 	}
@@ -64,6 +89,10 @@ public class DefaultMessagingCapabilities implements MessagingCapabilities {
 				// another agent has sent us a message.
 				DefaultMessagingCapabilities.this.messageInQueue
 						.add((Message) message.getContent());
+				WakeUpSignal signal = DefaultMessagingCapabilities.this.wakeUp;
+				if (signal != null) {
+					signal.signal();
+				}
 				return true;
 			default:
 				// If we get here, we don't know how to handle the
@@ -111,28 +140,94 @@ public class DefaultMessagingCapabilities implements MessagingCapabilities {
 	 */
 	@Override
 	public void postMessage(Message message) {
-		// Send mails to each of the receivers of the message.
+		// Look up all receivers before sending anything, so that a failing
+		// lookup does not leave the message sent to only some of them.
+		List<MessageBoxId> recvBoxes = new ArrayList<>(message.getReceivers()
+				.size());
 		for (AgentId receiver : message.getReceivers()) {
+			MessageBoxId recvBox = getAddress(receiver);
+			if (recvBox == null) {
+				new Warning("unknown receiver " + receiver);
+			} else {
+				recvBoxes.add(recvBox);
+			}
+		}
+		this.metrics.count(Counter.MESSAGES_SENT, recvBoxes.size());
+		// Send mails to each of the receivers of the message.
+		for (MessageBoxId recvBox : recvBoxes) {
 			try {
-				List<MessageBoxId> recvBoxes = this.messaging.getClient()
-						.getMessageBoxes(Type.GOALAGENT, receiver.getName());
-				if (recvBoxes.isEmpty()) {
-					new Warning("unknown receiver " + receiver);
+				send(recvBox, message);
+			} catch (MessagingException e) {
+				// The receiver may have left or been replaced; look it up
+				// again, and try once more if it is still there.
+				this.addresses.remove(recvBox.getName());
+				MessageBoxId current = getAddress(new AgentId(recvBox
+						.getName()));
+				if (current == null) {
+					new Warning("unknown receiver " + recvBox.getName());
 					continue;
 				}
-				if (recvBoxes.size() != 1) {
-					throw new GOALBug(
-							"there are multiple agents using the messagebox name "
-									+ receiver);
+				try {
+					send(current, message);
+				} catch (MessagingException e1) {
+					this.addresses.remove(recvBox.getName());
+					new Warning("could not send message to "
+							+ recvBox.getName(), e1);
 				}
-				this.messageBox.send(this.messageBox.createMessage(
-						recvBoxes.get(0), message, null));
-			} catch (MessagingException e) {
-				throw new GOALMessagingException(e.getMessage(), e);
 			}
 		}
 	}
 
+	private void send(MessageBoxId recvBox, Message message)
+			throws MessagingException {
+		this.messageBox.send(this.messageBox.createMessage(recvBox, message,
+				null));
+	}
+
+	/**
+	 * Returns the message box of an agent, looking it up with the messaging
+	 * system only if it is not known yet.
+	 *
+	 * @param receiver
+	 *            the agent to look up.
+	 * @return the message box of the agent, or {@code null} if there is no
+	 *         agent with that name.
+	 */
+	private MessageBoxId getAddress(AgentId receiver) {
+		MessageBoxId recvBox = this.addresses.get(receiver.getName());
+		if (recvBox != null) {
+			return recvBox;
+		}
+		List<MessageBoxId> recvBoxes;
+		try {
+			recvBoxes = this.messaging.getClient().getMessageBoxes(
+					Type.GOALAGENT, receiver.getName());
+		} catch (MessagingException e) {
+			throw new GOALMessagingException(e.getMessage(), e);
+		}
+		if (recvBoxes.isEmpty()) {
+			return null;
+		}
+		if (recvBoxes.size() != 1) {
+			throw new GOALBug(
+					"there are multiple agents using the messagebox name "
+							+ receiver);
+		}
+		recvBox = recvBoxes.get(0);
+		this.addresses.put(receiver.getName(), recvBox);
+		return recvBox;
+	}
+
+	@Override
+	public void updateAgentAvailability(AgentId id, boolean available) {
+		this.addresses.remove(id.getName());
+	}
+
+	@Override
+	public void setWakeUpSignal(WakeUpSignal signal) {
+		this.wakeUp = signal;
+	}
+
 	@Override
 	public void dispose() {
 		try {
@@ -1,11 +1,9 @@
 package goal.core.agent;
 
-import java.util.Set;
-
 import nl.tudelft.goal.messaging.exceptions.MessagingException;
 import eis.exceptions.EnvironmentInterfaceException;
 import eis.iilang.Action;
-import eis.iilang.Percept;
+import goal.core.runtime.service.environmentport.PerceptDelta;
 
 /**
  * Provides and abstract representation of the capabilities of the agent in the
@@ -47,16 +45,34 @@ public interface EnvironmentCapabilities {
 			throws MessagingException, EnvironmentInterfaceException;
 
 	/**
-	 * Collects percepts from the environment. When no percepts could be
-	 * collected this method should return an empty set.
+	 * Collects the changes in the percepts from the environment since the
+	 * previous call. The first call (and the first call after
+	 * {@link #reset()}) returns all current percepts as added. Percepts that
+	 * were returned by an action are added only until the next call. When no
+	 * percepts changed this method should return an empty delta.
 	 *
-	 * @return the set of percepts received from the environment
+	 * @return the percepts added and removed since the previous call
 	 * @throws MessagingException
 	 * @throws EnvironmentInterfaceException
 	 */
-	public abstract Set<Percept> getPercepts() throws MessagingException,
+	public abstract PerceptDelta getPerceptDelta() throws MessagingException,
 	EnvironmentInterfaceException;
 
+	/**
+	 * Resets any state stored in agent capabilities. The next call of
+	 * {@link #getPerceptDelta()} returns all current percepts as added.
+	 */
+	public abstract void reset();
+
+	/**
+	 * Sets the signal that should be raised whenever the environment reports
+	 * an event that may change the percepts of the agent.
+	 *
+	 * @param signal
+	 *            the signal to raise on an environment event.
+	 */
+	public abstract void setWakeUpSignal(WakeUpSignal signal);
+
 	/**
 	 * Releases any resources held.
 	 *
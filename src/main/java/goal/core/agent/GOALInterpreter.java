@@ -4,6 +4,7 @@ import eis.iilang.Percept;
 import goal.core.executors.ActionExecutor;
 import goal.core.executors.ModuleExecutor;
 import goal.core.runtime.service.agent.RunState;
+import goal.tools.SnapshotCache;
 import goal.tools.adapt.Learner;
 import goal.tools.debugger.Channel;
 import goal.tools.debugger.Debugger;
@@ -62,6 +63,10 @@ public class GOALInterpreter<DEBUGGER extends Debugger> extends Controller {
 	 * Learner consulted during adaptive sections of the program.
 	 */
 	protected final Learner learner;
+	/**
+	 * Snapshots of the mental state after the init module, or {@code null}.
+	 */
+	private SnapshotCache snapshots = null;
 
     private final GoalGamygdala goalGamygdala;
 
@@ -83,6 +88,18 @@ public class GOALInterpreter<DEBUGGER extends Debugger> extends Controller {
         this.goalGamygdala = GoalGamygdala.getInstance();
 	}
 
+	/**
+	 * Sets the snapshots of the mental state after the init module that the
+	 * agent starts from, and adds its own to; see {@link RunState}. Should be
+	 * set before the agent is started.
+	 *
+	 * @param snapshots
+	 *            the snapshots, or {@code null} to always run the init module.
+	 */
+	public void setSnapshotCache(SnapshotCache snapshots) {
+		this.snapshots = snapshots;
+	}
+
 	/**
 	 * Returns the current run state of the interpreter.
 	 *
@@ -99,7 +116,8 @@ public class GOALInterpreter<DEBUGGER extends Debugger> extends Controller {
 		this.program.getKRInterface().initialize();
 		this.runState = new RunState<>(this, agent.getId(),
 				agent.getEnvironment(), agent.getMessaging(),
-				agent.getLogging(), this.program, this.debugger, this.learner);
+				agent.getLogging(), this.program, this.debugger, this.learner,
+				this.snapshots);
         goalGamygdala.createAgent(agent.getId().getName());
 	}
 
@@ -113,6 +131,10 @@ public class GOALInterpreter<DEBUGGER extends Debugger> extends Controller {
 	@Override
 	public void onTerminate() {
 		this.debugger.kill();
+		// Wake up the agent in case it is asleep so it notices termination.
+		if (this.runState != null) {
+			this.runState.getWakeUpSignal().signal();
+		}
 	}
 
 	@Override
@@ -123,7 +145,13 @@ public class GOALInterpreter<DEBUGGER extends Debugger> extends Controller {
 			@Override
 			public void run() {
 				try {
+					RunState<DEBUGGER> runState = GOALInterpreter.this.runState;
 					Callable<Callable<?>> call = in;
+					if (call != null && runState.isAsleep()) {
+						// We have been woken up; finish the cycle that was
+						// started before we went to sleep.
+						runState.startCycle(false, true);
+					}
 					if (call == null) {
 						// Create the initial call (run the main module)
 						GOALInterpreter.this.debugger.breakpoint(
@@ -138,14 +166,21 @@ public class GOALInterpreter<DEBUGGER extends Debugger> extends Controller {
 												.getKRInterface()
 												.getSubstitution(null));
 					}
-					Callable<Callable<?>> out = null;
-					if (call != null) {
+					Callable<Callable<?>> out = call;
+					if (call != null && !runState.isAsleep()) {
 						// Run the current task
 						out = (Callable<Callable<?>>) call.call();
 					}
 					if (out != null && isRunning()) {
-						// Submit the next task (when any)
-						pool.execute(getRunnable(pool, out));
+						if (runState.isAsleep()) {
+							// Do not hold on to a thread while asleep; resume
+							// when new input may have arrived.
+							runState.getWakeUpSignal().park(pool,
+									getRunnable(pool, out));
+						} else {
+							// Submit the next task (when any)
+							pool.execute(getRunnable(pool, out));
+						}
 					} else {
 						// Clean-up (terminate/dispose)
 						GOALInterpreter.this.learner.terminate(
@@ -2,6 +2,7 @@ package goal.core.agent;
 
 import java.util.Set;
 
+import languageTools.program.agent.AgentId;
 import languageTools.program.agent.msg.Message;
 
 /**
@@ -36,6 +37,26 @@ public interface MessagingCapabilities {
 	 */
 	public abstract void postMessage(Message message);
 
+	/**
+	 * Informs about an agent that has been created or removed, so that
+	 * anything known about how to reach it can be updated.
+	 *
+	 * @param id
+	 *            the agent that has been created or removed.
+	 * @param available
+	 *            {@code true} if the agent has been created; {@code false} if
+	 *            it is no longer available.
+	 */
+	public abstract void updateAgentAvailability(AgentId id, boolean available);
+
+	/**
+	 * Sets the signal that should be raised whenever a new message comes in.
+	 *
+	 * @param signal
+	 *            the signal to raise on a new message.
+	 */
+	public abstract void setWakeUpSignal(WakeUpSignal signal);
+
 	/**
 	 * Release any resources held.
 	 */
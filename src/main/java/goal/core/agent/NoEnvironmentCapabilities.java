@@ -1,10 +1,7 @@
 package goal.core.agent;
 
-import java.util.HashSet;
-import java.util.Set;
-
 import eis.iilang.Action;
-import eis.iilang.Percept;
+import goal.core.runtime.service.environmentport.PerceptDelta;
 import goal.tools.errorhandling.Resources;
 import goal.tools.errorhandling.WarningStrings;
 
@@ -22,8 +19,13 @@ public class NoEnvironmentCapabilities implements EnvironmentCapabilities {
 	}
 
 	@Override
-	public Set<Percept> getPercepts() {
-		return new HashSet<>(0);
+	public PerceptDelta getPerceptDelta() {
+		return PerceptDelta.EMPTY;
+	}
+
+	@Override
+	public void reset() {
+		// Does nothing.
 	}
 
 	@Override
@@ -34,6 +36,11 @@ public class NoEnvironmentCapabilities implements EnvironmentCapabilities {
 				action.toProlog()));
 	}
 
+	@Override
+	public void setWakeUpSignal(WakeUpSignal signal) {
+		// Does nothing; no environment is attached.
+	}
+
 	@Override
 	public void dispose() {
 		// Does nothing.
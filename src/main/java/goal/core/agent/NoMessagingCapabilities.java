@@ -3,6 +3,7 @@ package goal.core.agent;
 import java.util.HashSet;
 import java.util.Set;
 
+import languageTools.program.agent.AgentId;
 import languageTools.program.agent.msg.Message;
 
 /**
@@ -28,6 +29,16 @@ public class NoMessagingCapabilities implements MessagingCapabilities {
 		// Does nothing.
 	}
 
+	@Override
+	public void updateAgentAvailability(AgentId id, boolean available) {
+		// Does nothing.
+	}
+
+	@Override
+	public void setWakeUpSignal(WakeUpSignal signal) {
+		// Does nothing; no messages will ever come in.
+	}
+
 	@Override
 	public void dispose() {
 		// Does nothing.
@@ -0,0 +1,167 @@
+package goal.core.agent;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signal used to wake up a sleeping agent when new input may have arrived.
+ *
+ * The {@link MessagingCapabilities} and {@link EnvironmentCapabilities} of an
+ * agent raise this signal whenever a message or environment event comes in. A
+ * sleeping agent either waits on the signal in place (see {@link #await()}) or
+ * parks its next task on it (see {@link #park(Executor, Runnable)}) so that no
+ * thread is kept busy while the agent has nothing to do.
+ *
+ * Percepts are pulled from the environment, and not every environment reports
+ * percept changes through events. A waiting or parked agent is therefore also
+ * woken up after {@link #RECHECK_INTERVAL} milliseconds so that it can check
+ * its inputs again.
+ */
+public class WakeUpSignal {
+	/**
+	 * Time in milliseconds after which a sleeping agent re-checks its inputs
+	 * even if it has not been signalled.
+	 */
+	public static final long RECHECK_INTERVAL = 100;
+
+	/**
+	 * Timer shared by all signals for waking up parked tasks that have not
+	 * been signalled within {@link #RECHECK_INTERVAL}.
+	 */
+	private final static ScheduledExecutorService timer = Executors
+			.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "Agent wake-up timer");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	/**
+	 * True if the signal has been raised since the last {@link #clear()}.
+	 */
+	private boolean signalled = false;
+	/**
+	 * The task that is parked on this signal, if any.
+	 */
+	private Runnable parked = null;
+	/**
+	 * The executor the parked task should be submitted to.
+	 */
+	private Executor parkedOn = null;
+	/**
+	 * The scheduled re-check for the parked task, if any.
+	 */
+	private ScheduledFuture<?> recheck = null;
+
+	private final Runnable signaller = new Runnable() {
+		@Override
+		public void run() {
+			signal();
+		}
+	};
+
+	/**
+	 * Raises the signal. Wakes up any thread waiting on this signal and
+	 * submits the parked task, if any, to its executor.
+	 */
+	public void signal() {
+		Runnable task;
+		Executor executor;
+		synchronized (this) {
+			this.signalled = true;
+			notifyAll();
+			task = this.parked;
+			executor = this.parkedOn;
+			this.parked = null;
+			this.parkedOn = null;
+			if (this.recheck != null) {
+				this.recheck.cancel(false);
+				this.recheck = null;
+			}
+		}
+		// Submit outside of the lock; the executor may run the task in place.
+		if (task != null) {
+			submit(executor, task);
+		}
+	}
+
+	/**
+	 * Resets the signal. Should be called just before an agent checks its
+	 * inputs, so that any input arriving after that check raises the signal
+	 * again.
+	 */
+	public synchronized void clear() {
+		this.signalled = false;
+	}
+
+	/**
+	 * @return true if the signal has been raised since the last
+	 *         {@link #clear()}.
+	 */
+	public synchronized boolean isSignalled() {
+		return this.signalled;
+	}
+
+	/**
+	 * Blocks the calling thread until the signal is raised, or at most
+	 * {@link #RECHECK_INTERVAL} milliseconds. Returns immediately if the
+	 * signal has already been raised.
+	 *
+	 * @throws InterruptedException
+	 *             if the waiting thread was interrupted.
+	 */
+	public synchronized void await() throws InterruptedException {
+		if (!this.signalled) {
+			wait(RECHECK_INTERVAL);
+		}
+	}
+
+	/**
+	 * Parks a task on this signal. The task is submitted to the given
+	 * executor when the signal is raised, or after at most
+	 * {@link #RECHECK_INTERVAL} milliseconds. If the signal has already been
+	 * raised the task is submitted immediately. Any previously parked task is
+	 * replaced.
+	 *
+	 * @param executor
+	 *            the executor to submit the task to.
+	 * @param task
+	 *            the task to run when the signal is raised.
+	 */
+	public void park(Executor executor, Runnable task) {
+		synchronized (this) {
+			if (!this.signalled) {
+				this.parked = task;
+				this.parkedOn = executor;
+				if (this.recheck != null) {
+					this.recheck.cancel(false);
+				}
+				this.recheck = timer.schedule(this.signaller,
+						RECHECK_INTERVAL, TimeUnit.MILLISECONDS);
+				return;
+			}
+		}
+		submit(executor, task);
+	}
+
+	/**
+	 * Submits a parked task. The executor of an agent that has terminated in
+	 * the meantime may have been shut down (see
+	 * {@link AgentScheduler#DEDICATED}); the task is then dropped, as there is
+	 * nothing left for it to do.
+	 */
+	private static void submit(Executor executor, Runnable task) {
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			// The agent has terminated.
+		}
+	}
+}
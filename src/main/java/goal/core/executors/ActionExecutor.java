@@ -112,9 +112,11 @@ public abstract class ActionExecutor {
 		if (action != null) {
 			// Check if action is closed.
 			if (isSufficientlyClosed(action.getAction())) {
-				debugger.breakpoint(Channel.ACTION_PRECOND_EVALUATION,
-						getAction(), getAction().getSourceInfo(),
-						"precondition of %s holds", getAction());
+				if (debugger.isActive(Channel.ACTION_PRECOND_EVALUATION)) {
+					debugger.breakpoint(Channel.ACTION_PRECOND_EVALUATION,
+							getAction(), getAction().getSourceInfo(),
+							"precondition of %s holds", getAction());
+				}
 				// Perform the action if precondition holds.
 				result.merge(action.executeAction(runState, debugger));
 			} else {
@@ -123,7 +125,7 @@ public abstract class ActionExecutor {
 								+ " with free variables, "
 								+ action.getAction().getSourceInfo());
 			}
-		} else {
+		} else if (debugger.isActive(Channel.ACTION_PRECOND_EVALUATION)) {
 			debugger.breakpoint(Channel.ACTION_PRECOND_EVALUATION, getAction(),
 					getAction().getSourceInfo(),
 					"precondition of %s does not hold", getAction().getName());
@@ -189,9 +191,12 @@ public abstract class ActionExecutor {
 	 */
 	protected final void report(Debugger debugger) {
 		boolean builtin = !(this instanceof UserSpecActionExecutor);
-		debugger.breakpoint(builtin ? Channel.ACTION_EXECUTED_BUILTIN
-				: Channel.ACTION_EXECUTED_USERSPEC, getAction(), getAction()
-				.getSourceInfo(), "Performed %s.", getAction());
+		Channel channel = builtin ? Channel.ACTION_EXECUTED_BUILTIN
+				: Channel.ACTION_EXECUTED_USERSPEC;
+		if (debugger.isActive(channel)) {
+			debugger.breakpoint(channel, getAction(), getAction()
+					.getSourceInfo(), "Performed %s.", getAction());
+		}
 	}
 
 	@Override
@@ -3,26 +3,20 @@ package goal.core.executors;
 import eis.iilang.Identifier;
 import eis.iilang.Parameter;
 import goal.core.mentalstate.MentalState;
-import goal.tools.errorhandling.exceptions.GOALBug;
 import goal.tools.errorhandling.exceptions.GOALRuntimeErrorException;
 
-import java.rmi.activation.UnknownObjectException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
-import krTools.KRInterface;
 import krTools.errors.exceptions.KRInitFailedException;
 import krTools.language.Substitution;
 import krTools.language.Term;
 import krTools.language.Var;
 import languageTools.program.agent.AgentId;
-import languageTools.program.agent.rules.Rule;
 import languageTools.program.agent.selector.Selector;
-import mentalstatefactory.InstantiationFailedException;
-import mentalstatefactory.MentalStateFactory;
 
 public class ExecuteTools {
 	/**
@@ -36,29 +30,20 @@ public class ExecuteTools {
 	 *
 	 * @param substitutions
 	 *            A set of substitutions to be mapped onto a single term.
-	 * @param language
-	 *            The KR language.
+	 * @param state
+	 *            The interface to the KR language of the agent; see
+	 *            {@link MentalState#getState()}.
+	 * @param boundVar
+	 *            The variables of the condition of the rule; bindings for
+	 *            those variables will be turned into a list.
 	 * @return A new term for the {@link #variable}. The substitution will be a
 	 *         list of all values for that var in the given set of
 	 *         {@link Substitution}s.
-	 * @throws KRInitFailedException
-	 * @throws UnknownObjectException
 	 */
 	public static Term substitutionsToTerm(Set<Substitution> substitutions,
-			KRInterface language, Rule rule) {
-		mentalState.MentalState state;
-		try {
-			state = MentalStateFactory.getInterface(language.getClass());
-		} catch (InstantiationFailedException e) {
-			throw new GOALBug(
-					"Runtime can't get interface to running language "
-							+ language.getName());
-		}
+			mentalState.MentalState state, Set<Var> boundVar) {
 		// First make single terms from each substitution.
 		List<Term> substsAsTerms = new ArrayList<>(substitutions.size());
-		// Get the variables from the condition of the rule; bindings for those
-		// variables will be turned into a list.
-		Set<Var> boundVar = rule.getCondition().getFreeVar();
 		List<Term> subTerms;
 		for (Substitution substitution : substitutions) {
 			subTerms = new LinkedList<>();
@@ -109,15 +94,6 @@ public class ExecuteTools {
 	public static Set<AgentId> resolve(Selector selector,
 			MentalState mentalState) throws IllegalArgumentException,
 			KRInitFailedException {
-		KRInterface kr = mentalState.getOwner().getKRInterface();
-		mentalState.MentalState state;
-		try {
-			state = MentalStateFactory.getInterface(kr.getClass());
-		} catch (InstantiationFailedException e) {
-			throw new GOALBug(
-					"Runtime can't get interface to running language "
-							+ kr.getName());
-		}
 		// Resolve the selector expressions.
 		HashSet<AgentId> agentNames = new HashSet<>();
 		switch (selector.getType()) {
@@ -132,7 +108,7 @@ public class ExecuteTools {
 			break;
 		case PARAMETERLIST:
 			for (Term term : selector.getParameters()) {
-				Parameter param = state.convert(term);
+				Parameter param = mentalState.getState().convert(term);
 				if (param instanceof Identifier) {
 					agentNames
 							.add(new AgentId(((Identifier) param).getValue()));
@@ -4,7 +4,9 @@ import goal.core.mentalstate.MentalState;
 import goal.tools.debugger.Debugger;
 import goal.tools.debugger.SteppingDebugger;
 import goal.tools.errorhandling.exceptions.GOALDatabaseException;
+import goal.tools.metrics.Metrics.Counter;
 
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -12,12 +14,51 @@ import java.util.Set;
 import krTools.language.Substitution;
 import languageTools.program.agent.msc.MentalLiteral;
 import languageTools.program.agent.msc.MentalStateCondition;
+import languageTools.program.agent.selector.Selector.SelectorType;
 
 public class MentalStateConditionExecutor {
 	private final MentalStateCondition condition;
+	/**
+	 * The literals of the condition in the order they are evaluated in; see
+	 * {@link #plan(List)}.
+	 */
+	private final List<MentalLiteral> plan;
 
 	public MentalStateConditionExecutor(MentalStateCondition condition) {
 		this.condition = condition;
+		this.plan = plan(condition.getAllLiterals());
+	}
+
+	/**
+	 * Determines the order in which the literals of a condition are
+	 * evaluated. Literals that are closed do not depend on the bindings made
+	 * by other literals, so they are evaluated first: each of them is then
+	 * queried once instead of once for every substitution found so far, and
+	 * if one of them fails nothing else needs to be queried. The other
+	 * literals keep their order, as KR built-ins and negation may require
+	 * variables to be bound by the literals before them.
+	 *
+	 * @param literals
+	 *            The literals of a condition, in the order they were written.
+	 * @return The literals in the order they should be evaluated.
+	 */
+	private static List<MentalLiteral> plan(List<MentalLiteral> literals) {
+		List<MentalLiteral> closed = new ArrayList<>(literals.size());
+		List<MentalLiteral> open = new ArrayList<>(literals.size());
+		for (MentalLiteral literal : literals) {
+			SelectorType selector = literal.getSelector().getType();
+			if ((selector == SelectorType.SELF || selector == SelectorType.THIS)
+					&& literal.getFormula().isClosed()) {
+				closed.add(literal);
+			} else {
+				open.add(literal);
+			}
+		}
+		if (closed.isEmpty() || open.isEmpty()) {
+			return literals;
+		}
+		closed.addAll(open);
+		return closed;
 	}
 
 	/**
@@ -66,7 +107,7 @@ public class MentalStateConditionExecutor {
 	 */
 	public Set<Substitution> evaluate(MentalState mentalState, Debugger debugger) throws GOALDatabaseException {
 		Set<Substitution> result, newResults, subResults;
-		List<MentalLiteral> formulas = this.condition.getAllLiterals();
+		List<MentalLiteral> formulas = this.plan;
 		if (formulas.isEmpty()) {
 			// The mental state condition 'empty' represents 'true'.
 			// Return an empty substitution, as no variables need to be bound.
@@ -77,8 +118,10 @@ public class MentalStateConditionExecutor {
 			MentalLiteral currentFormula;
 			// There is at least one mental literal, so evaluate it.
 			result = mentalState.query(formulas.get(0), debugger);
-			// evaluate the other formulas in order
-			for (int i = 1; i < formulas.size(); i++) {
+			int queries = 1;
+			// evaluate the other formulas in order, as long as there are
+			// substitutions left to extend
+			for (int i = 1; i < formulas.size() && !result.isEmpty(); i++) {
 				newResults = new LinkedHashSet<>();
 				currentFormula = formulas.get(i);
 
@@ -87,6 +130,7 @@ public class MentalStateConditionExecutor {
 				for (Substitution oldSubst : result) {
 					subResults = mentalState.query(
 							currentFormula.applySubst(oldSubst), debugger);
+					queries++;
 					// copy the results of the evaluation of the new formula.
 					// make sure to combine the results with the current
 					// partial result, since we're not using a hierarchy.
@@ -97,6 +141,7 @@ public class MentalStateConditionExecutor {
 				// Update the result set.
 				result = newResults;
 			}
+			mentalState.getMetrics().count(Counter.QUERIES, queries);
 		}
 		return result;
 	}
@@ -7,9 +7,11 @@ import goal.tools.errorhandling.Warning;
 import goal.tools.errorhandling.exceptions.GOALActionFailedException;
 import goal.tools.errorhandling.exceptions.GOALBug;
 import goal.tools.errorhandling.exceptions.GOALDatabaseException;
+import goal.tools.metrics.Metrics.Counter;
 import goal.tools.unittest.result.testcondition.TestBoundaryException;
 import goal.tools.unittest.result.testcondition.TestConditionFailedException;
 
+import java.util.ArrayList;
 import java.util.concurrent.Callable;
 
 import krTools.language.DatabaseFormula;
@@ -38,6 +40,13 @@ public class ModuleExecutor {
 	 * The last result of an execute-call
 	 */
 	private Result result;
+	/**
+	 * True if this module is executed step by step through
+	 * {@link #execute(RunState, Substitution)}, in which case the agent may be
+	 * parked while it is asleep; false if the module is executed in one go
+	 * through {@link #executeFully(RunState, Substitution)}.
+	 */
+	private boolean stepwise = false;
 
 	public ModuleExecutor(Module mod) {
 		this.module = mod;
@@ -70,6 +79,7 @@ public class ModuleExecutor {
 	@SuppressWarnings("unchecked")
 	public Result executeFully(final RunState<?> runState,
 			final Substitution substitution) throws GOALActionFailedException {
+		this.stepwise = false;
 		Callable<Callable<?>> call = execute(runState, substitution, true);
 		while (call != null) {
 			try {
@@ -97,11 +107,14 @@ public class ModuleExecutor {
 	 *            it was called, already with the variables renamed according to
 	 *            the focus call so that the module can use it without renaming.
 	 * @return {@link Runnable} for continuing to execute this module. Null when
-	 *         we should stop.
+	 *         we should stop. If {@link RunState#isAsleep()} holds after this
+	 *         call, the cycle should be started again before the returned
+	 *         runnable is executed.
 	 * @throws GOALActionFailedException
 	 */
 	public Callable<Callable<?>> execute(final RunState<?> runState,
 			final Substitution substitution) throws GOALActionFailedException {
+		this.stepwise = true;
 		return execute(runState, substitution, true);
 	}
 
@@ -115,17 +128,21 @@ public class ModuleExecutor {
 			 * exited again.
 			 */
 			runState.enteredModule(this.module);
+			runState.getMetrics().count(Counter.MODULES);
 
 			/*
 			 * Add all initial beliefs defined in the beliefs section of this
 			 * module to the agent's belief base.
 			 */
-			for (DatabaseFormula belief : this.module.getBeliefs()) {
+			if (!this.module.getBeliefs().isEmpty()) {
 				try {
-					runState.getMentalState().insert(belief, BASETYPE.BELIEFBASE,
-							runState.getDebugger(), runState.getId());
+					runState.getMentalState().update(this.module.getBeliefs(),
+							new ArrayList<DatabaseFormula>(0),
+							BASETYPE.BELIEFBASE, runState.getDebugger(),
+							runState.getId());
 				} catch (GOALDatabaseException e) {
-					throw new IllegalStateException("insert "+belief+ "failed unexpectedly", e);
+					throw new IllegalStateException("insert of "
+							+ this.module.getBeliefs() + " failed unexpectedly", e);
 				}
 			}
 
@@ -149,15 +166,15 @@ public class ModuleExecutor {
 			}
 		}
 		// Report (re)entry of non-anonymous module on debug channel.
-		if (this.module.getType() != TYPE.ANONYMOUS) {
+		if (this.module.getType() != TYPE.ANONYMOUS
+				&& runState.getDebugger().isActive(this.entrychannel)) {
 			runState.getDebugger().breakpoint(this.entrychannel, this.module,
 					this.module.getSourceInfo(),
 					"Entering " + this.module.getNamePhrase());
 		}
 
 		// Evaluate and apply the rules of this module
-		this.result = new RulesExecutor(this.module.getRules(),
-				this.module.getRuleEvaluationOrder()).run(runState,
+		this.result = runState.getPlan(this.module).getRules().run(runState,
 				substitution);
 
 		// exit module if {@link ExitModuleAction} has been performed.
@@ -187,10 +204,12 @@ public class ModuleExecutor {
 		// module's rules (otherwise a new cycle would already have been
 		// initiated), and we're currently running within the main module's
 		// context (never start a new cycle when running the init/event or a
-		// module called from either of these two modules).
+		// module called from either of these two modules). Only a module that
+		// is executed step by step can hand back control while asleep.
 		if (!exit && !this.result.hasPerformedAction()
 				&& runState.isMainModuleRunning()) {
-			runState.startCycle(this.result.hasPerformedAction());
+			runState.startCycle(this.result.hasPerformedAction(),
+					this.stepwise);
 		}
 		if (exit) {
 			// If module termination flag has been set, reset it except when
@@ -199,9 +218,11 @@ public class ModuleExecutor {
 			// Also report the module exit on the module's debug channel.
 			if (this.module.getType() != TYPE.ANONYMOUS) {
 				this.result.setModuleTerminated(false);
-				runState.getDebugger().breakpoint(this.exitchannel,
-						this.module, this.module.getSourceInfo(),
-						"Exiting " + this.module.getNamePhrase());
+				if (runState.getDebugger().isActive(this.exitchannel)) {
+					runState.getDebugger().breakpoint(this.exitchannel,
+							this.module, this.module.getSourceInfo(),
+							"Exiting " + this.module.getNamePhrase());
+				}
 			}
 
 			// Remove module again from stack of modules that have been entered
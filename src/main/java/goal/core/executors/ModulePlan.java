@@ -0,0 +1,52 @@
+package goal.core.executors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import languageTools.program.agent.Module;
+import languageTools.program.agent.rules.Rule;
+
+/**
+ * The execution plan of a {@link Module}: the executors of its rules, created
+ * once so that executing the module does not create them (and the
+ * executors of the conditions and actions of its rules) again on every
+ * iteration. A plan only depends on its module, and is not modified after it
+ * has been compiled; see
+ * {@link goal.core.runtime.service.agent.RunState#getPlan(Module)}.
+ */
+public class ModulePlan {
+	private final Module module;
+	private final RulesExecutor rules;
+
+	/**
+	 * Compiles the plan of a module.
+	 *
+	 * @param module
+	 *            The module.
+	 */
+	public ModulePlan(Module module) {
+		this.module = module;
+		List<RuleExecutor> executors = new ArrayList<>(module.getRules()
+				.size());
+		for (Rule rule : module.getRules()) {
+			executors.add(new RuleExecutor(rule));
+		}
+		this.rules = new RulesExecutor(Collections.unmodifiableList(executors),
+				module.getRuleEvaluationOrder());
+	}
+
+	/**
+	 * @return The module this is the plan of.
+	 */
+	public Module getModule() {
+		return this.module;
+	}
+
+	/**
+	 * @return The executor of the rules of the module.
+	 */
+	public RulesExecutor getRules() {
+		return this.rules;
+	}
+}
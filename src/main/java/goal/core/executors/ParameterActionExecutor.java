@@ -27,6 +27,7 @@ public abstract class ParameterActionExecutor<ParamAction extends ParameterActio
     protected Result executeAction(RunState<?> runState, Debugger debugger) throws GOALActionFailedException {
         List<Term> terms = this.action.getParameters();
 
+        runState.doParameterAction();
         return executeActionWithParameters(terms,runState,debugger);
     }
 
@@ -37,7 +37,7 @@ public class PrintActionExecutor extends ActionExecutor {
 		String output = this.action.getParameters().toString();
 		boolean beginQuote = output.startsWith("\"") || output.startsWith("'");
 		boolean endQuote = output.endsWith("\"") || output.endsWith("'");
-		System.out.println(output.substring(beginQuote ? 1 : 0,
+		runState.doPrint(output.substring(beginQuote ? 1 : 0,
 				endQuote ? output.length() - 1 : output.length()));
 
 		report(debugger);
@@ -19,6 +19,7 @@ import java.util.Set;
 
 import krTools.language.Substitution;
 import krTools.language.Term;
+import krTools.language.Var;
 import languageTools.parser.InputStreamPosition;
 import languageTools.program.agent.msc.MentalFormula;
 import languageTools.program.agent.rules.ForallDoRule;
@@ -26,11 +27,85 @@ import languageTools.program.agent.rules.IfThenRule;
 import languageTools.program.agent.rules.ListallDoRule;
 import languageTools.program.agent.rules.Rule;
 
+/**
+ * Executes a {@link Rule}. An executor only depends on its rule, so a single
+ * executor is created for every rule when the {@link ModulePlan} of its module
+ * is compiled, and is reused for every evaluation of the rule.
+ */
 public class RuleExecutor {
 	private final Rule rule;
+	private final MentalStateConditionExecutor condition;
+	private final ActionComboExecutor action;
+	/**
+	 * The variables of the condition of a {@link ListallDoRule}, of which the
+	 * bindings are collected in a list; {@code null} for other rules.
+	 */
+	private final Set<Var> listallVariables;
+	/**
+	 * The source of the condition and the text of the rule, for the debugger;
+	 * only computed when first needed (see {@link #getSpan()}).
+	 */
+	private InputStreamPosition span = null;
+	private String text = null;
 
 	public RuleExecutor(Rule rule) {
 		this.rule = rule;
+		this.condition = new MentalStateConditionExecutor(rule.getCondition());
+		this.action = new ActionComboExecutor(rule.getAction());
+		this.action.setContext(rule.getCondition());
+		this.listallVariables = (rule instanceof ListallDoRule) ? rule
+				.getCondition().getFreeVar() : null;
+	}
+
+	/**
+	 * @return The rule executed by this executor.
+	 */
+	public Rule getRule() {
+		return this.rule;
+	}
+
+	/**
+	 * @return The executor of the condition of the rule.
+	 */
+	MentalStateConditionExecutor getCondition() {
+		return this.condition;
+	}
+
+	/**
+	 * @return The variables of the condition of a {@link ListallDoRule}; see
+	 *         {@link ExecuteTools#substitutionsToTerm}.
+	 */
+	Set<Var> getListallVariables() {
+		return this.listallVariables;
+	}
+
+	/**
+	 * @return The source of the condition of the rule, or {@code null} if it
+	 *         is unknown.
+	 */
+	private InputStreamPosition getSpan() {
+		if (this.text == null) {
+			for (final MentalFormula sub : this.rule.getCondition()
+					.getSubFormulas()) {
+				if (sub.getSourceInfo() instanceof InputStreamPosition) {
+					if (this.span == null) {
+						this.span = (InputStreamPosition) sub.getSourceInfo();
+					} else {
+						this.span.end((InputStreamPosition) sub.getSourceInfo());
+					}
+				}
+			}
+			this.text = this.rule.prettyPrint();
+		}
+		return this.span;
+	}
+
+	/**
+	 * @return The text of the rule.
+	 */
+	private String getText() {
+		getSpan();
+		return this.text;
 	}
 
 	/**
@@ -65,22 +140,20 @@ public class RuleExecutor {
 		MentalState mentalState = runState.getMentalState();
 		Debugger debugger = runState.getDebugger();
 
+		// The position of the condition is only needed for the debugger.
 		InputStreamPosition pos = null;
-		for (final MentalFormula sub : this.rule.getCondition()
-				.getSubFormulas()) {
-			if (sub.getSourceInfo() instanceof InputStreamPosition) {
-				if (pos == null) {
-					pos = (InputStreamPosition) sub.getSourceInfo();
-				} else {
-					pos.end((InputStreamPosition) sub.getSourceInfo());
-				}
-			}
+		if (debugger.isActive(Channel.RULE_CONDITIONAL_VIEW)
+				|| debugger.isActive(Channel.RULE_CONDITION_EVALUATION)
+				|| debugger.isActive(Channel.HIDDEN_RULE_CONDITION_EVALUATION)) {
+			pos = getSpan();
 		}
 
 		// FIXME using #toRuleString to prevent adding trailing dot...
-		debugger.breakpoint(Channel.RULE_CONDITIONAL_VIEW,
-				this.rule.getCondition(), pos, "Evaluating rule %s.",
-				this.rule.prettyPrint());
+		if (debugger.isActive(Channel.RULE_CONDITIONAL_VIEW)) {
+			debugger.breakpoint(Channel.RULE_CONDITIONAL_VIEW,
+					this.rule.getCondition(), pos, "Evaluating rule %s.",
+					getText());
+		}
 
 		// Get substitutions that satisfy rule condition.
 		// determine the rule mode
@@ -91,31 +164,36 @@ public class RuleExecutor {
 					substGoalLinks, debugger);
 		} else {
 			// rule is evaluated using all goals in current attention set.
-			substset = new MentalStateConditionExecutor(
-					this.rule.getCondition()).evaluate(substitution,
-							mentalState, debugger);
+			substset = this.condition.evaluate(substitution, mentalState,
+					debugger);
 		}
 
 		// If condition does not hold (no solutions), then report and return.
 		if (substset.isEmpty()) {
 			// FIXME using #toRuleString to prevent adding trailing dot...
 			// #3079 this must NOT pass the action to the debugger.
-			debugger.breakpoint(Channel.RULE_CONDITION_EVALUATION,
-					this.rule.getCondition(), pos,
-					"Condition of rule %s does not hold.",
-					this.rule.prettyPrint());
+			if (debugger.isActive(Channel.RULE_CONDITION_EVALUATION)) {
+				debugger.breakpoint(Channel.RULE_CONDITION_EVALUATION,
+						this.rule.getCondition(), pos,
+						"Condition of rule %s does not hold.",
+						getText());
+			}
 			return new Result();
 		}
 
 		// FIXME using #toRuleString to prevent adding trailing dot...
 		// #3079 this must pass the ACTION to the debugger
-		debugger.breakpoint(Channel.HIDDEN_RULE_CONDITION_EVALUATION,
-				this.rule.getAction(), pos, "Condition of rule %s holds.",
-				this.rule.prettyPrint());
-		debugger.breakpoint(Channel.RULE_CONDITION_EVALUATION,
-				this.rule.getCondition(), pos,
-				"Condition of rule %s holds for: %s.", this.rule.prettyPrint(),
-				substset);
+		if (debugger.isActive(Channel.HIDDEN_RULE_CONDITION_EVALUATION)) {
+			debugger.breakpoint(Channel.HIDDEN_RULE_CONDITION_EVALUATION,
+					this.rule.getAction(), pos, "Condition of rule %s holds.",
+					getText());
+		}
+		if (debugger.isActive(Channel.RULE_CONDITION_EVALUATION)) {
+			debugger.breakpoint(Channel.RULE_CONDITION_EVALUATION,
+					this.rule.getCondition(), pos,
+					"Condition of rule %s holds for: %s.",
+					getText(), substset);
+		}
 
 		// Apply rule.
 		Result result = apply(runState, substset, substGoalLinks, substitution);
@@ -132,9 +210,7 @@ public class RuleExecutor {
 	private Result apply(RunState<?> runState, Set<Substitution> substset,
 			HashMap<Substitution, List<SingleGoal>> substGoalLinks,
 			Substitution globalsubst) throws GOALActionFailedException {
-		final ActionComboExecutor executor = new ActionComboExecutor(
-				this.rule.getAction());
-		executor.setContext(this.rule.getCondition());
+		final ActionComboExecutor executor = this.action;
 		Result result = new Result();
 		// TODO: does not yet take collecting of goals for FILTER and SELECT
 		// options of modules into account...
@@ -210,7 +286,7 @@ public class RuleExecutor {
 			// Create new substitution, replacing our #variable.
 			Substitution fullSubst = globalsubst.clone();
 			Term newTerm = ExecuteTools.substitutionsToTerm(applicableSubst,
-					runState.getActiveModule().getKRInterface(), this.rule);
+					runState.getMentalState().getState(), this.listallVariables);
 			fullSubst.addBinding(((ListallDoRule) this.rule).getVariable(),
 					newTerm);
 
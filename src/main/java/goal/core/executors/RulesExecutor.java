@@ -16,7 +16,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
-import krTools.KRInterface;
 import krTools.errors.exceptions.KRInitFailedException;
 import krTools.errors.exceptions.KRQueryFailedException;
 import krTools.language.Substitution;
@@ -26,17 +25,27 @@ import languageTools.program.agent.actions.ActionCombo;
 import languageTools.program.agent.rules.ListallDoRule;
 import languageTools.program.agent.rules.Rule;
 
+/**
+ * Executes the rules of a module. Part of the {@link ModulePlan} of the
+ * module, so it is reused for every execution of the module.
+ */
 public class RulesExecutor {
 	/**
-	 * The set of rules in this container.
+	 * The executors of the rules in this container, in order.
 	 */
-	private List<Rule> rules = new LinkedList<>();
+	private final List<RuleExecutor> rules;
 	/**
 	 * Determines how the next action to be executed is selected.
 	 */
 	private final RuleEvaluationOrder ruleOrder;
 
-	public RulesExecutor(List<Rule> rules, RuleEvaluationOrder ruleOrder) {
+	/**
+	 * @param rules
+	 *            The executors of the rules, in order; not modified.
+	 * @param ruleOrder
+	 *            How the rules are evaluated.
+	 */
+	public RulesExecutor(List<RuleExecutor> rules, RuleEvaluationOrder ruleOrder) {
 		this.rules = rules;
 		this.ruleOrder = ruleOrder;
 	}
@@ -60,10 +69,8 @@ public class RulesExecutor {
 	@SuppressWarnings("fallthrough")
 	public Result run(RunState<?> runState, Substitution substitution)
 			throws GOALActionFailedException {
-		KRInterface krInterface = runState.getActiveModule().getKRInterface();
 		Result result = new Result();
-		// Make a copy of the rules so we don't shuffle the original below.
-		List<Rule> rules = new ArrayList<>(this.rules);
+		List<RuleExecutor> rules = this.rules;
 
 		switch (this.ruleOrder) {
 		case ADAPTIVE:
@@ -76,12 +83,15 @@ public class RulesExecutor {
 			MentalState ms = runState.getMentalState();
 
 			runState.incrementRoundCounter();
-			runState.getDebugger().breakpoint(
-					Channel.REASONING_CYCLE_SEPARATOR,
-					null,
-					null,
-					"+++++++ Adaptive Cycle " + runState.getRoundCounter()
-							+ " +++++++ ");
+			if (runState.getDebugger().isActive(
+					Channel.REASONING_CYCLE_SEPARATOR)) {
+				runState.getDebugger().breakpoint(
+						Channel.REASONING_CYCLE_SEPARATOR,
+						null,
+						null,
+						"+++++++ Adaptive Cycle " + runState.getRoundCounter()
+								+ " +++++++ ");
+			}
 
 			/*
 			 * Get the learner to choose one action option, from the input list
@@ -89,7 +99,7 @@ public class RulesExecutor {
 			 */
 			List<ActionCombo> options;
 			try {
-				options = getActionOptions(ms,runState.getDebugger(), krInterface);
+				options = getActionOptions(ms, runState.getDebugger());
 			} catch (GOALDatabaseException e1) {
 				throw new GOALActionFailedException("could not get action options for the rules",e1);
 			}
@@ -133,13 +143,15 @@ public class RulesExecutor {
 			}
 			break;
 		case RANDOM:
+			// Make a copy of the rules so we don't shuffle the original.
+			rules = new ArrayList<>(rules);
 			Collections.shuffle(rules);
 		case LINEAR:
-			for (Rule rule : rules) {
+			for (RuleExecutor rule : rules) {
 				try {
-					result = new RuleExecutor(rule).run(runState, substitution);
+					result = rule.run(runState, substitution);
 				} catch (GOALDatabaseException e) {
-					throw new GOALActionFailedException("rule "+rule+" failed to run", e);
+					throw new GOALActionFailedException("rule "+rule.getRule()+" failed to run", e);
 				}
 				if (result.isFinished()) {
 					break;
@@ -147,15 +159,16 @@ public class RulesExecutor {
 			}
 			break;
 		case RANDOMALL:
+			rules = new ArrayList<>(rules);
 			Collections.shuffle(rules);
 		case LINEARALL:
 			// Continue evaluating and applying rule as long as there are more,
 			// and no {@link ExitModuleAction} has been performed.
-			for (Rule rule : rules) {
+			for (RuleExecutor rule : rules) {
 				try {
-					result.merge(new RuleExecutor(rule).run(runState, substitution));
+					result.merge(rule.run(runState, substitution));
 				} catch (GOALDatabaseException e) {
-					throw new GOALActionFailedException("rule "+rule+" failed to run", e);
+					throw new GOALActionFailedException("rule "+rule.getRule()+" failed to run", e);
 				}
 				if (result.isModuleTerminated()) {
 					break;
@@ -194,8 +207,7 @@ public class RulesExecutor {
 	 */
 	@SuppressWarnings("fallthrough")
 	private final List<ActionCombo> getActionOptions(MentalState mentalState,
-			Debugger debugger, KRInterface krInterface)
-			throws GOALDatabaseException {
+			Debugger debugger) throws GOALDatabaseException {
 		List<ActionCombo> actionOptions = new LinkedList<>();
 		Set<Substitution> solutions;
 		boolean finished = false;
@@ -216,14 +228,14 @@ public class RulesExecutor {
 		 * and return the options of that rule only; otherwise check all rules
 		 * and return the options for every rule that is applicable.
 		 */
-		for (Rule rule : this.rules) {
+		for (RuleExecutor executor : this.rules) {
+			Rule rule = executor.getRule();
 			// Evaluate the rule's condition.
-			solutions = new MentalStateConditionExecutor(rule.getCondition())
-					.evaluate(mentalState, debugger);
+			solutions = executor.getCondition().evaluate(mentalState, debugger);
 			// Listall rules need to be processed further.
 			if (rule instanceof ListallDoRule) {
-				solutions = getVarSubstitution((ListallDoRule) rule, solutions,
-						krInterface);
+				solutions = getVarSubstitution(executor, solutions,
+						mentalState);
 			}
 
 			// If condition holds, then check for action options;
@@ -270,28 +282,30 @@ public class RulesExecutor {
 	 * Create a set with a single substitution that assigns the (parameter)
 	 * solutions to the variable of this rule.
 	 *
+	 * @param executor
+	 *            The executor of a {@link ListallDoRule}.
 	 * @param solutions
 	 *            The set of solutions to process.
-	 * @param language
-	 *            The KR language.
+	 * @param mentalState
+	 *            The mental state of the agent.
 	 *
 	 * @return A singleton set with a substitution that binds the variable of
 	 *         this rule with all solution substitutions provided as parameter.
-	 * @throws UnknownObjectException
-	 * @throws KRInitFailedException
 	 */
-	protected Set<Substitution> getVarSubstitution(ListallDoRule rule,
-			Set<Substitution> solutions, KRInterface krInterface) {
+	protected Set<Substitution> getVarSubstitution(RuleExecutor executor,
+			Set<Substitution> solutions, MentalState mentalState) {
 		// If the solution set is empty, then the variable of this rule should
 		// not be instantiated and we simply return the empty set.
 		if (solutions.isEmpty()) {
 			return solutions;
 		}
 		// Create the substitution for the variable of this listall rule.
-		Term term = ExecuteTools.substitutionsToTerm(solutions, krInterface,
-				rule);
-		Substitution varSubst = krInterface.getSubstitution(null);
-		varSubst.addBinding(rule.getVariable(), term);
+		Term term = ExecuteTools.substitutionsToTerm(solutions,
+				mentalState.getState(), executor.getListallVariables());
+		Substitution varSubst = mentalState.getOwner().getKRInterface()
+				.getSubstitution(null);
+		varSubst.addBinding(((ListallDoRule) executor.getRule()).getVariable(),
+				term);
 		// Add that substitution to a set and return it.
 		Set<Substitution> result = new LinkedHashSet<>(1);
 		result.add(varSubst);
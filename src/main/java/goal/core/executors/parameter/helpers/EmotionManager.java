@@ -2,10 +2,13 @@ package goal.core.executors.parameter.helpers;
 
 import goal.core.mentalstate.MentalState;
 import goal.tools.debugger.Debugger;
+import goal.tools.errorhandling.Warning;
 import goal.tools.errorhandling.exceptions.GOALDatabaseException;
 import jpl.Compound;
 import jpl.Variable;
+import krTools.language.DatabaseFormula;
 import krTools.language.Substitution;
+import krTools.language.Update;
 import krTools.parser.SourceInfo;
 import mentalState.BASETYPE;
 import swiprolog.language.PrologDBFormula;
@@ -13,6 +16,7 @@ import swiprolog.language.PrologQuery;
 import swiprolog.language.PrologUpdate;
 import vh3.goalgamygdala.GoalGamygdala;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -34,6 +38,9 @@ public class EmotionManager {
     }
 
     public void updateEmotions(MentalState mentalState, Debugger debugger, SourceInfo sourceInfo){
+        // Replace the old emotions by the new ones in a single update.
+        List<DatabaseFormula> deleteList = new ArrayList<>();
+        List<DatabaseFormula> addList = new ArrayList<>();
         try {
             Set<Substitution> substitutions = mentalState.getOwnBase(BASETYPE.BELIEFBASE).query(new PrologQuery(
                     new Compound("emotion", new jpl.Term[]{
@@ -47,35 +54,44 @@ public class EmotionManager {
 
             while(substitutionIterator.hasNext()){
                 Substitution substitution = substitutionIterator.next();
-                mentalState.delete(
+                deleteList.add(
                         new PrologDBFormula(
                                 new Compound("emotion", new jpl.Term[]{
                                         new Variable("A"),
                                         new Variable("B")
                                 }
                                 ), sourceInfo
-                        ).applySubst(substitution),
-                        BASETYPE.BELIEFBASE,
-                        debugger
+                        ).applySubst(substitution)
                 );
             }
 
         } catch (GOALDatabaseException e) {
-            e.printStackTrace();
+            // Without the old emotions, the new ones cannot replace them.
+            new Warning(debugger, "Could not query the emotions of "
+                    + mentalState.getAgentId(), e);
+            return;
         }
 
         try {
             List<Compound> emotions = goalGamygdala.getAgentByName(mentalState.getAgentId().getName()).getEmotions();
             for(Compound c : emotions){
-                try {
-                    mentalState.insert(new PrologUpdate(c,sourceInfo),BASETYPE.BELIEFBASE,debugger);
-                } catch (GOALDatabaseException e) {
-                    e.printStackTrace();
-                }
+                Update emotion = new PrologUpdate(c,sourceInfo);
+                deleteList.addAll(emotion.getDeleteList());
+                addList.addAll(emotion.getAddList());
             }
         }catch(NullPointerException e){
-            System.out.println(mentalState.getAgentId().getName());
-            e.printStackTrace();
+            // The agent is not known to gamygdala; keep its old emotions.
+            new Warning(debugger, "Could not get the emotions of "
+                    + mentalState.getAgentId() + " from gamygdala", e);
+            return;
+        }
+
+        try {
+            mentalState.update(addList,deleteList,BASETYPE.BELIEFBASE,debugger);
+        } catch (GOALDatabaseException e) {
+            // The update has been undone, so the old emotions are kept.
+            new Warning(debugger, "Could not update the emotions of "
+                    + mentalState.getAgentId(), e);
         }
     }
 }
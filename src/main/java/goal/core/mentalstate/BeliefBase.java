@@ -28,10 +28,16 @@ import goal.tools.errorhandling.exceptions.GOALBug;
 import goal.tools.errorhandling.exceptions.GOALDatabaseException;
 import goal.tools.errorhandling.exceptions.GOALRuntimeErrorException;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.Observable;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import krTools.KRInterface;
 import krTools.database.Database;
@@ -97,9 +103,34 @@ public class BeliefBase {
 	 */
 	private final mentalState.MentalState state;
 	/**
-	 * Keeps track of number of queries and updates performed.
+	 * Version of the contents of this base; see {@link #getVersion()}.
 	 */
-	private final long count = 0;
+	private long version = MentalModel.nextVersion();
+	/**
+	 * Keeps track of number of queries and updates performed, and of the time
+	 * used by the KR layer.
+	 */
+	private final KRCost cost = new KRCost();
+	/**
+	 * The facts about the existence of agents that have been added to this
+	 * base; see {@link #updateAgentFact(boolean, AgentId, boolean)}.
+	 */
+	private final Set<DatabaseFormula> agentFacts = new HashSet<>();
+	/**
+	 * The version of this base at the last change of facts with a signature,
+	 * by signature; see {@link #getVersion(Set)}.
+	 */
+	private final Map<String, Long> signatureVersions = new ConcurrentHashMap<>();
+	/**
+	 * The version of this base at the last change that may concern facts with
+	 * any signature, e.g. of a rule.
+	 */
+	private volatile long unindexedVersion = this.version;
+	/**
+	 * The number of rules in this base. While there are any, every change may
+	 * concern facts with any signature.
+	 */
+	private int rules = 0;
 
 	/**
 	 * <p>
@@ -141,6 +172,11 @@ public class BeliefBase {
 		this.state = state;
 		this.theory = new Theory(content);
 		this.database = state.makeDatabase(this.type, content, owner);
+		for (DatabaseFormula formula : this.theory.getFormulaList()) {
+			if (GoalIndex.isRule(formula)) {
+				this.rules++;
+			}
+		}
 	}
 
 	/**
@@ -191,7 +227,10 @@ public class BeliefBase {
 	 */
 	public final Set<Substitution> query(Query formula, Debugger debugger) throws GOALDatabaseException {
 		try {
-			return this.database.query(formula);
+			long start = this.cost.start();
+			Set<Substitution> result = this.database.query(formula);
+			this.cost.stop(start);
+			return result;
 		} catch (KRQueryFailedException e) {
 			throw new GOALDatabaseException(String.format(
 					Resources.get(WarningStrings.FAILED_DB_QUERY),
@@ -217,8 +256,12 @@ public class BeliefBase {
 	public boolean insert(DatabaseFormula formula, Debugger debugger) throws GOALDatabaseException {
 		boolean change = this.theory.add(formula);
 		if (change) {
+			this.version = MentalModel.nextVersion();
 			try {
+				long start = this.cost.start();
 				this.database.insert(formula);
+				this.cost.stop(start);
+				changed(formula, true);
 			} catch (KRDatabaseException e) {
 				throw new GOALDatabaseException(String.format(
 						Resources.get(WarningStrings.FAILED_ADD_DBFORMULA),
@@ -229,9 +272,12 @@ public class BeliefBase {
 
 			}
 
-			debugger.breakpoint(getChannel(), formula, formula.getSourceInfo(),
-					"%s has been inserted into the belief base of %s.",
-					formula, this.agentName);
+			if (debugger.isActive(getChannel())) {
+				debugger.breakpoint(getChannel(), formula,
+						formula.getSourceInfo(),
+						"%s has been inserted into the belief base of %s.",
+						formula, this.agentName);
+			}
 		}
 		return change;
 	}
@@ -261,16 +307,20 @@ public class BeliefBase {
 	 */
 	public void insert(Message message, boolean received, Debugger debugger) throws GOALDatabaseException {
 		Set<DatabaseFormula> updates;
+		this.version = MentalModel.nextVersion();
 		try {
+			long start = this.cost.start();
 			updates = this.state.insert(this.database, message, received);
+			this.cost.stop(start);
 		} catch (KRDatabaseException e) {
 			throw new GOALDatabaseException(String.format(
 					"Failed to add message %s to %s (received: %s)",
 					message.toString(), this.database.getName(), received), e);
 		}
 		for (DatabaseFormula formula : updates) {
+			changed(formula, true);
 			boolean change = this.theory.add(formula);
-			if (change) {
+			if (change && debugger.isActive(getChannel())) {
 				debugger.breakpoint(getChannel(), formula,
 						formula.getSourceInfo(),
 						"%s has been inserted into the mailbox of %s.",
@@ -279,6 +329,65 @@ public class BeliefBase {
 		}
 	}
 
+	/**
+	 * Inserts messages into the mailbox, as
+	 * {@link #insert(Message, boolean, Debugger)} does for a single message,
+	 * but as a single update: the version of the base changes once, the
+	 * formulas are added to the theory at once, and a single debug event
+	 * reports all formulas that have been inserted. If one of the messages
+	 * cannot be inserted, the messages inserted before it are removed again,
+	 * so the base is left as it was.
+	 *
+	 * @param messages
+	 *            The messages.
+	 * @param received
+	 *            {@code true} if the messages were received, {@code false} if
+	 *            they were sent.
+	 * @param debugger
+	 *            The debugger monitoring the insertion.
+	 * @throws GOALDatabaseException
+	 *             If a message could not be inserted into the database.
+	 */
+	public void insert(Collection<Message> messages, boolean received,
+			Debugger debugger) throws GOALDatabaseException {
+		if (messages.isEmpty()) {
+			return;
+		}
+		this.version = MentalModel.nextVersion();
+		Set<DatabaseFormula> updates = new LinkedHashSet<>();
+		for (Message message : messages) {
+			Set<DatabaseFormula> inserted;
+			long start = this.cost.start();
+			try {
+				inserted = this.state.insert(this.database, message, received);
+			} catch (KRDatabaseException e) {
+				GOALDatabaseException failure = new GOALDatabaseException(
+						String.format(
+								"Failed to add message %s to %s (received: %s)",
+								message.toString(), this.database.getName(),
+								received), e);
+				// Remove the messages inserted before, so the database stays
+				// in sync with the theory, which has not been changed yet.
+				undo(new ArrayList<>(updates),
+						new ArrayList<DatabaseFormula>(0), failure);
+				throw failure;
+			} finally {
+				this.cost.stop(start);
+			}
+			for (DatabaseFormula formula : inserted) {
+				if (updates.add(formula)) {
+					changed(formula, true);
+				}
+			}
+		}
+		this.theory.add(updates);
+		if (debugger.isActive(getChannel())) {
+			debugger.breakpoint(getChannel(), new ArrayList<>(updates), null,
+					"%s mails have been inserted into the mailbox of %s.",
+					updates.size(), this.agentName);
+		}
+	}
+
 	/**
 	 * Removes a {@link DatbaseFormula} from the database, if the database
 	 * contains the formula.
@@ -295,8 +404,12 @@ public class BeliefBase {
 	public boolean delete(DatabaseFormula formula, Debugger debugger) throws GOALDatabaseException {
 		boolean changed = this.theory.remove(formula);
 		if (changed) {
+			this.version = MentalModel.nextVersion();
 			try {
+				long start = this.cost.start();
 				this.database.delete(formula);
+				this.cost.stop(start);
+				changed(formula, false);
 			} catch (KRDatabaseException e) {
 				throw new GOALDatabaseException(String.format(
 						Resources.get(WarningStrings.FAILED_DEL_DBFORMULA),
@@ -306,9 +419,12 @@ public class BeliefBase {
 				// changed = !this.theory.add(formula);
 			}
 
-			debugger.breakpoint(getChannel(), formula, formula.getSourceInfo(),
-					"%s has been deleted from the belief base of %s.", formula,
-					this.agentName);
+			if (debugger.isActive(getChannel())) {
+				debugger.breakpoint(getChannel(), formula,
+						formula.getSourceInfo(),
+						"%s has been deleted from the belief base of %s.",
+						formula, this.agentName);
+			}
 		}
 		return changed;
 	}
@@ -334,6 +450,13 @@ public class BeliefBase {
 	 * list to this {@link BeliefBase}. First removes and then adds, so any
 	 * formulas that appear in both lists will result in adding the formula if
 	 * it is not already present.
+	 * <p>
+	 * The update is applied as a whole: the theory is updated at once, the
+	 * version of the base changes once, and the formulas that have been
+	 * deleted and inserted are each reported in a single debug event. If the
+	 * KR database fails to apply part of the update, the part that was
+	 * applied is undone, so the base is left as it was.
+	 * </p>
 	 *
 	 * @param addList
 	 *            The 'add' list of formulas that are to be inserted.
@@ -344,24 +467,118 @@ public class BeliefBase {
 	 *
 	 * @return <code>true</code> if anything changed; <code>false</code>
 	 *         otherwise.
-	 * @throws GOALDatabaseException 
+	 * @throws GOALDatabaseException
+	 *             If the KR database failed to apply the update.
 	 */
 	public boolean update(List<DatabaseFormula> addList,
 			List<DatabaseFormula> deleteList, Debugger debugger) throws GOALDatabaseException {
-		boolean changed = false;
+		List<DatabaseFormula> added = new ArrayList<>(addList.size());
+		List<DatabaseFormula> deleted = new ArrayList<>(deleteList.size());
+		if (!this.theory.update(addList, deleteList, added, deleted)) {
+			return false;
+		}
+		this.version = MentalModel.nextVersion();
 
-		// Delegate reporting to methods called.
+		// Apply the changes in the theory to the database.
+		int deletes = 0;
+		int inserts = 0;
+		DatabaseFormula formula = null;
+		try {
+			for (; deletes < deleted.size(); deletes++) {
+				formula = deleted.get(deletes);
+				long start = this.cost.start();
+				this.database.delete(formula);
+				this.cost.stop(start);
+				changed(formula, false);
+			}
+			for (; inserts < added.size(); inserts++) {
+				formula = added.get(inserts);
+				long start = this.cost.start();
+				this.database.insert(formula);
+				this.cost.stop(start);
+				changed(formula, true);
+			}
+		} catch (KRDatabaseException e) {
+			WarningStrings warning = (deletes < deleted.size()) ? WarningStrings.FAILED_DEL_DBFORMULA
+					: WarningStrings.FAILED_ADD_DBFORMULA;
+			GOALDatabaseException failure = new GOALDatabaseException(
+					String.format(Resources.get(warning), formula.toString(),
+							this.database.getName()), e);
+			undo(added.subList(0, inserts), deleted.subList(0, deletes),
+					failure);
+			this.theory.update(deleted, added, new ArrayList<DatabaseFormula>(),
+					new ArrayList<DatabaseFormula>());
+			throw failure;
+		}
+
+		report(deleted, false, debugger);
+		report(added, true, debugger);
+		return true;
+	}
 
-		// First handle the delete list and remove formulas.
-		for (DatabaseFormula formula : deleteList) {
-			changed = this.delete(formula, debugger) || changed;
+	/**
+	 * Undoes the part of an update that the KR database did apply, after it
+	 * failed to apply the rest; see {@link #update(List, List, Debugger)} and
+	 * {@link #insert(Collection, boolean, Debugger)}. Failures to undo are
+	 * added to the failure of the update.
+	 *
+	 * @param inserted
+	 *            The formulas that have been inserted into the database.
+	 * @param deleted
+	 *            The formulas that have been deleted from the database.
+	 * @param failure
+	 *            The failure of the update.
+	 */
+	private void undo(List<DatabaseFormula> inserted,
+			List<DatabaseFormula> deleted, GOALDatabaseException failure) {
+		for (DatabaseFormula formula : inserted) {
+			try {
+				this.database.delete(formula);
+				changed(formula, false);
+			} catch (KRDatabaseException e) {
+				failure.addSuppressed(e);
+			}
 		}
-		// And then handle the add list and add formulas.
-		for (DatabaseFormula formula : addList) {
-			changed = this.insert(formula, debugger) || changed;
+		for (DatabaseFormula formula : deleted) {
+			try {
+				this.database.insert(formula);
+				changed(formula, true);
+			} catch (KRDatabaseException e) {
+				failure.addSuppressed(e);
+			}
 		}
+	}
 
-		return changed;
+	/**
+	 * Reports formulas that have been inserted into or deleted from this
+	 * base in a single debug event, if there are any.
+	 *
+	 * @param formulas
+	 *            The formulas.
+	 * @param inserted
+	 *            {@code true} if the formulas have been inserted,
+	 *            {@code false} if they have been deleted.
+	 * @param debugger
+	 *            The debugger to report to.
+	 */
+	private void report(List<DatabaseFormula> formulas, boolean inserted,
+			Debugger debugger) {
+		if (formulas.isEmpty() || !debugger.isActive(getChannel())) {
+			return;
+		}
+		if (formulas.size() == 1) {
+			DatabaseFormula formula = formulas.get(0);
+			debugger.breakpoint(getChannel(), formula, formula.getSourceInfo(),
+					inserted ? "%s has been inserted into the %s of %s."
+							: "%s has been deleted from the %s of %s.",
+					formula, getBaseName(), this.agentName);
+		} else {
+			debugger.breakpoint(getChannel(), formulas, formulas.get(0)
+					.getSourceInfo(),
+					inserted ? "%s have been inserted into the %s of %s."
+							: "%s have been deleted from the %s of %s.",
+					formulas, getBaseName(), this.agentName);
+		}
 	}
 
 	/**
@@ -380,19 +597,24 @@ public class BeliefBase {
 	public void updatePercepts(Set<Percept> addList, Set<Percept> deleteList,
 			Debugger debugger) {
 		if (!addList.isEmpty() || !deleteList.isEmpty()) {
+			this.version = MentalModel.nextVersion();
 			debugger.breakpoint(Channel.PERCEPTS, null, null,
 					"Processing percepts.");
 
 			Database perceptbase = getDatabase();
+			boolean report = debugger.isActive(getChannel());
 			for (eis.iilang.Percept percept : deleteList) {
 				try {
 					DatabaseFormula formula = this.state.delete(perceptbase,
 							percept);
 					this.theory.remove(formula);
-					debugger.breakpoint(getChannel(), formula,
-							formula.getSourceInfo(),
-							"%s has been deleted from the percept base of %s.",
-							formula, this.agentName);
+					changed(formula, false);
+					if (report) {
+						debugger.breakpoint(getChannel(), formula, formula
+								.getSourceInfo(),
+								"%s has been deleted from the percept base of %s.",
+								formula, this.agentName);
+					}
 				} catch (KRDatabaseException e) {
 					throw new GOALRuntimeErrorException(
 							"Could not delete percept" + percept + " from "
@@ -404,12 +626,13 @@ public class BeliefBase {
 					DatabaseFormula formula = this.state.insert(perceptbase,
 							percept);
 					this.theory.add(formula);
-					debugger.breakpoint(
-							getChannel(),
-							formula,
-							formula.getSourceInfo(),
-							"%s has been inserted into the percept base of %s.",
-							formula, this.agentName);
+					changed(formula, true);
+					if (report) {
+						debugger.breakpoint(getChannel(), formula, formula
+								.getSourceInfo(),
+								"%s has been inserted into the percept base of %s.",
+								formula, this.agentName);
+					}
 				} catch (KRDatabaseException e) {
 					throw new GOALRuntimeErrorException("Could not add percept"
 							+ percept + " into " + this.agentName + "'s"
@@ -431,12 +654,15 @@ public class BeliefBase {
 	 * @throws KRInitFailedException
 	 */
 	public void updateAgentFact(boolean insert, AgentId id, boolean me) {
+		this.version = MentalModel.nextVersion();
 		try {
 			Set<DatabaseFormula> updates = this.state.updateAgentFact(
 					this.database, insert, id, me);
 			for (DatabaseFormula formula : updates) {
 				this.theory.add(formula);
+				changed(formula, insert);
 			}
+			this.agentFacts.addAll(updates);
 		} catch (KRDatabaseException e) {
 			throw new GOALRuntimeErrorException("Could not "
 					+ (insert ? "add " : "remove ") + "fact that " + id
@@ -454,6 +680,75 @@ public class BeliefBase {
 		// ".", id);
 	}
 
+	/**
+	 * Returns the contents of this base from which it can be created again,
+	 * e.g. for a {@link MentalStateSnapshot}. The facts about the existence
+	 * of agents are left out, as these are inserted again when the agents are
+	 * announced to the new base.
+	 *
+	 * @return The formulas in this base, in the order they were added, except
+	 *         for the facts about the existence of agents.
+	 */
+	public List<DatabaseFormula> getSnapshot() {
+		List<DatabaseFormula> content = this.theory.getFormulaList();
+		content.removeAll(this.agentFacts);
+		return content;
+	}
+
+	/**
+	 * Returns the version of the contents of this base. The version changes
+	 * whenever the contents of the base change, and is never reused by any
+	 * other base; see {@link MentalModel#nextVersion()}.
+	 *
+	 * @return The current version of this base.
+	 */
+	public long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Returns the version of the contents of this base as far as facts with
+	 * the given signatures are concerned: it changes whenever such facts are
+	 * inserted or deleted, and whenever something changes that may concern
+	 * facts with any signature (e.g. a rule). It is never higher than
+	 * {@link #getVersion()}.
+	 *
+	 * @param signatures
+	 *            Signatures name/arity of facts.
+	 * @return The version of the facts with the signatures.
+	 */
+	public long getVersion(Set<String> signatures) {
+		long version = this.unindexedVersion;
+		for (String signature : signatures) {
+			Long changed = this.signatureVersions.get(signature);
+			if (changed != null && changed > version) {
+				version = changed;
+			}
+		}
+		return version;
+	}
+
+	/**
+	 * Records a change of a formula for {@link #getVersion(Set)}; should be
+	 * called after the version of the base has been changed.
+	 *
+	 * @param formula
+	 *            The formula that was inserted or deleted.
+	 * @param inserted
+	 *            {@code true} if the formula was inserted.
+	 */
+	private void changed(DatabaseFormula formula, boolean inserted) {
+		if (GoalIndex.isRule(formula)) {
+			this.rules += inserted ? 1 : -1;
+		}
+		String signature = GoalIndex.getFactSignature(formula);
+		if (signature == null || this.rules > 0) {
+			this.unindexedVersion = this.version;
+		} else {
+			this.signatureVersions.put(signature, this.version);
+		}
+	}
+
 	// *********** helper methods ****************/
 
 	/**
@@ -465,6 +760,20 @@ public class BeliefBase {
 		return this.type + "[\n" + this.theory + "]";
 	}
 
+	/**
+	 * @return The name of this type of base, as used in debug messages.
+	 */
+	private String getBaseName() {
+		switch (this.type) {
+		case MAILBOX:
+			return "mailbox";
+		case PERCEPTBASE:
+			return "percept base";
+		default:
+			return "belief base";
+		}
+	}
+
 	/**
 	 * Returns the channel on which debug messages should be reported for this
 	 * particular database type.
@@ -490,12 +799,32 @@ public class BeliefBase {
 
 	/**
 	 * Returns the total number of queries and updates that have been performed
-	 * on this {@link BeliefBase} while executing a GOAL agent.
+	 * on this {@link BeliefBase} while executing a GOAL agent; see
+	 * {@link KRCost}.
 	 *
 	 * @return The total number of queries performed on this belief base.
 	 */
 	public long getCount() {
-		return this.count;
+		return this.cost.getCount();
+	}
+
+	/**
+	 * Returns the time used to perform queries and updates on this
+	 * {@link BeliefBase} by the KR language; see {@link KRCost}.
+	 *
+	 * @return The time in nanoseconds used to perform queries and updates on
+	 *         this belief base by the KR language.
+	 */
+	public long getTimeUsedByKR() {
+		return this.cost.getTime();
+	}
+
+	/**
+	 * @return The account of the queries and updates performed on this belief
+	 *         base.
+	 */
+	KRCost getCost() {
+		return this.cost;
 	}
 
 }
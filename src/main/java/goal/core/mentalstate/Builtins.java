@@ -0,0 +1,105 @@
+package goal.core.mentalstate;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import krTools.language.DatabaseFormula;
+import krTools.language.Query;
+import languageTools.program.agent.AgentProgram;
+import swiprolog.language.PrologDBFormula;
+import swiprolog.language.PrologQuery;
+
+/**
+ * Recognizes the Prolog built-ins of which the results do not only depend on
+ * the contents of the databases they are queried on, such as random numbers,
+ * the clock and global variables, or that change the databases themselves or
+ * write output.
+ * Queries using these cannot be answered from the results of an earlier query;
+ * see {@link MentalModel#query}.
+ */
+final class Builtins {
+	/**
+	 * Names of the built-ins of which the results may differ between two calls
+	 * on the same databases, or that have effects that a cached result would
+	 * skip.
+	 */
+	private static final Set<String> impure = new HashSet<>(Arrays.asList(
+			"random", "random_between", "random_member", "random_select",
+			"random_permutation", "random_float", "set_random", "get_time",
+			"statistics", "cputime", "realtime", "assert", "asserta",
+			"assertz", "retract", "retractall", "abolish", "b_getval",
+			"b_setval", "nb_getval", "nb_setval", "flag", "gensym",
+			"reset_gensym", "read", "read_term", "get_char", "getenv",
+			"write", "writeln", "writeq", "print", "write_canonical",
+			"write_term", "format", "nl", "tab", "put_char",
+			"portray_clause", "print_message"));
+	/**
+	 * Whether the knowledge of an agent program is free of impure built-ins.
+	 */
+	private static final Map<AgentProgram, Boolean> pureKnowledge = new WeakHashMap<>();
+
+	/**
+	 * @param query
+	 *            A query.
+	 * @return {@code false} if the query is a Prolog query that calls an
+	 *         impure built-in anywhere in it, {@code true} otherwise.
+	 */
+	static boolean isPure(Query query) {
+		if (!(query instanceof PrologQuery)) {
+			return true;
+		}
+		return isPure(((PrologQuery) query).getTerm());
+	}
+
+	/**
+	 * @param owner
+	 *            An agent program.
+	 * @return {@code false} if any rule in the knowledge of the program calls
+	 *         an impure built-in, {@code true} otherwise.
+	 */
+	static boolean isPure(AgentProgram owner) {
+		synchronized (pureKnowledge) {
+			Boolean pure = pureKnowledge.get(owner);
+			if (pure == null) {
+				pure = true;
+				for (DatabaseFormula formula : owner.getAllKnowledge()) {
+					if (formula instanceof PrologDBFormula
+							&& !isPure(((PrologDBFormula) formula).getTerm())) {
+						pure = false;
+						break;
+					}
+				}
+				pureKnowledge.put(owner, pure);
+			}
+			return pure;
+		}
+	}
+
+	private static boolean isPure(jpl.Term term) {
+		if (term.isAtom()) {
+			return !impure.contains(term.name());
+		}
+		if (!term.isCompound()) {
+			return true;
+		}
+		if (impure.contains(term.name())) {
+			return false;
+		}
+		// Also look inside meta calls such as findall/3 and \+/1.
+		for (int i = 1; i <= term.arity(); i++) {
+			if (!isPure(term.arg(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Hide constructor.
+	 */
+	private Builtins() {
+	}
+}
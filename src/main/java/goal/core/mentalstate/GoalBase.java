@@ -27,8 +27,8 @@ import goal.tools.errorhandling.WarningStrings;
 import goal.tools.errorhandling.exceptions.GOALActionFailedException;
 import goal.tools.errorhandling.exceptions.GOALDatabaseException;
 
-import java.lang.management.ManagementFactory;
-import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -87,6 +87,15 @@ public final class GoalBase implements Iterable<SingleGoal> {
 	 * respectively has been called on the goal to add/remove.
 	 */
 	private final Set<SingleGoal> goals = new LinkedHashSet<>();
+	/**
+	 * Index of the goals by the predicates they consist of; kept in sync with
+	 * {@link #goals}.
+	 */
+	private final GoalIndex index;
+	/**
+	 * Version of the contents of this goal base; see {@link #getVersion()}.
+	 */
+	private long version = MentalModel.nextVersion();
 	/**
 	 * DOC
 	 */
@@ -107,14 +116,10 @@ public final class GoalBase implements Iterable<SingleGoal> {
 	private final String name;
 
 	/**
-	 * Keeps track of the time used by the KR layer.
+	 * Keeps track of number of queries and updates performed, and of the time
+	 * used by the KR layer.
 	 */
-	private long timeUsedByKR = 0;
-	private long time;
-	/**
-	 * Keeps track of number of queries and updates performed.
-	 */
-	private long count = 0;
+	private final KRCost cost = new KRCost();
 
 	/**
 	 * Creates a new {@link GoalBase}. Use {@link #setGoals(List, String)} to
@@ -137,6 +142,7 @@ public final class GoalBase implements Iterable<SingleGoal> {
 		this.state = state;
 		this.owner = owner;
 		this.name = name;
+		this.index = new GoalIndex(owner);
 		if (agentName.length == 0) {
 			this.agentName = me;
 		} else {
@@ -197,11 +203,25 @@ public final class GoalBase implements Iterable<SingleGoal> {
 	 */
 	protected void setGoals(List<Update> content, Debugger debugger) {
 		for (Update goal : content) {
-			this.count++;
-			getTime();
+			long start = this.cost.start();
 			addGoal(new SingleGoal(goal, this.owner, this.state), debugger);
-			updateTimeUsed();
+			this.cost.stop(start);
+		}
+	}
+
+	/**
+	 * Returns the contents of this goal base from which it can be created
+	 * again, e.g. for a {@link MentalStateSnapshot}; see
+	 * {@link #setGoals(List, Debugger)}.
+	 *
+	 * @return The goals in this goal base, in the order they were added.
+	 */
+	public List<Update> getSnapshot() {
+		List<Update> content = new ArrayList<>(this.goals.size());
+		for (SingleGoal goal : this.goals) {
+			content.add(goal.getGoal());
 		}
+		return content;
 	}
 
 	/**
@@ -237,23 +257,47 @@ public final class GoalBase implements Iterable<SingleGoal> {
 	 */
 	public final Set<Substitution> query(Query query, Debugger debugger) throws GOALDatabaseException {
 		Set<Substitution> substitutions = new LinkedHashSet<>();
-		for (SingleGoal goal : this.goals) {
-			try {
-				// Get current time used in this thread.
-				this.count++;
-				getTime();
-				substitutions.addAll(goal.getGoalDatabase().query(query));
-				// Update time used.
-				updateTimeUsed();
-			} catch (KRQueryFailedException e) {
-				throw new GOALDatabaseException(String.format(
-						Resources.get(WarningStrings.FAILED_GOAL_QUERY),
-						query.toString(), goal.getGoalDatabase().getName()), e);
-			}
+		for (SingleGoal goal : getCandidates(query)) {
+			query(goal, query, substitutions);
 		}
 		return substitutions;
 	}
 
+	/**
+	 * Performs a query on a single goal of this goal base only, as if this
+	 * goal base contained no other goals.
+	 *
+	 * @param goal
+	 *            The goal to query; should be part of this goal base.
+	 * @param query
+	 *            The query.
+	 * @param debugger
+	 *            The current debugger.
+	 * @return a (possibly empty) set of substitutions each of which make the
+	 *         query succeed on the given goal.
+	 * @throws GOALDatabaseException
+	 *             if the query fails to be executed.
+	 */
+	public final Set<Substitution> query(SingleGoal goal, Query query,
+			Debugger debugger) throws GOALDatabaseException {
+		Set<Substitution> substitutions = new LinkedHashSet<>();
+		query(goal, query, substitutions);
+		return substitutions;
+	}
+
+	private void query(SingleGoal goal, Query query,
+			Set<Substitution> substitutions) throws GOALDatabaseException {
+		try {
+			long start = this.cost.start();
+			substitutions.addAll(goal.getGoalDatabase().query(query));
+			this.cost.stop(start);
+		} catch (KRQueryFailedException e) {
+			throw new GOALDatabaseException(String.format(
+					Resources.get(WarningStrings.FAILED_GOAL_QUERY),
+					query.toString(), goal.getGoalDatabase().getName()), e);
+		}
+	}
+
 	// *********** insertion methods ****************/
 
 	/**
@@ -267,10 +311,9 @@ public final class GoalBase implements Iterable<SingleGoal> {
 	 * @return true if anything changed.
 	 */
 	public boolean insert(Update goal, Debugger debugger)  {
-		this.count++;
-		getTime();
+		long start = this.cost.start();
 		addGoal(new SingleGoal(goal, this.owner, this.state), debugger);
-		updateTimeUsed();
+		this.cost.stop(start);
 		return true;
 	}
 
@@ -286,14 +329,16 @@ public final class GoalBase implements Iterable<SingleGoal> {
 	 */
 	public void addGoal(SingleGoal goal, Debugger debugger) {
 		addGoalPrivate(goal);
-		debugger.breakpoint(
-				Channel.GB_UPDATES,
-				goal,
-				goal.getGoal().getSourceInfo(),
-				"%s has been adopted into the "
-						+ (this.owner.equals(this.agentName) ? ""
-								: this.agentName + "'s ") + "goal base: %s.",
-				goal.toString(), this.name);
+		if (debugger.isActive(Channel.GB_UPDATES)) {
+			debugger.breakpoint(
+					Channel.GB_UPDATES,
+					goal,
+					goal.getGoal().getSourceInfo(),
+					"%s has been adopted into the "
+							+ (this.owner.equals(this.agentName) ? ""
+									: this.agentName + "'s ")
+							+ "goal base: %s.", goal.toString(), this.name);
+		}
 	}
 
 	/**
@@ -301,10 +346,25 @@ public final class GoalBase implements Iterable<SingleGoal> {
 	 * initialization.
 	 */
 	private void addGoalPrivate(SingleGoal goal) {
-		this.goals.add(goal);
+		if (this.goals.add(goal)) {
+			this.index.add(goal);
+			this.version = MentalModel.nextVersion();
+		}
 		goal.markOccurrence();
 	}
 
+	/**
+	 * Returns the goals that need to be queried to evaluate the given query.
+	 *
+	 * @param query
+	 *            The query.
+	 * @return The goals that may make the query succeed.
+	 */
+	private Collection<SingleGoal> getCandidates(Query query) {
+		Set<SingleGoal> candidates = this.index.getCandidates(query);
+		return (candidates == null) ? this.goals : candidates;
+	}
+
 	// *********** deletion methods ****************/
 
 	/**
@@ -318,34 +378,36 @@ public final class GoalBase implements Iterable<SingleGoal> {
 	 */
 	public List<SingleGoal> drop(Update dropgoal, Debugger debugger) throws GOALDatabaseException{
 		List<SingleGoal> goalsToBeDropped = new LinkedList<>();
-		for (SingleGoal goal : this.goals) {
+		for (SingleGoal goal : getCandidates(dropgoal.toQuery())) {
 			try {
-				// Get current time used in this thread.
-				this.count++;
-				getTime();
+				long start = this.cost.start();
 				if (!goal.getGoalDatabase().query(dropgoal.toQuery()).isEmpty()) {
 					goalsToBeDropped.add(goal);
 				}
-				// Update time used.
-				updateTimeUsed();
+				this.cost.stop(start);
 			} catch (KRQueryFailedException e) {
 				throw new GOALDatabaseException(String.format(Resources
 						.get(WarningStrings.FAILED_GB_QUERY), dropgoal
 						.toQuery().toString(), this.owner.toString()), e);
 			}
 		}
-		this.goals.removeAll(goalsToBeDropped);
+		if (this.goals.removeAll(goalsToBeDropped)) {
+			this.version = MentalModel.nextVersion();
+		}
 		for (SingleGoal goal : goalsToBeDropped) {
-			debugger.breakpoint(Channel.GB_UPDATES, goal, goal.getGoal()
-					.getSourceInfo(), "Goal %s"
-					+ " has been dropped from the "
-					+ (this.owner.equals(this.agentName) ? "" : this.agentName
-							+ "'s ") + "goal base: %s.", goal, this.name);
-
-			this.count++;
-			getTime();
+			this.index.remove(goal);
+			if (debugger.isActive(Channel.GB_UPDATES)) {
+				debugger.breakpoint(Channel.GB_UPDATES, goal, goal.getGoal()
+						.getSourceInfo(), "Goal %s"
+						+ " has been dropped from the "
+						+ (this.owner.equals(this.agentName) ? ""
+								: this.agentName + "'s ") + "goal base: %s.",
+						goal, this.name);
+			}
+
+			long start = this.cost.start();
 			goal.unmarkOccurrence();
-			updateTimeUsed();
+			this.cost.stop(start);
 
 		}
 		return goalsToBeDropped;
@@ -365,12 +427,16 @@ public final class GoalBase implements Iterable<SingleGoal> {
 			throws KRInitFailedException {
 		boolean result = this.goals.remove(goal);
 		if (result) {
-			debugger.breakpoint(Channel.GOAL_ACHIEVED, goal, goal.getGoal()
-					.getSourceInfo(),
-					"Goal %s has been achieved and removed from the "
-							+ (this.owner.equals(this.agentName) ? ""
-									: this.agentName + "'s ")
-							+ "goal base: %s.", goal, this.name);
+			this.index.remove(goal);
+			this.version = MentalModel.nextVersion();
+			if (debugger.isActive(Channel.GOAL_ACHIEVED)) {
+				debugger.breakpoint(Channel.GOAL_ACHIEVED, goal, goal
+						.getGoal().getSourceInfo(),
+						"Goal %s has been achieved and removed from the "
+								+ (this.owner.equals(this.agentName) ? ""
+										: this.agentName + "'s ")
+								+ "goal base: %s.", goal, this.name);
+			}
 			// #2968 goal is to be disposed. Don't use with delay..
 			goal.unmarkOccurrence();
 		}
@@ -407,6 +473,17 @@ public final class GoalBase implements Iterable<SingleGoal> {
 		}
 	}
 
+	/**
+	 * Returns the version of the contents of this goal base. The version
+	 * changes whenever goals are added or removed, and is never reused by any
+	 * other base; see {@link MentalModel#nextVersion()}.
+	 *
+	 * @return The current version of this goal base.
+	 */
+	public long getVersion() {
+		return this.version;
+	}
+
 	// *********** helper methods ****************/
 
 	/**
@@ -450,41 +527,32 @@ public final class GoalBase implements Iterable<SingleGoal> {
 
 	/**
 	 * Returns the time used to perform queries and updates on this
-	 * {@link BeliefBase} in this thread by the KR language.
+	 * {@link GoalBase} by the KR language; see {@link KRCost}.
 	 *
-	 * @return The time used in this thread to perform queries on this belief
-	 *         base by the KR language.
+	 * @return The time in nanoseconds used to perform queries and updates on
+	 *         this goal base by the KR language.
 	 */
 	public long getTimeUsedByKR() {
-		return this.timeUsedByKR;
+		return this.cost.getTime();
 	}
 
 	/**
-	 * Assigns the current thread CPU time to {@link #time}.
-	 */
-	private void getTime() {
-		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
-		this.time = bean.getCurrentThreadCpuTime();
-	}
-
-	/**
-	 * Updates the time used to perform queries and updates on this
-	 * {@link BeliefBase} so far. {@link #timeUsedByKR} is used to keep track of
-	 * the total time used.
+	 * Returns the total number of queries and updates that have been performed
+	 * on this {@link GoalBase} while executing a GOAL agent; see
+	 * {@link KRCost}.
+	 *
+	 * @return The total number of queries performed on this goal base.
 	 */
-	private void updateTimeUsed() {
-		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
-		this.timeUsedByKR += (bean.getCurrentThreadCpuTime() - this.time);
+	public long getCount() {
+		return this.cost.getCount();
 	}
 
 	/**
-	 * Returns the total number of queries and updates that have been performed
-	 * on this {@link BeliefBase} while executing a GOAL agent.
-	 *
-	 * @return The total number of queries performed on this belief base.
+	 * @return The account of the queries and updates performed on this goal
+	 *         base.
 	 */
-	public long getCount() {
-		return this.count;
+	KRCost getCost() {
+		return this.cost;
 	}
 
 }
@@ -0,0 +1,244 @@
+package goal.core.mentalstate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import krTools.language.DatabaseFormula;
+import krTools.language.Query;
+import languageTools.program.agent.AgentProgram;
+import swiprolog.language.PrologDBFormula;
+import swiprolog.language.PrologQuery;
+
+/**
+ * Index of the {@link SingleGoal}s in a {@link GoalBase} by the predicate
+ * signatures of the facts they consist of. Used to select the goals that a
+ * goal query needs to be evaluated on, instead of querying the database of
+ * every goal.
+ *
+ * A goal query follows from a single goal only (see
+ * {@link GoalBase#query(Query, goal.tools.debugger.Debugger)}), so the goals
+ * keep their own database. If a query contains a positive literal whose
+ * predicate only occurs as a goal fact (it is not defined by the knowledge of
+ * the agent), only goals that contain such facts can make the query succeed.
+ *
+ * The index is only used for goals and queries represented in SWI Prolog. For
+ * other queries, or if no literal in the query qualifies, all goals need to
+ * be queried.
+ */
+public class GoalIndex {
+	/**
+	 * Signatures of the predicates defined by the knowledge of an agent
+	 * program. Shared by all goal bases of all agents running the program.
+	 */
+	private static final Map<AgentProgram, Set<String>> knowledgeSignatures = new WeakHashMap<>();
+
+	/**
+	 * Predicates defined by the knowledge of the agent. Goals may derive these
+	 * without containing facts for them.
+	 */
+	private final Set<String> defined;
+	/**
+	 * Goals indexed by the signatures of the facts they consist of.
+	 */
+	private final Map<String, Set<SingleGoal>> goalsBySignature = new HashMap<>();
+	/**
+	 * All signatures that ever occurred in a goal in this index. Goals can
+	 * only contain facts for predicates that are not built in, so a query for
+	 * any of these predicates can only succeed on goals containing them.
+	 */
+	private final Set<String> known = new HashSet<>();
+
+	/**
+	 * Creates an empty goal index.
+	 *
+	 * @param owner
+	 *            The agent program whose goals are indexed.
+	 */
+	public GoalIndex(AgentProgram owner) {
+		this.defined = getKnowledgeSignatures(owner);
+	}
+
+	/**
+	 * Adds a goal to the index.
+	 *
+	 * @param goal
+	 *            The goal to add.
+	 */
+	public void add(SingleGoal goal) {
+		for (String signature : goal.getSignatures()) {
+			Set<SingleGoal> goals = this.goalsBySignature.get(signature);
+			if (goals == null) {
+				goals = new LinkedHashSet<>();
+				this.goalsBySignature.put(signature, goals);
+				this.known.add(signature);
+			}
+			goals.add(goal);
+		}
+	}
+
+	/**
+	 * Removes a goal from the index.
+	 *
+	 * @param goal
+	 *            The goal to remove.
+	 */
+	public void remove(SingleGoal goal) {
+		for (String signature : goal.getSignatures()) {
+			Set<SingleGoal> goals = this.goalsBySignature.get(signature);
+			if (goals != null) {
+				goals.remove(goal);
+				if (goals.isEmpty()) {
+					this.goalsBySignature.remove(signature);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the goals that a query needs to be evaluated on.
+	 *
+	 * @param query
+	 *            The goal query.
+	 * @return The goals that may make the query succeed, in the order they
+	 *         were added, or {@code null} if all goals need to be queried.
+	 */
+	public Set<SingleGoal> getCandidates(Query query) {
+		if (!(query instanceof PrologQuery)) {
+			return null;
+		}
+		jpl.Term term = ((PrologQuery) query).getTerm();
+		// Walk through the top level conjunction.
+		while (term.isCompound() && term.name().equals(",")
+				&& term.arity() == 2) {
+			Set<SingleGoal> candidates = getCandidates(term.arg(1));
+			if (candidates != null) {
+				return candidates;
+			}
+			term = term.arg(2);
+		}
+		return getCandidates(term);
+	}
+
+	/**
+	 * @param literal
+	 *            A literal from the top level conjunction of a query.
+	 * @return The goals that may make the literal succeed, or {@code null} if
+	 *         the literal does not restrict the goals.
+	 */
+	private Set<SingleGoal> getCandidates(jpl.Term literal) {
+		String signature = getSignature(literal);
+		if (signature == null || !this.known.contains(signature)
+				|| this.defined.contains(signature)) {
+			return null;
+		}
+		Set<SingleGoal> goals = this.goalsBySignature.get(signature);
+		if (goals == null) {
+			return Collections.emptySet();
+		}
+		return goals;
+	}
+
+	/**
+	 * Computes the signatures of the facts that make up a goal.
+	 *
+	 * @param formulas
+	 *            The facts of the goal.
+	 * @return The signatures of the facts; empty if the goal is not
+	 *         represented in SWI Prolog.
+	 */
+	protected static Set<String> getSignatures(
+			Collection<DatabaseFormula> formulas) {
+		Set<String> signatures = new HashSet<>(formulas.size());
+		for (DatabaseFormula formula : formulas) {
+			if (!(formula instanceof PrologDBFormula)) {
+				return new HashSet<>(0);
+			}
+			String signature = getSignature(((PrologDBFormula) formula)
+					.getTerm());
+			if (signature != null) {
+				signatures.add(signature);
+			}
+		}
+		return signatures;
+	}
+
+	/**
+	 * @param formula
+	 *            A formula in a belief base, percept base or mailbox.
+	 * @return The signature of the formula if it is a fact represented in SWI
+	 *         Prolog, or {@code null} otherwise (e.g. if it is a rule).
+	 */
+	protected static String getFactSignature(DatabaseFormula formula) {
+		if (!(formula instanceof PrologDBFormula) || isRule(formula)) {
+			return null;
+		}
+		return getSignature(((PrologDBFormula) formula).getTerm());
+	}
+
+	/**
+	 * @param formula
+	 *            A formula in a belief base, percept base or mailbox.
+	 * @return {@code true} if the formula is a rule (or directive), of which
+	 *         the results may depend on facts with any signature.
+	 */
+	protected static boolean isRule(DatabaseFormula formula) {
+		if (!(formula instanceof PrologDBFormula)) {
+			return false;
+		}
+		jpl.Term term = ((PrologDBFormula) formula).getTerm();
+		return term.isCompound() && term.name().equals(":-");
+	}
+
+	/**
+	 * @param owner
+	 *            An agent program.
+	 * @return The signatures of the heads of all knowledge clauses of the
+	 *         program.
+	 */
+	static Set<String> getKnowledgeSignatures(AgentProgram owner) {
+		synchronized (knowledgeSignatures) {
+			Set<String> signatures = knowledgeSignatures.get(owner);
+			if (signatures == null) {
+				signatures = new HashSet<>();
+				for (DatabaseFormula formula : owner.getAllKnowledge()) {
+					if (!(formula instanceof PrologDBFormula)) {
+						continue;
+					}
+					jpl.Term term = ((PrologDBFormula) formula).getTerm();
+					if (term.isCompound() && term.name().equals(":-")) {
+						if (term.arity() != 2) {
+							// A directive; does not define anything.
+							continue;
+						}
+						term = term.arg(1);
+					}
+					String signature = getSignature(term);
+					if (signature != null) {
+						signatures.add(signature);
+					}
+				}
+				knowledgeSignatures.put(owner, signatures);
+			}
+			return signatures;
+		}
+	}
+
+	/**
+	 * @param term
+	 *            A Prolog term.
+	 * @return The signature name/arity of the term, or {@code null} if the
+	 *         term is a variable or a number.
+	 */
+	private static String getSignature(jpl.Term term) {
+		if (term.isCompound() || term.isAtom()) {
+			return term.name() + "/" + term.arity();
+		}
+		return null;
+	}
+}
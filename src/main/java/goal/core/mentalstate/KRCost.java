@@ -0,0 +1,106 @@
+package goal.core.mentalstate;
+
+import goal.preferences.PMPreferences;
+
+/**
+ * Keeps track of the number of queries and updates performed on a base, and
+ * of the time the KR layer used for them. Operations are always counted, as
+ * that costs next to nothing. Timing is off unless
+ * {@link PMPreferences#getKRCostAccounting()} is set when the base is
+ * created; then {@link #stop(long)} does nothing.
+ *
+ * When on, to keep the overhead low only one in every
+ * {@link PMPreferences#getKRCostSampling()} operations is timed. The time
+ * used by the other operations is estimated from the timed ones.
+ *
+ * Not thread safe; a base is only used by the agent that owns it.
+ */
+public class KRCost {
+	private final boolean enabled;
+	private final int sampling;
+	/**
+	 * The number of operations performed.
+	 */
+	private long count = 0;
+	/**
+	 * The number of operations that have been timed.
+	 */
+	private long timed = 0;
+	/**
+	 * The wall-clock time in nanoseconds used by the timed operations.
+	 */
+	private long time = 0;
+
+	/**
+	 * Creates a cost account that times operations or not depending on the
+	 * preferences.
+	 */
+	public KRCost() {
+		this.enabled = PMPreferences.getKRCostAccounting();
+		this.sampling = PMPreferences.getKRCostSampling();
+	}
+
+	/**
+	 * Registers the start of an operation.
+	 *
+	 * @return the start time to pass to {@link #stop(long)}, or 0 if the
+	 *         operation is not timed.
+	 */
+	public long start() {
+		this.count++;
+		if (!this.enabled || this.count % this.sampling != 0) {
+			return 0;
+		}
+		long start = System.nanoTime();
+		// 0 means not timed.
+		return (start == 0) ? 1 : start;
+	}
+
+	/**
+	 * Registers the end of an operation.
+	 *
+	 * @param start
+	 *            the value returned by {@link #start()} for the operation.
+	 */
+	public void stop(long start) {
+		if (start != 0) {
+			this.time += System.nanoTime() - start;
+			this.timed++;
+		}
+	}
+
+	/**
+	 * Adds the operations of another account to this one, e.g. of a base that
+	 * is removed.
+	 *
+	 * @param other
+	 *            the account to add.
+	 */
+	public void add(KRCost other) {
+		this.count += other.count;
+		this.timed += other.timed;
+		this.time += other.time;
+	}
+
+	/**
+	 * @return The number of queries and updates performed, also if accounting
+	 *         is off.
+	 */
+	public long getCount() {
+		return this.count;
+	}
+
+	/**
+	 * @return The (estimated) time in nanoseconds used by the KR layer for the
+	 *         queries and updates performed, or 0 if accounting is off.
+	 */
+	public long getTime() {
+		if (this.timed == 0) {
+			return 0;
+		} else if (this.timed == this.count) {
+			return this.time;
+		} else {
+			return (long) (this.time * ((double) this.count / this.timed));
+		}
+	}
+}
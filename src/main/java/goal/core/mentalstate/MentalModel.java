@@ -26,6 +26,9 @@ import goal.tools.errorhandling.exceptions.GOALBug;
 import goal.tools.errorhandling.exceptions.GOALDatabaseException;
 import goal.tools.errorhandling.exceptions.GOALRuntimeErrorException;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -34,6 +37,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.atomic.AtomicLong;
 
 import krTools.KRInterface;
 import krTools.errors.exceptions.KRDatabaseException;
@@ -69,6 +73,15 @@ import mentalState.BASETYPE;
  *
  */
 public class MentalModel {
+	/**
+	 * Source of the versions of all bases; see {@link #nextVersion()}.
+	 */
+	private static final AtomicLong versions = new AtomicLong();
+	/**
+	 * The maximum number of query results kept in {@link #queryCache}.
+	 */
+	private static final int MAX_CACHED_QUERIES = 4096;
+
 	/**
 	 * A map containing the various {@link BeliefBase}s of type {@link BASETYPE}
 	 * maintained by this {@link MentalModel}.
@@ -131,19 +144,42 @@ public class MentalModel {
 	 * </p>
 	 */
 	private final Stack<GoalBase> goalBases = new Stack<>();
+	/**
+	 * If set, goal queries on the current attention set only use this goal;
+	 * see {@link #setGoalScope(SingleGoal)}.
+	 */
+	private SingleGoal goalScope = null;
+	/**
+	 * Version of the structure of this model, i.e. which bases it consists of
+	 * and the order of the goal bases on the attention stack.
+	 */
+	private long structureVersion = nextVersion();
+	/**
+	 * Results of the literals queried on this model since
+	 * {@link #clearQueryCache()} was called, valid for {@link #cacheVersion}.
+	 */
+	private final Map<QueryKey, Set<Substitution>> queryCache = new HashMap<>();
+	/**
+	 * The version of this model the results in {@link #queryCache} were
+	 * obtained for.
+	 */
+	private long cacheVersion = -1;
+	/**
+	 * False if the knowledge of the agent uses built-ins whose results are not
+	 * determined by the bases, in which case no query results are cached; see
+	 * {@link Builtins}.
+	 */
+	private boolean cacheable = true;
 	/**
 	 * Stack that keeps track of the 'views' on the {@link BeliefBase} of the
 	 * {@link Agent} that owns this {@link MentalModel}.
 	 */
 	// private Stack<Theory> moduleViews;
 	/**
-	 * Keeps track of the time used by the KR layer.
+	 * Keeps track of the queries and updates performed on the bases that have
+	 * been removed from this model.
 	 */
-	private long timeUsedByKR = 0;
-	/**
-	 * Keeps track of number of queries and updates performed.
-	 */
-	private long count = 0;
+	private final KRCost removedCost = new KRCost();
 
 	/**
 	 * @param type
@@ -192,6 +228,8 @@ public class MentalModel {
 		}
 		BeliefBase base = new BeliefBase(type, state, content, owner, agentName);
 		this.beliefBases.put(type, base);
+		this.cacheable = Builtins.isPure(owner);
+		this.structureVersion = nextVersion();
 	}
 
 	/**
@@ -213,6 +251,27 @@ public class MentalModel {
 		goalBase.setGoals(content, debugger);
 		// Push the goal base on the stack of goal bases.
 		this.goalBases.push(goalBase);
+		this.structureVersion = nextVersion();
+	}
+
+	/**
+	 * Takes a snapshot of the belief base and goal base of this
+	 * {@link MentalModel}, from which it can be created again by
+	 * {@link #addBase(AgentProgram, AgentId, mentalState.MentalState, List, BASETYPE)}
+	 * and
+	 * {@link #addGoalBase(List, mentalState.MentalState, AgentProgram, AgentId, String, AgentId, Debugger)}
+	 * .
+	 *
+	 * @return The snapshot, or {@code null} if the model is focused on an
+	 *         attention set other than the top level goal base, which a
+	 *         snapshot cannot represent.
+	 */
+	protected MentalStateSnapshot snapshot() {
+		if (this.goalBases.size() != 1) {
+			return null;
+		}
+		return new MentalStateSnapshot(getBase(BASETYPE.BELIEFBASE)
+				.getSnapshot(), this.goalBases.firstElement().getSnapshot());
 	}
 
 	/**
@@ -223,6 +282,8 @@ public class MentalModel {
 	 *             DOC
 	 */
 	public void cleanUp() {
+		this.structureVersion = nextVersion();
+		clearQueryCache();
 		// Clean up knowledge, belief, percept bases, and mailbox.
 		for (BASETYPE type : this.beliefBases.keySet()) {
 			try {
@@ -238,8 +299,7 @@ public class MentalModel {
 		while (!this.goalBases.isEmpty()) {
 			// We're cleaning up and removing goal bases.
 			// Collect and sum time used by KR and query/update count.
-			this.timeUsedByKR += this.goalBases.peek().getTimeUsedByKR();
-			this.count += this.goalBases.peek().getCount();
+			this.removedCost.add(this.goalBases.peek().getCost());
 			this.goalBases.pop().cleanUp();
 		}
 	}
@@ -264,10 +324,39 @@ public class MentalModel {
 	/**
 	 * Returns the stack of goal bases, called the attention stack.
 	 *
-	 * @return The attention stack.
+	 * @return The attention stack, bottom first. The list cannot be modified;
+	 *         use {@link #setAttentionStack(List)} to replace it.
+	 */
+	protected List<GoalBase> getAttentionStack() {
+		return Collections.unmodifiableList(this.goalBases);
+	}
+
+	/**
+	 * Replaces the stack of goal bases. The goal bases that are removed from
+	 * the stack are not cleaned up.
+	 *
+	 * @param attentionStack
+	 *            The new attention stack, bottom first.
 	 */
-	protected Stack<GoalBase> getAttentionStack() {
-		return this.goalBases;
+	protected void setAttentionStack(List<GoalBase> attentionStack) {
+		// The new stack may be a view of the current one.
+		List<GoalBase> goalBases = new ArrayList<>(attentionStack);
+		this.goalBases.clear();
+		this.goalBases.addAll(goalBases);
+		this.structureVersion = nextVersion();
+	}
+
+	/**
+	 * Restricts goal queries on the current attention set to a single goal,
+	 * as if the attention set contained only that goal. Queries on the top
+	 * level goal base (i.e. without focus) are not affected.
+	 *
+	 * @param goal
+	 *            A goal of the current attention set, or {@code null} to
+	 *            remove the restriction again.
+	 */
+	protected void setGoalScope(SingleGoal goal) {
+		this.goalScope = goal;
 	}
 
 	/************* query functionality ********************/
@@ -291,19 +380,43 @@ public class MentalModel {
 	 */
 	public final Set<Substitution> query(MentalLiteral literal, boolean focus,
 			Debugger debugger) throws GOALDatabaseException {
-		Query formula = literal.getFormula();
-		Set<Substitution> substitutions = new HashSet<>();
-		if (literal instanceof BelLiteral) {
-			substitutions = beliefQuery(formula, debugger);
-		} else if (literal instanceof GoalLiteral) {
-			substitutions = goalQuery(formula, focus, debugger);
-		} else if (literal instanceof AGoalLiteral) {
-			substitutions = agoalQuery(formula, focus, debugger);
-		} else if (literal instanceof GoalALiteral) {
-			substitutions = goalaQuery(formula, focus, debugger);
+		// Belief queries do not depend on the goals.
+		QueryKey key = (literal instanceof BelLiteral) ? new QueryKey(literal,
+				false, null) : new QueryKey(literal, focus, this.goalScope);
+		long version = getVersion();
+		if (version != this.cacheVersion) {
+			this.queryCache.clear();
+			this.cacheVersion = version;
+		}
+		boolean cache = this.cacheable
+				&& Builtins.isPure(literal.getFormula());
+		Set<Substitution> substitutions = cache ? this.queryCache.get(key)
+				: null;
+		if (substitutions == null) {
+			Query formula = literal.getFormula();
+			substitutions = new HashSet<>();
+			if (literal instanceof BelLiteral) {
+				substitutions = beliefQuery(formula, debugger);
+			} else if (literal instanceof GoalLiteral) {
+				substitutions = goalQuery(formula, focus, debugger);
+			} else if (literal instanceof AGoalLiteral) {
+				substitutions = agoalQuery(formula, focus, debugger);
+			} else if (literal instanceof GoalALiteral) {
+				substitutions = goalaQuery(formula, focus, debugger);
+			}
+			if (cache) {
+				if (this.queryCache.size() >= MAX_CACHED_QUERIES) {
+					this.queryCache.clear();
+				}
+				this.queryCache.put(key, substitutions);
+			}
 		}
+		// Callers may modify the result; never hand out the cached set.
+		substitutions = new LinkedHashSet<>(substitutions);
 
-		if (substitutions.isEmpty()) {
+		if (!debugger.isActive(Channel.ATOM_QUERIES)) {
+			// Nobody is interested in the details.
+		} else if (substitutions.isEmpty()) {
 			debugger.breakpoint(Channel.ATOM_QUERIES, literal,
 					literal.getSourceInfo(), "Condition %s has no solutions.",
 					literal);
@@ -317,6 +430,37 @@ public class MentalModel {
 		return substitutions;
 	}
 
+	/**
+	 * Forgets the results of all literals queried on this model. Results are
+	 * forgotten automatically when any base of the model changes (see
+	 * {@link #getVersion()}), and queries that use built-ins such as the
+	 * clock are never cached (see {@link Builtins}), but this is still called
+	 * at the start of every reasoning cycle to keep the cache small.
+	 */
+	public void clearQueryCache() {
+		this.queryCache.clear();
+		this.cacheVersion = -1;
+	}
+
+	/**
+	 * Returns the version of this model. The version changes whenever any of
+	 * the bases of this model changes, or the goal bases on the attention
+	 * stack change. The results of queries on this model can only change if
+	 * its version does.
+	 *
+	 * @return The current version of this model.
+	 */
+	public long getVersion() {
+		long version = this.structureVersion;
+		for (BeliefBase base : this.beliefBases.values()) {
+			version = Math.max(version, base.getVersion());
+		}
+		for (GoalBase base : this.goalBases) {
+			version = Math.max(version, base.getVersion());
+		}
+		return version;
+	}
+
 	/**
 	 * Evaluates a query on the belief base.
 	 *
@@ -349,6 +493,9 @@ public class MentalModel {
 	 */
 	public final Set<Substitution> goalQuery(Query query, boolean focus,
 			Debugger debugger) throws GOALDatabaseException {
+		if (focus && this.goalScope != null) {
+			return getAttentionSet(true).query(this.goalScope, query, debugger);
+		}
 		return getAttentionSet(focus).query(query, debugger);
 	}
 
@@ -468,6 +615,15 @@ public class MentalModel {
 	 * it is attempted to de-focus the agent from the module currently focused
 	 * on, up to a module where goals are present again (or the top-level
 	 * module).
+	 * <p>
+	 * A goal is only queried again if the beliefs it depends on changed since
+	 * it was last found not to be achieved: the facts with the signatures of
+	 * the goal in the belief base, percept base and mailbox, or any belief if
+	 * the knowledge defines a predicate of the goal; see
+	 * {@link SingleGoal#isIndexed()} and {@link BeliefBase#getVersion(Set)}.
+	 * The cost of checking goals after an action thus depends on the goals
+	 * the action may have achieved, rather than on all goals.
+	 * </p>
 	 *
 	 * @param debugger
 	 *            The debugger controlling the call
@@ -481,13 +637,20 @@ public class MentalModel {
 			return;
 		}
 
+		// Changes from here on make goals be checked again next time.
+		long checked = getBeliefVersion(null);
 		Set<SingleGoal> goals = getAttentionSet(true).getGoals();
 		List<SingleGoal> goalsToBeRemoved = new LinkedList<>();
 		for (SingleGoal goal : goals) {
+			if (goal.getCheckedVersion() >= getBeliefVersion(goal)) {
+				continue;
+			}
 			try {
 				if (!this.beliefBases.get(BASETYPE.BELIEFBASE)
 						.query(goal.getGoal().toQuery(), debugger).isEmpty()) {
 					goalsToBeRemoved.add(goal);
+				} else {
+					goal.setCheckedVersion(checked);
 				}
 			} catch (GOALDatabaseException e) {
 				throw new IllegalStateException(String.format(Resources
@@ -507,6 +670,28 @@ public class MentalModel {
 		}
 	}
 
+	/**
+	 * Returns the version of the beliefs of this model that a goal depends on,
+	 * i.e. of the contents of the belief base, percept base and mailbox.
+	 *
+	 * @param goal
+	 *            A goal, or {@code null} for all beliefs.
+	 * @return The version of the beliefs that the goal depends on.
+	 */
+	private long getBeliefVersion(SingleGoal goal) {
+		long version = -1;
+		for (BeliefBase base : this.beliefBases.values()) {
+			if (base.getType() == BASETYPE.KNOWLEDGEBASE) {
+				// The knowledge does not change.
+				continue;
+			}
+			long changed = (goal != null && goal.isIndexed()) ? base
+					.getVersion(goal.getSignatures()) : base.getVersion();
+			version = Math.max(version, changed);
+		}
+		return version;
+	}
+
 	/**
 	 * @return A string representation of the stack of attention sets stored in
 	 *         this {@link MentalModel}. Contains the results of
@@ -544,6 +729,7 @@ public class MentalModel {
 	 */
 	protected void focus(GoalBase attentionSet, Debugger debugger) {
 		this.goalBases.push(attentionSet);
+		this.structureVersion = nextVersion();
 		debugger.breakpoint(Channel.GB_CHANGES, attentionSet, null,
 				"focused to %s", attentionSet.getName());
 	}
@@ -560,10 +746,12 @@ public class MentalModel {
 	 */
 	public void defocus(Debugger debugger) {
 		GoalBase oldAttentionSet = this.goalBases.pop();
+		this.structureVersion = nextVersion();
 		// mark the attention set as unused (or at least remove one usage mark)
 
 		// delete all observes from the now-obsolete goal base
 		// but only if the attention set is not in use somewhere else
+		this.removedCost.add(oldAttentionSet.getCost());
 		oldAttentionSet.cleanUp();
 		// remove any goals from new current attention set that have been
 		// achieved.
@@ -593,24 +781,72 @@ public class MentalModel {
 	}
 
 	/**
-	 * Returns the time used to perform queries and updates on this
-	 * {@link BeliefBase} in this thread by the KR language.
+	 * Returns the time used by the KR language to perform queries and updates
+	 * on the goal bases that have been removed from this model.
 	 *
-	 * @return The time used in this thread to perform queries on this belief
-	 *         base by the KR language.
+	 * @return The time in nanoseconds used to perform queries and updates on
+	 *         removed goal bases by the KR language.
 	 */
 	public long getTimeUsedByKR() {
-		return this.timeUsedByKR;
+		return this.removedCost.getTime();
 	}
 
 	/**
 	 * Returns the total number of queries and updates that have been performed
-	 * on this {@link BeliefBase} while executing a GOAL agent.
+	 * on the goal bases that have been removed from this model.
 	 *
-	 * @return The total number of queries performed on this belief base.
+	 * @return The total number of queries performed on removed goal bases.
 	 */
 	public long getCount() {
-		return this.count;
+		return this.removedCost.getCount();
+	}
+
+	/**
+	 * Returns a new version for a base. Versions are unique across all bases,
+	 * and increase over time. The version of a model can therefore be
+	 * computed as the highest version of any of its parts; see
+	 * {@link #getVersion()}.
+	 *
+	 * @return A new version.
+	 */
+	static long nextVersion() {
+		return versions.incrementAndGet();
 	}
 
+	/**
+	 * Key of a query result in {@link MentalModel#queryCache}.
+	 */
+	private static final class QueryKey {
+		/**
+		 * The (instantiated) literal that was queried.
+		 */
+		private final MentalLiteral literal;
+		private final boolean focus;
+		/**
+		 * The goal that goal queries were restricted to, if any.
+		 */
+		private final SingleGoal scope;
+
+		QueryKey(MentalLiteral literal, boolean focus, SingleGoal scope) {
+			this.literal = literal;
+			this.focus = focus;
+			this.scope = scope;
+		}
+
+		@Override
+		public int hashCode() {
+			return this.literal.hashCode() * 31 + (this.focus ? 1 : 0);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof QueryKey)) {
+				return false;
+			}
+			QueryKey other = (QueryKey) obj;
+			return this.focus == other.focus && this.scope == other.scope
+					&& this.literal.getClass() == other.literal.getClass()
+					&& this.literal.equals(other.literal);
+		}
+	}
 }
\ No newline at end of file
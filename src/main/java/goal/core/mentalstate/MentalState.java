@@ -27,9 +27,12 @@ import goal.tools.errorhandling.exceptions.GOALBug;
 import goal.tools.errorhandling.exceptions.GOALDatabaseException;
 import goal.tools.errorhandling.exceptions.GOALRuntimeErrorException;
 import goal.tools.logging.InfoLog;
+import goal.tools.metrics.AgentMetrics;
+import goal.tools.metrics.Metrics;
 
 import java.rmi.activation.UnknownObjectException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -37,7 +40,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Stack;
 
 import krTools.KRInterface;
 import krTools.errors.exceptions.KRDatabaseException;
@@ -83,6 +85,11 @@ public class MentalState {
 	 * The name of the agent that owns this {@link MentalState}.
 	 */
 	private final AgentId agentId;
+	/**
+	 * The agent that owns this {@link MentalState}, as resolved from the
+	 * {@link SelectorType#SELF} and {@link SelectorType#THIS} selectors.
+	 */
+	private final Set<AgentId> self;
 	/**
 	 * DOC
 	 */
@@ -106,6 +113,10 @@ public class MentalState {
 	 * or {@link SelectorType#THIS} (i.e., a variable, quantor, or constant).
 	 */
 	private boolean usesMentalModeling = false;
+	/**
+	 * The runtime metrics of the agent that owns this {@link MentalState}.
+	 */
+	private final AgentMetrics metrics;
 
 	/**
 	 * Creates a mental state of an agent, including the initial belief and goal
@@ -133,7 +144,9 @@ public class MentalState {
 		new InfoLog("initializing mental state...");
 		this.usesMentalModeling = program.usesMentalModels();
 		this.agentId = id;
+		this.self = Collections.singleton(id);
 		this.agentProgram = program;
+		this.metrics = Metrics.forAgent(id.getName());
 		Class<? extends KRInterface> krClass = this.agentProgram
 				.getKRInterface().getClass();
 		try {
@@ -171,6 +184,14 @@ public class MentalState {
 		return this.agentProgram;
 	}
 
+	/**
+	 * @return The runtime metrics of the agent that owns this
+	 *         {@link MentalState}.
+	 */
+	public AgentMetrics getMetrics() {
+		return this.metrics;
+	}
+
 	/**
 	 * Returns the agent's own {@link MentalModel}.
 	 *
@@ -214,12 +235,25 @@ public class MentalState {
 	 * Returns the stack of goal bases in which all goals the agent currently
 	 * has (implicit if not in current attention set, explicit if present).
 	 *
-	 * @return The stack of goal bases (attention sets) of the agent.
+	 * @return The stack of goal bases (attention sets) of the agent, bottom
+	 *         first. The list cannot be modified.
 	 */
-	public Stack<GoalBase> getAttentionStack() {
+	public List<GoalBase> getAttentionStack() {
 		return getOwnModel().getAttentionStack();
 	}
 
+	/**
+	 * Replaces the stack of goal bases of the agent, e.g. to restore a state
+	 * that was stored earlier. The goal bases that are removed from the stack
+	 * are not cleaned up.
+	 *
+	 * @param attentionStack
+	 *            The new stack of goal bases (attention sets), bottom first.
+	 */
+	public void setAttentionStack(List<GoalBase> attentionStack) {
+		getOwnModel().setAttentionStack(attentionStack);
+	}
+
 	/**
 	 * Returns the names of the other agents for which this {@link MentalState}
 	 * maintains {@link MentalModel}s.
@@ -232,8 +266,10 @@ public class MentalState {
 	}
 
 	/**
-	 * Adds a {@link MentalModel} for a (new) agent. Also used to create a
-	 * mental model for the owner of this {@link MentalState}.
+	 * Adds a (new) agent to the agents known to this {@link MentalState}. Also
+	 * used to create the mental model of the owner of this {@link MentalState}.
+	 * The {@link MentalModel} of another agent is only created when it is
+	 * first queried or updated, see {@link #getModel(AgentId, Debugger)}.
 	 *
 	 * CHECK that this method is thread safe. The agent may be running when this
 	 * is called!
@@ -259,47 +295,10 @@ public class MentalState {
 		// true if its me, the owner of this mental state.
 		boolean me = id.equals(this.agentId);
 
-		if (me || this.usesMentalModeling) {
-			/**
-			 * DO NOT CHANGE THE ORDER OF CREATION OF DATABASES BELOW! The
-			 * {@link KnowledgeBase} of an agent must be created before any
-			 * {@link GoalBase} or {@link BeliefBase} is created. This is
-			 * because the latter import the knowledge base. Also, the order of
-			 * introducing the mailbox, percept base, and belief base is
-			 * important. The belief base may assume that the mailbox and
-			 * percept base have already been created.
-			 */
-
-			// TODO: lazy creation of OTHER agents' models.
-
-			// Add a mental model that can be used to model the (other) agent.
-			// We know
-			// that there is an(other) agent because we have a(n empty) mental
-			// state.
-			MentalModel model = new MentalModel();
-
-			// Get content for the initial belief and goal base.
-			if (me) {
-				// Create the bases from the parsed GOAL agent program.
-				model.addBase(this.agentProgram, this.agentId, this.state,
-						this.agentProgram.getAllKnowledge(),
-						BASETYPE.KNOWLEDGEBASE);
-				model.addBase(this.agentProgram, this.agentId, this.state,
-						new LinkedList<DatabaseFormula>(), BASETYPE.MAILBOX);
-				model.addBase(this.agentProgram, this.agentId, this.state,
-						new LinkedList<DatabaseFormula>(), BASETYPE.PERCEPTBASE);
-			}
-			// Create the belief base.
-			model.addBase(this.agentProgram, id, this.state,
-					new LinkedList<DatabaseFormula>(), BASETYPE.BELIEFBASE);
-			// Create the goal base.
-			model.addGoalBase(new LinkedList<Update>(), this.state,
-					this.agentProgram, this.agentId, "main", id, debugger);
-
-			// Add the mental model to the map of mental models maintained by
-			// this
-			// mental state.
-			this.models.put(id, model);
+		if (me) {
+			this.models.put(id, createModel(id,
+					new LinkedList<DatabaseFormula>(),
+					new LinkedList<Update>(), debugger));
 		}
 
 		// Insert the agent's existence as a fact 'agent(name)' in the belief
@@ -308,6 +307,95 @@ public class MentalState {
 		this.knownAgents.add(id);
 	}
 
+	/**
+	 * Creates a {@link MentalModel} for an agent.
+	 *
+	 * @param id
+	 *            The agent for which a mental model should be created.
+	 * @param beliefs
+	 *            The initial content of the belief base.
+	 * @param goals
+	 *            The initial goals of the goal base.
+	 * @param debugger
+	 *            debugger to report on the creation of the goal base.
+	 * @return The new mental model.
+	 * @throws KRInitFailedException
+	 *             If the KR technology failed to create the requested
+	 *             databases.
+	 * @throws KRQueryFailedException
+	 * @throws KRDatabaseException
+	 * @throws UnknownObjectException
+	 */
+	private MentalModel createModel(AgentId id, List<DatabaseFormula> beliefs,
+			List<Update> goals, Debugger debugger)
+			throws KRInitFailedException, KRDatabaseException,
+			KRQueryFailedException, UnknownObjectException {
+		/**
+		 * DO NOT CHANGE THE ORDER OF CREATION OF DATABASES BELOW! The
+		 * {@link KnowledgeBase} of an agent must be created before any
+		 * {@link GoalBase} or {@link BeliefBase} is created. This is because
+		 * the latter import the knowledge base. Also, the order of introducing
+		 * the mailbox, percept base, and belief base is important. The belief
+		 * base may assume that the mailbox and percept base have already been
+		 * created.
+		 */
+
+		// Add a mental model that can be used to model the (other) agent. We
+		// know that there is an(other) agent because we have a(n empty) mental
+		// state.
+		MentalModel model = new MentalModel();
+
+		// Get content for the initial belief and goal base.
+		if (id.equals(this.agentId)) {
+			// Create the bases from the parsed GOAL agent program.
+			model.addBase(this.agentProgram, this.agentId, this.state,
+					this.agentProgram.getAllKnowledge(),
+					BASETYPE.KNOWLEDGEBASE);
+			model.addBase(this.agentProgram, this.agentId, this.state,
+					new LinkedList<DatabaseFormula>(), BASETYPE.MAILBOX);
+			model.addBase(this.agentProgram, this.agentId, this.state,
+					new LinkedList<DatabaseFormula>(), BASETYPE.PERCEPTBASE);
+		}
+		// Create the belief base.
+		model.addBase(this.agentProgram, id, this.state, beliefs,
+				BASETYPE.BELIEFBASE);
+		// Create the goal base.
+		model.addGoalBase(goals, this.state, this.agentProgram, this.agentId,
+				"main", id, debugger);
+		return model;
+	}
+
+	/**
+	 * Returns the {@link MentalModel} of an agent, creating it if the agent is
+	 * known but has not been modeled yet.
+	 *
+	 * @param id
+	 *            The agent whose mental model is needed.
+	 * @param debugger
+	 *            debugger to report on the creation of the model.
+	 * @return The mental model of the agent, or {@code null} if the agent is
+	 *         not known or this agent does not use mental models.
+	 * @throws GOALDatabaseException
+	 *             If the databases of the model could not be created.
+	 */
+	private synchronized MentalModel getModel(AgentId id, Debugger debugger)
+			throws GOALDatabaseException {
+		MentalModel model = this.models.get(id);
+		if (model == null && this.usesMentalModeling
+				&& this.knownAgents.contains(id)) {
+			try {
+				model = createModel(id, new LinkedList<DatabaseFormula>(),
+						new LinkedList<Update>(), debugger);
+			} catch (KRInitFailedException | KRDatabaseException
+					| KRQueryFailedException | UnknownObjectException e) {
+				throw new GOALDatabaseException(
+						"could not create a mental model of agent " + id, e);
+			}
+			this.models.put(id, model);
+		}
+		return model;
+	}
+
 	/**
 	 * Removes a {@link MentalModel} of another agent from this
 	 * {@link MentalState}. Also deletes any references to this agent in the
@@ -319,7 +407,7 @@ public class MentalState {
 	 * @param id
 	 *            The name of the agent whose model needs to be removed.
 	 */
-	public void removeAgentModel(AgentId id) {
+	public synchronized void removeAgentModel(AgentId id) {
 
 		// Delete the fact that (other) agent exists from this agent's belief
 		// base.
@@ -334,6 +422,60 @@ public class MentalState {
 		}
 	}
 
+	/**
+	 * Takes a snapshot of the beliefs and goals of the agent, from which its
+	 * mental state can be restored; see
+	 * {@link #restore(MentalStateSnapshot, Debugger)}. Only the own mental
+	 * model of the agent is part of a snapshot, and only if what the agent
+	 * believes and wants does not (also) depend on its percepts, mails, models
+	 * of other agents or focus, which are not part of a snapshot.
+	 *
+	 * @return The snapshot, or {@code null} if the agent has percepts or mails,
+	 *         models other agents, or is focused on an attention set.
+	 */
+	public synchronized MentalStateSnapshot snapshot() {
+		if (this.models.size() != 1
+				|| !getOwnBase(BASETYPE.PERCEPTBASE).getTheory().isEmpty()
+				|| !getOwnBase(BASETYPE.MAILBOX).getTheory().isEmpty()) {
+			return null;
+		}
+		return getOwnModel().snapshot();
+	}
+
+	/**
+	 * Replaces the own mental model of the agent by one with the beliefs and
+	 * goals of a snapshot, as if the agent ran the module the snapshot was
+	 * taken after. Each base is created with its contents at once. The agents
+	 * known to this mental state stay known.
+	 *
+	 * @param snapshot
+	 *            A snapshot taken (see {@link #snapshot()}) from a mental state
+	 *            of an agent with the same name and program.
+	 * @param debugger
+	 *            The current debugger
+	 * @throws KRInitFailedException
+	 *             If the KR technology failed to create the requested
+	 *             databases.
+	 * @throws KRQueryFailedException
+	 * @throws KRDatabaseException
+	 * @throws UnknownObjectException
+	 */
+	public synchronized void restore(MentalStateSnapshot snapshot,
+			Debugger debugger) throws KRInitFailedException,
+			KRDatabaseException, KRQueryFailedException,
+			UnknownObjectException {
+		MentalModel old = this.models.remove(this.agentId);
+		if (old != null) {
+			old.cleanUp();
+		}
+		this.models.put(this.agentId, createModel(this.agentId,
+				snapshot.getBeliefs(), snapshot.getGoals(), debugger));
+		for (AgentId id : this.knownAgents) {
+			getOwnBase(BASETYPE.BELIEFBASE).updateAgentFact(true, id,
+					id.equals(this.agentId));
+		}
+	}
+
 	/**
 	 * Cleans up all databases maintained in this agent's {@link MentalModel}
 	 * and removes the agent's mental model.
@@ -345,6 +487,33 @@ public class MentalState {
 		this.models.clear();
 	}
 
+	/**
+	 * Returns the version of this mental state, i.e. the highest version of
+	 * its mental models; see {@link MentalModel#getVersion()}. Adding or
+	 * removing the model of another agent changes the belief base of the
+	 * owner, so the version changes with that as well.
+	 *
+	 * @return The current version of this mental state.
+	 */
+	public synchronized long getVersion() {
+		long version = 0;
+		for (MentalModel model : this.models.values()) {
+			version = Math.max(version, model.getVersion());
+		}
+		return version;
+	}
+
+	/**
+	 * Forgets the query results cached by the mental models; see
+	 * {@link MentalModel#clearQueryCache()}. Should be called at the start of
+	 * every reasoning cycle.
+	 */
+	public synchronized void clearQueryCache() {
+		for (MentalModel model : this.models.values()) {
+			model.clearQueryCache();
+		}
+	}
+
 	/*********** query and update methods (interface to {@link MentalModel}s) ************/
 
 	/**
@@ -354,11 +523,19 @@ public class MentalState {
 	 * @throws GOALDatabaseException 
 	 */
 	public Set<Substitution> query(MentalLiteral literal, Debugger debugger) throws GOALDatabaseException {
-		// Process selector.
+		// Process selector; most literals are about the agent itself.
 		Iterator<AgentId> agents;
 		try {
-			agents = ExecuteTools.resolve(literal.getSelector(), this)
-					.iterator();
+			switch (literal.getSelector().getType()) {
+			case SELF:
+			case THIS:
+				agents = this.self.iterator();
+				break;
+			default:
+				agents = ExecuteTools.resolve(literal.getSelector(), this)
+						.iterator();
+				break;
+			}
 		} catch (KRInitFailedException e) {
 			throw new GOALRuntimeErrorException(
 					"Processing of selector failed: " + e.getMessage(), e);
@@ -368,15 +545,15 @@ public class MentalState {
 		boolean focus = literal.getSelector().getType() != SelectorType.SELF;
 
 		// Evaluate query and compute solutions.
-		Set<Substitution> result = this.models.get(agents.next()).query(
+		Set<Substitution> result = getModel(agents.next(), debugger).query(
 				literal, focus, debugger);
 
 		if (any) {
 			// We need to find only one agent whose mental model satisfies this
 			// literal.
 			while (agents.hasNext() && result.isEmpty()) {
-				result = this.models.get(agents.next()).query(literal, focus,
-						debugger);
+				result = getModel(agents.next(), debugger).query(literal,
+						focus, debugger);
 			}
 		} else {
 			// We need to verify that all models of agents in the set satisfy
@@ -385,9 +562,9 @@ public class MentalState {
 			while (agents.hasNext() && result.size() > 0) {
 				Set<Substitution> currentResults = new LinkedHashSet<>();
 				for (Substitution subst : result) {
-					Set<Substitution> tempResult = this.models.get(
-							agents.next()).query(literal.applySubst(subst),
-							focus, debugger);
+					Set<Substitution> tempResult = getModel(agents.next(),
+							debugger).query(literal.applySubst(subst), focus,
+							debugger);
 					for (Substitution tempSubst : tempResult) {
 						currentResults.add(subst.combine(tempSubst));
 					}
@@ -445,7 +622,7 @@ public class MentalState {
 	public boolean insert(Update update, BASETYPE type, Debugger debugger,
 			AgentId... agent) throws GOALDatabaseException {
 		AgentId id = ((agent.length == 0) ? this.agentId : agent[0]);
-		return this.models.get(id).getBase(type).insert(update, debugger);
+		return getModel(id, debugger).getBase(type).insert(update, debugger);
 	}
 
 	/**
@@ -467,7 +644,38 @@ public class MentalState {
 	public boolean insert(DatabaseFormula formula, BASETYPE type,
 			Debugger debugger, AgentId... agent) throws GOALDatabaseException {
 		AgentId name = ((agent.length == 0) ? this.agentId : agent[0]);
-		return this.models.get(name).getBase(type).insert(formula, debugger);
+		return getModel(name, debugger).getBase(type).insert(formula, debugger);
+	}
+
+	/**
+	 * Beliefs are removed from and then added to the base associated with the
+	 * type and the agent, as a single update; see
+	 * {@link BeliefBase#update(List, List, Debugger)}. Callers that update
+	 * several beliefs at once should use this instead of inserting and
+	 * deleting the beliefs one by one, and check the goal state (see
+	 * {@link #updateGoalState(Debugger, AgentId...)}) once afterwards.
+	 *
+	 * @param addList
+	 *            The beliefs to be inserted.
+	 * @param deleteList
+	 *            The beliefs to be removed.
+	 * @param type
+	 *            The type of the base to update.
+	 * @param debugger
+	 *            Debugger monitoring the update.
+	 * @param agent
+	 *            An optional agent to do the update for; the current agent is
+	 *            used otherwise
+	 *
+	 * @return {@code true} if anything changed.
+	 * @throws GOALDatabaseException
+	 */
+	public boolean update(List<DatabaseFormula> addList,
+			List<DatabaseFormula> deleteList, BASETYPE type,
+			Debugger debugger, AgentId... agent) throws GOALDatabaseException {
+		AgentId name = ((agent.length == 0) ? this.agentId : agent[0]);
+		return getModel(name, debugger).getBase(type).update(addList,
+				deleteList, debugger);
 	}
 
 	/**
@@ -489,7 +697,7 @@ public class MentalState {
 	public boolean delete(Update update, BASETYPE type, Debugger debugger,
 			AgentId... agent) throws GOALDatabaseException {
 		AgentId name = ((agent.length == 0) ? getAgentId() : agent[0]);
-		return this.models.get(name).getBase(type).delete(update, debugger);
+		return getModel(name, debugger).getBase(type).delete(update, debugger);
 	}
 
 	/**
@@ -511,7 +719,7 @@ public class MentalState {
 	public boolean delete(DatabaseFormula formula, BASETYPE type,
 			Debugger debugger, AgentId... agent) throws GOALDatabaseException {
 		AgentId name = ((agent.length == 0) ? getAgentId() : agent[0]);
-		return this.models.get(name).getBase(type).delete(formula, debugger);
+		return getModel(name, debugger).getBase(type).delete(formula, debugger);
 	}
 
 	/**
@@ -537,12 +745,12 @@ public class MentalState {
 		// Do not add goal if it already is implicated by an existing goal.
 		// TODO: this is a precondition of adopt action; probably duplicating
 		// code in actions.AdoptAction...
-		if (!this.models.get(name).getAttentionSet(focus)
-				.query(update.toQuery(), debugger).isEmpty()) {
+		MentalModel model = getModel(name, debugger);
+		if (!model.getAttentionSet(focus).query(update.toQuery(), debugger)
+				.isEmpty()) {
 			return false;
 		}
-		return this.models.get(name).getAttentionSet(focus)
-				.insert(update, debugger);
+		return model.getAttentionSet(focus).insert(update, debugger);
 	}
 
 	/**
@@ -560,7 +768,7 @@ public class MentalState {
 	 */
 	public void drop(Update update, Debugger debugger, AgentId... agent) throws GOALDatabaseException {
 		AgentId name = ((agent.length == 0) ? getAgentId() : agent[0]);
-		this.models.get(name).drop(update, debugger);
+		getModel(name, debugger).drop(update, debugger);
 	}
 
 	/**
@@ -587,7 +795,14 @@ public class MentalState {
 	 */
 	public void updateGoalState(Debugger debugger, AgentId... agent) {
 		AgentId name = ((agent.length == 0) ? getAgentId() : agent[0]);
-		this.models.get(name).updateGoalState(debugger);
+		MentalModel model;
+		synchronized (this) {
+			model = this.models.get(name);
+		}
+		// A model that has not been created yet has no goals to update.
+		if (model != null) {
+			model.updateGoalState(debugger);
+		}
 	}
 
 	/**
@@ -662,24 +877,21 @@ public class MentalState {
 
 		Set<Substitution> substitutions = new LinkedHashSet<>();
 		Set<Substitution> partSubsts;
+		MentalModel model = getOwnModel();
+		MentalStateConditionExecutor executor = new MentalStateConditionExecutor(
+				context);
 
 		// iterate over the goals in the current goal base; we need to get
 		// substitutions that validate the context using only one goal.
 		for (SingleGoal goal : getAttentionSet()) {
-			// temporarily only have one of the goals
-			this.models
-					.get(this.agentId)
-					.getAttentionStack()
-					.push(new GoalBase(goal, this.state, this.agentId,
-							this.agentProgram, getAgentId().getName(),
-							debugger, this.agentId));
+			// temporarily only use one of the goals
+			model.setGoalScope(goal);
 
 			// get the substitutions that make the given context true, given
 			// the current single goal. Add these to the total set of
 			// substitutions.
 			try {
-				partSubsts = new MentalStateConditionExecutor(context)
-						.evaluate(this, debugger);
+				partSubsts = executor.evaluate(this, debugger);
 				if (!partSubsts.isEmpty()) {
 					substitutions.addAll(partSubsts);
 					// make sure we do not have to re-query everything in order
@@ -694,9 +906,9 @@ public class MentalState {
 					}
 				}
 			} finally {
-				// remove the temporary goal base before exiting the method,
-				// whether or not an exception was thrown
-				getOwnModel().getAttentionStack().pop().cleanUp();
+				// remove the restriction before exiting the method, whether
+				// or not an exception was thrown
+				model.setGoalScope(null);
 			}
 		}
 
@@ -753,35 +965,35 @@ public class MentalState {
 	public String toString(boolean addknowledge, boolean addbeliefs,
 			boolean addpercepts, boolean addmailbox, boolean addgoals,
 			boolean focus) {
-		String text = "";
+		StringBuilder text = new StringBuilder();
 
 		if (addknowledge) {
 			// first convert the KB to string.
-			text += "% ----- Knowledge -----\n";
-			text += getOwnBase(BASETYPE.KNOWLEDGEBASE).getTheory();
+			text.append("% ----- Knowledge -----\n");
+			getOwnBase(BASETYPE.KNOWLEDGEBASE).getTheory().appendTo(text);
 		}
 
 		if (addbeliefs) {
-			text += "% ----- beliefs -----\n";
-			text += getOwnBase(BASETYPE.BELIEFBASE).getTheory();
+			text.append("% ----- beliefs -----\n");
+			getOwnBase(BASETYPE.BELIEFBASE).getTheory().appendTo(text);
 		}
 
 		if (addpercepts) {
-			text += "% ----- percepts -----\n";
-			text += getOwnBase(BASETYPE.PERCEPTBASE).getTheory();
+			text.append("% ----- percepts -----\n");
+			getOwnBase(BASETYPE.PERCEPTBASE).getTheory().appendTo(text);
 		}
 
 		if (addmailbox) {
-			text += "% ----- mails -----\n";
-			text += getOwnBase(BASETYPE.MAILBOX).getTheory();
+			text.append("% ----- mails -----\n");
+			getOwnBase(BASETYPE.MAILBOX).getTheory().appendTo(text);
 		}
 
 		if (addgoals) {
-			text += "% ----- goals -----\n";
-			text = text + getOwnModel().getAttentionSet(focus).showContents();
+			text.append("% ----- goals -----\n");
+			text.append(getOwnModel().getAttentionSet(focus).showContents());
 		}
 
-		return text;
+		return text.toString();
 	}
 
 	/**
@@ -798,7 +1010,7 @@ public class MentalState {
 	 *
 	 * @return The total number of queries and updates that have been performed.
 	 */
-	public long getCount() {
+	public synchronized long getCount() {
 		long countSum = 0;
 
 		for (MentalModel model : this.models.values()) {
@@ -820,4 +1032,27 @@ public class MentalState {
 		return countSum;
 	}
 
+	/**
+	 * Returns the time used by the KR language to perform the queries and
+	 * updates counted by {@link #getCount()}; see {@link KRCost}.
+	 *
+	 * @return The total time in nanoseconds used by the KR language.
+	 */
+	public synchronized long getTimeUsedByKR() {
+		long timeSum = 0;
+
+		for (MentalModel model : this.models.values()) {
+			for (BASETYPE type : BASETYPE.values()) {
+				if (model.getBase(type) != null) {
+					timeSum += model.getBase(type).getTimeUsedByKR();
+				}
+			}
+			for (GoalBase base : model.getAttentionStack()) {
+				timeSum += base.getTimeUsedByKR();
+			}
+			timeSum += model.getTimeUsedByKR();
+		}
+		return timeSum;
+	}
+
 }
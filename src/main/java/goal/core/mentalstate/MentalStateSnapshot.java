@@ -0,0 +1,65 @@
+package goal.core.mentalstate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import krTools.language.DatabaseFormula;
+import krTools.language.Update;
+
+/**
+ * The contents of the belief base and the (top level) goal base of an agent
+ * at some point, to which a {@link MentalState} can be restored; see
+ * {@link MentalState#snapshot()} and
+ * {@link MentalState#restore(MentalStateSnapshot, goal.tools.debugger.Debugger)}
+ * .
+ * <p>
+ * Restoring a snapshot creates each base with its contents at once, instead of
+ * inserting the formulas one by one as the program would. The knowledge of
+ * the agent is not part of a snapshot, as it is taken from the program.
+ * Neither are the percept base and mailbox, which are filled by the
+ * environment and other agents, nor the facts about the existence of agents,
+ * which are inserted when the agents are announced.
+ * </p>
+ * <p>
+ * A snapshot refers to the (immutable) formulas of the bases it was taken
+ * from, and can be restored any number of times, also by several agents at
+ * the same time.
+ * </p>
+ */
+public final class MentalStateSnapshot {
+	private final List<DatabaseFormula> beliefs;
+	private final List<Update> goals;
+
+	/**
+	 * @param beliefs
+	 *            The contents of the belief base.
+	 * @param goals
+	 *            The goals of the goal base.
+	 */
+	MentalStateSnapshot(List<DatabaseFormula> beliefs, List<Update> goals) {
+		this.beliefs = Collections
+				.unmodifiableList(new ArrayList<>(beliefs));
+		this.goals = Collections.unmodifiableList(new ArrayList<>(goals));
+	}
+
+	/**
+	 * @return The contents of the belief base, in the order they were added.
+	 */
+	public List<DatabaseFormula> getBeliefs() {
+		return this.beliefs;
+	}
+
+	/**
+	 * @return The goals of the goal base, in the order they were added.
+	 */
+	public List<Update> getGoals() {
+		return this.goals;
+	}
+
+	@Override
+	public String toString() {
+		return "snapshot of " + this.beliefs.size() + " beliefs and "
+				+ this.goals.size() + " goals";
+	}
+}
@@ -1,6 +1,10 @@
 package goal.core.mentalstate;
 
 import goal.tools.errorhandling.exceptions.GOALRuntimeErrorException;
+
+import java.util.Collections;
+import java.util.Set;
+
 import krTools.KRInterface;
 import krTools.database.Database;
 import krTools.errors.exceptions.KRDatabaseException;
@@ -44,6 +48,23 @@ public class SingleGoal {
 	 * The KR database that stores the goal.
 	 */
 	private Database database = null;
+	/**
+	 * The signatures of the facts that make up the goal; see
+	 * {@link GoalIndex}.
+	 */
+	private final Set<String> signatures;
+	/**
+	 * True if only changes in facts with the signatures of the goal can make
+	 * the goal achieved, i.e. the goal is represented in SWI Prolog and the
+	 * knowledge of the agent does not define any of its predicates.
+	 */
+	private final boolean indexed;
+	/**
+	 * The version of the beliefs (see
+	 * {@link MentalModel#updateGoalState(goal.tools.debugger.Debugger)}) at
+	 * which the goal was last found not to be achieved, or -1.
+	 */
+	private long checked = -1;
 	/**
 	 *
 	 */
@@ -66,6 +87,10 @@ public class SingleGoal {
 	protected SingleGoal(Update goal, AgentProgram agent,
 			mentalState.MentalState state) {
 		this.goal = goal;
+		this.signatures = GoalIndex.getSignatures(goal.getAddList());
+		this.indexed = !this.signatures.isEmpty()
+				&& Collections.disjoint(this.signatures,
+						GoalIndex.getKnowledgeSignatures(agent));
 		try {
 			this.database = state.makeDatabase(BASETYPE.GOALBASE,
 					this.goal.getAddList(), agent);
@@ -97,6 +122,40 @@ public class SingleGoal {
 		return this.database;
 	}
 
+	/**
+	 * @return The signatures of the facts that make up the goal; empty if
+	 *         they are unknown.
+	 */
+	protected Set<String> getSignatures() {
+		return this.signatures;
+	}
+
+	/**
+	 * @return {@code true} if only changes in facts with the signatures of
+	 *         the goal (see {@link #getSignatures()}) can make the goal
+	 *         achieved; {@code false} if any change in the beliefs can.
+	 */
+	protected boolean isIndexed() {
+		return this.indexed;
+	}
+
+	/**
+	 * @return The version of the beliefs at which the goal was last found not
+	 *         to be achieved, or -1 if it has not been checked yet.
+	 */
+	protected long getCheckedVersion() {
+		return this.checked;
+	}
+
+	/**
+	 * @param version
+	 *            The version of the beliefs at which the goal was found not to
+	 *            be achieved.
+	 */
+	protected void setCheckedVersion(long version) {
+		this.checked = version;
+	}
+
 	/**
 	 * @return string representation of goal.
 	 */
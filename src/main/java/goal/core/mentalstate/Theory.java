@@ -18,10 +18,13 @@
 
 package goal.core.mentalstate;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import krTools.language.DatabaseFormula;
 
@@ -43,6 +46,11 @@ import krTools.language.DatabaseFormula;
  * avoid duplication of clauses or facts in a database (a Theory itself is a
  * set).
  *
+ * Readers get an immutable view of the formulas (see {@link #getFormulas()}),
+ * which is shared by all readers until the theory changes next; a view is
+ * thus only built once for every version of the theory, and reading does not
+ * block updates of the theory.
+ *
  * @author K.Hindriks
  */
 public class Theory {
@@ -51,6 +59,29 @@ public class Theory {
 	 * The formulas in this {@link Theory}.
 	 */
 	private final Set<DatabaseFormula> content;
+	/**
+	 * The version of the content, increased on every change.
+	 */
+	private final AtomicLong version = new AtomicLong();
+	/**
+	 * The last view of the content that has been handed out, or {@code null}
+	 * if none has been yet.
+	 */
+	private volatile View view = null;
+
+	/**
+	 * An immutable view of the content of a theory at some version.
+	 */
+	private static final class View {
+		private final long version;
+		private final Set<DatabaseFormula> formulas;
+
+		private View(long version, Set<DatabaseFormula> content) {
+			this.version = version;
+			this.formulas = Collections
+					.unmodifiableSet(new LinkedHashSet<>(content));
+		}
+	}
 
 	/**
 	 * Creates a theory and adds all given formulas to it.
@@ -63,12 +94,64 @@ public class Theory {
 	}
 
 	/**
-	 * Returns copy of the set of all formulas that are part of this theory.
+	 * @return The version of this theory, which is increased every time the
+	 *         theory changes.
+	 */
+	public long getVersion() {
+		return this.version.get();
+	}
+
+	/**
+	 * Returns the set of all formulas that are part of this theory, in the
+	 * order in which they were added. The set cannot be modified, and does not
+	 * change when the theory does.
+	 *
+	 * @return the {@link DatabaseFormula}s in this theory.
+	 */
+	public Set<DatabaseFormula> getFormulas() {
+		View current = this.view;
+		if (current == null || current.version != this.version.get()) {
+			synchronized (this) {
+				current = this.view;
+				if (current == null
+						|| current.version != this.version.get()) {
+					current = new View(this.version.get(), this.content);
+					this.view = current;
+				}
+			}
+		}
+		return current.formulas;
+	}
+
+	/**
+	 * Returns a copy of the formulas that are part of this theory, in the order
+	 * in which they were added.
 	 *
 	 * @return a copy of the {@link DatabaseFormula}s in this theory.
 	 */
-	public synchronized Set<DatabaseFormula> getFormulas() {
-		return new HashSet<>(this.content);
+	public List<DatabaseFormula> getFormulaList() {
+		return new ArrayList<>(getFormulas());
+	}
+
+	/**
+	 * @return {@code true} if this theory does not contain any formulas.
+	 */
+	public synchronized boolean isEmpty() {
+		return this.content.isEmpty();
+	}
+
+	/**
+	 * Increases the version of this theory if it changed.
+	 *
+	 * @param changed
+	 *            Whether the theory changed.
+	 * @return changed.
+	 */
+	private boolean changed(boolean changed) {
+		if (changed) {
+			this.version.incrementAndGet();
+		}
+		return changed;
 	}
 
 	// *************** insertion methods *************/
@@ -84,7 +167,7 @@ public class Theory {
 	 *         otherwise.
 	 */
 	protected synchronized boolean add(DatabaseFormula formula) {
-		return this.content.add(formula);
+		return changed(this.content.add(formula));
 	}
 
 	/**
@@ -97,7 +180,39 @@ public class Theory {
 	 * @return {@code true} if theory changed; {@code false} otherwise.
 	 */
 	protected synchronized boolean add(Set<DatabaseFormula> content) {
-		return this.content.addAll(content);
+		return changed(this.content.addAll(content));
+	}
+
+	/**
+	 * Removes the formulas in a delete list from and then adds the formulas in
+	 * an add list to this {@link Theory}, at once; no one sees the theory
+	 * with only part of the update applied.
+	 *
+	 * @param addList
+	 *            The formulas to be added.
+	 * @param deleteList
+	 *            The formulas to be removed.
+	 * @param added
+	 *            Receives the formulas that have been added, i.e. that were
+	 *            not in the theory yet (or have been removed first).
+	 * @param deleted
+	 *            Receives the formulas that have been removed.
+	 * @return {@code true} if the theory changed; {@code false} otherwise.
+	 */
+	protected synchronized boolean update(Collection<DatabaseFormula> addList,
+			Collection<DatabaseFormula> deleteList,
+			List<DatabaseFormula> added, List<DatabaseFormula> deleted) {
+		for (DatabaseFormula formula : deleteList) {
+			if (this.content.remove(formula)) {
+				deleted.add(formula);
+			}
+		}
+		for (DatabaseFormula formula : addList) {
+			if (this.content.add(formula)) {
+				added.add(formula);
+			}
+		}
+		return changed(!added.isEmpty() || !deleted.isEmpty());
 	}
 
 	// *************** deletion methods *************/
@@ -112,25 +227,36 @@ public class Theory {
 	 *         successfully removed.
 	 */
 	protected synchronized boolean remove(DatabaseFormula formula) {
-		return this.content.remove(formula);
+		return changed(this.content.remove(formula));
 	}
 
 	/**
 	 * Erases all content in the theory.
 	 */
-	protected void eraseContent() {
+	protected synchronized void eraseContent() {
+		changed(!this.content.isEmpty());
 		this.content.clear();
 	}
 
 	/**
-	 * Generates string with all formulas in the theory on separate lines.
+	 * Appends all formulas in the theory on separate lines.
+	 *
+	 * @param text
+	 *            The text to append the formulas to.
+	 * @return text.
 	 */
-	@Override
-	public synchronized String toString() {
-		String text = "";
-		for (DatabaseFormula formula : this.content) {
-			text += formula.toString() + ".\n";
+	public StringBuilder appendTo(StringBuilder text) {
+		for (DatabaseFormula formula : getFormulas()) {
+			text.append(formula).append(".\n");
 		}
 		return text;
 	}
+
+	/**
+	 * Generates string with all formulas in the theory on separate lines.
+	 */
+	@Override
+	public String toString() {
+		return appendTo(new StringBuilder()).toString();
+	}
 }
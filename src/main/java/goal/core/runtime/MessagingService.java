@@ -9,6 +9,7 @@ import java.net.URISyntaxException;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
+import localmessaging.LocalMessaging;
 import nl.tudelft.goal.messaging.Messaging;
 import nl.tudelft.goal.messaging.client.MessagingClient;
 import nl.tudelft.goal.messaging.exceptions.CommunicationFailureException;
@@ -86,6 +87,15 @@ public class MessagingService {
 		return this.messagingClient;
 	}
 
+	/**
+	 * Checks whether all messages are delivered within this JVM.
+	 *
+	 * @return {@code true} if the messaging infrastructure is local.
+	 */
+	public boolean isLocal() {
+		return this.messaging instanceof LocalMessaging;
+	}
+
 	/**
 	 * Checks whether ID is locally managed.
 	 *
@@ -291,6 +291,7 @@ public class AgentService<D extends Debugger, C extends GOALInterpreter<D>> {
 			// We just pass the message onto the agent.
 			for (Agent<C> agent : this.agents.local()) {
 				try {
+					agent.getMessaging().updateAgentAvailability(id, true);
 					agent.getController().updateAgentAvailability(id, true);
 				} catch (Exception e) { // callback protection
 					new Warning(String.format(
@@ -323,11 +324,12 @@ public class AgentService<D extends Debugger, C extends GOALInterpreter<D>> {
 			// Pass the message onto the other agent.
 			for (Agent<C> a : this.agents.local()) {
 				try {
+					a.getMessaging().updateAgentAvailability(id, false);
 					a.getController().updateAgentAvailability(id, true);
 				} catch (Exception e) { // callback protection
 					new Warning(String.format(
 							Resources.get(WarningStrings.FAILED_ACK_DEL_AGENT),
-							agent.getId().getName(), id.getName()), e);
+							a.getId().getName(), id.getName()), e);
 				}
 			}
 		}
@@ -26,11 +26,17 @@ import goal.core.agent.Controller;
 import goal.core.agent.EnvironmentCapabilities;
 import goal.core.agent.LoggingCapabilities;
 import goal.core.agent.MessagingCapabilities;
+import goal.core.agent.WakeUpSignal;
 import goal.core.executors.ModuleExecutor;
+import goal.core.executors.ModulePlan;
 import goal.core.mentalstate.MentalState;
+import goal.core.mentalstate.MentalStateSnapshot;
 import goal.core.mentalstate.SingleGoal;
+import goal.core.runtime.service.environmentport.PerceptDelta;
 import goal.core.runtime.service.environmentport.EnvironmentPort;
+import goal.preferences.CorePreferences;
 import goal.preferences.PMPreferences;
+import goal.tools.SnapshotCache;
 import goal.tools.adapt.FileLearner;
 import goal.tools.adapt.Learner;
 import goal.tools.debugger.Channel;
@@ -45,12 +51,18 @@ import goal.tools.errorhandling.exceptions.GOALActionFailedException;
 import goal.tools.errorhandling.exceptions.GOALBug;
 import goal.tools.errorhandling.exceptions.GOALDatabaseException;
 import goal.tools.errorhandling.exceptions.GOALLaunchFailureException;
+import goal.tools.metrics.AgentMetrics;
+import goal.tools.metrics.Metrics;
+import goal.tools.metrics.Metrics.Counter;
+import goal.tools.metrics.Metrics.Timer;
 
 import java.rmi.activation.UnknownObjectException;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Set;
 
 import krTools.errors.exceptions.KRDatabaseException;
@@ -65,6 +77,7 @@ import languageTools.program.agent.Module.RuleEvaluationOrder;
 import languageTools.program.agent.Module.TYPE;
 import languageTools.program.agent.actions.LogAction;
 import languageTools.program.agent.actions.ModuleCallAction;
+import languageTools.program.agent.actions.PrintAction;
 import languageTools.program.agent.actions.UserSpecAction;
 import languageTools.program.agent.msg.Message;
 import languageTools.program.agent.rules.Rule;
@@ -133,10 +146,14 @@ public class RunState<D extends Debugger> {
 
 	/**
 	 * Previous input states recording inputs from previous round. Used to check
-	 * whether agent can go to sleep.
+	 * whether agent can go to sleep. Percepts do not need to be recorded; the
+	 * environment only reports changes in percepts.
 	 */
-	private Set<Percept> previousPercepts = new LinkedHashSet<>();
 	private Set<Message> previousMessages = new LinkedHashSet<>();
+	/**
+	 * The number of percepts the agent currently has.
+	 */
+	private int perceptCount = 0;
 	/**
 	 * The goal that is focused on is stored temporarily in the run state for
 	 * later reference when a {@link ModuleCallAction} is executed. The goal
@@ -176,10 +193,58 @@ public class RunState<D extends Debugger> {
 	 * Keep track whether sleep condition held previous cycle.
 	 */
 	private boolean sleepConditionsHoldingPreviousCycle;
+	/**
+	 * True if the agent is in sleep mode, i.e. it is waiting for new percepts
+	 * or messages to come in.
+	 */
+	private boolean asleep = false;
+	/**
+	 * Signal raised by the agent's capabilities when new input may have
+	 * arrived. Used to wake up the agent when it is asleep.
+	 */
+	private final WakeUpSignal wakeUp = new WakeUpSignal();
+	/**
+	 * The execution plans of the modules of the program, by module; see
+	 * {@link #getPlan(Module)}.
+	 */
+	private final Map<Module, ModulePlan> plans = new IdentityHashMap<>();
+	/**
+	 * The runtime metrics of the agent.
+	 */
+	private final AgentMetrics metrics;
+	/**
+	 * The time the current cycle started, as returned by
+	 * {@link AgentMetrics#start()}.
+	 */
+	private long cycleStart = 0;
 	/**
 	 * Keep track of executed actions
 	 */
 	private UserSpecAction lastAction;
+	/**
+	 * The snapshots of the mental state after the init module to start from
+	 * and to add to, or {@code null} if snapshots are not used.
+	 */
+	private final SnapshotCache snapshots;
+	/**
+	 * The snapshot of the mental state after the init module that is restored
+	 * instead of executing the init module, or {@code null} if there is none.
+	 */
+	private MentalStateSnapshot snapshot = null;
+	/**
+	 * The number of actions, messages, logs, prints and parameter actions
+	 * (e.g. on the emotions of the agent) the agent performed. A snapshot of
+	 * the mental state after the init module is only taken if the init module
+	 * did not perform any of these, as they would not be performed again when
+	 * the snapshot is restored.
+	 */
+	private int effects = 0;
+	/**
+	 * True if a module the agent entered, i.e. the init module or a module it
+	 * called, chose its rules in an order that may differ between runs. A
+	 * snapshot of the mental state after the init module is then not taken.
+	 */
+	private boolean unordered = false;
 
 	/**
 	 * Creates a new {@link RunState}.
@@ -199,14 +264,45 @@ public class RunState<D extends Debugger> {
 			MessagingCapabilities messaging, LoggingCapabilities logger,
 			AgentProgram program, D debugger, Learner learner)
 			throws KRInitFailedException {
+		this(parent, agentName, environment, messaging, logger, program,
+				debugger, learner, null);
+	}
+
+	/**
+	 * Creates a new {@link RunState} that starts from the snapshot of the
+	 * mental state of the agent after its init module, if there is one, and
+	 * else takes one after running the init module.
+	 *
+	 * @param agentName
+	 * @param environment
+	 * @param messaging
+	 * @param logger
+	 *            the logger for {@link LogAction}s.
+	 * @param program
+	 * @param debugger
+	 * @param learner
+	 * @param snapshots
+	 *            the snapshots of the mental state after the init module, or
+	 *            {@code null} to always run the init module.
+	 * @throws KRInitFailedException
+	 */
+	public RunState(Controller parent, AgentId agentName,
+			EnvironmentCapabilities environment,
+			MessagingCapabilities messaging, LoggingCapabilities logger,
+			AgentProgram program, D debugger, Learner learner,
+			SnapshotCache snapshots) throws KRInitFailedException {
 		this.parent = parent;
 		this.environment = environment;
 		this.messaging = messaging;
 		this.logActionsLogger = logger;
+		this.environment.setWakeUpSignal(this.wakeUp);
+		this.messaging.setWakeUpSignal(this.wakeUp);
 
 		// Store reference to program for possible reset.
 		this.program = program;
 		this.agentName = agentName;
+		this.metrics = Metrics.forAgent(agentName.getName());
+		this.snapshots = snapshots;
 
 		this.debugger = debugger;
 		// TODO: notify all GUI components that want to (should) subscribe to
@@ -228,10 +324,15 @@ public class RunState<D extends Debugger> {
 			this.mainModule.setRuleEvaluationOrder(RuleEvaluationOrder.LINEAR);
 			this.mainModule.setRules(new ArrayList<Rule>(0));
 		}
+		// Compile the modules into execution plans.
+		for (Module module : program.getModules()) {
+			getPlan(module);
+		}
+		getPlan(this.mainModule);
 
 		// Create a new mental state for the agent.
 		try {
-			this.mentalState = new MentalState(this.getId(), program, debugger);
+			this.mentalState = createMentalState();
 		} catch (KRDatabaseException | KRQueryFailedException
 				| UnknownObjectException e) {
 			throw new KRInitFailedException(
@@ -244,6 +345,13 @@ public class RunState<D extends Debugger> {
 		this.learner = learner;
 	}
 
+	/**
+	 * @return The runtime metrics of the agent.
+	 */
+	public AgentMetrics getMetrics() {
+		return this.metrics;
+	}
+
 	public Controller getParent() {
 		return this.parent;
 	}
@@ -316,17 +424,97 @@ public class RunState<D extends Debugger> {
 		this.roundCounter = 0;
 		// Clean up old and create new initial mental state.
 		this.mentalState.cleanUp();
-		this.mentalState = new MentalState(getId(), this.program, this.debugger);
+		this.mentalState = createMentalState();
+		this.effects = 0;
+		this.unordered = false;
 		//
-		this.previousPercepts.clear();
 		this.previousMessages.clear();
+		this.perceptCount = 0;
 		this.messaging.reset();
+		this.environment.reset();
 		this.focusgoal = null;
 		this.activeStackOfModules.clear();
 		this.sleepConditionsHoldingPreviousCycle = false;
+		this.asleep = false;
 		this.topLevelRunContext = TYPE.MAIN;
 	}
 
+	/**
+	 * Creates the initial mental state of the agent, and looks up the
+	 * snapshot of its mental state after the init module, if snapshots are
+	 * used. The snapshot is restored in the first cycle; see
+	 * {@link #startCycle(boolean, boolean)}.
+	 *
+	 * @return The new mental state.
+	 */
+	private MentalState createMentalState() throws KRInitFailedException,
+			KRDatabaseException, KRQueryFailedException,
+			UnknownObjectException {
+		this.snapshot = null;
+		if (usesSnapshots()) {
+			this.snapshot = this.snapshots.get(this.program,
+					this.agentName.getName());
+		}
+		return new MentalState(getId(), this.program, this.debugger);
+	}
+
+	/**
+	 * @return true if the mental state after the init module is restored from
+	 *         and kept in {@link #snapshots}. The state of a learner is not
+	 *         part of a snapshot, so snapshots are not used when learning.
+	 */
+	private boolean usesSnapshots() {
+		return this.snapshots != null && this.initModule != null
+				&& !CorePreferences.isLearning();
+	}
+
+	/**
+	 * Restores the snapshot of the mental state after the init module, if
+	 * there is one and the agent has no percepts or mails in its first cycle,
+	 * as when the snapshot was taken.
+	 *
+	 * @param perceptDelta
+	 *            The percepts of the first cycle.
+	 * @param newMessages
+	 *            The mails of the first cycle.
+	 * @return true if the snapshot was restored, so the init module should
+	 *         not be executed.
+	 */
+	private boolean restoreSnapshot(PerceptDelta perceptDelta,
+			Set<Message> newMessages) {
+		if (this.snapshot == null || !perceptDelta.isEmpty()
+				|| !newMessages.isEmpty()) {
+			return false;
+		}
+		try {
+			this.mentalState.restore(this.snapshot, this.debugger);
+		} catch (KRInitFailedException | KRDatabaseException
+				| KRQueryFailedException | UnknownObjectException e) {
+			throw new IllegalStateException("could not restore the mental state " //$NON-NLS-1$
+					+ "of " + getId() + " after its init module", e); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return true;
+	}
+
+	/**
+	 * Keeps a snapshot of the mental state after the init module, if
+	 * snapshots are used and running the init module again would result in
+	 * the same mental state: the init module and the modules it called should
+	 * have performed no actions, messages, logs or prints, should not depend
+	 * on the order in which their rules are chosen, and should not have had
+	 * percepts or mails to handle (see {@link MentalState#snapshot()}).
+	 */
+	private void takeSnapshot() {
+		if (!usesSnapshots() || this.effects > 0 || this.unordered) {
+			return;
+		}
+		MentalStateSnapshot snapshot = this.mentalState.snapshot();
+		if (snapshot != null) {
+			this.snapshots.put(this.program, this.agentName.getName(),
+					snapshot);
+		}
+	}
+
 	/**
 	 * Terminates all the runtime resources used by the run state, specifically
 	 * agent's mental state.
@@ -344,7 +532,7 @@ public class RunState<D extends Debugger> {
 	 * @param percept
 	 *            The percept added to the percept buffer.
 	 * @deprecated percepts should be communicated to the agent through
-	 *             {@link Capabilities#getPercepts()}.
+	 *             {@link EnvironmentCapabilities#getPerceptDelta()}.
 	 */
 	@Deprecated
 	public void addPercept(Percept percept) {
@@ -374,9 +562,22 @@ public class RunState<D extends Debugger> {
 		Set<Percept> addList = new HashSet<>(newPercepts);
 		addList.removeAll(previousPercepts);
 
+		processPercepts(new PerceptDelta(addList, deleteList));
+	}
+
+	/**
+	 * Processes the changes in the EIS percepts received from the agent's
+	 * environment. Inserts added and removes deleted percepts from the percept
+	 * base.
+	 *
+	 * @param delta
+	 *            The percepts that have been added and removed since the
+	 *            previous round.
+	 */
+	public void processPercepts(PerceptDelta delta) {
 		// nothing to do if both add and delete lists are empty.
 		getMentalState().getOwnBase(BASETYPE.PERCEPTBASE).updatePercepts(
-				addList, deleteList, this.debugger);
+				delta.getAdded(), delta.getRemoved(), this.debugger);
 	}
 
 	/**
@@ -390,8 +591,8 @@ public class RunState<D extends Debugger> {
 					"Processing mails."); //$NON-NLS-1$
 			for (Message message : messages) {
 				processMessageMentalModel(message);
-				processMessageToMessagebox(message);
 			}
+			processMessagesToMessagebox(messages);
 
 			// Check if goals have been achieved and, if so, update goal base.
 			getMentalState().updateGoalState(getDebugger());
@@ -404,7 +605,7 @@ public class RunState<D extends Debugger> {
 	/**
 	 * Process one message that we received by updating the mental models. This
 	 * does not update the message box, see also
-	 * {@link #processMessageToMessagebox(Message)}
+	 * {@link #processMessagesToMessagebox(Set)}
 	 *
 	 * @param message
 	 *            the new message
@@ -454,33 +655,24 @@ public class RunState<D extends Debugger> {
 	}
 
 	/**
-	 * Process the message: put it in the message box.
+	 * Process the messages: put them in the message box, all at once.
 	 *
-	 * @param message
-	 *            the message that was received.
-	 * @throws GOALDatabaseException 
+	 * @param messages
+	 *            the messages that were received.
 	 */
-	private void processMessageToMessagebox(Message message)  {
+	private void processMessagesToMessagebox(Set<Message> messages) {
 		/*
-		 * Put the received message in the mailbox as a "received" fact. The
+		 * Put the received messages in the mailbox as "received" facts. The
 		 * message content is annotated with the mood, unless it is an
 		 * indicative.
 		 */
 		try {
-			getMentalState().getOwnBase(BASETYPE.MAILBOX).insert(message, true,
-					this.debugger);
+			getMentalState().getOwnBase(BASETYPE.MAILBOX).insert(messages,
+					true, this.debugger);
 		} catch (GOALDatabaseException e) {
-			throw new IllegalStateException("the received message "+message+" can not be inserted",e);
+			throw new IllegalStateException("the received messages "
+					+ messages + " can not be inserted", e);
 		}
-		// TODO: do this in a proper but also EFFICIENT way!!
-		// TRAC #1125, #1128, #738. This is getting ugly, see #....
-		// Identifier eisname = new Identifier(message.getSender().getName());
-		// AgentId langSpecificSenderName = new AgentId(this.getKRInterface()
-		// .ConvertEISParameterToTerm(eisname).toString());
-		//
-		// DatabaseFormula formula = this.getKRInterface().parseDBFormula(
-		// message.toString(false, langSpecificSenderName) + ".");
-		// this.getMentalState().insert(formula, BASETYPE.MAILBOX, debugger);
 	}
 
 	/**
@@ -511,6 +703,28 @@ public class RunState<D extends Debugger> {
 		return this.debugger;
 	}
 
+	/**
+	 * Returns the signal that is raised when new input may have arrived for
+	 * the agent.
+	 *
+	 * @return the wake-up signal of the agent.
+	 */
+	public WakeUpSignal getWakeUpSignal() {
+		return this.wakeUp;
+	}
+
+	/**
+	 * Check if the agent is in sleep mode. This is the case if
+	 * {@link #startCycle(boolean, boolean)} was allowed to return while the
+	 * agent is asleep; the cycle should then be started again (once the
+	 * {@link #getWakeUpSignal()} has been raised) before continuing.
+	 *
+	 * @return {@code true} if the agent is asleep.
+	 */
+	public boolean isAsleep() {
+		return this.asleep;
+	}
+
 	/**
 	 * DOC
 	 *
@@ -519,12 +733,12 @@ public class RunState<D extends Debugger> {
 	 */
 	public void startCycle(boolean isActionPerformed)
 			throws GOALActionFailedException {
-		startCycle(isActionPerformed, new HashSet<Percept>());
+		startCycle(isActionPerformed, false);
 	}
 
-	private Set<Percept> getPercepts() throws DebuggerKilledException {
+	private PerceptDelta getPerceptDelta() throws DebuggerKilledException {
 		try {
-			return this.environment.getPercepts();
+			return this.environment.getPerceptDelta();
 		} catch (MessagingException e) {
 			// typically, when system is taken down.
 			// HACK Only Debugger should throw this.
@@ -532,7 +746,9 @@ public class RunState<D extends Debugger> {
 					"Fatal error: messaging is failing.", e);
 		} catch (EnvironmentInterfaceException e) {
 			new Warning(Resources.get(WarningStrings.FAILED_GET_PERCEPT), e);
-			return new HashSet<>(0);
+			// Keep the percepts of the previous cycle: the next delta is
+			// relative to them.
+			return PerceptDelta.EMPTY;
 		}
 	}
 
@@ -548,30 +764,31 @@ public class RunState<D extends Debugger> {
 	 * </ul>
 	 *
 	 * This function may go to sleep until there are new percepts or messages.
+	 * While asleep, the agent waits on its {@link WakeUpSignal} instead of
+	 * polling its inputs continuously.
 	 *
 	 * @param isActionPerformed
 	 *            is true if there has been performed an action between this
 	 *            call and the previous call to {@link #startCycle(boolean)}. We
 	 *            only consider going to sleep if this is false.
-	 * @param initial
-	 *            the initial set of percepts to use
+	 * @param mayPark
+	 *            if true, this function returns immediately when the agent is
+	 *            asleep instead of waiting for new input, leaving the rest of
+	 *            the cycle undone. The caller should then check
+	 *            {@link #isAsleep()}, and call this function again when the
+	 *            {@link #getWakeUpSignal()} has been raised.
 	 * @throws GOALActionFailedException
 	 */
 	// TODO: Does not yet support measuring time used in Thread.
-	public void startCycle(boolean isActionPerformed, Set<Percept> initial)
+	public void startCycle(boolean isActionPerformed, boolean mayPark)
 			throws GOALActionFailedException {
+		// Input arriving from here on raises the signal again.
+		this.wakeUp.clear();
 		Set<Message> newMessages = this.messaging.getAllMessages();
-		Set<Percept> newPercepts = initial;
-		if (initial.isEmpty()) {
-			newPercepts = getPercepts();
-		}
-
-		this.lastAction = null;
-		this.event = !newMessages.isEmpty() || !newPercepts.isEmpty()
-				|| isActionPerformed;
+		PerceptDelta perceptDelta = getPerceptDelta();
 
 		boolean sameMessages = newMessages.equals(this.previousMessages);
-		boolean samePercepts = newPercepts.equals(this.previousPercepts);
+		boolean samePercepts = perceptDelta.isEmpty();
 		boolean sleepConditionsHoldingNow = samePercepts && sameMessages
 				&& !isActionPerformed;
 
@@ -579,60 +796,80 @@ public class RunState<D extends Debugger> {
 		 * if sleep condition held previously and now, we go to sleep mode. In
 		 * sleep mode we wait till new messages or percepts come in.
 		 */
-		if (PMPreferences.getSleepRepeatingAgent()) {
-			if (this.sleepConditionsHoldingPreviousCycle
-					&& sleepConditionsHoldingNow) {
-				// sleep condition holds also NOW. Go sleep.
-				this.debugger.breakpoint(Channel.SLEEP, null, null,
-						"Going to sleep mode."); //$NON-NLS-1$
-
-				while (this.sleepConditionsHoldingPreviousCycle) {
-					// TODO would be nice to be event triggered here,
-					// and wake up on new message or percept, e.g., by
-					// using a blocking queue. But we are using a pull model for
-					// percepts... Maybe we can hand over responsibility for
-					// checking
-					// our percepts to the environment port that is running in
-					// its own
-					// thread and have that port notify us when something has
-					// changed!?
-
-					// Check if thread has been interrupted, we're in a
-					// busy-waiting loop!
-					// If so, we should kill the thread we're using; the
-					// debugger will
-					// take care of this.
-					this.debugger.breakpoint(Channel.RUNMODE, null, null,
-							"sleeping"); //$NON-NLS-1$
-					Thread.yield();
-
-					newMessages = this.messaging.getAllMessages();
-					newPercepts = getPercepts();
-					sameMessages = newMessages.equals(this.previousMessages);
-					samePercepts = newPercepts.equals(this.previousPercepts);
-					this.sleepConditionsHoldingPreviousCycle = samePercepts
-							&& sameMessages;
-				}
-				this.debugger.breakpoint(Channel.SLEEP, null, null,
-						"Woke up from sleep mode."); //$NON-NLS-1$
+		boolean sleep = PMPreferences.getSleepRepeatingAgent()
+				&& this.sleepConditionsHoldingPreviousCycle
+				&& sleepConditionsHoldingNow;
+		if (sleep && !this.asleep) {
+			this.debugger.breakpoint(Channel.SLEEP, null, null,
+					"Going to sleep mode."); //$NON-NLS-1$
+			this.asleep = true;
+		}
+		while (sleep) {
+			// Allow the debugger to pause or kill the agent while asleep.
+			this.debugger.breakpoint(Channel.RUNMODE, null, null, "sleeping"); //$NON-NLS-1$
+			if (mayPark) {
+				// The caller parks the agent on the wake-up signal and
+				// starts this cycle again once it has been raised.
+				return;
 			}
+			try {
+				this.wakeUp.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DebuggerKilledException(
+						"Agent was interrupted while asleep.", e); //$NON-NLS-1$
+			}
+			this.wakeUp.clear();
+			newMessages = this.messaging.getAllMessages();
+			perceptDelta = getPerceptDelta();
+			sleep = newMessages.equals(this.previousMessages)
+					&& perceptDelta.isEmpty();
 		}
+		if (this.asleep) {
+			this.asleep = false;
+			sleepConditionsHoldingNow = false;
+			this.debugger.breakpoint(Channel.SLEEP, null, null,
+					"Woke up from sleep mode."); //$NON-NLS-1$
+			// The time asleep does not count for the previous cycle.
+			this.cycleStart = 0;
+		}
+		this.metrics.stop(Timer.CYCLE, this.cycleStart);
+		this.cycleStart = this.metrics.start();
+		this.metrics.count(Counter.CYCLES);
+		this.metrics.count(Counter.PERCEPTS, perceptDelta.getAdded().size()
+				+ perceptDelta.getRemoved().size());
+		this.metrics.count(Counter.MESSAGES_RECEIVED, newMessages.size());
+
+		this.lastAction = null;
+		this.perceptCount += perceptDelta.getAdded().size()
+				- perceptDelta.getRemoved().size();
+		this.event = !newMessages.isEmpty() || this.perceptCount > 0
+				|| isActionPerformed;
 
 		// Increment round counter and display round separator via debugger.
 		this.incrementRoundCounter();
-		this.debugger.breakpoint(Channel.REASONING_CYCLE_SEPARATOR,
-				getRoundCounter(), null, " +++++++ Cycle " + getRoundCounter() //$NON-NLS-1$
-						+ " +++++++ "); //$NON-NLS-1$
+		if (this.debugger.isActive(Channel.REASONING_CYCLE_SEPARATOR)) {
+			this.debugger.breakpoint(Channel.REASONING_CYCLE_SEPARATOR,
+					getRoundCounter(), null, " +++++++ Cycle " + getRoundCounter() //$NON-NLS-1$
+							+ " +++++++ "); //$NON-NLS-1$
+		}
+
+		// Query results of the previous cycle may depend on more than the
+		// mental state; start with a clean cache.
+		this.mentalState.clearQueryCache();
 
 		// Get and process percepts.
-		this.processPercepts(newPercepts, this.previousPercepts);
+		this.processPercepts(perceptDelta);
 		// Get messages and update message box.
 			this.processMessages(newMessages);
 
-		// If there is an init module, run it in the first round.
-		if (this.initModule != null && this.getRoundCounter() == 1) {
+		// If there is an init module, run it in the first round, unless the
+		// mental state can be restored from a snapshot taken after it.
+		if (this.initModule != null && this.getRoundCounter() == 1
+				&& !restoreSnapshot(perceptDelta, newMessages)) {
 			new ModuleExecutor(this.initModule).executeFully(this,
 					this.initModule.getKRInterface().getSubstitution(null));
+			takeSnapshot();
 		}
 
 		// If there is an event module, run it at the start of a cycle (but not
@@ -644,7 +881,6 @@ public class RunState<D extends Debugger> {
 
 		this.event = false;
 		this.previousMessages = newMessages;
-		this.previousPercepts = newPercepts;
 		this.sleepConditionsHoldingPreviousCycle = sleepConditionsHoldingNow;
 	}
 
@@ -660,6 +896,24 @@ public class RunState<D extends Debugger> {
 		return this.mainModule;
 	}
 
+	/**
+	 * Returns the execution plan of a module. The plans of the modules of the
+	 * program are compiled when the run state is created; other (e.g.
+	 * anonymous) modules are compiled the first time they are executed.
+	 *
+	 * @param module
+	 *            A module of the program.
+	 * @return The execution plan of the module.
+	 */
+	public ModulePlan getPlan(Module module) {
+		ModulePlan plan = this.plans.get(module);
+		if (plan == null) {
+			plan = new ModulePlan(module);
+			this.plans.put(module, plan);
+		}
+		return plan;
+	}
+
 	/**
 	 * Returns the module that was entered most recently.
 	 *
@@ -675,12 +929,18 @@ public class RunState<D extends Debugger> {
 	/**
 	 * Pushes (non-anonymous) module that was just entered onto stack and
 	 * changes top level context if one of init, event, or main module has been
-	 * entered.
+	 * entered. Also registers whether the module chooses its rules in a fixed
+	 * order; see {@link #takeSnapshot()}.
 	 *
 	 * @param module
-	 *            A (non-anonymous) module.
+	 *            A module.
 	 */
 	public void enteredModule(Module module) {
+		RuleEvaluationOrder order = module.getRuleEvaluationOrder();
+		if (order != RuleEvaluationOrder.LINEAR
+				&& order != RuleEvaluationOrder.LINEARALL) {
+			this.unordered = true;
+		}
 		if (module.getType() == TYPE.ANONYMOUS) {
 			return;
 		}
@@ -778,6 +1038,7 @@ public class RunState<D extends Debugger> {
 	}
 
 	public void postMessage(Message message) {
+		this.effects++;
 		this.messaging.postMessage(message);
 	}
 
@@ -787,9 +1048,11 @@ public class RunState<D extends Debugger> {
 
 	public void doPerformAction(UserSpecAction action)
 			throws GOALActionFailedException {
+		this.effects++;
 		try {
 			Action eis = this.mentalState.getState().convert(action);
 			this.environment.performAction(eis);
+			this.metrics.count(Counter.ACTIONS);
 			this.lastAction = action;
 		} catch (ActException ae) {
 			if (ae.getType() == ActException.NOTSPECIFIC) {
@@ -829,9 +1092,29 @@ public class RunState<D extends Debugger> {
 	 *            The message.
 	 */
 	public void doLog(String message) {
+		this.effects++;
 		this.logActionsLogger.log(message);
 	}
 
+	/**
+	 * Registers that a parameter action was performed, which may have effects
+	 * outside of the mental state of the agent, e.g. on its emotions.
+	 */
+	public void doParameterAction() {
+		this.effects++;
+	}
+
+	/**
+	 * print the output of a {@link PrintAction}.
+	 *
+	 * @param output
+	 *            The output.
+	 */
+	public void doPrint(String output) {
+		this.effects++;
+		System.out.println(output);
+	}
+
 	/****************************************************************/
 	/*
 	 * CHECK Stuff that was in AgentProgram. Should this be here now?
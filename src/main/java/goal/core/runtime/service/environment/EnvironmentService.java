@@ -124,7 +124,8 @@ public class EnvironmentService {
 				return;
 			}
 			try {
-				port = new EnvironmentPort(id, this.messagingService);
+				port = new EnvironmentPort(id, this.messagingService,
+						getDirectEnvironment(id));
 				this.environmentPorts.put(id, port);
 			} catch (GOALLaunchFailureException e) {
 				throw new GOALLaunchFailureException(String.format(
@@ -333,6 +334,24 @@ public class EnvironmentService {
 		}
 	}
 
+	/**
+	 * Returns the environment that requests to the given message box can be
+	 * handed to directly, which is the local environment if the messaging
+	 * system is local as well.
+	 *
+	 * @param id
+	 *            of the environments message box
+	 * @return the local environment with the id, or {@code null} if requests
+	 *         to the environment should be sent through the messaging system.
+	 */
+	private LocalMessagingEnvironment getDirectEnvironment(MessageBoxId id) {
+		if (this.localEnvironment != null && this.messagingService.isLocal()
+				&& this.localEnvironment.getMessageBoxId().equals(id)) {
+			return this.localEnvironment;
+		}
+		return null;
+	}
+
 	/**
 	 * Returns the local Environment or null if the environment is started
 	 * remotely.
@@ -8,9 +8,12 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.swing.SwingUtilities;
 
@@ -42,6 +45,7 @@ import goal.core.runtime.service.environmentport.actions.Action;
 import goal.core.runtime.service.environmentport.actions.AssociateEntity;
 import goal.core.runtime.service.environmentport.actions.ExecuteAction;
 import goal.core.runtime.service.environmentport.actions.FreeAgent;
+import goal.core.runtime.service.environmentport.actions.GetPerceptDelta;
 import goal.core.runtime.service.environmentport.actions.GetPercepts;
 import goal.core.runtime.service.environmentport.actions.Kill;
 import goal.core.runtime.service.environmentport.actions.Pause;
@@ -56,6 +60,7 @@ import goal.core.runtime.service.environmentport.environmentport.events.FreeEnti
 import goal.core.runtime.service.environmentport.environmentport.events.NewEntityEvent;
 import goal.core.runtime.service.environmentport.environmentport.events.NewPerceptEvent;
 import goal.core.runtime.service.environmentport.environmentport.events.StateChangeEvent;
+import goal.preferences.PMPreferences;
 import goal.tools.errorhandling.Resources;
 import goal.tools.errorhandling.Warning;
 import goal.tools.errorhandling.WarningStrings;
@@ -82,8 +87,12 @@ import goal.tools.logging.InfoLog;
  * using {@link Message}s.
  * <p>
  * To request command execution, construct a {@link EnvOnMsgAction} and send it
- * to us. All incoming command requests are strictly serialized by queing them
- * in a BlockingQueue and handling them in incoming order.
+ * to us. All incoming command requests are queued in a BlockingQueue and
+ * handled in incoming order. If {@link PMPreferences#getEnvironmentThreads()}
+ * allows, requests that concern a single agent (see {@link Action#getLane()})
+ * are handled in parallel with those of other agents; requests that concern
+ * the environment as a whole are still handled one at a time. Ports in the
+ * same JVM may also hand requests of agents to {@link #call(Action)}.
  * <p>
  * To receive callbacks on environmentListener events, you have to subscribe to
  * us, using the {@link Subscribe} command.
@@ -101,10 +110,34 @@ import goal.tools.logging.InfoLog;
 public class LocalMessagingEnvironment {
 	private final Thread messages2EnvironmentThread;
 
-	private final Messages2Environment messages2Environment = new Messages2Environment();
+	private final Messages2Environment messages2Environment = new Messages2Environment(
+			PMPreferences.getEnvironmentThreads());
 
 	public class Messages2Environment implements Runnable, MessageBoxListener {
 		private final BlockingQueue<Action> requests = new LinkedBlockingQueue<>();
+		/**
+		 * Handles the requests of different agents in parallel, or
+		 * {@code null} if all requests are handled by the thread taking them
+		 * from {@link #requests}.
+		 */
+		private final RequestLanes lanes;
+		/**
+		 * The percepts last returned to each agent by
+		 * {@link #invoke(GetPerceptDelta)}. The cache of an agent is only
+		 * accessed by requests on the lane of that agent.
+		 */
+		private final Map<String, PerceptCache> perceptCaches = new ConcurrentHashMap<>();
+		/**
+		 * Keeps the requests handled by {@link #call(Action)}, which run on the
+		 * thread of the caller, apart from the requests that may not run in
+		 * parallel with them.
+		 */
+		private final ReentrantReadWriteLock access = new ReentrantReadWriteLock();
+
+		public Messages2Environment(int threads) {
+			this.lanes = (threads > 1) ? new RequestLanes(threads,
+					"Messages->Environment lane") : null; //$NON-NLS-1$
+		}
 
 		@Override
 		public boolean newMessage(final Message message) {
@@ -125,14 +158,9 @@ public class LocalMessagingEnvironment {
 			request.setMessage(message);
 
 			/*
-			 * TODO: All requests could be handled on the calling thread if EIS
-			 * was thread-safe. EIS specifications make no such guarantees. So
-			 * we treat all operations as if they are not thread safe and queue
-			 * them up.
-			 * 
-			 * On Thread-Safe implementations of EIS this creates somewhat of a
-			 * bottleneck because all agents are now waiting for the
-			 * environment.
+			 * EIS specifications make no guarantees about thread safety. So
+			 * unless the user indicated otherwise, we treat all operations as
+			 * if they are not thread safe and queue them up.
 			 */
 
 			this.requests.add(request);
@@ -145,26 +173,90 @@ public class LocalMessagingEnvironment {
 
 			try {
 				while (LocalMessagingEnvironment.this.running) {
-					Action action = this.requests.take();
-					handleAction(action);
+					final Action action = this.requests.take();
+					String lane = action.getLane();
+					if (this.lanes == null) {
+						handleExclusively(action);
+					} else if (lane == null) {
+						// Acts as a barrier between the requests before and
+						// after it.
+						this.lanes.awaitIdle();
+						handleExclusively(action);
+					} else {
+						this.lanes.dispatch(lane, new Runnable() {
+							@Override
+							public void run() {
+								handleAction(action);
+							}
+						});
+					}
 				}
 			} catch (InterruptedException e1) {
 				// Breaking out of loop.
 			} catch (Throwable e) {
 				new Warning(Resources.get(WarningStrings.FAILED_MSG_ENV), e);
 			}
+			if (this.lanes != null) {
+				this.lanes.shutDown();
+			}
 
 			new InfoLog(Resources.get(WarningStrings.FAILED_MSG_ENV_STOPPED));
 		}
 
-		private void handleAction(Action action) {
-			// Execute action.
-			Serializable result;
+		/**
+		 * Handles a request while no request is handled by
+		 * {@link #call(Action)}.
+		 *
+		 * @param action
+		 *            The request to handle.
+		 */
+		private void handleExclusively(Action action) {
+			Lock lock = this.access.writeLock();
+			lock.lock();
 			try {
-				result = action.invoke(this);
+				handleAction(action);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Handles a request on the thread of the caller instead of the
+		 * thread taking requests from the message box. Only requests that
+		 * have a lane (see {@link Action#getLane()}) may be handled this way;
+		 * they run in parallel with each other only if the requests of
+		 * different agents may be handled in parallel.
+		 *
+		 * @param action
+		 *            The request to handle.
+		 * @return The result of the request, or the exception it threw.
+		 */
+		private Serializable call(Action action) {
+			if (!LocalMessagingEnvironment.this.running) {
+				return new NoEnvironmentException(String.format(
+						Resources.get(WarningStrings.FAILED_LISTENER_OFFLINE),
+						this.toString(), action.toString()));
+			}
+			Lock lock = (this.lanes == null) ? this.access.writeLock()
+					: this.access.readLock();
+			lock.lock();
+			try {
+				return execute(action);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private Serializable execute(Action action) {
+			try {
+				return action.invoke(this);
 			} catch (Exception e) { // report all errors to caller
-				result = e;
+				return e;
 			}
+		}
+
+		private void handleAction(Action action) {
+			Serializable result = execute(action);
 
 			try {
 				Message replyMsg = LocalMessagingEnvironment.this.messageBox
@@ -213,6 +305,7 @@ public class LocalMessagingEnvironment {
 				throws RelationException, EntityException {
 			LocalMessagingEnvironment.this.eis.freeAgent(freeAgent
 					.getAgentName());
+			this.perceptCaches.remove(freeAgent.getAgentName());
 			return null;
 		}
 
@@ -241,6 +334,20 @@ public class LocalMessagingEnvironment {
 			return percepts;
 		}
 
+		public Serializable invoke(GetPerceptDelta getPerceptDelta)
+				throws PerceiveException, NoEnvironmentException {
+			String eisAgentName = getPerceptDelta.getAgentName();
+			Map<String, Collection<Percept>> eispercepts = LocalMessagingEnvironment.this.eis
+					.getAllPercepts(eisAgentName);
+
+			PerceptCache cache = this.perceptCaches.get(eisAgentName);
+			if (cache == null) {
+				cache = new PerceptCache();
+				this.perceptCaches.put(eisAgentName, cache);
+			}
+			return cache.update(eispercepts);
+		}
+
 		public Serializable invoke(Kill kill) throws ManagementException {
 			LocalMessagingEnvironment.this.eis.kill();
 			return null;
@@ -271,6 +378,7 @@ public class LocalMessagingEnvironment {
 				throws AgentException {
 			LocalMessagingEnvironment.this.eis.registerAgent(registerAgent
 					.getAgentName());
+			this.perceptCaches.remove(registerAgent.getAgentName());
 			return null;
 		}
 
@@ -465,7 +573,7 @@ public class LocalMessagingEnvironment {
 	private final List<MessageBoxId> subscribedEnvironmentPorts = new CopyOnWriteArrayList<>();
 	// needed for take down.
 
-	private boolean running = true;
+	private volatile boolean running = true;
 
 	/**
 	 * Launch an environment and put it on top of the messaging system. This
@@ -617,6 +725,27 @@ public class LocalMessagingEnvironment {
 		return this.messageBox.getId();
 	}
 
+	/**
+	 * Handles a request of an {@link EnvironmentPort} in the same JVM directly,
+	 * without sending it through the message box of the environment. The
+	 * request is handled on the thread of the caller, but never at the same
+	 * time as requests that are not allowed to run in parallel with it.
+	 *
+	 * @param action
+	 *            The request to handle. It should concern a single agent, see
+	 *            {@link Action#getLane()}.
+	 * @return The result of the request, or the exception it threw, just like
+	 *         the content of the reply that is sent for a request received
+	 *         through the message box.
+	 */
+	public Serializable call(Action action) {
+		if (action.getLane() == null) {
+			throw new IllegalArgumentException(action
+					+ " concerns the environment as a whole"); //$NON-NLS-1$
+		}
+		return this.messages2Environment.call(action);
+	}
+
 	/**
 	 * Returns string of the form "environment <name>".
 	 */
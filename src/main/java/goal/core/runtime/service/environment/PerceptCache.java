@@ -0,0 +1,127 @@
+package goal.core.runtime.service.environment;
+
+import eis.iilang.Percept;
+import goal.core.runtime.service.environmentport.PerceptDelta;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Remembers the percepts that were last returned to an agent, per entity the
+ * agent is connected to, so that only the changes need to be sent to the
+ * agent.
+ *
+ * A percept may be received through more than one entity. It is only reported
+ * as added when the first entity perceives it, and only reported as removed
+ * when no entity perceives it anymore.
+ */
+public class PerceptCache {
+	/**
+	 * The percepts last returned, per entity.
+	 */
+	private Map<String, Set<Percept>> perEntity = new HashMap<>();
+	/**
+	 * The number of entities that perceive a percept.
+	 */
+	private final Map<Percept, Integer> counts = new HashMap<>();
+
+	/**
+	 * Computes the changes with respect to the percepts last passed to this
+	 * method, and remembers the given percepts for the next call.
+	 *
+	 * @param percepts
+	 *            the current percepts, per entity, as returned by EIS.
+	 * @return the percepts that have been added and removed.
+	 */
+	public PerceptDelta update(Map<String, Collection<Percept>> percepts) {
+		// Whether a percept was perceived before, for every percept that has
+		// been touched by this update.
+		Map<Percept, Boolean> touched = new LinkedHashMap<>();
+		Map<String, Set<Percept>> next = new HashMap<>(percepts.size());
+		for (Entry<String, Collection<Percept>> entry : percepts.entrySet()) {
+			Collection<Percept> now = entry.getValue();
+			Set<Percept> before = this.perEntity.remove(entry.getKey());
+			if (before != null && before.size() == now.size()
+					&& before.containsAll(now)) {
+				// Nothing changed for this entity.
+				next.put(entry.getKey(), before);
+				continue;
+			}
+			Set<Percept> current = new LinkedHashSet<>(now);
+			if (before == null) {
+				before = new LinkedHashSet<>(0);
+			}
+			for (Percept percept : current) {
+				if (!before.contains(percept)) {
+					increment(percept, touched);
+				}
+			}
+			for (Percept percept : before) {
+				if (!current.contains(percept)) {
+					decrement(percept, touched);
+				}
+			}
+			next.put(entry.getKey(), current);
+		}
+		// Entities the agent is no longer connected to.
+		for (Set<Percept> before : this.perEntity.values()) {
+			for (Percept percept : before) {
+				decrement(percept, touched);
+			}
+		}
+		this.perEntity = next;
+
+		if (touched.isEmpty()) {
+			return PerceptDelta.EMPTY;
+		}
+		List<Percept> added = new ArrayList<>();
+		List<Percept> removed = new ArrayList<>();
+		for (Entry<Percept, Boolean> entry : touched.entrySet()) {
+			boolean perceived = this.counts.containsKey(entry.getKey());
+			if (perceived && !entry.getValue()) {
+				added.add(entry.getKey());
+			} else if (!perceived && entry.getValue()) {
+				removed.add(entry.getKey());
+			}
+		}
+		return new PerceptDelta(added, removed);
+	}
+
+	/**
+	 * Forgets all percepts; the next update returns all percepts as added.
+	 */
+	public void clear() {
+		this.perEntity.clear();
+		this.counts.clear();
+	}
+
+	private void increment(Percept percept, Map<Percept, Boolean> touched) {
+		Integer count = this.counts.get(percept);
+		if (!touched.containsKey(percept)) {
+			touched.put(percept, count != null);
+		}
+		this.counts.put(percept, count == null ? 1 : count + 1);
+	}
+
+	private void decrement(Percept percept, Map<Percept, Boolean> touched) {
+		Integer count = this.counts.get(percept);
+		if (count == null) {
+			return;
+		}
+		if (!touched.containsKey(percept)) {
+			touched.put(percept, true);
+		}
+		if (count == 1) {
+			this.counts.remove(percept);
+		} else {
+			this.counts.put(percept, count - 1);
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package goal.core.runtime.service.environment;
+
+import goal.tools.errorhandling.Resources;
+import goal.tools.errorhandling.Warning;
+import goal.tools.errorhandling.WarningStrings;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs the requests to an environment on a bounded pool of threads. Requests
+ * are divided into lanes, usually one for every agent. The requests of one
+ * lane are run one after the other in the order they were dispatched, while
+ * the requests of different lanes may run in parallel.
+ *
+ * Requests that concern the environment as a whole should be run only after
+ * {@link #awaitIdle()} returned, and before any later request is dispatched.
+ */
+public class RequestLanes {
+	/**
+	 * The threads running the requests.
+	 */
+	private final ExecutorService pool;
+	/**
+	 * The lanes that have a request running, with the requests that are
+	 * waiting for it to finish.
+	 */
+	private final Map<String, Queue<Runnable>> busy = new HashMap<>();
+
+	/**
+	 * @param threads
+	 *            The maximum number of requests to run in parallel.
+	 * @param name
+	 *            The name of the threads running the requests.
+	 */
+	public RequestLanes(int threads, final String name) {
+		this.pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Runs a request after all requests dispatched earlier on the same lane
+	 * have been run.
+	 *
+	 * @param lane
+	 *            The lane of the request.
+	 * @param request
+	 *            The request to run.
+	 */
+	public synchronized void dispatch(String lane, Runnable request) {
+		Queue<Runnable> waiting = this.busy.get(lane);
+		if (waiting != null) {
+			waiting.add(request);
+			return;
+		}
+		this.busy.put(lane, new LinkedList<Runnable>());
+		this.pool.execute(new Drain(lane, request));
+	}
+
+	/**
+	 * Blocks until all dispatched requests have been run.
+	 *
+	 * @throws InterruptedException
+	 *             if the thread was interrupted while waiting.
+	 */
+	public synchronized void awaitIdle() throws InterruptedException {
+		while (!this.busy.isEmpty()) {
+			wait();
+		}
+	}
+
+	/**
+	 * Stops the threads; requests that have not been run yet are dropped.
+	 */
+	public void shutDown() {
+		this.pool.shutdownNow();
+	}
+
+	/**
+	 * @param lane
+	 *            A busy lane.
+	 * @return The next request waiting on the lane, or {@code null} if the
+	 *         lane has become idle.
+	 */
+	private synchronized Runnable next(String lane) {
+		Runnable next = this.busy.get(lane).poll();
+		if (next == null) {
+			this.busy.remove(lane);
+			notifyAll();
+		}
+		return next;
+	}
+
+	/**
+	 * Runs the requests of a lane until no more are waiting.
+	 */
+	private class Drain implements Runnable {
+		private final String lane;
+		private final Runnable first;
+
+		Drain(String lane, Runnable first) {
+			this.lane = lane;
+			this.first = first;
+		}
+
+		@Override
+		public void run() {
+			Runnable request = this.first;
+			while (request != null) {
+				try {
+					request.run();
+				} catch (RuntimeException e) {
+					// Keep the lane going; a failing request should not block
+					// the agent's later requests.
+					new Warning(Resources.get(WarningStrings.FAILED_MSG_ENV), e);
+				}
+				request = next(this.lane);
+			}
+		}
+	}
+}
@@ -31,6 +31,7 @@ import goal.core.runtime.service.environment.LocalMessagingEnvironment;
 import goal.core.runtime.service.environmentport.actions.AssociateEntity;
 import goal.core.runtime.service.environmentport.actions.ExecuteAction;
 import goal.core.runtime.service.environmentport.actions.FreeAgent;
+import goal.core.runtime.service.environmentport.actions.GetPerceptDelta;
 import goal.core.runtime.service.environmentport.actions.GetPercepts;
 import goal.core.runtime.service.environmentport.actions.GetReward;
 import goal.core.runtime.service.environmentport.actions.Kill;
@@ -50,8 +51,8 @@ import goal.tools.errorhandling.exceptions.GOALLaunchFailureException;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import nl.tudelft.goal.messaging.Message;
 import nl.tudelft.goal.messaging.exceptions.MessagingException;
@@ -63,7 +64,9 @@ import nl.tudelft.goal.messaging.messagebox.MessageBoxListener;
 /**
  * Tool to handle the connection with an {@link LocalMessagingEnvironment}. It
  * runs on the client side and communicates with a
- * {@link LocalMessagingEnvironment} which runs on another computer.
+ * {@link LocalMessagingEnvironment} which runs on another computer. If the
+ * environment and the messaging system are both local, the requests of agents
+ * are handed to the environment directly instead.
  * <p>
  * Basic functionality is to track the run state of the {@link EnvMsgConnector}.
  * <p>
@@ -80,9 +83,19 @@ public class EnvironmentPort {
 	 */
 	private final MessageBox messagebox;
 	private final MessageBoxId environmentMessageBoxId;
+	/**
+	 * The environment if it runs in the same JVM and requests of agents can
+	 * be handed to it directly, or {@code null} if all requests are sent
+	 * through the messaging system.
+	 */
+	private final LocalMessagingEnvironment direct;
 	protected volatile EnvironmentState environmentState = EnvironmentState.PAUSED;
 
-	private final List<EnvironmentPortObserver> observers = new LinkedList<>();
+	/**
+	 * Observers of this port. Agents subscribe and unsubscribe while events
+	 * are being delivered, hence a copy-on-write list.
+	 */
+	private final List<EnvironmentPortObserver> observers = new CopyOnWriteArrayList<>();
 
 	private final MessageBoxListener messageboxlistener = new MessageBoxListener() {
 		@Override
@@ -145,9 +158,33 @@ public class EnvironmentPort {
 	 */
 	public EnvironmentPort(MessageBoxId envMessageBoxId,
 			MessagingService messaging) throws GOALLaunchFailureException {
+		this(envMessageBoxId, messaging, null);
+	}
+
+	/**
+	 * Create environment port to control environment, handing the requests
+	 * of agents directly to the environment if it runs in the same JVM. Other
+	 * requests and the events of the environment still go through the
+	 * messaging system.
+	 *
+	 * @param envMessageBoxId
+	 *            The message box of the environment that this port should
+	 *            connect to.
+	 * @param messaging
+	 *            The messaging service to use.
+	 * @param direct
+	 *            The environment with the given message box, or {@code null}
+	 *            if it is not running in this JVM.
+	 * @throws GOALLaunchFailureException
+	 *             If we failed to create a message box
+	 */
+	public EnvironmentPort(MessageBoxId envMessageBoxId,
+			MessagingService messaging, LocalMessagingEnvironment direct)
+			throws GOALLaunchFailureException {
 		// Store reference to environment connector.
 		this.environmentMessageBoxId = envMessageBoxId;
 		this.messaging = messaging;
+		this.direct = direct;
 
 		// Get unique ID for this environment port.
 		MessageBoxId id;
@@ -183,6 +220,12 @@ public class EnvironmentPort {
 			goal.core.runtime.service.environmentport.actions.Action action)
 			throws NoEnvironmentException, EnvironmentInterfaceException,
 			MessagingException {
+		if (this.direct != null && action.getLane() != null) {
+			// No messages, and no lock on this port.
+			Serializable result = this.direct.call(action);
+			checkResult(result);
+			return result;
+		}
 		/*
 		 * FIXME To handle the call, this function is using a temporary
 		 * messagebox. not clear why this is done. Older comments here indicate
@@ -198,7 +241,11 @@ public class EnvironmentPort {
 
 	private static void checkResult(Message result)
 			throws NoEnvironmentException, EnvironmentInterfaceException {
-		Serializable content = result.getContent();
+		checkResult(result.getContent());
+	}
+
+	private static void checkResult(Serializable content)
+			throws NoEnvironmentException, EnvironmentInterfaceException {
 		if (content instanceof RuntimeException) {
 			if (content instanceof NoEnvironmentException) {
 				throw (NoEnvironmentException) content;
@@ -452,17 +499,47 @@ public class EnvironmentPort {
 		}
 	}
 
-	public synchronized Double getReward(String entityName)
+	/**
+	 * Returns the changes in the percepts of an agent since the last call of
+	 * this method for that agent. The first call returns all percepts as
+	 * added.
+	 *
+	 * @param agentName
+	 *            agent name in EIS.
+	 * @return the percepts that have been added and removed.
+	 * @throws MessagingException
+	 * @throws EnvironmentInterfaceException
+	 */
+	public PerceptDelta getPerceptDelta(String agentName)
 			throws MessagingException, EnvironmentInterfaceException {
-		Message result = this.messagebox.blockingSend(this.messagebox
-				.createMessage(this.environmentMessageBoxId, new GetReward(
-						entityName), null));
-		if (result.getContent() == null) {
+		Serializable result = callRemoteAction(agentName, new GetPerceptDelta(
+				agentName));
+		if (result instanceof PerceptDelta) {
+			return (PerceptDelta) result;
+		} else {
+			throw new MessagingException("Invalid result returned: " + result); //$NON-NLS-1$
+		}
+	}
+
+	public Double getReward(String entityName) throws MessagingException,
+			EnvironmentInterfaceException {
+		Serializable result;
+		if (this.direct != null) {
+			result = this.direct.call(new GetReward(entityName));
+		} else {
+			synchronized (this) {
+				result = this.messagebox.blockingSend(
+						this.messagebox.createMessage(
+								this.environmentMessageBoxId, new GetReward(
+										entityName), null)).getContent();
+			}
+		}
+		if (result == null) {
 			return null;
-		} else if (result.getContent() instanceof Double) {
-			return (Double) result.getContent();
+		} else if (result instanceof Double) {
+			return (Double) result;
 		} else {
-			throw (EnvironmentInterfaceException) result.getContent();
+			throw (EnvironmentInterfaceException) result;
 		}
 	}
 
@@ -0,0 +1,68 @@
+package goal.core.runtime.service.environmentport;
+
+import eis.iilang.Percept;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The change in the percepts of an agent since the percepts were last
+ * collected: the percepts that have been added and those that have been
+ * removed. A percept never occurs in both sets.
+ */
+public class PerceptDelta implements Serializable {
+	/** Generated serialVersionUID */
+	private static final long serialVersionUID = -2290164926373404513L;
+	/**
+	 * A delta without any changes.
+	 */
+	public static final PerceptDelta EMPTY = new PerceptDelta(
+			Collections.<Percept> emptySet(), Collections.<Percept> emptySet());
+
+	private final Set<Percept> added;
+	private final Set<Percept> removed;
+
+	/**
+	 * Creates a new percept delta.
+	 *
+	 * @param added
+	 *            the percepts that have been added.
+	 * @param removed
+	 *            the percepts that have been removed.
+	 */
+	public PerceptDelta(Collection<Percept> added, Collection<Percept> removed) {
+		this.added = Collections.unmodifiableSet(new LinkedHashSet<>(added));
+		this.removed = Collections
+				.unmodifiableSet(new LinkedHashSet<>(removed));
+	}
+
+	/**
+	 * @return the percepts that have been added.
+	 */
+	public Set<Percept> getAdded() {
+		return this.added;
+	}
+
+	/**
+	 * @return the percepts that have been removed.
+	 */
+	public Set<Percept> getRemoved() {
+		return this.removed;
+	}
+
+	/**
+	 * @return true if no percepts have been added or removed.
+	 */
+	public boolean isEmpty() {
+		return this.added.isEmpty() && this.removed.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "PerceptDelta[added=" + this.added + ", removed=" + this.removed
+				+ "]";
+	}
+}
@@ -28,6 +28,20 @@ public abstract class Action implements Serializable {
 	public abstract Serializable invoke(
 			Messages2Environment messages2Environment) throws Exception;
 
+	/**
+	 * Requests on the same lane are handled in the order they were received,
+	 * but requests on different lanes may be handled in parallel. Requests
+	 * without a lane are handled on their own, after all earlier requests and
+	 * before all later ones.
+	 *
+	 * @return The name of the agent this request only concerns, or
+	 *         {@code null} if the request may affect the environment as a
+	 *         whole.
+	 */
+	public String getLane() {
+		return null;
+	}
+
 	/**
 	 * @return The ID of the message sender
 	 * */
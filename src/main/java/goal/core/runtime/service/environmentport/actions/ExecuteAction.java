@@ -51,4 +51,9 @@ public class ExecuteAction extends
 	public String getAgentName() {
 		return this.agentName;
 	}
-}
\ No newline at end of file
+
+	@Override
+	public String getLane() {
+		return this.agentName;
+	}
+}
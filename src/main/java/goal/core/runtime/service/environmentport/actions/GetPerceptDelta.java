@@ -0,0 +1,42 @@
+package goal.core.runtime.service.environmentport.actions;
+
+import eis.exceptions.NoEnvironmentException;
+import eis.exceptions.PerceiveException;
+import goal.core.runtime.service.environment.LocalMessagingEnvironment.Messages2Environment;
+import goal.core.runtime.service.environmentport.PerceptDelta;
+
+import java.io.Serializable;
+
+/**
+ * Executes the EIS getAllPercepts command, but only returns the changes with
+ * respect to the percepts that were returned to the agent last time.
+ *
+ * @return A {@link PerceptDelta} for the given agent.
+ */
+public class GetPerceptDelta extends Action {
+	/** Generated serialVersionUID */
+	private static final long serialVersionUID = 3318520318541409512L;
+	private final String agentName;
+
+	public GetPerceptDelta(String agentName) {
+		this.agentName = agentName;
+	}
+
+	/**
+	 * @return the agentName
+	 */
+	public String getAgentName() {
+		return this.agentName;
+	}
+
+	@Override
+	public Serializable invoke(Messages2Environment messages2Environment)
+			throws PerceiveException, NoEnvironmentException {
+		return messages2Environment.invoke(this);
+	}
+
+	@Override
+	public String getLane() {
+		return this.agentName;
+	}
+}
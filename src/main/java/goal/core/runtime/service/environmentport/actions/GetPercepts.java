@@ -36,4 +36,9 @@ public class GetPercepts extends Action {
 			throws PerceiveException, NoEnvironmentException {
 		return messages2Environment.invoke(this);
 	}
-}
\ No newline at end of file
+
+	@Override
+	public String getLane() {
+		return this.agentName;
+	}
+}
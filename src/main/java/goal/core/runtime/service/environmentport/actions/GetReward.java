@@ -35,4 +35,9 @@ public class GetReward extends Action {
 			throws QueryException {
 		return messages2Environment.getReward(this.agentName);
 	}
-}
\ No newline at end of file
+
+	@Override
+	public String getLane() {
+		return this.agentName;
+	}
+}
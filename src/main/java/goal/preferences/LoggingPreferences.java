@@ -23,7 +23,7 @@ import java.util.TreeMap;
 
 public class LoggingPreferences {
 	public enum Pref {
-		javadetails, stackdump, suppresslevel, logtofile, logconsoles, overwritelogfiles, showlogtime, logdirectory, showLogsInConsole, eclipseActionHistory, eclipseAgentConsoles, eclipseDebug
+		javadetails, stackdump, suppresslevel, logtofile, logconsoles, overwritelogfiles, showlogtime, logdirectory, showLogsInConsole, eclipseActionHistory, eclipseAgentConsoles, eclipseDebug, asynclogging, droplogsonoverflow
 	}
 
 	private static final int DEFAULT_NUMBER_OF_WARNING_REPEATS = 5;
@@ -56,6 +56,8 @@ public class LoggingPreferences {
 		init(Pref.eclipseActionHistory, true);
 		init(Pref.eclipseAgentConsoles, true);
 		init(Pref.eclipseDebug, false);
+		init(Pref.asynclogging, true);
+		init(Pref.droplogsonoverflow, false);
 	}
 
 	public static Map<String, Object> getPrefs() {
@@ -166,6 +168,28 @@ public class LoggingPreferences {
 		return (Boolean) get(Pref.eclipseDebug);
 	}
 
+	/**
+	 * User preference whether log files are written on a separate thread (see
+	 * {@link goal.tools.logging.AsyncLogHandler}).
+	 *
+	 * @return true if log files should be written asynchronously. Default
+	 *         on/true
+	 */
+	public static boolean getAsyncLogging() {
+		return (Boolean) get(Pref.asynclogging);
+	}
+
+	/**
+	 * User preference whether log records are dropped when they are logged
+	 * faster than they can be written asynchronously.
+	 *
+	 * @return true if records should be dropped, false if logging should wait.
+	 *         Default off/false
+	 */
+	public static boolean getDropLogsOnOverflow() {
+		return (Boolean) get(Pref.droplogsonoverflow);
+	}
+
 	/**
 	 * User preference whether logging should overwrite old files. False by
 	 * default.
@@ -243,6 +267,22 @@ public class LoggingPreferences {
 		put(Pref.eclipseDebug, debug);
 	}
 
+	/**
+	 * User preference whether log files are written on a separate thread. True
+	 * by default.
+	 */
+	public static void setAsyncLogging(boolean async) {
+		put(Pref.asynclogging, async);
+	}
+
+	/**
+	 * User preference whether log records are dropped when they are logged
+	 * faster than they can be written asynchronously. False by default.
+	 */
+	public static void setDropLogsOnOverflow(boolean drop) {
+		put(Pref.droplogsonoverflow, drop);
+	}
+
 	// 3 helper functions...
 	private static Object get(Pref pref) {
 		if (preferences == null) {
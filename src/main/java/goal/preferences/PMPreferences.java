@@ -17,6 +17,8 @@
  */
 package goal.preferences;
 
+import goal.core.agent.AgentScheduler;
+
 import java.util.Collections;
 import java.util.Map;
 import java.util.TreeMap;
@@ -62,7 +64,41 @@ public class PMPreferences {
 		 * Amount of threads (e.g. cores) to use for running agents; uses
 		 * everything that is available by default.
 		 */
-		threadPoolSize
+		threadPoolSize,
+		/**
+		 * How the steps of agents are scheduled on threads; the name of an
+		 * {@link AgentScheduler}.
+		 */
+		agentScheduler,
+		/**
+		 * Time the queries and updates performed on the mental state in the
+		 * KR layer; off by default. They are always counted.
+		 */
+		krCostAccounting,
+		/**
+		 * Time one in every so many of the counted queries and updates.
+		 */
+		krCostSampling,
+		/**
+		 * Amount of threads to use for handling the percept and action
+		 * requests of different agents to an environment in parallel; 1 (the
+		 * default) handles all requests in order, as not every environment is
+		 * thread safe.
+		 */
+		environmentThreads,
+		/**
+		 * Keep runtime metrics of the agents (cycles, queries, percepts,
+		 * messages, environment time); off by default.
+		 */
+		metrics,
+		/**
+		 * File to export the metrics to; empty for none.
+		 */
+		metricsFile,
+		/**
+		 * Loopback HTTP port to export the metrics on; 0 for none.
+		 */
+		metricsPort
 	}
 
 	private static Map<String, Object> preferences;
@@ -93,6 +129,13 @@ public class PMPreferences {
 		init(Pref.useMASNameAsAgentPrefix, false);
 		init(Pref.threadPoolSize, 20); // NOTE: this default is in the
 										// get-function as well
+		init(Pref.environmentThreads, 1);
+		init(Pref.agentScheduler, AgentScheduler.FIXED.name());
+		init(Pref.krCostAccounting, false);
+		init(Pref.krCostSampling, 1);
+		init(Pref.metrics, false);
+		init(Pref.metricsFile, "");
+		init(Pref.metricsPort, 0);
 	}
 
 	public static Map<String, Object> getPrefs() {
@@ -192,6 +235,79 @@ public class PMPreferences {
 		}
 	}
 
+	/**
+	 * @return How the steps of agents are scheduled on threads.
+	 */
+	public static AgentScheduler getAgentScheduler() {
+		try {
+			return AgentScheduler.valueOf((String) get(Pref.agentScheduler));
+		} catch (IllegalArgumentException | ClassCastException
+				| NullPointerException e) {
+			return AgentScheduler.FIXED;
+		}
+	}
+
+	/**
+	 * @return {@code true} if queries and updates on the mental state should
+	 *         be timed. They are always counted.
+	 */
+	public static boolean getKRCostAccounting() {
+		return Boolean.TRUE.equals(get(Pref.krCostAccounting));
+	}
+
+	/**
+	 * @return Time one in every so many of the counted queries and updates.
+	 */
+	public static int getKRCostSampling() {
+		Object returned = get(Pref.krCostSampling);
+		if (!(returned instanceof Integer) || (Integer) returned < 1) {
+			return 1;
+		} else {
+			return (Integer) returned;
+		}
+	}
+
+	/**
+	 * @return The amount of threads to use for handling requests of different
+	 *         agents to an environment in parallel.
+	 */
+	public static int getEnvironmentThreads() {
+		Object returned = get(Pref.environmentThreads);
+		if (!(returned instanceof Integer) || (Integer) returned < 1) {
+			return 1;
+		} else {
+			return (Integer) returned;
+		}
+	}
+
+	/**
+	 * @return {@code true} if runtime metrics of the agents should be kept;
+	 *         see {@link goal.tools.metrics.Metrics}.
+	 */
+	public static boolean getMetrics() {
+		return Boolean.TRUE.equals(get(Pref.metrics));
+	}
+
+	/**
+	 * @return The file to export the metrics to, or an empty string.
+	 */
+	public static String getMetricsFile() {
+		Object returned = get(Pref.metricsFile);
+		return (returned instanceof String) ? (String) returned : "";
+	}
+
+	/**
+	 * @return The loopback HTTP port to export the metrics on, or 0.
+	 */
+	public static int getMetricsPort() {
+		Object returned = get(Pref.metricsPort);
+		if (!(returned instanceof Integer) || (Integer) returned < 0) {
+			return 0;
+		} else {
+			return (Integer) returned;
+		}
+	}
+
 	/**
 	 * if middleware should be launched locally always
 	 */
@@ -262,6 +378,63 @@ public class PMPreferences {
 		put(Pref.threadPoolSize, size);
 	}
 
+	/**
+	 * Set how the steps of agents are scheduled on threads. Only affects
+	 * agents that are started afterwards.
+	 */
+	public static void setAgentScheduler(AgentScheduler scheduler) {
+		put(Pref.agentScheduler, scheduler.name());
+	}
+
+	/**
+	 * Set whether queries and updates on the mental state should be timed.
+	 * Only affects bases that are created afterwards.
+	 */
+	public static void setKRCostAccounting(boolean accounting) {
+		put(Pref.krCostAccounting, accounting);
+	}
+
+	/**
+	 * Set to time only one in every so many of the counted queries and
+	 * updates; 1 times all of them.
+	 */
+	public static void setKRCostSampling(int sampling) {
+		put(Pref.krCostSampling, sampling);
+	}
+
+	/**
+	 * Set the amount of threads to use for handling requests of different
+	 * agents to an environment in parallel. Only use more than 1 for
+	 * environments that are thread safe.
+	 */
+	public static void setEnvironmentThreads(int threads) {
+		put(Pref.environmentThreads, threads);
+	}
+
+	/**
+	 * Set whether runtime metrics of the agents should be kept. Only affects
+	 * agents that are started afterwards.
+	 */
+	public static void setMetrics(boolean metrics) {
+		put(Pref.metrics, metrics);
+	}
+
+	/**
+	 * Set the file to export the metrics to; empty for none. Only has effect
+	 * before the first agent with metrics is started.
+	 */
+	public static void setMetricsFile(String file) {
+		put(Pref.metricsFile, file);
+	}
+
+	/**
+	 * Set the loopback HTTP port to export the metrics on; 0 for none. Only
+	 * has effect before the first agent with metrics is started.
+	 */
+	public static void setMetricsPort(int port) {
+		put(Pref.metricsPort, port);
+	}
+
 	// 3 helper functions...
 	private static Object get(Pref pref) {
 		if (preferences == null) {
@@ -1,12 +1,22 @@
 package goal.tools;
 
+import goal.preferences.CorePreferences;
+import goal.preferences.PMPreferences;
 import goal.tools.adapt.FileLearner;
 import goal.tools.errorhandling.Warning;
 import goal.tools.errorhandling.exceptions.GOALRunFailedException;
+import goal.tools.metrics.Metrics;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import krTools.errors.exceptions.ParserException;
 import languageTools.program.mas.MASProgram;
@@ -18,6 +28,14 @@ import nl.tudelft.goal.messaging.Messaging;
  * Between runs the state of the agents {@link FileLearner} can be persisted by
  * setting a {@link PersistanceHelper}. To inspect the results of each run the
  * {@link ResultInspector} can be used.
+ * <p>
+ * Runs can be executed in parallel (see {@link #setParallelism(int)}). Each run
+ * then gets its own messaging, environment and agent services. Files are
+ * parsed only once for all runs through a {@link ParseCache}. Runs that learn
+ * are always executed one after the other, as every run continues from the
+ * model saved by the previous one; so are runs that keep {@link Metrics}, as
+ * these are kept by agent name.
+ * </p>
  *
  * @author mpkorstanje
  */
@@ -39,6 +57,22 @@ public class BatchRun {
 
 	private String messagingHost = "localhost";
 
+	/**
+	 * The maximum number of runs executed at the same time.
+	 */
+	private int parallelism = 1;
+
+	/**
+	 * The programs parsed for the runs.
+	 */
+	private ParseCache parseCache = new ParseCache();
+
+	/**
+	 * The snapshots of the agents after their init module, or null if the
+	 * agents of every run should run their init module.
+	 */
+	private SnapshotCache snapshotCache = null;
+
 	/**
 	 * Creates an instance of {@link BatchRun} that can be used to run the
 	 * <code>masFile</code>>.
@@ -92,32 +126,161 @@ public class BatchRun {
 	 */
 	public void run() throws GOALRunFailedException {
 		GOALRunFailedException last = null;
-		for (long i = 0; i < this.repeats; i++) {
-			for (File masFile : this.masFiles) {
-				try {
-					SingleRun singleRun;
-					try {
-						singleRun = new SingleRun(masFile, this.timeout);
-					} catch (ParserException e) {
-						throw new GOALRunFailedException("could not parse mas "
-								+ masFile, e);
+		if (!isParallel()) {
+			for (long i = 0; i < this.repeats; i++) {
+				for (File masFile : this.masFiles) {
+					GOALRunFailedException failure = runOnce(i, masFile,
+							this.messaging);
+					if (failure != null) {
+						last = failure;
 					}
-					singleRun.setDebuggerOutput(this.debuggerOutput);
-					singleRun.setMessaging(this.messaging);
-					singleRun.setMessagingHost(this.messagingHost);
-					singleRun.run();
-				} catch (GOALRunFailedException any) { // top level reporting
-					new Warning("Repeat " + i + " of " + masFile
-							+ " threw exception", any);
-					last = any;
 				}
 			}
+		} else {
+			last = runInParallel();
 		}
 		if (last != null) {
 			throw last;
 		}
 	}
 
+	/**
+	 * @return true if the runs are executed in parallel: more than one run at
+	 *         a time is allowed, local messaging is used, and the runs neither
+	 *         learn nor keep metrics.
+	 */
+	boolean isParallel() {
+		return this.parallelism > 1
+				&& this.messaging instanceof LocalMessaging
+				&& !CorePreferences.isLearning() && !PMPreferences.getMetrics();
+	}
+
+	/**
+	 * Executes all runs on {@link #parallelism} threads.
+	 *
+	 * @return the exception of the last failed run (in the order the runs
+	 *         would have been executed sequentially), or null.
+	 */
+	private GOALRunFailedException runInParallel()
+			throws GOALRunFailedException {
+		ExecutorService pool = Executors.newFixedThreadPool(this.parallelism,
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "BatchRun"); //$NON-NLS-1$
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		try {
+			List<Future<GOALRunFailedException>> runs = new ArrayList<>();
+			for (long i = 0; i < this.repeats; i++) {
+				for (final File masFile : this.masFiles) {
+					final long repeat = i;
+					runs.add(pool.submit(new Callable<GOALRunFailedException>() {
+						@Override
+						public GOALRunFailedException call() {
+							// Runs in the same JVM must not share their
+							// messaging.
+							return runOnce(repeat, masFile, new LocalMessaging());
+						}
+					}));
+				}
+			}
+			GOALRunFailedException last = null;
+			for (Future<GOALRunFailedException> run : runs) {
+				GOALRunFailedException failure = run.get();
+				if (failure != null) {
+					last = failure;
+				}
+			}
+			return last;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GOALRunFailedException("batch run was interrupted", e);
+		} catch (ExecutionException e) {
+			throw new GOALRunFailedException("batch run failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Executes a single run of a {@link MASProgram}.
+	 *
+	 * @param repeat
+	 *            the number of the repeat the run belongs to
+	 * @param masFile
+	 *            the MAS to run
+	 * @param messaging
+	 *            the messaging to use in the run
+	 * @return the exception thrown by the run, or null if it succeeded
+	 */
+	private GOALRunFailedException runOnce(long repeat, File masFile,
+			Messaging messaging) {
+		try {
+			SingleRun singleRun;
+			try {
+				singleRun = new SingleRun(this.parseCache.getMAS(masFile),
+						this.timeout);
+			} catch (ParserException e) {
+				throw new GOALRunFailedException("could not parse mas "
+						+ masFile, e);
+			}
+			singleRun.setDebuggerOutput(this.debuggerOutput);
+			singleRun.setSnapshotCache(this.snapshotCache);
+			singleRun.setMessaging(messaging);
+			singleRun.setMessagingHost(this.messagingHost);
+			singleRun.run();
+			return null;
+		} catch (GOALRunFailedException any) { // top level reporting
+			new Warning("Repeat " + repeat + " of " + masFile
+					+ " threw exception", any);
+			return any;
+		}
+	}
+
+	/**
+	 * Sets the maximum number of runs that are executed at the same time. Runs
+	 * are only executed in parallel when local messaging is used, as runs
+	 * using a shared messaging server would see each other's agents. Runs are
+	 * also executed one after the other when learning is on, as the runs would
+	 * overwrite each other's learned model, and when metrics are on, as the
+	 * same agent in different runs would have the same metrics.
+	 *
+	 * @param runs
+	 *            the maximum number of runs executed at the same time; 1 (the
+	 *            default) executes the runs one after the other.
+	 */
+	public void setParallelism(int runs) {
+		this.parallelism = runs;
+	}
+
+	/**
+	 * Sets the cache to take the parsed programs from, e.g. to share it with
+	 * other batches.
+	 *
+	 * @param parseCache
+	 *            the cache for the parsed programs of this {@link BatchRun}.
+	 */
+	public void setParseCache(ParseCache parseCache) {
+		this.parseCache = parseCache;
+	}
+
+	/**
+	 * Sets the snapshots of the agents after their init module. With
+	 * snapshots, the agents of the first run add a snapshot of their mental
+	 * state after their init module, and the agents of later runs start from
+	 * it instead of running their init module again; see
+	 * {@link SingleRun#setSnapshotCache(SnapshotCache)}.
+	 *
+	 * @param snapshotCache
+	 *            the snapshots, or null (the default) to not use snapshots.
+	 */
+	public void setSnapshotCache(SnapshotCache snapshotCache) {
+		this.snapshotCache = snapshotCache;
+	}
+
 	/**
 	 * Returns true if the {@link MASProgram} will be run with a debugger that
 	 * logs output.
@@ -56,6 +56,13 @@ public class IDEDebugger extends ObservableDebugger {
 				args);
 	}
 
+	@Override
+	public boolean isActive(Channel channel) {
+		// Breakpoints block until the first observer attached.
+		return (!this.firstObserver && !this.keepRunning)
+				|| super.isActive(channel);
+	}
+
 	@Override
 	public void subscribe(DebugObserver observer, Channel channel) {
 		super.subscribe(observer, channel);
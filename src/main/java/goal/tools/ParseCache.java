@@ -0,0 +1,185 @@
+package goal.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import krTools.errors.exceptions.ParserException;
+import languageTools.program.agent.AgentProgram;
+import languageTools.program.mas.MASProgram;
+import languageTools.program.test.UnitTest;
+
+/**
+ * Keeps the programs parsed from MAS and test files, so that runs of the same
+ * file do not parse and validate it again. A cached program is only reused as
+ * long as the contents of all files it was parsed from (the MAS or test file,
+ * its agent files and the modules they import) are unchanged; this is checked
+ * by comparing a hash of their contents.
+ *
+ * The cached programs are shared by all runs that use them, in the same way
+ * the agents of a single run share their {@link AgentProgram}, and should not
+ * be modified. The cache can be used from several threads at the same time;
+ * parsing itself is done one file at a time, as it goes through the
+ * {@link PlatformManager}.
+ */
+public class ParseCache {
+	/**
+	 * The programs parsed from MAS files.
+	 */
+	private final Map<File, Entry<ParsedMAS>> mas = new HashMap<>();
+	/**
+	 * The programs parsed from test files.
+	 */
+	private final Map<File, Entry<UnitTest>> tests = new HashMap<>();
+
+	/**
+	 * Returns the programs parsed from a MAS file, parsing it if it has not
+	 * been parsed before or if any of its files has changed since.
+	 *
+	 * @param masFile
+	 *            The MAS file.
+	 * @return The MAS program with its agent programs.
+	 * @throws ParserException
+	 *             If the MAS file could not be parsed.
+	 */
+	public synchronized ParsedMAS getMAS(File masFile) throws ParserException {
+		File key = masFile.getAbsoluteFile();
+		Entry<ParsedMAS> entry = this.mas.get(key);
+		if (entry == null || !entry.isCurrent()) {
+			PlatformManager platform = PlatformManager.createNew();
+			MASProgram program = platform.parseMASFile(masFile);
+			ParsedMAS parsed = new ParsedMAS(program,
+					platform.getParsedAgentPrograms());
+			entry = new Entry<>(parsed, getSources(program,
+					parsed.getAgentPrograms()));
+			this.mas.put(key, entry);
+		}
+		return entry.program;
+	}
+
+	/**
+	 * Returns the test parsed from a test file, parsing it if it has not been
+	 * parsed before or if any of its files has changed since.
+	 *
+	 * @param testFile
+	 *            The test file.
+	 * @return The test.
+	 * @throws ParserException
+	 *             If the test file could not be parsed.
+	 */
+	public synchronized UnitTest getUnitTest(File testFile)
+			throws ParserException {
+		File key = testFile.getAbsoluteFile();
+		Entry<UnitTest> entry = this.tests.get(key);
+		if (entry == null || !entry.isCurrent()) {
+			UnitTest test = PlatformManager.createNew().parseUnitTestFile(
+					testFile);
+			Set<File> sources = getSources(test.getMasProgram(),
+					test.getAgents());
+			sources.add(testFile);
+			entry = new Entry<>(test, sources);
+			this.tests.put(key, entry);
+		}
+		return entry.program;
+	}
+
+	/**
+	 * Forgets all parsed programs.
+	 */
+	public synchronized void clear() {
+		this.mas.clear();
+		this.tests.clear();
+	}
+
+	/**
+	 * @return The files a MAS program and its agent programs were parsed from.
+	 */
+	private static Set<File> getSources(MASProgram program,
+			Map<File, AgentProgram> agents) {
+		Set<File> sources = new LinkedHashSet<>();
+		if (program != null) {
+			sources.add(program.getSourceFile());
+		}
+		for (Map.Entry<File, AgentProgram> agent : agents.entrySet()) {
+			sources.add(agent.getKey());
+			sources.addAll(agent.getValue().getImportedModules());
+		}
+		return sources;
+	}
+
+	/**
+	 * @return A hash of the contents of the files, or {@code null} if any of
+	 *         them could not be read.
+	 */
+	private static byte[] hash(Set<File> files) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+			for (File file : files) {
+				digest.update(file.getAbsolutePath().getBytes("UTF-8")); //$NON-NLS-1$
+				digest.update(Files.readAllBytes(file.toPath()));
+			}
+			return digest.digest();
+		} catch (IOException | NoSuchAlgorithmException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * A parsed program with the hash of the files it was parsed from.
+	 */
+	private static class Entry<T> {
+		private final T program;
+		private final Set<File> sources;
+		private final byte[] hash;
+
+		Entry(T program, Set<File> sources) {
+			this.program = program;
+			this.sources = sources;
+			this.hash = hash(sources);
+		}
+
+		/**
+		 * @return {@code true} if none of the files changed since the program
+		 *         was parsed.
+		 */
+		boolean isCurrent() {
+			return this.hash != null
+					&& Arrays.equals(this.hash, hash(this.sources));
+		}
+	}
+
+	/**
+	 * A MAS program together with the agent programs parsed for it.
+	 */
+	public static class ParsedMAS {
+		private final MASProgram program;
+		private final Map<File, AgentProgram> agentPrograms;
+
+		ParsedMAS(MASProgram program, Map<File, AgentProgram> agentPrograms) {
+			this.program = program;
+			this.agentPrograms = Collections.unmodifiableMap(agentPrograms);
+		}
+
+		/**
+		 * @return The MAS program.
+		 */
+		public MASProgram getMASProgram() {
+			return this.program;
+		}
+
+		/**
+		 * @return The agent programs of the MAS, by file.
+		 */
+		public Map<File, AgentProgram> getAgentPrograms() {
+			return this.agentPrograms;
+		}
+	}
+}
@@ -45,6 +45,8 @@ import rmimessaging.RmiMessaging;
  *  -i                       Print messages from info
  *     --license             Shows the license
  *  -p                       Print messages from parser
+ *     --parallel <number>   Maximum number of runs to execute at the same
+ *                           time
  *  -r,--repeats <number>    Number of times to repeat running all episodes
  *     --recursive           Recursively search for mas files
  *     --rmi <host>          Use RMI messaging middleware. Host is the
@@ -87,6 +89,8 @@ public class Run {
 	private static final char OPTION_REPEATS_SHORT = 'r';
 	private static final String OPTION_TIMEOUT = "timeout";
 	private static final char OPTION_TIMEOUT_SHORT = 't';
+	private static final String OPTION_PARALLEL = "parallel";
+	private static final String OPTION_SNAPSHOT = "snapshot";
 
 	private static final Options options = createOptions();
 
@@ -170,8 +174,10 @@ public class Run {
 		List<File> masFiles = parseFileArguments(cmd.getArgs(),
 				new MASProgramFilter(cmd.hasOption(OPTION_RECURSIVE)));
 
+		ParseCache parseCache = new ParseCache();
 		BatchRun repeatedBatchRun = new BatchRun(masFiles);
 		repeatedBatchRun.setDebuggerOutput(debuggerOutput);
+		repeatedBatchRun.setParseCache(parseCache);
 
 		if (cmd.hasOption(OPTION_REPEATS)) {
 			Number repeats = (Number) cmd.getParsedOptionValue(OPTION_REPEATS);
@@ -181,6 +187,13 @@ public class Run {
 			Number timeout = (Number) cmd.getParsedOptionValue(OPTION_TIMEOUT);
 			repeatedBatchRun.setTimeout(timeout.longValue());
 		}
+		if (cmd.hasOption(OPTION_PARALLEL)) {
+			Number parallel = (Number) cmd.getParsedOptionValue(OPTION_PARALLEL);
+			repeatedBatchRun.setParallelism(parallel.intValue());
+		}
+		if (cmd.hasOption(OPTION_SNAPSHOT)) {
+			repeatedBatchRun.setSnapshotCache(new SnapshotCache());
+		}
 
 		repeatedBatchRun.setMessagingHost(host);
 		repeatedBatchRun.setMessaging(messaging);
@@ -195,8 +208,7 @@ public class Run {
 		List<UnitTestResult> results = new ArrayList<>(testFiles.size());
 
 		for (File unitTestFile : testFiles) {
-			UnitTest unitTest = PlatformManager.createNew().parseUnitTestFile(
-					unitTestFile);
+			UnitTest unitTest = parseCache.getUnitTest(unitTestFile);
 			UnitTestRun testRun = new UnitTestRun(unitTest);
 			UnitTestRunResultInspector inspector = new UnitTestRunResultInspector(
 					unitTest);
@@ -347,6 +359,19 @@ public class Run {
 		OptionBuilder.withType(Number.class);
 		options.addOption(OptionBuilder.create(OPTION_TIMEOUT_SHORT));
 
+		OptionBuilder.withLongOpt(OPTION_PARALLEL);
+		OptionBuilder.withArgName("number");
+		OptionBuilder
+				.withDescription("Maximum number of runs to execute at the same time");
+		OptionBuilder.hasArg();
+		OptionBuilder.withType(Number.class);
+		options.addOption(OptionBuilder.create());
+
+		OptionBuilder.withLongOpt(OPTION_SNAPSHOT);
+		OptionBuilder
+				.withDescription("Start repeated runs of agents from their state after the init module");
+		options.addOption(OptionBuilder.create());
+
 		OptionBuilder.withLongOpt(OPTION_RECURSIVE);
 		OptionBuilder.withDescription("Recursively search for mas files");
 		options.addOption(OptionBuilder.create());
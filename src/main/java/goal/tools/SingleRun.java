@@ -27,6 +27,11 @@ import languageTools.program.mas.MASProgram;
  * @modified K.Hindriks
  */
 public class SingleRun extends AbstractRun<Debugger, GOALInterpreter<Debugger>> {
+	/**
+	 * Snapshots of the mental state of the agents after their init module, or
+	 * {@code null} if the agents should always run their init module.
+	 */
+	private SnapshotCache snapshotCache = null;
 
 	/**
 	 * Constructs an instance of SingleRun using the given file as the
@@ -45,6 +50,20 @@ public class SingleRun extends AbstractRun<Debugger, GOALInterpreter<Debugger>>
 				PlatformManager.getCurrent().getParsedAgentPrograms(), timeout);
 	}
 
+	/**
+	 * Constructs an instance of SingleRun of a MAS that has already been
+	 * parsed, e.g. by a {@link ParseCache}.
+	 *
+	 * @param mas
+	 *            the MAS program with its agent programs
+	 * @param timeout
+	 *            the number of seconds we should wait for the {@link SingleRun}
+	 *            to terminate; 0 for indefinite.
+	 */
+	public SingleRun(ParseCache.ParsedMAS mas, long timeout) {
+		super(mas.getMASProgram(), mas.getAgentPrograms(), timeout);
+	}
+
 	private class SingleRunAgentFactory extends
 	AbstractAgentFactory<Debugger, GOALInterpreter<Debugger>> {
 		public SingleRunAgentFactory(MessagingService messaging) {
@@ -66,11 +85,29 @@ public class SingleRun extends AbstractRun<Debugger, GOALInterpreter<Debugger>>
 		@Override
 		protected GOALInterpreter<Debugger> provideController(
 				Debugger debugger, Learner learner) {
-			return new GOALInterpreter<>(this.program, debugger, learner);
+			GOALInterpreter<Debugger> controller = new GOALInterpreter<>(
+					this.program, debugger, learner);
+			controller.setSnapshotCache(SingleRun.this.snapshotCache);
+			return controller;
 		}
 
 	}
 
+	/**
+	 * Sets the snapshots of the mental state of agents after their init
+	 * module. Agents start from the snapshot of their mental state if there is
+	 * one, and skip their init module; else they add a snapshot after running
+	 * it, if possible. Only useful when the runs that share the snapshots
+	 * share their programs, e.g. through a {@link ParseCache}.
+	 *
+	 * @param snapshotCache
+	 *            the snapshots, or {@code null} (the default) to always run the
+	 *            init module.
+	 */
+	public void setSnapshotCache(SnapshotCache snapshotCache) {
+		this.snapshotCache = snapshotCache;
+	}
+
 	@Override
 	protected AgentFactory<Debugger, GOALInterpreter<Debugger>> buildAgentFactory(
 			MessagingService messaging) {
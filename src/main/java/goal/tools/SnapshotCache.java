@@ -0,0 +1,71 @@
+package goal.tools;
+
+import goal.core.mentalstate.MentalStateSnapshot;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import languageTools.program.agent.AgentProgram;
+
+/**
+ * Keeps the mental states of agents right after their init module, so that
+ * agents in later runs of the same program can start from there instead of
+ * building their belief and goal base and running their init module again;
+ * see {@link goal.core.runtime.service.agent.RunState}.
+ *
+ * Snapshots are kept by agent program and agent name, as what an agent
+ * believes after its init module may depend on its name. As with a
+ * {@link ParseCache}, the runs that use the cache should share their programs;
+ * a program that is parsed again gets its own snapshots. Programs are only
+ * weakly referenced, so the snapshots of a program that is no longer used are
+ * dropped with it. The cache can be used from several threads at the same
+ * time.
+ */
+public class SnapshotCache {
+	private final Map<AgentProgram, Map<String, MentalStateSnapshot>> snapshots = new WeakHashMap<>();
+
+	/**
+	 * @param program
+	 *            The program of an agent.
+	 * @param agent
+	 *            The name of the agent.
+	 * @return The snapshot of the mental state of the agent, or {@code null}
+	 *         if there is none.
+	 */
+	public synchronized MentalStateSnapshot get(AgentProgram program,
+			String agent) {
+		Map<String, MentalStateSnapshot> agents = this.snapshots.get(program);
+		return (agents == null) ? null : agents.get(agent);
+	}
+
+	/**
+	 * Keeps the snapshot of the mental state of an agent, unless one has been
+	 * kept already.
+	 *
+	 * @param program
+	 *            The program of the agent.
+	 * @param agent
+	 *            The name of the agent.
+	 * @param snapshot
+	 *            The snapshot of the mental state of the agent.
+	 */
+	public synchronized void put(AgentProgram program, String agent,
+			MentalStateSnapshot snapshot) {
+		Map<String, MentalStateSnapshot> agents = this.snapshots.get(program);
+		if (agents == null) {
+			agents = new HashMap<>();
+			this.snapshots.put(program, agents);
+		}
+		if (!agents.containsKey(agent)) {
+			agents.put(agent, snapshot);
+		}
+	}
+
+	/**
+	 * Forgets all snapshots.
+	 */
+	public synchronized void clear() {
+		this.snapshots.clear();
+	}
+}
@@ -78,6 +78,11 @@ import mentalState.DependencyGraph;
  * learner is then loaded from disk and hooked into GOAL, after which GOAL can
  * ask the learner to recommend actions.
  * </p>
+ * <p>
+ * Learned models of {@link QLearner}s are saved in the binary format of
+ * {@link LearnerStore}. Older .lrn files holding a serialized learner can
+ * still be loaded, and are converted when the learner is saved again.
+ * </p>
  *
  * @author dsingh
  * @author W.Pasman made class Serializable #2246
@@ -103,7 +108,7 @@ public class FileLearner implements Serializable, Learner {
 	/**
 	 * The list of GOAL state IDs. GOALState is a number representing a
 	 * {@link MentalState}. See also
-	 * {@link GOALMentalStateConverter#translate(MentalState, java.util.Stack)}.
+	 * {@link GOALMentalStateConverter#translate(Set, List)}.
 	 */
 	private Map<String, Integer> stateid = new TreeMap<>();
 
@@ -120,6 +125,11 @@ public class FileLearner implements Serializable, Learner {
 	private final String lrnPrefix;
 
 	private Integer runCount;
+	/**
+	 * The store that the learned model was last read from or written to, if
+	 * any; allows saving only what changed since.
+	 */
+	private transient LearnerStore store;
 	private boolean finishedEpisode;
 	private boolean updateCalled;
 
@@ -357,17 +367,13 @@ public class FileLearner implements Serializable, Learner {
 	 */
 	private static Set<DatabaseFormula> filteredBeliefs(
 			MentalState mentalState, Set<String> filter) {
-		Set<DatabaseFormula> beliefs = mentalState
-				.getOwnBase(BASETYPE.BELIEFBASE).getTheory().getFormulas();
-		Set<DatabaseFormula> remove = new LinkedHashSet<>();
-		// hack around #3057 to prevent ConcurrentModificationException
-		List<DatabaseFormula> formulas = new ArrayList<>(beliefs);
-		for (DatabaseFormula belief : formulas) {
-			if (!filter.contains(belief.getSignature())) {
-				remove.add(belief);
+		Set<DatabaseFormula> beliefs = new LinkedHashSet<>();
+		for (DatabaseFormula belief : mentalState
+				.getOwnBase(BASETYPE.BELIEFBASE).getTheory().getFormulas()) {
+			if (filter.contains(belief.getSignature())) {
+				beliefs.add(belief);
 			}
 		}
-		beliefs.removeAll(remove);
 		return beliefs;
 	}
 
@@ -627,6 +633,41 @@ public class FileLearner implements Serializable, Learner {
 	 * @param file
 	 */
 	private void saveLearner(String file) {
+		LearnerStore.Contents contents = new LearnerStore.Contents();
+		for (Map.Entry<String, LearnerInstance> learner : this.learners
+				.entrySet()) {
+			if (!(learner.getValue().instance instanceof QLearner)) {
+				// Only Q-learners can be stored in a learner store.
+				serializeLearner(file);
+				return;
+			}
+			contents.learners.put(learner.getKey(),
+					(QLearner) learner.getValue().instance);
+		}
+		contents.runCount = this.runCount;
+		contents.stateid = this.stateid;
+		contents.statestr = this.statestr;
+		contents.actionstr = this.actionstr;
+		contents.universe = this.converter.getUniverse().toStringArray();
+
+		if (this.store == null || !this.store.getFile().equals(new File(file))) {
+			this.store = new LearnerStore(new File(file));
+		}
+		try {
+			this.store.write(contents);
+		} catch (IOException e) {
+			this.store = null;
+			new InfoLog("File " + file + " could not be written ("
+					+ e.getMessage() + "). Continuing.");
+		}
+	}
+
+	/**
+	 * Saves the learning to file using Java serialization
+	 *
+	 * @param file
+	 */
+	private void serializeLearner(String file) {
 		try (ObjectOutputStream output = new ObjectOutputStream(
 				new BufferedOutputStream(new FileOutputStream(file)))) {
 			output.writeObject(this);
@@ -644,6 +685,14 @@ public class FileLearner implements Serializable, Learner {
 	 * @return a {@link FileLearner} object
 	 */
 	private boolean loadLearner(String file, AgentProgram program) {
+		try {
+			if (LearnerStore.isStore(new File(file))) {
+				return readLearnerStore(file);
+			}
+		} catch (IOException e) {
+			new Warning("learner file " + file + " could not be read but continuing anyway.",e);
+			return false;
+		}
 		try (ObjectInputStream input = new ObjectInputStream(
 				new BufferedInputStream(new FileInputStream(file)))) {
 			Object obj = input.readObject();
@@ -663,4 +712,36 @@ public class FileLearner implements Serializable, Learner {
 		}
 		return false;
 	}
+
+	/**
+	 * Loads the learning from a file in the format of {@link LearnerStore}.
+	 *
+	 * @param file
+	 * @return {@code true} if the learning was loaded
+	 * @throws IOException
+	 */
+	private boolean readLearnerStore(String file) throws IOException {
+		LearnerStore store = new LearnerStore(new File(file));
+		LearnerStore.Contents contents = store.read();
+		this.runCount = contents.runCount;
+		this.learners = new HashMap<>();
+		for (Map.Entry<String, QLearner> learner : contents.learners
+				.entrySet()) {
+			this.learners.put(learner.getKey(),
+					new LearnerInstance(learner.getValue()));
+		}
+		this.stateid = new TreeMap<>(contents.stateid);
+		this.statestr = new TreeMap<>(contents.statestr);
+		this.actionstr = new TreeMap<>(contents.actionstr);
+		this.actionid = new TreeMap<>();
+		for (Map.Entry<Integer, String> action : this.actionstr.entrySet()) {
+			this.actionid.put(action.getValue(), action.getKey());
+		}
+		this.universe = contents.universe;
+		this.converter = new GOALMentalStateConverter(null);
+		this.converter.getUniverse().setPreassignedIndices(this.universe);
+		this.store = store;
+		new InfoLog("\nLoading learned model from file " + file);
+		return true;
+	}
 }
@@ -0,0 +1,362 @@
+package goal.tools.adapt;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary file format for the learned model of a {@link FileLearner}.
+ * <p>
+ * The file starts with {@link #MAGIC} and {@link #VERSION}, followed by
+ * records. A record is a tag byte followed by its fields:
+ * <ul>
+ * <li>{@link #RUNS}: the number of runs so far.</li>
+ * <li>{@link #STATE}: the id, key and description of a state.</li>
+ * <li>{@link #ACTION}: the id and name of an action.</li>
+ * <li>{@link #UNIVERSE}: the next element of the conversion universe.</li>
+ * <li>{@link #LEARNER}: the name and parameters of the {@link QLearner} of a
+ * module. Modules are numbered in the order they first appear.</li>
+ * <li>{@link #VALUE}: a module number, state id, action id and value of the
+ * Q function of that module.</li>
+ * </ul>
+ * Each string is stored only once, as its length and UTF-8 bytes; the Q
+ * functions refer to states and actions by id. Later records replace earlier
+ * ones, so a file can be brought up to date by appending only what changed
+ * since it was read or written. It is rewritten completely once the replaced
+ * records outnumber the current ones. Files are read through a memory mapping.
+ */
+class LearnerStore {
+	/**
+	 * First bytes of the file, "GLRN".
+	 */
+	static final int MAGIC = 0x474C524E;
+	static final int VERSION = 1;
+
+	private static final byte RUNS = 'N';
+	private static final byte STATE = 'S';
+	private static final byte ACTION = 'A';
+	private static final byte UNIVERSE = 'U';
+	private static final byte LEARNER = 'L';
+	private static final byte VALUE = 'Q';
+
+	/**
+	 * The contents of a learner file; see the fields of {@link FileLearner}.
+	 */
+	static class Contents {
+		int runCount = 0;
+		Map<String, Integer> stateid = new HashMap<>();
+		Map<String, String> statestr = new HashMap<>();
+		Map<Integer, String> actionstr = new HashMap<>();
+		List<String> universe = new ArrayList<>();
+		Map<String, QLearner> learners = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Thrown when a record read from a file is not valid, e.g. because the
+	 * file was truncated in the middle of a string or overwritten.
+	 */
+	private static class CorruptRecordException extends Exception {
+		private static final long serialVersionUID = -4218396013622520839L;
+	}
+
+	private final File file;
+	/*
+	 * What the file holds, as far as this store knows; used to determine what
+	 * needs to be appended.
+	 */
+	private long length = -1;
+	private int states = 0;
+	private int actions = 0;
+	private int universe = 0;
+	private final List<String> modules = new ArrayList<>();
+	private long records = 0;
+
+	/**
+	 * @param file
+	 *            The file to read from and write to.
+	 */
+	LearnerStore(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * @return The file this store reads from and writes to.
+	 */
+	File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * @param file
+	 *            A file.
+	 * @return {@code true} if the file starts with {@link #MAGIC}.
+	 * @throws IOException
+	 *             If the file could not be read.
+	 */
+	static boolean isStore(File file) throws IOException {
+		try (DataInputStream input = new DataInputStream(new FileInputStream(
+				file))) {
+			return file.length() >= 8 && input.readInt() == MAGIC;
+		}
+	}
+
+	/**
+	 * Reads the file.
+	 *
+	 * @return The contents of the file.
+	 * @throws IOException
+	 *             If the file could not be read, or is not a learner file of
+	 *             a supported version.
+	 */
+	Contents read() throws IOException {
+		Contents contents = new Contents();
+		List<QLearner> learners = new ArrayList<>();
+		try (FileChannel channel = FileChannel.open(this.file.toPath(),
+				StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0,
+					channel.size());
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException(this.file
+						+ " is not a supported learner file"); //$NON-NLS-1$
+			}
+			int end = buffer.position();
+			try {
+				while (buffer.hasRemaining()) {
+					readRecord(buffer, contents, learners);
+					end = buffer.position();
+					this.records++;
+				}
+			} catch (CorruptRecordException | BufferUnderflowException e) {
+				// The last record was not written completely (or not at all);
+				// ignore it and anything after it. As the length does not
+				// match, the file will be rewritten.
+			}
+			this.length = end;
+		}
+		this.universe = contents.universe.size();
+		for (QLearner learner : contents.learners.values()) {
+			learner.getValues().markClean();
+		}
+		return contents;
+	}
+
+	/**
+	 * Reads a record, and adds it to the contents only if it is complete and
+	 * valid.
+	 *
+	 * @throws CorruptRecordException
+	 *             If the record is not valid.
+	 * @throws BufferUnderflowException
+	 *             If the record is not complete.
+	 */
+	private void readRecord(ByteBuffer buffer, Contents contents,
+			List<QLearner> learners) throws CorruptRecordException {
+		byte tag = buffer.get();
+		switch (tag) {
+		case RUNS:
+			contents.runCount = buffer.getInt();
+			break;
+		case STATE:
+			int state = buffer.getInt();
+			String key = getString(buffer);
+			String description = getString(buffer);
+			contents.stateid.put(key, state);
+			contents.statestr.put(key, description);
+			this.states = Math.max(this.states, state);
+			break;
+		case ACTION:
+			int action = buffer.getInt();
+			contents.actionstr.put(action, getString(buffer));
+			this.actions = Math.max(this.actions, action);
+			break;
+		case UNIVERSE:
+			contents.universe.add(getString(buffer));
+			break;
+		case LEARNER:
+			String module = getString(buffer);
+			QLearner learner = new QLearner(buffer.getDouble(),
+					buffer.getDouble(), buffer.getDouble(), buffer.getDouble(),
+					getValues(contents, module));
+			int index = this.modules.indexOf(module);
+			if (index < 0) {
+				this.modules.add(module);
+				learners.add(learner);
+			} else {
+				learners.set(index, learner);
+			}
+			contents.learners.put(module, learner);
+			break;
+		case VALUE:
+			int number = buffer.getInt();
+			int valueState = buffer.getInt();
+			int valueAction = buffer.getInt();
+			double value = buffer.getDouble();
+			if (number < 0 || number >= learners.size()) {
+				throw new CorruptRecordException();
+			}
+			learners.get(number).getValues()
+					.put(valueState, valueAction, value);
+			break;
+		default:
+			throw new CorruptRecordException();
+		}
+	}
+
+	private static QValueTable getValues(Contents contents, String module) {
+		QLearner learner = contents.learners.get(module);
+		return (learner == null) ? new QValueTable() : learner.getValues();
+	}
+
+	private static String getString(ByteBuffer buffer)
+			throws CorruptRecordException {
+		int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining()) {
+			throw new CorruptRecordException();
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes the given contents to the file. Only appends what changed since
+	 * the file was last read or written by this store, unless the file needs
+	 * to be rewritten.
+	 *
+	 * @param contents
+	 *            The contents to write. Afterwards, the value functions of
+	 *            the learners are marked clean.
+	 * @throws IOException
+	 *             If the file could not be written.
+	 */
+	void write(Contents contents) throws IOException {
+		boolean append = this.length >= 0 && this.file.length() == this.length
+				&& this.records <= 2 * liveRecords(contents);
+		if (!append) {
+			this.length = 0;
+			this.states = 0;
+			this.actions = 0;
+			this.universe = 0;
+			this.modules.clear();
+			this.records = 0;
+		}
+		try (FileOutputStream stream = new FileOutputStream(this.file, append);
+				DataOutputStream output = new DataOutputStream(
+						new BufferedOutputStream(stream))) {
+			if (!append) {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+			}
+			output.writeByte(RUNS);
+			output.writeInt(contents.runCount);
+			this.records++;
+
+			int states = this.states;
+			for (Map.Entry<String, Integer> state : contents.stateid
+					.entrySet()) {
+				if (state.getValue() > this.states) {
+					output.writeByte(STATE);
+					output.writeInt(state.getValue());
+					putString(output, state.getKey());
+					putString(output, contents.statestr.get(state.getKey()));
+					states = Math.max(states, state.getValue());
+					this.records++;
+				}
+			}
+			this.states = states;
+			int actions = this.actions;
+			for (Map.Entry<Integer, String> action : contents.actionstr
+					.entrySet()) {
+				if (action.getKey() > this.actions) {
+					output.writeByte(ACTION);
+					output.writeInt(action.getKey());
+					putString(output, action.getValue());
+					actions = Math.max(actions, action.getKey());
+					this.records++;
+				}
+			}
+			this.actions = actions;
+			for (String element : contents.universe.subList(this.universe,
+					contents.universe.size())) {
+				output.writeByte(UNIVERSE);
+				putString(output, element);
+				this.records++;
+			}
+			this.universe = contents.universe.size();
+
+			for (Map.Entry<String, QLearner> module : contents.learners
+					.entrySet()) {
+				QLearner learner = module.getValue();
+				output.writeByte(LEARNER);
+				putString(output, module.getKey());
+				output.writeDouble(learner.getAlpha());
+				output.writeDouble(learner.getEpsilon());
+				output.writeDouble(learner.getEpsilonDecay());
+				output.writeDouble(learner.getGamma());
+				this.records++;
+				int index = this.modules.indexOf(module.getKey());
+				if (index < 0) {
+					index = this.modules.size();
+					this.modules.add(module.getKey());
+				}
+
+				QValueTable values = learner.getValues();
+				BitSet dirty = values.getDirty();
+				if (!append) {
+					dirty.set(0, values.size());
+				}
+				for (int entry = dirty.nextSetBit(0); entry >= 0; entry = dirty
+						.nextSetBit(entry + 1)) {
+					output.writeByte(VALUE);
+					output.writeInt(index);
+					output.writeInt(values.getState(entry));
+					output.writeInt(values.getAction(entry));
+					output.writeDouble(values.getValue(entry));
+					this.records++;
+				}
+			}
+		}
+		this.length = this.file.length();
+		for (QLearner learner : contents.learners.values()) {
+			learner.getValues().markClean();
+		}
+	}
+
+	/**
+	 * @return The number of records needed to write the contents from
+	 *         scratch.
+	 */
+	private static long liveRecords(Contents contents) {
+		long live = 1 + contents.stateid.size() + contents.actionstr.size()
+				+ contents.universe.size();
+		for (QLearner learner : contents.learners.values()) {
+			live += 1 + learner.getValues().size();
+		}
+		return live;
+	}
+
+	private static void putString(DataOutputStream output, String string)
+			throws IOException {
+		byte[] bytes = ((string == null) ? "" : string) //$NON-NLS-1$
+				.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+}
@@ -18,7 +18,10 @@
 
 package goal.tools.adapt;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.Hashtable;
+import java.util.Map;
 import java.util.Random;
 
 /**
@@ -32,21 +35,19 @@ import java.util.Random;
 public class QLearner implements LearnerAlgorithm {
 	/** Generated serialVersionUID */
 	private static final long serialVersionUID = -8719214041255496994L;
-	private final Random randGenerator;
+	private transient Random randGenerator;
 
 	/**
 	 * The algorithm uses a function Q(state,action)->value. See
 	 * {@link #setValue(Integer, Integer, Double)}. The integers contain encoded
 	 * (bitmap mappings) states and actions (see
-	 * {@link GOALMentalStateConverter}). "Q(state,action)=value" is stored in
-	 * the following two-dim table, with state as first index and action as
-	 * second index.
+	 * {@link GOALMentalStateConverter}).
 	 */
-	private final Hashtable<Integer, Hashtable<Integer, Double>> valueFunction;
-	private final double alpha;
+	private QValueTable values;
+	private double alpha;
 	private double epsilon;
-	private final double epsilon_decay;
-	private final double gamma;
+	private double epsilon_decay;
+	private double gamma;
 	private Integer newaction;
 	private Integer newstate;
 
@@ -61,8 +62,23 @@ public class QLearner implements LearnerAlgorithm {
 	 * @param gamma
 	 */
 	public QLearner(double step, double epsilon, double decay, double gamma) {
+		this(step, epsilon, decay, gamma, new QValueTable());
+	}
+
+	/**
+	 * Constructs a Q learner that continues with an existing value function.
+	 *
+	 * @param step
+	 * @param epsilon
+	 * @param decay
+	 * @param gamma
+	 * @param values
+	 *            The function Q(state,action)->value learned so far.
+	 */
+	public QLearner(double step, double epsilon, double decay, double gamma,
+			QValueTable values) {
 		this.randGenerator = new Random();
-		this.valueFunction = new Hashtable<>();
+		this.values = values;
 		this.alpha = step;
 		this.epsilon = epsilon;
 		this.epsilon_decay = decay;
@@ -132,18 +148,10 @@ public class QLearner implements LearnerAlgorithm {
 	 * @return
 	 */
 	private Double getValue(Integer s, Integer a) {
-		Double v = null;
-		if (this.valueFunction.containsKey(s)) {
-			Hashtable<Integer, Double> actions = this.valueFunction.get(s);
-			if (actions.containsKey(a)) {
-				v = actions.get(a);
-			}
+		if (!this.values.contains(s, a)) {
+			setValue(s, a, (double) this.DEFAULT_VALUE);
 		}
-		if (v == null) {
-			v = new Double(this.DEFAULT_VALUE);
-			setValue(s, a, v);
-		}
-		return v;
+		return this.values.get(s, a, this.DEFAULT_VALUE);
 	}
 
 	/**
@@ -154,21 +162,8 @@ public class QLearner implements LearnerAlgorithm {
 	 * @return
 	 */
 	private Double getMaxValue(Integer s) {
-		Double max = null;
-		if (this.valueFunction.containsKey(s)) {
-			Double[] values = this.valueFunction.get(s).values()
-					.toArray(new Double[0]);
-			max = values[this.randGenerator.nextInt(values.length)];
-			for (Double value : values) {
-				if (value.doubleValue() > max.doubleValue()) {
-					max = value;
-				}
-			}
-		} else {
-			max = new Double(this.DEFAULT_VALUE); // Return this when s does not
-			// exist
-		}
-		return max;
+		// Return the default when s does not exist
+		return this.values.getMax(s, this.DEFAULT_VALUE);
 	}
 
 	/**
@@ -182,10 +177,7 @@ public class QLearner implements LearnerAlgorithm {
 	 *            is the new value associated with
 	 */
 	private void setValue(Integer s, Integer a, Double v) {
-		Hashtable<Integer, Double> actions = (this.valueFunction.containsKey(s)) ? this.valueFunction
-				.get(s) : new Hashtable<Integer, Double>();
-		actions.put(a, v);
-		this.valueFunction.put(s, actions);
+		this.values.put(s, a, v);
 	}
 
 	/**
@@ -235,7 +227,64 @@ public class QLearner implements LearnerAlgorithm {
 
 	@Override
 	public Hashtable<Integer, Double> actionValues(Integer state) {
-		return this.valueFunction.containsKey(state) ? this.valueFunction
-				.get(state) : new Hashtable<Integer, Double>();
+		return this.values.getActionValues(state);
+	}
+
+	/*
+	 * The parameters and value function, for saving.
+	 */
+
+	QValueTable getValues() {
+		return this.values;
+	}
+
+	double getAlpha() {
+		return this.alpha;
+	}
+
+	double getEpsilon() {
+		return this.epsilon;
+	}
+
+	double getEpsilonDecay() {
+		return this.epsilon_decay;
+	}
+
+	double getGamma() {
+		return this.gamma;
+	}
+
+	/**
+	 * Also reads learners saved before the value function was a
+	 * {@link QValueTable}, which stored it as nested tables.
+	 */
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream ois) throws IOException,
+			ClassNotFoundException {
+		ObjectInputStream.GetField fields = ois.readFields();
+		this.randGenerator = new Random();
+		this.alpha = fields.get("alpha", 0.0);
+		this.epsilon = fields.get("epsilon", 0.0);
+		this.epsilon_decay = fields.get("epsilon_decay", 0.0);
+		this.gamma = fields.get("gamma", 0.0);
+		this.newstate = (Integer) fields.get("newstate", null);
+		this.newaction = (Integer) fields.get("newaction", null);
+		if (fields.defaulted("values")) {
+			this.values = new QValueTable();
+			Hashtable<Integer, Hashtable<Integer, Double>> valueFunction = (Hashtable<Integer, Hashtable<Integer, Double>>) fields
+					.get("valueFunction", null);
+			if (valueFunction != null) {
+				for (Map.Entry<Integer, Hashtable<Integer, Double>> state : valueFunction
+						.entrySet()) {
+					for (Map.Entry<Integer, Double> action : state.getValue()
+							.entrySet()) {
+						this.values.put(state.getKey(), action.getKey(),
+								action.getValue());
+					}
+				}
+			}
+		} else {
+			this.values = (QValueTable) fields.get("values", null);
+		}
 	}
 }
@@ -0,0 +1,243 @@
+package goal.tools.adapt;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Hashtable;
+
+/**
+ * The function Q(state,action)->value of a {@link QLearner}, stored in
+ * primitive arrays instead of boxed maps.
+ * <p>
+ * Entries are kept in the order they were created, and are never removed. An
+ * open-addressing table maps (state,action) pairs to entries; another one maps
+ * each state to its most recent entry, from which the entries of the state
+ * are chained. The table also records which entries changed since
+ * {@link #markClean()}, so that only those need to be saved again.
+ */
+public class QValueTable implements Serializable {
+	/** Generated serialVersionUID */
+	private static final long serialVersionUID = -3107541394563154768L;
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * The number of entries.
+	 */
+	private int size = 0;
+	private int[] states = new int[INITIAL_CAPACITY];
+	private int[] actions = new int[INITIAL_CAPACITY];
+	private double[] values = new double[INITIAL_CAPACITY];
+	/**
+	 * For each entry, the previous entry of the same state, or -1.
+	 */
+	private int[] previous = new int[INITIAL_CAPACITY];
+	/**
+	 * Slots holding 1 + the index of the entry of a (state,action) pair, or 0
+	 * if empty. Always at most half full.
+	 */
+	private int[] pairSlots = new int[2 * INITIAL_CAPACITY];
+	/**
+	 * Slots holding 1 + the index of the most recent entry of a state, or 0 if
+	 * empty. Always at most half full.
+	 */
+	private int[] stateSlots = new int[2 * INITIAL_CAPACITY];
+	/**
+	 * The entries that changed since the last {@link #markClean()}.
+	 */
+	private transient BitSet dirty = new BitSet();
+
+	/**
+	 * @return The number of (state,action) pairs that have a value.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @param state
+	 *            A state.
+	 * @param action
+	 *            An action.
+	 * @return {@code true} if Q(state,action) has a value.
+	 */
+	public boolean contains(int state, int action) {
+		return find(state, action) >= 0;
+	}
+
+	/**
+	 * @param state
+	 *            A state.
+	 * @return {@code true} if Q(state,action) has a value for some action.
+	 */
+	public boolean containsState(int state) {
+		return findState(state) >= 0;
+	}
+
+	/**
+	 * @param state
+	 *            A state.
+	 * @param action
+	 *            An action.
+	 * @param otherwise
+	 *            The value to return if Q(state,action) has no value.
+	 * @return Q(state,action).
+	 */
+	public double get(int state, int action, double otherwise) {
+		int entry = find(state, action);
+		return (entry < 0) ? otherwise : this.values[entry];
+	}
+
+	/**
+	 * @param state
+	 *            A state.
+	 * @param otherwise
+	 *            The value to return if the state has no values.
+	 * @return The highest Q(state,action) of any action.
+	 */
+	public double getMax(int state, double otherwise) {
+		int entry = findState(state);
+		if (entry < 0) {
+			return otherwise;
+		}
+		double max = this.values[entry];
+		for (entry = this.previous[entry]; entry >= 0; entry = this.previous[entry]) {
+			max = Math.max(max, this.values[entry]);
+		}
+		return max;
+	}
+
+	/**
+	 * @param state
+	 *            A state.
+	 * @return A new table holding Q(state,action) for each action that has a
+	 *         value.
+	 */
+	public Hashtable<Integer, Double> getActionValues(int state) {
+		Hashtable<Integer, Double> result = new Hashtable<>();
+		for (int entry = findState(state); entry >= 0; entry = this.previous[entry]) {
+			result.put(this.actions[entry], this.values[entry]);
+		}
+		return result;
+	}
+
+	/**
+	 * Sets Q(state,action)=value.
+	 *
+	 * @param state
+	 *            A state.
+	 * @param action
+	 *            An action.
+	 * @param value
+	 *            The new value.
+	 */
+	public void put(int state, int action, double value) {
+		int entry = find(state, action);
+		if (entry < 0) {
+			if (2 * (this.size + 1) > this.pairSlots.length) {
+				grow();
+			}
+			entry = this.size++;
+			this.states[entry] = state;
+			this.actions[entry] = action;
+			int stateSlot = stateSlot(state);
+			this.previous[entry] = this.stateSlots[stateSlot] - 1;
+			this.stateSlots[stateSlot] = entry + 1;
+			this.pairSlots[pairSlot(state, action)] = entry + 1;
+		}
+		this.values[entry] = value;
+		getDirty().set(entry);
+	}
+
+	/*
+	 * Access to the entries in the order they were created, for saving.
+	 */
+
+	int getState(int entry) {
+		return this.states[entry];
+	}
+
+	int getAction(int entry) {
+		return this.actions[entry];
+	}
+
+	double getValue(int entry) {
+		return this.values[entry];
+	}
+
+	/**
+	 * @return The entries that changed since the last {@link #markClean()}.
+	 */
+	BitSet getDirty() {
+		if (this.dirty == null) {
+			// Restored by serialization; assume nothing has been saved.
+			this.dirty = new BitSet();
+			this.dirty.set(0, this.size);
+		}
+		return this.dirty;
+	}
+
+	/**
+	 * Forgets which entries changed, e.g. because they have been saved.
+	 */
+	void markClean() {
+		getDirty().clear();
+	}
+
+	private int find(int state, int action) {
+		return this.pairSlots[pairSlot(state, action)] - 1;
+	}
+
+	private int findState(int state) {
+		return this.stateSlots[stateSlot(state)] - 1;
+	}
+
+	/**
+	 * @return The slot of the pair, or the empty slot where it should go.
+	 */
+	private int pairSlot(int state, int action) {
+		int mask = this.pairSlots.length - 1;
+		int slot = hash(31 * state + action) & mask;
+		while (this.pairSlots[slot] != 0) {
+			int entry = this.pairSlots[slot] - 1;
+			if (this.states[entry] == state && this.actions[entry] == action) {
+				break;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * @return The slot of the state, or the empty slot where it should go.
+	 */
+	private int stateSlot(int state) {
+		int mask = this.stateSlots.length - 1;
+		int slot = hash(state) & mask;
+		while (this.stateSlots[slot] != 0
+				&& this.states[this.stateSlots[slot] - 1] != state) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private void grow() {
+		int capacity = 2 * this.states.length;
+		this.states = Arrays.copyOf(this.states, capacity);
+		this.actions = Arrays.copyOf(this.actions, capacity);
+		this.values = Arrays.copyOf(this.values, capacity);
+		this.previous = Arrays.copyOf(this.previous, capacity);
+		this.pairSlots = new int[2 * capacity];
+		this.stateSlots = new int[2 * capacity];
+		for (int entry = 0; entry < this.size; entry++) {
+			this.pairSlots[pairSlot(this.states[entry], this.actions[entry])] = entry + 1;
+			// Entries are visited in order of creation, so the last one of a
+			// state ends up in its slot.
+			this.stateSlots[stateSlot(this.states[entry])] = entry + 1;
+		}
+	}
+}
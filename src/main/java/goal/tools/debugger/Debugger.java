@@ -61,6 +61,20 @@ public interface Debugger {
 	public abstract void breakpoint(Channel channel, Object associateObject,
 			SourceInfo associateSource, String message, Object... args);
 
+	/**
+	 * Checks whether a breakpoint on a channel can have any effect, i.e.
+	 * whether it may be reported to an observer, pause the agent, or end it
+	 * because the debugger was killed. If not, callers may skip the call to
+	 * {@link #breakpoint(Channel, Object, SourceInfo, String, Object...)}
+	 * and, more importantly, skip building its arguments. This check should be
+	 * cheap; it is done for every breakpoint on the hot path of an agent.
+	 *
+	 * @param channel
+	 *            The channel of the breakpoint.
+	 * @return {@code false} if a breakpoint on the channel would do nothing.
+	 */
+	public abstract boolean isActive(Channel channel);
+
 	/**
 	 * Obtains the name of this {@link Debugger}. If this {@link Debugger} is
 	 * debugging an agent, it should be set the same name as the agent so that
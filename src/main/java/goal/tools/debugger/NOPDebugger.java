@@ -5,7 +5,7 @@ import languageTools.program.agent.AgentId;
 
 public class NOPDebugger implements Debugger {
 	private final String id;
-	private boolean killed = false;
+	private volatile boolean killed = false;
 
 	public NOPDebugger(AgentId id) {
 		this(id.getName());
@@ -23,6 +23,12 @@ public class NOPDebugger implements Debugger {
 		}
 	}
 
+	@Override
+	public boolean isActive(Channel channel) {
+		// Only needs to be called to end the agent after a kill.
+		return this.killed;
+	}
+
 	@Override
 	public String getName() {
 		return this.id;
@@ -14,6 +14,12 @@ public class ObservableDebugger extends SteppingDebugger {
 	 * Maintains a map of which observers have subscribed to which channels.
 	 */
 	protected final ConcurrentHashMap<Channel, Set<DebugObserver>> channelObservers = new ConcurrentHashMap<>();
+	/**
+	 * Bit mask of the channels that have observers, indexed by
+	 * {@link Channel#ordinal()}. Lets the agent check for observers at every
+	 * breakpoint without looking up the observers of the channel.
+	 */
+	private volatile long observedChannels = 0;
 
 	public ObservableDebugger(AgentId id, EnvironmentPort env) {
 		this(id.getName(), env);
@@ -32,7 +38,7 @@ public class ObservableDebugger extends SteppingDebugger {
 	public void breakpoint(Channel channel, Object associateObject,
 			SourceInfo associateSource, String message, Object... args) {
 		// Only if there are observers for the channel, events need to be send.
-		if (!this.channelObservers.get(channel).isEmpty()) {
+		if (isObserved(channel)) {
 			DebugEvent event = new DebugEvent(getRunMode(), getName(), channel,
 					associateObject, associateSource, message, args);
 			notifyObservers(channel, event);
@@ -42,6 +48,34 @@ public class ObservableDebugger extends SteppingDebugger {
 				args);
 	}
 
+	@Override
+	public boolean isActive(Channel channel) {
+		return isObserved(channel) || super.isActive(channel);
+	}
+
+	/**
+	 * @param channel
+	 *            A channel.
+	 * @return {@code true} if any observer subscribed to the channel.
+	 */
+	private boolean isObserved(Channel channel) {
+		return (this.observedChannels & (1L << channel.ordinal())) != 0;
+	}
+
+	/**
+	 * Recomputes {@link #observedChannels}; to be called after the observers
+	 * of a channel have changed.
+	 */
+	private synchronized void updateObservedChannels() {
+		long mask = 0;
+		for (Channel channel : Channel.values()) {
+			if (!this.channelObservers.get(channel).isEmpty()) {
+				mask |= 1L << channel.ordinal();
+			}
+		}
+		this.observedChannels = mask;
+	}
+
 	/**
 	 * Updates observers that subscribed to a channel with the debug information
 	 * related to that channel.
@@ -81,6 +115,7 @@ public class ObservableDebugger extends SteppingDebugger {
 	 */
 	public void subscribe(DebugObserver observer, Channel channel) {
 		this.channelObservers.get(channel).add(observer);
+		updateObservedChannels();
 	}
 
 	/**
@@ -95,6 +130,7 @@ public class ObservableDebugger extends SteppingDebugger {
 		for (Channel channel : this.channelObservers.keySet()) {
 			this.channelObservers.get(channel).remove(observer);
 		}
+		updateObservedChannels();
 	}
 
 	/**
@@ -113,6 +149,7 @@ public class ObservableDebugger extends SteppingDebugger {
 	 */
 	public void unsubscribe(DebugObserver observer, Channel channel) {
 		this.channelObservers.get(channel).remove(observer);
+		updateObservedChannels();
 	}
 
 	/**
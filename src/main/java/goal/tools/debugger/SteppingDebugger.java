@@ -20,15 +20,18 @@ package goal.tools.debugger;
 
 import eis.iilang.EnvironmentState;
 import goal.core.agent.Agent;
+import goal.core.runtime.RuntimeManager;
 import goal.core.runtime.service.environmentport.EnvironmentPort;
 import goal.preferences.PMPreferences;
+import goal.tools.IDEDebugger;
 import goal.tools.IDEGOALInterpreter;
 import goal.tools.LaunchManager;
 
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 
 import krTools.parser.SourceInfo;
@@ -180,16 +183,19 @@ public class SteppingDebugger implements Debugger {
 	private final Set<Channel> pausingChannels = new CopyOnWriteArraySet<>();
 	/**
 	 * The default run mode of the debugger: run without stopping anywhere.
+	 * Volatile so that the agent can check it at every breakpoint without
+	 * taking a lock; changes go through {@link #setRunMode(RunMode)}.
 	 */
-	protected RunMode runMode;
+	protected volatile RunMode runMode;
 	/**
 	 * If set to true, any encountered breakpoint will be ignored
 	 */
-	protected boolean keepRunning = false;
+	protected volatile boolean keepRunning = false;
 	/**
 	 * If an ID is in this set, we break on it.
 	 */
-	private final Set<Integer> breakpointIds = new HashSet<>();
+	private final Set<Integer> breakpointIds = Collections
+			.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
 	private final Map<Integer, Integer> had = new HashMap<>();
 
 	/**
@@ -256,7 +262,7 @@ public class SteppingDebugger implements Debugger {
 	 *
 	 * @return overall run mode of debugger.
 	 */
-	public synchronized RunMode getRunMode() {
+	public RunMode getRunMode() {
 		return this.runMode;
 	}
 
@@ -289,6 +295,19 @@ public class SteppingDebugger implements Debugger {
 	/********** TO BE CALLED BY THREAD TO BE DEBUGGED. ************/
 	/**************************************************************/
 
+	/**
+	 * A breakpoint only has an effect if the agent is not simply running, or
+	 * if the user has set breakpoints in the source.
+	 */
+	@Override
+	public boolean isActive(Channel channel) {
+		if (this.keepRunning) {
+			return false;
+		}
+		return this.runMode != RunMode.RUNNING
+				|| !this.breakpointIds.isEmpty();
+	}
+
 	@SuppressWarnings("fallthrough")
 	/*
 	 * (non-Javadoc)
@@ -487,8 +506,11 @@ public class SteppingDebugger implements Debugger {
 	protected boolean checkUserBreakpointHit(SourceInfo source, String message,
 			Object... args) {
 		if (source != null && this.breakpointIds.contains(source.hashCode())) {
-			final Agent<IDEGOALInterpreter> agent = LaunchManager.getCurrent()
-					.getRuntimeManager().getAgent(new AgentId(this.name));
+			final RuntimeManager<IDEDebugger, IDEGOALInterpreter> runtime = LaunchManager
+					.getCurrent().getRuntimeManager();
+			// Without a runtime, the agent is not run from the IDE.
+			final Agent<IDEGOALInterpreter> agent = (runtime == null) ? null
+					: runtime.getAgent(new AgentId(this.name));
 			if (agent != null) {
 				final int round = agent.getController().getRunState()
 						.getRoundCounter();
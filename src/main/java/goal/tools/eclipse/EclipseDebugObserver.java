@@ -15,6 +15,7 @@ import goal.tools.debugger.SteppingDebugger.RunMode;
 import goal.tools.eclipse.DebugCommand.Command;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -71,6 +72,27 @@ public class EclipseDebugObserver implements DebugObserver {
 		return "EclipseDebugObserver";
 	}
 
+	/**
+	 * Writes the insertion or deletion of a formula, or of each formula of a
+	 * batch (a collection of formulas), in a belief base, percept base or
+	 * mailbox.
+	 */
+	private void writeUpdate(Object object, String message, AgentId agentId,
+			Command inserted, Command deleted) {
+		Command command = message.contains("been inserted") ? inserted
+				: deleted;
+		if (object instanceof Collection) {
+			for (final Object formula : (Collection<?>) object) {
+				this.writer.write(new DebugCommand(command, agentId, formula
+						.toString()));
+			}
+		} else {
+			final DatabaseFormula formula = (DatabaseFormula) object;
+			this.writer.write(new DebugCommand(command, agentId, formula
+					.toString()));
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public void notifyBreakpointHit(DebugEvent event) {
@@ -108,34 +130,16 @@ public class EclipseDebugObserver implements DebugObserver {
 					module2.getName()));
 			break;
 		case BB_UPDATES:
-			final DatabaseFormula belief = (DatabaseFormula) object;
-			if (event.getMessage().contains("has been inserted")) {
-				this.writer.write(new DebugCommand(Command.INSERTED_BEL,
-						agentId, belief.toString()));
-			} else {
-				this.writer.write(new DebugCommand(Command.DELETED_BEL,
-						agentId, belief.toString()));
-			}
+			writeUpdate(object, event.getMessage(), agentId,
+					Command.INSERTED_BEL, Command.DELETED_BEL);
 			break;
 		case PERCEPTS_CONDITIONAL_VIEW:
-			final DatabaseFormula percept = (DatabaseFormula) object;
-			if (event.getMessage().contains("has been inserted")) {
-				this.writer.write(new DebugCommand(Command.INSERTED_PERCEPT,
-						agentId, percept.toString()));
-			} else {
-				this.writer.write(new DebugCommand(Command.DELETED_PERCEPT,
-						agentId, percept.toString()));
-			}
+			writeUpdate(object, event.getMessage(), agentId,
+					Command.INSERTED_PERCEPT, Command.DELETED_PERCEPT);
 			break;
 		case MAILS_CONDITIONAL_VIEW:
-			final DatabaseFormula mail = (DatabaseFormula) object;
-			if (event.getMessage().contains("has been inserted")) {
-				this.writer.write(new DebugCommand(Command.INSERTED_MAIL,
-						agentId, mail.toString()));
-			} else {
-				this.writer.write(new DebugCommand(Command.DELETED_MAIL,
-						agentId, mail.toString()));
-			}
+			writeUpdate(object, event.getMessage(), agentId,
+					Command.INSERTED_MAIL, Command.DELETED_MAIL);
 			break;
 		case GB_UPDATES:
 		case GOAL_ACHIEVED:
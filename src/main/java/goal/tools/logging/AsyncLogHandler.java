@@ -0,0 +1,326 @@
+package goal.tools.logging;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * Publishes log records to a target {@link Handler} on a writer thread, so
+ * that the threads logging (e.g. agents) do not wait for the target to format
+ * and write the records, nor for each other. All handlers share the same
+ * writer thread.
+ * <p>
+ * Records are passed through a bounded ring buffer that is written without
+ * taking locks. The writer thread takes the records out in batches, publishes
+ * them to the target and flushes the target once per batch; together with a
+ * {@link BatchedFileHandler} this writes a log file in batches. Records are
+ * formatted by the target on the writer thread, so the parameters of a record
+ * should not be modified after it has been logged. Records are published
+ * unchanged. Their source class and method are not inferred on the logging
+ * thread: unless the logger set them, they are unknown, as the writer thread
+ * has no logger on its stack to infer them from.
+ * </p>
+ * <p>
+ * When the buffer is full, a record is either dropped or the logging thread
+ * waits until there is room again, depending on the {@link Overflow} policy.
+ * {@link #flush()} and {@link #close()} wait until all records logged before
+ * have been published. Handlers that have not been closed are closed when the
+ * JVM shuts down.
+ * </p>
+ */
+public class AsyncLogHandler extends Handler {
+	/**
+	 * What to do with a record when the buffer is full.
+	 */
+	public enum Overflow {
+		/**
+		 * Wait until the writer thread made room for the record.
+		 */
+		BLOCK,
+		/**
+		 * Drop the record; see {@link AsyncLogHandler#getDropped()}.
+		 */
+		DROP
+	}
+
+	/**
+	 * The default number of records in the buffer.
+	 */
+	public static final int DEFAULT_CAPACITY = 8192;
+	/**
+	 * The maximum number of records published before the target is flushed.
+	 */
+	private static final int BATCH = 256;
+	/**
+	 * The maximum time in nanoseconds that the writer thread sleeps when there
+	 * are no records.
+	 */
+	private static final long IDLE = TimeUnit.MILLISECONDS.toNanos(10);
+	/**
+	 * The time in nanoseconds that a thread waits before checking again
+	 * whether the buffer has room, or whether records have been published.
+	 */
+	private static final long FULL = TimeUnit.MICROSECONDS.toNanos(100);
+
+	/**
+	 * The handlers that have not been closed yet.
+	 */
+	private static final Set<AsyncLogHandler> open = Collections
+			.newSetFromMap(new ConcurrentHashMap<AsyncLogHandler, Boolean>());
+	/**
+	 * The thread that publishes the records of all handlers.
+	 */
+	private static final Writer writer = new Writer();
+
+	static {
+		writer.start();
+		Runtime.getRuntime().addShutdownHook(
+				new Thread("Closing logs") { //$NON-NLS-1$
+					@Override
+					public void run() {
+						for (AsyncLogHandler handler : open) {
+							handler.close();
+						}
+					}
+				});
+	}
+
+	private final Handler target;
+	private final Overflow overflow;
+	/**
+	 * The buffer; the record with sequence number n is in slot n & mask, and
+	 * slots that do not hold a record are null.
+	 */
+	private final AtomicReferenceArray<LogRecord> slots;
+	private final int mask;
+	/**
+	 * The sequence number of the next record to be logged.
+	 */
+	private final AtomicLong tail = new AtomicLong();
+	/**
+	 * The sequence number of the next record to be taken out of the buffer;
+	 * only changed by the writer thread.
+	 */
+	private volatile long head = 0;
+	/**
+	 * The sequence number of the first record that has not been published
+	 * and flushed yet; only changed by the writer thread, after the target
+	 * has been flushed.
+	 */
+	private volatile long published = 0;
+	private volatile boolean closed = false;
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Creates a handler with a buffer of {@link #DEFAULT_CAPACITY} records
+	 * that waits when the buffer is full.
+	 *
+	 * @param target
+	 *            The handler to publish the records to.
+	 */
+	public AsyncLogHandler(Handler target) {
+		this(target, DEFAULT_CAPACITY, Overflow.BLOCK);
+	}
+
+	/**
+	 * Creates a handler.
+	 *
+	 * @param target
+	 *            The handler to publish the records to.
+	 * @param capacity
+	 *            The number of records in the buffer; rounded up to a power
+	 *            of two.
+	 * @param overflow
+	 *            What to do with a record when the buffer is full.
+	 */
+	public AsyncLogHandler(Handler target, int capacity, Overflow overflow) {
+		this.target = target;
+		this.overflow = overflow;
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		this.slots = new AtomicReferenceArray<>(size);
+		this.mask = size - 1;
+		open.add(this);
+	}
+
+	/**
+	 * @return The handler the records are published to.
+	 */
+	public Handler getTarget() {
+		return this.target;
+	}
+
+	/**
+	 * @return The number of records that were dropped because the buffer was
+	 *         full.
+	 */
+	public long getDropped() {
+		return this.dropped.get();
+	}
+
+	@Override
+	public void publish(LogRecord record) {
+		if (this.closed || !this.target.isLoggable(record)) {
+			return;
+		}
+		while (!offer(record)) {
+			if (this.overflow == Overflow.DROP) {
+				this.dropped.incrementAndGet();
+				return;
+			} else if (this.closed) {
+				return;
+			}
+			LockSupport.parkNanos(this, FULL);
+		}
+		if (writer.idle) {
+			LockSupport.unpark(writer);
+		}
+	}
+
+	/**
+	 * Waits until all records logged before have been published, and then
+	 * flushes the target.
+	 */
+	@Override
+	public void flush() {
+		awaitPublished(this.tail.get());
+		this.target.flush();
+	}
+
+	/**
+	 * Publishes all records logged before and closes the target. Records
+	 * logged after this has been called are ignored.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+		}
+		awaitPublished(this.tail.get());
+		open.remove(this);
+		this.target.close();
+	}
+
+	/**
+	 * Puts a record in the buffer.
+	 *
+	 * @return false if the buffer is full.
+	 */
+	private boolean offer(LogRecord record) {
+		while (true) {
+			long sequence = this.tail.get();
+			if (sequence - this.head >= this.slots.length()) {
+				return false;
+			}
+			if (this.tail.compareAndSet(sequence, sequence + 1)) {
+				this.slots.lazySet((int) sequence & this.mask, record);
+				return true;
+			}
+		}
+	}
+
+	private void awaitPublished(long until) {
+		while (this.published < until && writer.isAlive()
+				&& Thread.currentThread() != writer) {
+			LockSupport.unpark(writer);
+			LockSupport.parkNanos(this, FULL);
+		}
+	}
+
+	/**
+	 * Publishes a batch of records to the target and then flushes it; only
+	 * called by the writer thread. The records only count as published once
+	 * the target has been flushed, so that {@link #flush()} and
+	 * {@link #close()} do not use the target while the batch is written.
+	 *
+	 * @return false if there were no records to publish.
+	 */
+	private boolean drain() {
+		int batch = 0;
+		while (batch < BATCH && this.head < this.tail.get()) {
+			int slot = (int) this.head & this.mask;
+			LogRecord record = this.slots.get(slot);
+			if (record == null) {
+				// The slot has been claimed but not filled yet.
+				Thread.yield();
+				continue;
+			}
+			this.slots.set(slot, null);
+			this.head++;
+			try {
+				this.target.publish(record);
+			} catch (RuntimeException e) {
+				reportError(null, e, ErrorManager.WRITE_FAILURE);
+			}
+			batch++;
+		}
+		if (batch == 0) {
+			return false;
+		}
+		try {
+			this.target.flush();
+		} catch (RuntimeException e) {
+			reportError(null, e, ErrorManager.FLUSH_FAILURE);
+		}
+		this.published = this.head;
+		return true;
+	}
+
+	/**
+	 * @return true if a record has been logged that has not been published.
+	 */
+	private boolean isPending() {
+		return this.head < this.tail.get();
+	}
+
+	/**
+	 * The thread that publishes the records of all handlers, taking a batch
+	 * of each handler in turn.
+	 */
+	private static class Writer extends Thread {
+		/**
+		 * True while the writer thread is sleeping.
+		 */
+		private volatile boolean idle = false;
+
+		Writer() {
+			super("Log writer"); //$NON-NLS-1$
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				boolean published = false;
+				for (AsyncLogHandler handler : open) {
+					published |= handler.drain();
+				}
+				if (!published) {
+					this.idle = true;
+					if (!isAnyPending()) {
+						LockSupport.parkNanos(this, IDLE);
+					}
+					this.idle = false;
+				}
+			}
+		}
+
+		private static boolean isAnyPending() {
+			for (AsyncLogHandler handler : open) {
+				if (handler.isPending()) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package goal.tools.logging;
+
+import java.io.IOException;
+import java.util.logging.FileHandler;
+import java.util.logging.LogRecord;
+
+/**
+ * A {@link FileHandler} that does not flush the file after every record, but
+ * only when {@link #flush()} is called; e.g. by an {@link AsyncLogHandler}
+ * after every batch of records.
+ */
+public class BatchedFileHandler extends FileHandler {
+	/**
+	 * True while a record is published.
+	 */
+	private boolean publishing = false;
+
+	/**
+	 * @param pattern
+	 *            The name of the file; see {@link FileHandler#FileHandler(String)}.
+	 * @throws IOException
+	 *             If the file could not be opened.
+	 */
+	public BatchedFileHandler(String pattern) throws IOException {
+		super(pattern);
+	}
+
+	@Override
+	public synchronized void publish(LogRecord record) {
+		// FileHandler flushes after every record.
+		this.publishing = true;
+		try {
+			super.publish(record);
+		} finally {
+			this.publishing = false;
+		}
+	}
+
+	@Override
+	public synchronized void flush() {
+		if (!this.publishing) {
+			super.flush();
+		}
+	}
+}
@@ -22,6 +22,7 @@ import goal.preferences.LoggingPreferences;
 import goal.tools.errorhandling.Resources;
 import goal.tools.errorhandling.Warning;
 import goal.tools.errorhandling.WarningStrings;
+import goal.tools.logging.AsyncLogHandler.Overflow;
 
 import java.io.File;
 import java.io.IOException;
@@ -54,7 +55,10 @@ import java.util.logging.Logger;
  * <p>
  * Logging to file is also handled here. The default {@link FileHandler}
  * settings are used. Files are written to the user's home directory. If you
- * turn off the logging-rerouting, log to file is also disabled.
+ * turn off the logging-rerouting, log to file is also disabled. Unless
+ * {@link LoggingPreferences#getAsyncLogging()} is off, files are written in
+ * batches by an {@link AsyncLogHandler}, so that logging threads do not wait
+ * for the file.
  * </p>
  * <p>
  * Tech note: we don't really care about having unique GOALLoggers for a given
@@ -75,6 +79,11 @@ public class GOALLogger {
 	 * null unless we log to file
 	 */
 	protected FileHandler fileHandler = null;
+	/**
+	 * The handler added to the logger for writing to {@link #fileHandler};
+	 * either that handler itself or an {@link AsyncLogHandler} for it.
+	 */
+	private Handler fileLogHandler = null;
 	/**
 	 * Logs messages to the console.
 	 */
@@ -170,8 +179,17 @@ public class GOALLogger {
 			String fname = dirname + "/" + this.logger.getName() //$NON-NLS-1$
 					+ (LoggingPreferences.getOverwriteFile() ? "" : "_%u") //$NON-NLS-1$ //$NON-NLS-2$
 					+ ".log"; //$NON-NLS-1$
-			this.fileHandler = new FileHandler(fname);
-			addHandler(this.fileHandler);
+			if (LoggingPreferences.getAsyncLogging()) {
+				this.fileHandler = new BatchedFileHandler(fname);
+				this.fileLogHandler = new AsyncLogHandler(this.fileHandler,
+						AsyncLogHandler.DEFAULT_CAPACITY,
+						LoggingPreferences.getDropLogsOnOverflow() ? Overflow.DROP
+								: Overflow.BLOCK);
+			} else {
+				this.fileHandler = new FileHandler(fname);
+				this.fileLogHandler = this.fileHandler;
+			}
+			addHandler(this.fileLogHandler);
 		} catch (SecurityException e) {
 			new Warning(String.format(
 					Resources.get(WarningStrings.FAILED_LOG_TO_FILE),
@@ -199,9 +217,12 @@ public class GOALLogger {
 	 */
 	public void removeLogToFileHandler() {
 		if (this.fileHandler != null) {
-			this.logger.removeHandler(this.fileHandler);
+			this.logger.removeHandler(this.fileLogHandler);
+			// Also closes the file handler if asynchronous.
+			this.fileLogHandler.close();
 			this.fileHandler.close();
 			this.fileHandler = null;
+			this.fileLogHandler = null;
 		}
 	}
 
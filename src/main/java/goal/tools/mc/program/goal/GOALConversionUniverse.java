@@ -18,9 +18,11 @@
 
 package goal.tools.mc.program.goal;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -28,6 +30,9 @@ import java.util.Map;
  * Represents a conversion universe for GOAL, such that BitSets can be quickly
  * converted to mental states and vice versa.
  *
+ * Elements get stable indices, in the order they are added. All lookups, by
+ * element or by index, take constant time.
+ *
  * @author sungshik
  * @author W.Pasman made serializable #2246
  */
@@ -52,20 +57,22 @@ public class GOALConversionUniverse implements Serializable {
 	 * the same focus may occur multiple times in this mapping, although at
 	 * different depths.
 	 */
-	private final List<HashMap<GOALCE_FocusAtDepth, Integer>> focusAtDepthToIndex = new LinkedList<>();
+	private final List<HashMap<GOALCE_FocusAtDepth, Integer>> focusAtDepthToIndex = new ArrayList<>();
 
 	/**
 	 * Mapping from goals (at a specific depth) to their indices (this means
 	 * that the same goal may occur multiple times in this mapping, although at
 	 * different depths).
 	 */
-	private final List<HashMap<GOALCE_GoalAtDepth, Integer>> goalAtDepthToIndex = new LinkedList<>();
+	private final List<HashMap<GOALCE_GoalAtDepth, Integer>> goalAtDepthToIndex = new ArrayList<>();
 
 	/**
 	 * "Mapping" from indices to both beliefs, goals or foci (which are hence
-	 * all stored in this mapping).
+	 * all stored in this mapping). If preassigned indices are used, holds
+	 * <code>null</code> at the indices of preassigned elements that have not
+	 * occurred yet.
 	 */
-	private final List<GOALConversionElement> indexToElement = new LinkedList<>();
+	private List<GOALConversionElement> indexToElement = new ArrayList<>();
 
 	/**
 	 * The number of foci.
@@ -83,7 +90,11 @@ public class GOALConversionUniverse implements Serializable {
 	 * possible, we use this scheme.
 	 */
 	private List<String> preassignedElementIndex = null;
-	private final List<GOALConversionElement> preassignedIndexToElement = new LinkedList<>();
+	/**
+	 * Mapping from the strings in {@link #preassignedElementIndex} to their
+	 * indices.
+	 */
+	private transient Map<String, Integer> preassignedToIndex = null;
 
 	//
 	// Public methods
@@ -99,13 +110,19 @@ public class GOALConversionUniverse implements Serializable {
 	 * @return The index at which the element is registered in the universe.
 	 */
 	public int addIfNotContains(GOALConversionElement element) {
-		int index = getIndex(element);
+		int index = getRegisteredIndex(element);
 
 		/* If the element is not yet contained, add it */
 		if (index == -1) {
 
-			/* Get a new index */
-			index = assignIndex();
+			/* Get a new index, unless one has been preassigned */
+			index = getPreassignedIndex(element);
+			if (index == -1) {
+				index = indexToElement.size();
+				indexToElement.add(element);
+			} else {
+				indexToElement.set(index, element);
+			}
 
 			/*
 			 * If the element is a belief, add it to beliefToIndex with the new
@@ -157,7 +174,6 @@ public class GOALConversionUniverse implements Serializable {
 				focusAtDepthToIndex.get(focus.depth).put(focus, index);
 				nFocusses++;
 			}
-			indexToElement.add(element);
 		}
 		return index;
 	}
@@ -186,8 +202,7 @@ public class GOALConversionUniverse implements Serializable {
 	 * @return The requested element.
 	 */
 	public GOALConversionElement getAtIndex(int index) {
-		return (preassignedElementIndex == null) ? indexToElement.get(index)
-				: preassignedIndexToElement.get(index);
+		return indexToElement.get(index);
 	}
 
 	/**
@@ -199,34 +214,8 @@ public class GOALConversionUniverse implements Serializable {
 	 *         indexed; -1 otherwise.
 	 */
 	public int getIndex(GOALConversionElement elem) {
-		if (preassignedElementIndex != null) {
-			for (int i = 0; i < preassignedElementIndex.size(); i++) {
-				if (preassignedElementIndex.get(i).equals(elem.toString())) {
-					return i;
-				}
-			}
-		}
-		if (elem instanceof GOALCE_Belief) {
-			return beliefToIndex.containsKey(elem) ? beliefToIndex.get(elem)
-					: -1;
-		}
-		if (elem instanceof GOALCE_GoalAtDepth) {
-			GOALCE_GoalAtDepth goal = (GOALCE_GoalAtDepth) elem;
-			if (goal.depth < goalAtDepthToIndex.size()) {
-				return goalAtDepthToIndex.get(goal.depth).containsKey(elem) ? goalAtDepthToIndex
-						.get(goal.depth).get(goal) : -1;
-			}
-			return -1;
-		}
-		if (elem instanceof GOALCE_FocusAtDepth) {
-			GOALCE_FocusAtDepth focus = (GOALCE_FocusAtDepth) elem;
-			if (focus.depth < focusAtDepthToIndex.size()) {
-				return focusAtDepthToIndex.get(focus.depth).containsKey(elem) ? focusAtDepthToIndex
-						.get(focus.depth).get(focus) : -1;
-			}
-			return -1;
-		}
-		return -1;
+		int index = getRegisteredIndex(elem);
+		return (index == -1) ? getPreassignedIndex(elem) : index;
 	}
 
 	/**
@@ -246,35 +235,18 @@ public class GOALConversionUniverse implements Serializable {
 	 * @return The size of this universe.
 	 */
 	public int size() {
-		return (preassignedElementIndex == null) ? indexToElement.size()
-				: preassignedIndexToElement.size();
+		return indexToElement.size();
 	}
 
 	@Override
 	public String toString() {
-		String string = "";
-		if (preassignedElementIndex == null) {
-			for (int i = 0; i < indexToElement.size(); i++) {
-				string += "\n" + i + ": " + indexToElement.get(i).toString();
-			}
-		} else {
-			/**
-			 * The preassignedElementIndex array holds any preassigned indices
-			 * starting with index=0.
-			 */
-			for (int i = 0; i < preassignedElementIndex.size(); i++) {
-				string += "\n" + i + ": " + preassignedElementIndex.get(i);
-			}
-			/**
-			 * The preassignedElementIndex list contains any new elements added
-			 * that were not in the preassignedElementIndex array
-			 */
-			for (int i = preassignedElementIndex.size(); i < preassignedIndexToElement
-					.size(); i++) {
-				string += "\n" + i + ": " + preassignedIndexToElement.get(i);
-			}
+		StringBuilder string = new StringBuilder();
+		List<String> elements = toStringArray();
+		for (int i = 0; i < elements.size(); i++) {
+			string.append("\n").append(i).append(": ")
+					.append(elements.get(i));
 		}
-		return string;
+		return string.toString();
 	}
 
 	/**
@@ -288,46 +260,87 @@ public class GOALConversionUniverse implements Serializable {
 	 * @param elements
 	 */
 	public void setPreassignedIndices(List<String> elements) {
-		preassignedElementIndex = elements;
+		preassignedElementIndex = (elements == null) ? null
+				: new ArrayList<>(elements);
+		indexPreassigned();
 		/**
 		 * Also create placeholders for the preassigned elements
 		 */
 		if (preassignedElementIndex != null) {
 			for (int i = 0; i < preassignedElementIndex.size(); i++) {
-				preassignedIndexToElement.add(null);
+				indexToElement.add(null);
 			}
 		}
 	}
 
+	/**
+	 * @return The string representations of the elements of this universe, in
+	 *         the order of their indices. Preassigned elements that have not
+	 *         occurred yet are represented by their preassigned string.
+	 */
 	public List<String> toStringArray() {
-		List<String> string = new LinkedList<>();
-		if (preassignedElementIndex == null) {
-			for (int i = 0; i < indexToElement.size(); i++) {
-				string.add(indexToElement.get(i).toString());
-			}
-		} else {
-			/**
-			 * The preassignedElementIndex array holds any preassigned indices
-			 * starting with index=0.
-			 */
-			for (int i = 0; i < preassignedElementIndex.size(); i++) {
-				string.add(preassignedElementIndex.get(i));
+		List<String> string = new ArrayList<>(indexToElement.size());
+		for (int i = 0; i < indexToElement.size(); i++) {
+			GOALConversionElement element = indexToElement.get(i);
+			string.add((element == null) ? preassignedElementIndex.get(i)
+					: element.toString());
+		}
+		return string;
+	}
+
+	//
+	// Private methods
+	//
+
+	/**
+	 * @return The index at which the element has been added, or -1.
+	 */
+	private int getRegisteredIndex(GOALConversionElement elem) {
+		Integer index = null;
+		if (elem instanceof GOALCE_Belief) {
+			index = beliefToIndex.get(elem);
+		} else if (elem instanceof GOALCE_GoalAtDepth) {
+			GOALCE_GoalAtDepth goal = (GOALCE_GoalAtDepth) elem;
+			if (goal.depth < goalAtDepthToIndex.size()) {
+				index = goalAtDepthToIndex.get(goal.depth).get(goal);
 			}
-			/**
-			 * The preassignedElementIndex list contains any new elements added
-			 * that were not in the preassignedElementIndex array
-			 */
-			for (int i = preassignedElementIndex.size(); i < preassignedIndexToElement
-					.size(); i++) {
-				string.add(preassignedElementIndex.get(i).toString());
+		} else if (elem instanceof GOALCE_FocusAtDepth) {
+			GOALCE_FocusAtDepth focus = (GOALCE_FocusAtDepth) elem;
+			if (focus.depth < focusAtDepthToIndex.size()) {
+				index = focusAtDepthToIndex.get(focus.depth).get(focus);
 			}
 		}
-		return string;
+		return (index == null) ? -1 : index;
+	}
+
+	/**
+	 * @return The index preassigned to the element, or -1.
+	 */
+	private int getPreassignedIndex(GOALConversionElement elem) {
+		if (preassignedToIndex == null) {
+			return -1;
+		}
+		Integer index = preassignedToIndex.get(elem.toString());
+		return (index == null) ? -1 : index;
+	}
 
+	private void indexPreassigned() {
+		if (preassignedElementIndex == null) {
+			preassignedToIndex = null;
+		} else {
+			preassignedToIndex = new HashMap<>(
+					2 * preassignedElementIndex.size());
+			for (int i = preassignedElementIndex.size() - 1; i >= 0; i--) {
+				// The first occurrence of a string wins.
+				preassignedToIndex.put(preassignedElementIndex.get(i), i);
+			}
+		}
 	}
 
-	private int assignIndex() {
-		return (preassignedElementIndex == null) ? indexToElement.size()
-				: preassignedIndexToElement.size();
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		indexToElement = new ArrayList<>(indexToElement);
+		indexPreassigned();
 	}
-}
\ No newline at end of file
+}
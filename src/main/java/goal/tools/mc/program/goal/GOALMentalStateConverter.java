@@ -18,6 +18,7 @@
 
 package goal.tools.mc.program.goal;
 
+import goal.core.mentalstate.BeliefBase;
 import goal.core.mentalstate.GoalBase;
 import goal.core.mentalstate.MentalState;
 import goal.core.mentalstate.SingleGoal;
@@ -32,7 +33,6 @@ import java.util.BitSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.Stack;
 
 import krTools.errors.exceptions.KRInitFailedException;
 import krTools.language.DatabaseFormula;
@@ -55,6 +55,14 @@ import mentalState.BASETYPE;
  * resume learning.
  *
  * </p>
+ * <h1>Incremental translation</h1>
+ * <p>
+ * The bits of the beliefs of the associated mental state and of each goal base
+ * on its attention stack are remembered together with the version of the base
+ * they were computed for (see {@link BeliefBase#getVersion()} and
+ * {@link GoalBase#getVersion()}). A translation only recomputes the bits of
+ * the bases that changed since.
+ * </p>
  *
  * @author sungshik
  * @author W.Pasman added serialization #2246
@@ -83,6 +91,17 @@ public class GOALMentalStateConverter implements Serializable {
 	 */
 	transient protected Debugger debugger = new SteppingDebugger("converter",
 			null);
+	/**
+	 * The bits of the beliefs of {@link #mentalState}, valid for version
+	 * {@link #beliefVersion} of its belief base; null if not computed yet.
+	 */
+	transient private BitSet beliefBits;
+	transient private long beliefVersion;
+	/**
+	 * The bits of the goals and focus at each depth of the attention stack
+	 * that have been translated most recently.
+	 */
+	transient private List<GoalBaseBits> goalBaseBits;
 
 	//
 	// Constructors
@@ -124,13 +143,17 @@ public class GOALMentalStateConverter implements Serializable {
 	}
 
 	/**
-	 * Sets the universe associated with this converter.
+	 * Sets the universe associated with this converter. The bits remembered
+	 * from earlier translations are forgotten, as they are indices in the
+	 * previous universe.
 	 *
 	 * @param The
 	 *            new universe.
 	 */
 	public void setUniverse(GOALConversionUniverse universe) {
 		this.universe = universe;
+		this.beliefBits = null;
+		this.goalBaseBits = null;
 	}
 
 	/**
@@ -143,10 +166,22 @@ public class GOALMentalStateConverter implements Serializable {
 	 * @return
 	 */
 	public GOALState translate() {
-		Set<DatabaseFormula> beliefs = this.mentalState
-				.getOwnBase(BASETYPE.BELIEFBASE).getTheory().getFormulas();
-
-		return translate(beliefs, this.mentalState.getAttentionStack());
+		BeliefBase base = this.mentalState.getOwnBase(BASETYPE.BELIEFBASE);
+		try {
+			if (this.beliefBits == null
+					|| this.beliefVersion != base.getVersion()) {
+				this.beliefVersion = base.getVersion();
+				this.beliefBits = translateBeliefs(base.getTheory()
+						.getFormulas());
+			}
+			GOALState q = new GOALState(this);
+			q.or(this.beliefBits);
+			translateGoals(this.mentalState.getAttentionStack(), q);
+			return q;
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			return null;
+		}
 	}
 
 	/**
@@ -155,66 +190,92 @@ public class GOALMentalStateConverter implements Serializable {
 	 * @return The binary representation.
 	 */
 	public GOALState translate(Set<DatabaseFormula> beliefs,
-			Stack<GoalBase> goalBaseStack) {
+			List<GoalBase> goalBaseStack) {
 
 		try {
 			GOALState q = new GOALState(this);
-			int index;
-
-			// hack for #3057 to avoid ConcurrentModificationException
-			List<DatabaseFormula> formulas = new ArrayList<DatabaseFormula>(
-					beliefs);
-			// Convert beliefs.
-			for (DatabaseFormula formula : formulas) {
-				GOALCE_Belief belief = new GOALCE_Belief(formula);
-				index = this.universe.getIndex(belief);
-				if (index == -1) {
-					index = this.universe.addIfNotContains(belief);
-				}
-				q.set(index);
-			}
+			q.or(translateBeliefs(beliefs));
+			translateGoals(goalBaseStack, q);
+			return q;
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
 
-			// Convert goals.
-			int depth = 0;
-			if (goalBaseStack.size() > this.goalBases.size()) {
-				this.goalBases.add(goalBaseStack.peek());
-			}
-			for (GoalBase goalBase : goalBaseStack) {
-				// Add goals per goal base on the attention stack.
-				for (SingleGoal singleGoal : goalBase) {
-					GOALCE_GoalAtDepth goal = new GOALCE_GoalAtDepth(
-							singleGoal.getGoal(), depth);
-					index = this.universe.getIndex(goal);
-					if (index == -1) {
-						index = this.universe.addIfNotContains(goal);
-					}
-					q.set(index);
-				}
+	/**
+	 * Translates beliefs to their bits, adding them to the universe if needed.
+	 *
+	 * @param beliefs
+	 *            The beliefs to translate.
+	 * @return The bits of the beliefs.
+	 */
+	private BitSet translateBeliefs(Set<DatabaseFormula> beliefs) {
+		BitSet bits = new BitSet();
+		// hack for #3057 to avoid ConcurrentModificationException
+		List<DatabaseFormula> formulas = new ArrayList<DatabaseFormula>(beliefs);
+		for (DatabaseFormula formula : formulas) {
+			bits.set(this.universe.addIfNotContains(new GOALCE_Belief(formula)));
+		}
+		return bits;
+	}
 
-				// Increment depth.
-				depth++;
+	/**
+	 * Sets the bits of the goals and foci of the goal bases on an attention
+	 * stack, adding them to the universe if needed. Only the goal bases that
+	 * changed since the previous translation are translated again.
+	 *
+	 * @param goalBaseStack
+	 *            The attention stack.
+	 * @param q
+	 *            The state to set the bits in.
+	 */
+	private void translateGoals(List<GoalBase> goalBaseStack, BitSet q) {
+		if (goalBaseStack.size() > this.goalBases.size()) {
+			this.goalBases.add(goalBaseStack.get(goalBaseStack.size() - 1));
+		}
+		if (this.goalBaseBits == null) {
+			this.goalBaseBits = new ArrayList<GoalBaseBits>();
+		}
+		int depth = 0;
+		for (GoalBase goalBase : goalBaseStack) {
+			if (depth == this.goalBaseBits.size()) {
+				this.goalBaseBits.add(null);
 			}
+			GoalBaseBits bits = this.goalBaseBits.get(depth);
+			if (bits == null || !bits.isFor(goalBase)) {
+				bits = new GoalBaseBits(goalBase, depth);
+				this.goalBaseBits.set(depth, bits);
+			}
+			q.or(bits.bits);
+			depth++;
+		}
+	}
 
-			// Add foci. TODO Check.
-			depth = 0;
-			for (GoalBase module : goalBaseStack) {
-				GOALCE_FocusAtDepth focus = new GOALCE_FocusAtDepth(module,
-						depth);
-				index = this.universe.getIndex(focus);
-				if (index == -1) {
-					index = this.universe.addIfNotContains(focus);
-				}
-				q.set(index);
-
-				// Increment depth.
-				depth++;
+	/**
+	 * The bits of the goals of a goal base at some depth of the attention
+	 * stack, and of its focus at that depth.
+	 */
+	private class GoalBaseBits {
+		private final GoalBase goalBase;
+		private final long version;
+		private final BitSet bits = new BitSet();
+
+		GoalBaseBits(GoalBase goalBase, int depth) {
+			this.goalBase = goalBase;
+			this.version = goalBase.getVersion();
+			for (SingleGoal singleGoal : goalBase) {
+				this.bits.set(GOALMentalStateConverter.this.universe
+						.addIfNotContains(new GOALCE_GoalAtDepth(singleGoal
+								.getGoal(), depth)));
 			}
+			this.bits.set(GOALMentalStateConverter.this.universe
+					.addIfNotContains(new GOALCE_FocusAtDepth(goalBase, depth)));
+		}
 
-			// Return GOALState.
-			return q;
-		} catch (RuntimeException e) {
-			e.printStackTrace();
-			return null;
+		boolean isFor(GoalBase goalBase) {
+			return this.goalBase == goalBase
+					&& this.version == goalBase.getVersion();
 		}
 	}
 
@@ -230,25 +291,22 @@ public class GOALMentalStateConverter implements Serializable {
 
 		try {
 			/* Prepare number of goal bases */
-			Stack<GoalBase> attentionStack = this.mentalState
-					.getAttentionStack();
-			attentionStack.clear();
-			for (GoalBase goalBase : this.goalBases) {
-				attentionStack.push(goalBase);
-			}
+			this.mentalState.setAttentionStack(this.goalBases);
 
 			/* Get ms BitSet representation */
 			ArrayList<GoalBase> focuses = new ArrayList<GoalBase>(
 					this.universe.nFocusses());
 			BitSet msBitSet = translate();
-			int index = -1;
-			int maxIndex = Math.max(msBitSet.length(), q.length()) - 1;
-			while (index++ < maxIndex) {
-				/* Remove beliefs or goals */
-				if (msBitSet.get(index) && !q.get(index)) {
-					GOALConversionElement element = this.universe
-							.getAtIndex(index);
+			/* Only the bits that differ need to be changed */
+			BitSet changed = (BitSet) msBitSet.clone();
+			changed.xor(q);
+			for (int index = changed.nextSetBit(0); index >= 0; index = changed
+					.nextSetBit(index + 1)) {
+				GOALConversionElement element = this.universe
+						.getAtIndex(index);
 
+				/* Remove beliefs or goals */
+				if (msBitSet.get(index)) {
 					/* Belief */
 					if (element instanceof GOALCE_Belief) {
 						this.mentalState.delete(
@@ -259,16 +317,13 @@ public class GOALMentalStateConverter implements Serializable {
 					/* Goal */
 					if (element instanceof GOALCE_GoalAtDepth) {
 						GOALCE_GoalAtDepth goal = (GOALCE_GoalAtDepth) element;
-						attentionStack.get(goal.depth).remove(goal.goal,
+						this.goalBases.get(goal.depth).remove(goal.goal,
 								this.debugger);
 					}
 				}
 
 				/* Add beliefs or goals */
-				if (!msBitSet.get(index) && q.get(index)) {
-					GOALConversionElement element = this.universe
-							.getAtIndex(index);
-
+				else {
 					/* Belief */
 					if (element instanceof GOALCE_Belief) {
 						this.mentalState.getOwnBase(BASETYPE.BELIEFBASE)
@@ -279,25 +334,27 @@ public class GOALMentalStateConverter implements Serializable {
 					/* Goal */
 					if (element instanceof GOALCE_GoalAtDepth) {
 						GOALCE_GoalAtDepth goal = (GOALCE_GoalAtDepth) element;
-						attentionStack.get(goal.depth).insert(goal.goal,
+						this.goalBases.get(goal.depth).insert(goal.goal,
 								this.debugger);
 					}
 				}
+			}
 
-				/* Accumulate focus names */
-				if (q.get(index)) {
-					GOALConversionElement element = this.universe
-							.getAtIndex(index);
-					if (element instanceof GOALCE_FocusAtDepth) {
-						GOALCE_FocusAtDepth focus = (GOALCE_FocusAtDepth) element;
-						focuses.add(focus.depth, focus.focus);
-					}
+			/* Accumulate focus names */
+			for (int index = q.nextSetBit(0); index >= 0; index = q
+					.nextSetBit(index + 1)) {
+				GOALConversionElement element = this.universe
+						.getAtIndex(index);
+				if (element instanceof GOALCE_FocusAtDepth) {
+					GOALCE_FocusAtDepth focus = (GOALCE_FocusAtDepth) element;
+					focuses.add(focus.depth, focus.focus);
 				}
 			}
 
 			/* Remove redundant goals from attention stack */
-			while (focuses.size() + 1 < attentionStack.size()) {
-				attentionStack.pop();
+			if (focuses.size() + 1 < this.goalBases.size()) {
+				this.mentalState.setAttentionStack(this.goalBases.subList(0,
+						focuses.size() + 1));
 			}
 
 			/* Update focus names */
@@ -0,0 +1,233 @@
+package goal.tools.metrics;
+
+import goal.tools.metrics.Metrics.Counter;
+import goal.tools.metrics.Metrics.Timer;
+import goal.util.Histogram;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The counters and timers of a single agent; see {@link Metrics}. Counting
+ * does not take locks, so that the agent does not wait for the exporter (or
+ * for other threads that report on it, e.g. the environment port); timing
+ * only takes the lock of the timer.
+ * <p>
+ * When metrics are off, all agents share {@link #NONE}, on which counting and
+ * timing do nothing.
+ * </p>
+ */
+public class AgentMetrics {
+	/**
+	 * The metrics of agents when metrics are off.
+	 */
+	static final AgentMetrics NONE = new AgentMetrics(null);
+
+	private final String agent;
+	private final AtomicLongArray counters;
+	private final Timing[] timings;
+
+	/**
+	 * @param agent
+	 *            The name of the agent, or {@code null} for {@link #NONE} or
+	 *            a total.
+	 */
+	AgentMetrics(String agent) {
+		this.agent = agent;
+		this.counters = new AtomicLongArray(Counter.values().length);
+		this.timings = new Timing[Timer.values().length];
+		for (int i = 0; i < this.timings.length; i++) {
+			this.timings[i] = new Timing();
+		}
+	}
+
+	/**
+	 * @return The name of the agent, or {@code null} if these are the totals
+	 *         of several agents.
+	 */
+	public String getAgent() {
+		return this.agent;
+	}
+
+	/**
+	 * @return {@code false} if counting and timing do nothing.
+	 */
+	public boolean isEnabled() {
+		return this != NONE;
+	}
+
+	/**
+	 * Adds one to a counter.
+	 *
+	 * @param counter
+	 *            The counter.
+	 */
+	public void count(Counter counter) {
+		count(counter, 1);
+	}
+
+	/**
+	 * Adds to a counter.
+	 *
+	 * @param counter
+	 *            The counter.
+	 * @param n
+	 *            The number to add.
+	 */
+	public void count(Counter counter, long n) {
+		if (this != NONE && n != 0) {
+			this.counters.addAndGet(counter.ordinal(), n);
+		}
+	}
+
+	/**
+	 * Registers the start of something that is timed.
+	 *
+	 * @return The start time to pass to {@link #stop(Timer, long)}, or 0 if
+	 *         metrics are off.
+	 */
+	public long start() {
+		if (this == NONE) {
+			return 0;
+		}
+		long start = System.nanoTime();
+		// 0 means not timed.
+		return (start == 0) ? 1 : start;
+	}
+
+	/**
+	 * Registers the end of something that is timed.
+	 *
+	 * @param timer
+	 *            The timer to add the time to.
+	 * @param start
+	 *            The value returned by {@link #start()}.
+	 */
+	public void stop(Timer timer, long start) {
+		if (start != 0) {
+			time(timer, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Adds a time to a timer.
+	 *
+	 * @param timer
+	 *            The timer.
+	 * @param nanos
+	 *            The time in nanoseconds.
+	 */
+	public void time(Timer timer, long nanos) {
+		if (this != NONE) {
+			this.timings[timer.ordinal()].add(nanos);
+		}
+	}
+
+	/**
+	 * @param counter
+	 *            A counter.
+	 * @return The current value of the counter.
+	 */
+	public long getCount(Counter counter) {
+		return this.counters.get(counter.ordinal());
+	}
+
+	/**
+	 * @param timer
+	 *            A timer.
+	 * @return The times added to the timer.
+	 */
+	public Timing getTiming(Timer timer) {
+		return this.timings[timer.ordinal()];
+	}
+
+	/**
+	 * Adds the counters and timers of an agent to these.
+	 *
+	 * @param other
+	 *            The metrics of the agent.
+	 */
+	void add(AgentMetrics other) {
+		for (Counter counter : Counter.values()) {
+			this.counters.addAndGet(counter.ordinal(),
+					other.getCount(counter));
+		}
+		for (Timer timer : Timer.values()) {
+			getTiming(timer).add(other.getTiming(timer));
+		}
+	}
+
+	/**
+	 * The number, total and distribution of the times added to a timer. The
+	 * distribution is kept in a {@link Histogram}, so percentiles are
+	 * estimated within 1% of the actual time. A timer is only shared by the
+	 * agent, the threads that report on it and the exporter, so its lock is
+	 * hardly ever contended.
+	 */
+	public static class Timing {
+		private final Histogram histogram = new Histogram();
+		private long total = 0;
+		private long max = 0;
+
+		synchronized void add(long nanos) {
+			long time = Math.max(0, nanos);
+			this.histogram.add(time);
+			this.total += time;
+			this.max = Math.max(this.max, time);
+		}
+
+		void add(Timing other) {
+			// Copy the other timer first, so that only one lock is held at a
+			// time.
+			Histogram histogram = new Histogram();
+			long total;
+			long max;
+			synchronized (other) {
+				histogram.merge(other.histogram);
+				total = other.total;
+				max = other.max;
+			}
+			synchronized (this) {
+				this.histogram.merge(histogram);
+				this.total += total;
+				this.max = Math.max(this.max, max);
+			}
+		}
+
+		/**
+		 * @return The number of times added.
+		 */
+		public synchronized long getCount() {
+			return this.histogram.getCount();
+		}
+
+		/**
+		 * @return The sum of the times added, in nanoseconds.
+		 */
+		public synchronized long getTotal() {
+			return this.total;
+		}
+
+		/**
+		 * @return The longest time added, in nanoseconds.
+		 */
+		public synchronized long getMax() {
+			return this.max;
+		}
+
+		/**
+		 * Estimates a percentile of the times added.
+		 *
+		 * @param percentile
+		 *            The percentile, between 0 and 100.
+		 * @return An estimate in nanoseconds of the time that is not exceeded
+		 *         by the given percentage of the times, or 0 if no times have
+		 *         been added.
+		 */
+		public synchronized long getPercentile(double percentile) {
+			if (this.histogram.getCount() == 0) {
+				return 0;
+			}
+			return Math.round(this.histogram.getPercentile(percentile));
+		}
+	}
+}
@@ -0,0 +1,246 @@
+package goal.tools.metrics;
+
+import goal.preferences.PMPreferences;
+import goal.tools.metrics.AgentMetrics.Timing;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the runtime metrics of the agents in this JVM: how many cycles
+ * they ran, how long the cycles took, how many queries they performed, how
+ * many percepts and messages they handled, and how long the environment took
+ * to handle their requests.
+ * <p>
+ * Metrics are off unless {@link PMPreferences#getMetrics()} is set; agents
+ * then get metrics on which counting and timing do nothing. When on, the
+ * metrics of all agents and their totals can be written in the Prometheus
+ * text format (see {@link #write(Appendable)}), and are exported to the file
+ * {@link PMPreferences#getMetricsFile()} and/or on the loopback HTTP port
+ * {@link PMPreferences#getMetricsPort()}; see {@link MetricsExporter}.
+ * Counters and timers are never reset, so the metrics of agents that are
+ * restarted with the same name continue where they were. The metrics of an
+ * agent are removed when the agent is disposed, so that an agent of a later
+ * run with the same name starts with new metrics; they are added to the
+ * totals first, so the totals still include the agents that finished.
+ * </p>
+ */
+public final class Metrics {
+	/**
+	 * The counters of an agent.
+	 */
+	public enum Counter {
+		/**
+		 * Reasoning cycles started.
+		 */
+		CYCLES,
+		/**
+		 * Queries of mental literals performed while evaluating mental state
+		 * conditions.
+		 */
+		QUERIES,
+		/**
+		 * Modules entered.
+		 */
+		MODULES,
+		/**
+		 * Percepts added or removed.
+		 */
+		PERCEPTS,
+		/**
+		 * Messages received.
+		 */
+		MESSAGES_RECEIVED,
+		/**
+		 * Messages sent, counted once for every receiver.
+		 */
+		MESSAGES_SENT,
+		/**
+		 * Actions sent to the environment.
+		 */
+		ACTIONS;
+	}
+
+	/**
+	 * The timers of an agent.
+	 */
+	public enum Timer {
+		/**
+		 * The time from the start of a reasoning cycle to the start of the
+		 * next, not counting the time the agent was asleep.
+		 */
+		CYCLE,
+		/**
+		 * The time the environment took to handle a request, e.g. for
+		 * performing an action or getting percepts.
+		 */
+		ENVIRONMENT;
+	}
+
+	private static final ConcurrentMap<String, AgentMetrics> agents = new ConcurrentHashMap<>();
+	/**
+	 * The totals of the metrics of the agents that have been removed.
+	 */
+	private static final AgentMetrics removed = new AgentMetrics(null);
+	private static MetricsExporter exporter = null;
+
+	/**
+	 * Returns the metrics of an agent.
+	 *
+	 * @param agent
+	 *            The name of the agent.
+	 * @return The metrics of the agent, or metrics that do nothing if metrics
+	 *         are off or the agent is {@code null}.
+	 */
+	public static AgentMetrics forAgent(String agent) {
+		if (agent == null || !PMPreferences.getMetrics()) {
+			return AgentMetrics.NONE;
+		}
+		AgentMetrics metrics = agents.get(agent);
+		if (metrics == null) {
+			AgentMetrics created = new AgentMetrics(agent);
+			metrics = agents.putIfAbsent(agent, created);
+			if (metrics == null) {
+				metrics = created;
+				startExport();
+			}
+		}
+		return metrics;
+	}
+
+	/**
+	 * Removes the metrics of an agent, e.g. when the agent is disposed. The
+	 * metrics are added to the totals, but are no longer exported for the
+	 * agent itself; what is counted on metrics that were obtained before is
+	 * lost.
+	 *
+	 * @param agent
+	 *            The name of the agent.
+	 */
+	public static synchronized void remove(String agent) {
+		if (agent != null) {
+			AgentMetrics metrics = agents.remove(agent);
+			if (metrics != null) {
+				removed.add(metrics);
+			}
+		}
+	}
+
+	/**
+	 * @return The metrics of all agents, ordered by name.
+	 */
+	public static List<AgentMetrics> getAgents() {
+		List<AgentMetrics> list = new ArrayList<>(agents.values());
+		Collections.sort(list, new Comparator<AgentMetrics>() {
+			@Override
+			public int compare(AgentMetrics o1, AgentMetrics o2) {
+				return o1.getAgent().compareTo(o2.getAgent());
+			}
+		});
+		return list;
+	}
+
+	/**
+	 * @return The totals of the metrics of all agents, including the agents
+	 *         that have been removed.
+	 */
+	public static synchronized AgentMetrics getTotal() {
+		AgentMetrics total = new AgentMetrics(null);
+		total.add(removed);
+		for (AgentMetrics metrics : agents.values()) {
+			total.add(metrics);
+		}
+		return total;
+	}
+
+	/**
+	 * Writes the metrics of all agents and their totals in the Prometheus text
+	 * format. Counters are named goal_&lt;counter&gt;_total; timers are
+	 * summaries named goal_&lt;timer&gt;_seconds, with the median, 90th and
+	 * 99th percentile. Metrics of an agent have an agent label.
+	 *
+	 * @param out
+	 *            Where to write the metrics to.
+	 * @throws IOException
+	 *             If the metrics could not be written.
+	 */
+	public static void write(Appendable out) throws IOException {
+		List<AgentMetrics> all = new ArrayList<>();
+		all.add(getTotal());
+		all.addAll(getAgents());
+		for (Counter counter : Counter.values()) {
+			String name = "goal_" + counter.name().toLowerCase(Locale.ROOT) //$NON-NLS-1$
+					+ "_total"; //$NON-NLS-1$
+			out.append("# TYPE ").append(name).append(" counter\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			for (AgentMetrics metrics : all) {
+				line(out, name, metrics, null,
+						Long.toString(metrics.getCount(counter)));
+			}
+		}
+		for (Timer timer : Timer.values()) {
+			String name = "goal_" + timer.name().toLowerCase(Locale.ROOT) //$NON-NLS-1$
+					+ "_seconds"; //$NON-NLS-1$
+			out.append("# TYPE ").append(name).append(" summary\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			for (AgentMetrics metrics : all) {
+				Timing timing = metrics.getTiming(timer);
+				for (String quantile : new String[] { "0.5", "0.9", "0.99" }) { //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					line(out, name, metrics, quantile, seconds(timing
+							.getPercentile(100 * Double.parseDouble(quantile))));
+				}
+				line(out, name + "_sum", metrics, null, //$NON-NLS-1$
+						seconds(timing.getTotal()));
+				line(out, name + "_count", metrics, null, //$NON-NLS-1$
+						Long.toString(timing.getCount()));
+			}
+		}
+	}
+
+	private static void line(Appendable out, String name,
+			AgentMetrics metrics, String quantile, String value)
+			throws IOException {
+		out.append(name);
+		if (metrics.getAgent() != null || quantile != null) {
+			out.append('{');
+			if (metrics.getAgent() != null) {
+				out.append("agent=\"") //$NON-NLS-1$
+						.append(metrics.getAgent().replace("\\", "\\\\") //$NON-NLS-1$ //$NON-NLS-2$
+								.replace("\"", "\\\"")).append('"'); //$NON-NLS-1$ //$NON-NLS-2$
+				if (quantile != null) {
+					out.append(',');
+				}
+			}
+			if (quantile != null) {
+				out.append("quantile=\"").append(quantile).append('"'); //$NON-NLS-1$
+			}
+			out.append('}');
+		}
+		out.append(' ').append(value).append('\n');
+	}
+
+	private static String seconds(long nanos) {
+		return Double.toString(nanos / 1e9);
+	}
+
+	/**
+	 * Starts exporting the metrics, if that has not been done yet.
+	 */
+	private static synchronized void startExport() {
+		if (exporter == null) {
+			exporter = new MetricsExporter(PMPreferences.getMetricsFile(),
+					PMPreferences.getMetricsPort());
+			exporter.start();
+		}
+	}
+
+	/**
+	 * Hide constructor.
+	 */
+	private Metrics() {
+	}
+}
@@ -0,0 +1,155 @@
+package goal.tools.metrics;
+
+import goal.tools.errorhandling.Warning;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Exports the {@link Metrics} to a file and/or on a HTTP port.
+ * <p>
+ * The file is rewritten every {@link #INTERVAL} seconds and when the JVM
+ * shuts down; it is written next to the file and then moved, so readers never
+ * see a partial file. The HTTP server only listens on the loopback address,
+ * and serves the metrics at /metrics.
+ * </p>
+ */
+class MetricsExporter {
+	/**
+	 * The number of seconds between writes of the file.
+	 */
+	static final int INTERVAL = 10;
+
+	private final File file;
+	private final int port;
+	private ScheduledExecutorService writer = null;
+	private HttpServer server = null;
+
+	/**
+	 * @param file
+	 *            The file to write the metrics to, or an empty string to not
+	 *            write a file.
+	 * @param port
+	 *            The port to serve the metrics on, or 0 to not serve them.
+	 */
+	MetricsExporter(String file, int port) {
+		this.file = file.isEmpty() ? null : new File(file);
+		this.port = port;
+	}
+
+	/**
+	 * Starts writing the file and serving the metrics.
+	 */
+	void start() {
+		if (this.file != null) {
+			this.writer = Executors
+					.newSingleThreadScheduledExecutor(new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread thread = new Thread(r, "Metrics writer"); //$NON-NLS-1$
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+			this.writer.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					writeFile();
+				}
+			}, INTERVAL, INTERVAL, TimeUnit.SECONDS);
+		}
+		if (this.port > 0) {
+			try {
+				this.server = HttpServer.create(new InetSocketAddress(
+						InetAddress.getLoopbackAddress(), this.port), 0);
+				this.server.createContext("/metrics", new HttpHandler() { //$NON-NLS-1$
+							@Override
+							public void handle(HttpExchange exchange)
+									throws IOException {
+								serve(exchange);
+							}
+						});
+				// The server threads inherit this, and should not keep the
+				// JVM alive.
+				Thread starter = new Thread("Metrics server") { //$NON-NLS-1$
+					@Override
+					public void run() {
+						MetricsExporter.this.server.start();
+					}
+				};
+				starter.setDaemon(true);
+				starter.start();
+				starter.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (IOException e) {
+				new Warning("could not serve metrics on port " + this.port, e); //$NON-NLS-1$
+				this.server = null;
+			}
+		}
+		Runtime.getRuntime().addShutdownHook(
+				new Thread("Exporting metrics") { //$NON-NLS-1$
+					@Override
+					public void run() {
+						MetricsExporter.this.stop();
+					}
+				});
+	}
+
+	/**
+	 * Writes the file a last time and stops serving the metrics.
+	 */
+	void stop() {
+		if (this.writer != null) {
+			this.writer.shutdownNow();
+			writeFile();
+		}
+		if (this.server != null) {
+			this.server.stop(0);
+		}
+	}
+
+	private synchronized void writeFile() {
+		File temp = new File(this.file.getPath() + ".tmp"); //$NON-NLS-1$
+		try {
+			try (Writer out = new OutputStreamWriter(new FileOutputStream(
+					temp), StandardCharsets.UTF_8)) {
+				Metrics.write(out);
+			}
+			Files.move(temp.toPath(), this.file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			new Warning("could not write metrics to " + this.file, e); //$NON-NLS-1$
+		}
+	}
+
+	private static void serve(HttpExchange exchange) throws IOException {
+		StringBuilder metrics = new StringBuilder();
+		Metrics.write(metrics);
+		byte[] body = metrics.toString().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", //$NON-NLS-1$
+				"text/plain; version=0.0.4; charset=utf-8"); //$NON-NLS-1$
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package goal.tools.unittest.testcondition.executors;
+
+import goal.core.mentalstate.MentalState;
+import goal.core.runtime.service.agent.RunState;
+import goal.tools.debugger.Debugger;
+import goal.tools.debugger.NOPDebugger;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import krTools.language.Substitution;
+import languageTools.program.agent.actions.UserSpecAction;
+import languageTools.program.test.TestMentalStateCondition;
+
+/**
+ * Keeps the results of the queries of the test conditions of a test section,
+ * so that a query is only evaluated again when something it depends on has
+ * changed, and test conditions with the same query (and substitution) share
+ * its result.
+ * <p>
+ * The result of a query depends on the mental state of the agent (its
+ * beliefs, goals, percepts, mails and the models of other agents), on the
+ * last action the agent performed, and (like the query cache of a
+ * {@link goal.core.mentalstate.MentalModel}) on the reasoning cycle. The
+ * results are forgotten when the version of the mental state (see
+ * {@link MentalState#getVersion()}), the last action, or the cycle changes;
+ * e.g. after a module entry or exit that did not change anything, all
+ * conditions reuse the results of the previous evaluation.
+ * </p>
+ */
+public class EvaluationCache {
+	/**
+	 * Used to evaluate queries; a {@link NOPDebugger} avoids endless recursion
+	 * on the observer of the test.
+	 */
+	private final Debugger debugger = new NOPDebugger(getClass()
+			.getSimpleName());
+	private final Map<List<Object>, Set<Substitution>> results = new HashMap<>();
+	/*
+	 * What the results in the cache were computed for.
+	 */
+	private long version = -1;
+	private UserSpecAction action = null;
+	private int round = -1;
+
+	/**
+	 * @return The debugger to evaluate queries with.
+	 */
+	public Debugger getDebugger() {
+		return this.debugger;
+	}
+
+	/**
+	 * Returns the cached result of a query, after forgetting all results if
+	 * the agent's state changed since they were computed.
+	 *
+	 * @param runstate
+	 *            The run state of the agent.
+	 * @param query
+	 *            The query.
+	 * @param substitution
+	 *            The substitution the query is evaluated with.
+	 * @return The result of the query, or {@code null} if it is not known for
+	 *         the current state.
+	 */
+	public Set<Substitution> get(RunState<? extends Debugger> runstate,
+			TestMentalStateCondition query, Substitution substitution) {
+		return get(runstate.getMentalState().getVersion(),
+				runstate.getLastAction(), runstate.getRoundCounter(), query,
+				substitution);
+	}
+
+	/**
+	 * Returns the cached result of a query, after forgetting all results if
+	 * the given state differs from the one they were computed for.
+	 *
+	 * @param version
+	 *            The version of the mental state of the agent.
+	 * @param action
+	 *            The last action the agent performed.
+	 * @param round
+	 *            The reasoning cycle of the agent.
+	 * @param query
+	 *            The query.
+	 * @param substitution
+	 *            The substitution the query is evaluated with.
+	 * @return The result of the query, or {@code null} if it is not known for
+	 *         the given state.
+	 */
+	Set<Substitution> get(long version, UserSpecAction action, int round,
+			TestMentalStateCondition query, Substitution substitution) {
+		if (version != this.version || action != this.action
+				|| round != this.round) {
+			this.results.clear();
+			this.version = version;
+			this.action = action;
+			this.round = round;
+			return null;
+		}
+		return this.results.get(key(query, substitution));
+	}
+
+	/**
+	 * Caches the result of a query, which should have been evaluated right
+	 * after {@link #get(RunState, TestMentalStateCondition, Substitution)}
+	 * returned {@code null} for it.
+	 *
+	 * @param query
+	 *            The query.
+	 * @param substitution
+	 *            The substitution the query was evaluated with.
+	 * @param result
+	 *            The result of the query.
+	 * @return The cached result, which cannot be modified.
+	 */
+	public Set<Substitution> put(TestMentalStateCondition query,
+			Substitution substitution, Set<Substitution> result) {
+		Set<Substitution> cached = Collections.unmodifiableSet(result);
+		this.results.put(key(query, substitution), cached);
+		return cached;
+	}
+
+	private static List<Object> key(TestMentalStateCondition query,
+			Substitution substitution) {
+		return Arrays.<Object> asList(query, substitution);
+	}
+}
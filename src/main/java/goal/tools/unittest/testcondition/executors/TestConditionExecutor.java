@@ -5,7 +5,6 @@ import goal.core.runtime.service.agent.RunState;
 import goal.tools.debugger.Channel;
 import goal.tools.debugger.DebugEvent;
 import goal.tools.debugger.Debugger;
-import goal.tools.debugger.NOPDebugger;
 import goal.tools.errorhandling.exceptions.GOALDatabaseException;
 import goal.tools.unittest.result.ResultFormatter;
 import goal.tools.unittest.testsection.executors.EvaluateInExecutor;
@@ -125,7 +124,10 @@ public abstract class TestConditionExecutor {
 	abstract public TestCondition getCondition();
 
 	/**
-	 * Evaluates a mental state query on the agent's {@link RunState}.
+	 * Evaluates a mental state query on the agent's {@link RunState}. The
+	 * result is shared with the other conditions of the test section that
+	 * have the same query, and is only evaluated again when the agent's state
+	 * has changed; see {@link EvaluationCache}. It should not be modified.
 	 *
 	 * @param runstate
 	 *            of the agent.
@@ -136,9 +138,19 @@ public abstract class TestConditionExecutor {
 	 * @return result of evaluating the mental state query.
 	 */
 	protected Set<Substitution> evaluate() {
-		// Using a NOPDebugger here to avoid endless recursion on observer
-		Debugger debugger = new NOPDebugger(getClass().getSimpleName());
+		EvaluationCache cache = this.parent.getEvaluationCache();
 		TestMentalStateCondition testquery = getCondition().getQuery();
+		Set<Substitution> result = cache.get(this.runstate, testquery,
+				this.substitution);
+		if (result == null) {
+			result = cache.put(testquery, this.substitution,
+					evaluate(testquery, cache.getDebugger()));
+		}
+		return result;
+	}
+
+	private Set<Substitution> evaluate(TestMentalStateCondition testquery,
+			Debugger debugger) {
 
 		Substitution temp = this.substitution.clone();
 		UserSpecAction prev = this.runstate.getLastAction();
@@ -16,6 +16,7 @@ import goal.tools.unittest.result.testsection.EvaluateInInterrupted;
 import goal.tools.unittest.result.testsection.EvaluateInResult;
 import goal.tools.unittest.result.testsection.TestSectionFailed;
 import goal.tools.unittest.result.testsection.TestSectionResult;
+import goal.tools.unittest.testcondition.executors.EvaluationCache;
 import goal.tools.unittest.testcondition.executors.TestConditionExecutor;
 
 import java.util.HashSet;
@@ -29,6 +30,7 @@ public class EvaluateInExecutor extends TestSectionExecutor implements
 		DebugObserver {
 	private final EvaluateIn evaluatein;
 	private Set<TestConditionExecutor> executors;
+	private EvaluationCache evaluations;
 
 	public EvaluateInExecutor(EvaluateIn evaluatein) {
 		this.evaluatein = evaluatein;
@@ -47,6 +49,14 @@ public class EvaluateInExecutor extends TestSectionExecutor implements
 		this.executors.remove(executor);
 	}
 
+	/**
+	 * @return The results of the queries of the conditions of this section;
+	 *         shared by the conditions.
+	 */
+	public EvaluationCache getEvaluationCache() {
+		return this.evaluations;
+	}
+
 	public TestConditionExecutor[] getExecutors() {
 		return this.executors.toArray(new TestConditionExecutor[this.executors
 				.size()]);
@@ -81,6 +91,7 @@ public class EvaluateInExecutor extends TestSectionExecutor implements
 		debugger.subscribe(this, Channel.USER_MODULE_EXIT);
 
 		this.executors = new HashSet<>();
+		this.evaluations = new EvaluationCache();
 		if (boundary != null) {
 			this.executors.add(TestConditionExecutor.getTestConditionExecutor(
 					boundary, kr.getSubstitution(null), runstate, this));
@@ -0,0 +1,192 @@
+package goal.util;
+
+import java.util.Arrays;
+
+/**
+ * Counts values in buckets whose width grows with the magnitude of the values,
+ * so that percentiles can be estimated with a bounded relative error from a
+ * bounded amount of memory, whatever the number of values recorded.
+ * <p>
+ * Every power of two is divided into 2^{@link #PRECISION} buckets of equal
+ * width; the bucket of a value is found directly from the bits of its double
+ * representation. Estimated percentiles are within 1% of the actual value.
+ * Memory is only used for the buckets between the smallest and the largest
+ * value recorded, e.g. about 20KB for values between 1 microsecond and 1
+ * second in nanoseconds.
+ * </p>
+ * <p>
+ * Histograms can be merged, e.g. to combine the histograms kept by several
+ * threads. Not thread safe.
+ * </p>
+ */
+public class Histogram {
+	/**
+	 * The number of bits of the mantissa that determine the bucket of a value.
+	 */
+	public static final int PRECISION = 7;
+	private static final int SHIFT = 52 - PRECISION;
+	/**
+	 * Magnitudes below this are counted as zero, and magnitudes above
+	 * {@link #LARGEST} in the bucket of {@link #LARGEST}; this bounds the
+	 * memory used.
+	 */
+	private static final double SMALLEST = Math.scalb(1.0, -32);
+	private static final double LARGEST = Math.scalb(1.0, 64);
+
+	/**
+	 * The buckets of the positive values and of the magnitudes of the
+	 * negative values.
+	 */
+	private final Buckets positive = new Buckets();
+	private final Buckets negative = new Buckets();
+	private long zeros = 0;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Records a value. NaN is ignored.
+	 *
+	 * @param value
+	 *            The value to record.
+	 */
+	public void add(double value) {
+		if (Double.isNaN(value)) {
+			return;
+		}
+		double magnitude = Math.abs(value);
+		if (magnitude < SMALLEST) {
+			this.zeros++;
+		} else if (value > 0) {
+			this.positive.add(bucket(magnitude), 1);
+		} else {
+			this.negative.add(bucket(magnitude), 1);
+		}
+		this.min = Math.min(this.min, value);
+		this.max = Math.max(this.max, value);
+	}
+
+	/**
+	 * Adds the values recorded by another histogram to this one.
+	 *
+	 * @param other
+	 *            The histogram to merge into this one.
+	 */
+	public void merge(Histogram other) {
+		this.positive.merge(other.positive);
+		this.negative.merge(other.negative);
+		this.zeros += other.zeros;
+		this.min = Math.min(this.min, other.min);
+		this.max = Math.max(this.max, other.max);
+	}
+
+	/**
+	 * @return The number of values recorded.
+	 */
+	public long getCount() {
+		return this.negative.count + this.zeros + this.positive.count;
+	}
+
+	/**
+	 * Estimates a percentile of the values recorded.
+	 *
+	 * @param percentile
+	 *            The percentile, between 0 and 100; e.g. 50 for the median and
+	 *            99.9 for the value that 999 out of 1000 values do not exceed.
+	 * @return An estimate of the smallest value that is not exceeded by the
+	 *         given percentage of the values recorded.
+	 * @throws ArithmeticException
+	 *             when no values have been recorded.
+	 */
+	public double getPercentile(double percentile) {
+		long count = getCount();
+		if (count == 0) {
+			throw new ArithmeticException("Histogram is empty.");
+		}
+		long rank = Math.max(1, (long) Math.ceil(Math.max(0,
+				Math.min(100, percentile))
+				/ 100 * count));
+		double value;
+		if (rank <= this.negative.count) {
+			// The negative values in increasing order are the magnitudes in
+			// decreasing order.
+			value = -this.negative.get(this.negative.count - rank + 1);
+		} else if (rank <= this.negative.count + this.zeros) {
+			value = 0;
+		} else {
+			value = this.positive.get(rank - this.negative.count - this.zeros);
+		}
+		return Math.max(this.min, Math.min(this.max, value));
+	}
+
+	/**
+	 * @return The bucket of a positive value; buckets are ordered like their
+	 *         values.
+	 */
+	private static int bucket(double value) {
+		return (int) (Double.doubleToLongBits(Math.min(value, LARGEST)) >>> SHIFT);
+	}
+
+	/**
+	 * @return The value in the middle of a bucket.
+	 */
+	private static double middle(int bucket) {
+		double lower = Double.longBitsToDouble((long) bucket << SHIFT);
+		double upper = Double.longBitsToDouble((long) (bucket + 1) << SHIFT);
+		return lower + (upper - lower) / 2;
+	}
+
+	/**
+	 * The counts of the buckets between the smallest and the largest bucket
+	 * used.
+	 */
+	private static class Buckets {
+		private long[] counts = new long[0];
+		/**
+		 * The bucket counted by counts[0].
+		 */
+		private int offset = 0;
+		private long count = 0;
+
+		void add(int bucket, long n) {
+			if (this.counts.length == 0) {
+				this.counts = new long[1];
+				this.offset = bucket;
+			} else if (bucket < this.offset) {
+				long[] counts = new long[this.counts.length + this.offset
+						- bucket];
+				System.arraycopy(this.counts, 0, counts, this.offset - bucket,
+						this.counts.length);
+				this.counts = counts;
+				this.offset = bucket;
+			} else if (bucket >= this.offset + this.counts.length) {
+				this.counts = Arrays.copyOf(this.counts, bucket - this.offset
+						+ 1);
+			}
+			this.counts[bucket - this.offset] += n;
+			this.count += n;
+		}
+
+		void merge(Buckets other) {
+			for (int i = 0; i < other.counts.length; i++) {
+				if (other.counts[i] != 0) {
+					add(other.offset + i, other.counts[i]);
+				}
+			}
+		}
+
+		/**
+		 * @return An estimate of the value with the given rank, from 1 to
+		 *         {@link #count}.
+		 */
+		double get(long rank) {
+			long seen = 0;
+			for (int i = 0; i < this.counts.length; i++) {
+				seen += this.counts[i];
+				if (seen >= rank) {
+					return middle(this.offset + i);
+				}
+			}
+			return middle(this.offset + this.counts.length - 1);
+		}
+	}
+}
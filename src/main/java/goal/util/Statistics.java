@@ -18,21 +18,32 @@
 
 package goal.util;
 
-import java.util.LinkedList;
 import java.util.List;
 
 /**
  * Implements simple statistic functionality.
+ * <p>
+ * The data is not kept; every value added updates the count, sum, mean,
+ * variance, minimum and maximum in constant time, and is recorded in a
+ * {@link Histogram} from which percentiles are estimated. The memory used is
+ * therefore bounded, however many values are added. Not thread safe.
+ * </p>
  *
  * @author W.Pasman 11aug2010
  * @modified Koen dd110404 Statistics class no longer dependent on
  *           CodeAnalysisOverview class.
  */
 public class Statistics {
+	private long count = 0;
+	private double sum = 0;
+	private double mean = 0;
 	/**
-	 * For convenience, an array list is used instead of a set.
+	 * The sum of the squared differences of the values from {@link #mean}.
 	 */
-	private final List<Double> dataSet = new LinkedList<>();
+	private double squares = 0;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+	private final Histogram histogram = new Histogram();
 
 	/**
 	 * DOC
@@ -49,16 +60,19 @@ public class Statistics {
 	 *             When given data is null.
 	 */
 	public Statistics(List<Double> dataSet) {
-		this.dataSet.addAll(dataSet);
+		for (Double d : dataSet) {
+			add(d);
+		}
 	}
 
 	/**
-	 * Returns the data set used for this statistics.
+	 * Adds a new data entry to the data set.
 	 *
-	 * @return ArrayList<Double> of data elements.
+	 * @param d
+	 *            The new data element.
 	 */
-	public List<Double> getData() {
-		return this.dataSet;
+	public void add(Double d) {
+		add(d.doubleValue());
 	}
 
 	/**
@@ -67,19 +81,39 @@ public class Statistics {
 	 * @param d
 	 *            The new data element.
 	 */
-	public void add(Double d) {
-		this.dataSet.add(d);
+	public void add(double d) {
+		this.count++;
+		this.sum += d;
+		// Welford's method, which is numerically stable.
+		double delta = d - this.mean;
+		this.mean += delta / this.count;
+		this.squares += delta * (d - this.mean);
+		this.min = Math.min(this.min, d);
+		this.max = Math.max(this.max, d);
+		this.histogram.add(d);
 	}
 
 	/**
-	 * merge this statistics with other statistics. Effectively this means just
-	 * addAll with the data from the other statistics.
+	 * merge this statistics with other statistics. The result is the same as
+	 * if all data added to the other statistics had been added to this one.
 	 *
 	 * @param statistics
 	 *            The statistics that is to be merged.
 	 */
 	public void merge(Statistics statistics) {
-		this.dataSet.addAll(statistics.getData());
+		if (statistics.count == 0) {
+			return;
+		}
+		long count = this.count + statistics.count;
+		double delta = statistics.mean - this.mean;
+		this.squares += statistics.squares + delta * delta * this.count
+				* statistics.count / count;
+		this.mean += delta * statistics.count / count;
+		this.count = count;
+		this.sum += statistics.sum;
+		this.min = Math.min(this.min, statistics.min);
+		this.max = Math.max(this.max, statistics.max);
+		this.histogram.merge(statistics.histogram);
 	}
 
 	/**
@@ -88,7 +122,7 @@ public class Statistics {
 	 * @return true if empty, else false.
 	 */
 	public boolean isEmpty() {
-		return this.dataSet.isEmpty();
+		return this.count == 0;
 	}
 
 	/**
@@ -97,7 +131,17 @@ public class Statistics {
 	 * @return The number of items in the data set.
 	 */
 	public int getSize() {
-		return this.dataSet.size();
+		return (int) Math.min(Integer.MAX_VALUE, this.count);
+	}
+
+	/**
+	 * Returns the size of the data set, which unlike {@link #getSize()} is not
+	 * limited to {@link Integer#MAX_VALUE}.
+	 *
+	 * @return The number of items in the data set.
+	 */
+	public long getCount() {
+		return this.count;
 	}
 
 	/**
@@ -112,7 +156,34 @@ public class Statistics {
 		if (isEmpty()) {
 			throw new ArithmeticException("data array is empty");
 		}
-		return getSum() / getSize();
+		return this.mean;
+	}
+
+	/**
+	 * Returns the (population) variance of the data elements.
+	 *
+	 * @return The variance of the data elements.
+	 *
+	 * @throws ArithmeticException
+	 *             if there are 0 numbers in the data set.
+	 */
+	public double getVariance() {
+		if (isEmpty()) {
+			throw new ArithmeticException("data array is empty");
+		}
+		return this.squares / this.count;
+	}
+
+	/**
+	 * Returns the (population) standard deviation of the data elements.
+	 *
+	 * @return The standard deviation of the data elements.
+	 *
+	 * @throws ArithmeticException
+	 *             if there are 0 numbers in the data set.
+	 */
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
 	}
 
 	/**
@@ -121,11 +192,7 @@ public class Statistics {
 	 * @return The sum of the data elements, 0 if there is no data.
 	 */
 	public Double getSum() {
-		Double sum = 0.0;
-		for (Double d : this.dataSet) {
-			sum = sum + d;
-		}
-		return sum;
+		return this.sum;
 	}
 
 	/**
@@ -139,13 +206,7 @@ public class Statistics {
 		if (isEmpty()) {
 			throw new ArithmeticException("Data set is empty.");
 		}
-		Double minValue = this.dataSet.get(0);
-		for (Double d : this.dataSet) {
-			if (d < minValue) {
-				minValue = d;
-			}
-		}
-		return minValue;
+		return this.min;
 	}
 
 	/**
@@ -160,13 +221,28 @@ public class Statistics {
 		if (isEmpty()) {
 			throw new ArithmeticException("Data set is empty.");
 		}
-		Double maxValue = this.dataSet.get(0);
-		for (Double d : this.dataSet) {
-			if (d > maxValue) {
-				maxValue = d;
-			}
-		}
-		return maxValue;
+		return this.max;
+	}
+
+	/**
+	 * Estimates a percentile of the data elements; see
+	 * {@link Histogram#getPercentile(double)}.
+	 *
+	 * @param percentile
+	 *            The percentile, between 0 and 100; e.g. 99 for the p99.
+	 * @return An estimate of the percentile.
+	 * @throws ArithmeticException
+	 *             when data set is empty
+	 */
+	public double getPercentile(double percentile) {
+		return this.histogram.getPercentile(percentile);
+	}
+
+	/**
+	 * @return The histogram of the data elements.
+	 */
+	public Histogram getHistogram() {
+		return this.histogram;
 	}
 
 	/**
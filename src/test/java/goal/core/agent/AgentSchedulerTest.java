@@ -0,0 +1,140 @@
+package goal.core.agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import goal.preferences.PMPreferences;
+import goal.tools.PlatformManager;
+import goal.tools.adapt.FileLearner;
+import goal.tools.debugger.NOPDebugger;
+import goal.tools.logging.Loggers;
+import goalhub.krTools.KRFactory;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import languageTools.program.agent.AgentId;
+import languageTools.program.agent.AgentProgram;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests the executors of the {@link AgentScheduler}s, and that an agent run
+ * on each of them terminates and completes its termination future.
+ */
+public class AgentSchedulerTest {
+	private AgentScheduler scheduler;
+
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		Loggers.addConsoleLogger();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() {
+		Loggers.removeConsoleLogger();
+	}
+
+	@Before
+	public void setUp() {
+		this.scheduler = PMPreferences.getAgentScheduler();
+	}
+
+	@After
+	public void tearDown() {
+		PMPreferences.setAgentScheduler(this.scheduler);
+	}
+
+	@Test
+	public void testSharedExecutors() {
+		for (AgentScheduler shared : new AgentScheduler[] {
+				AgentScheduler.FIXED, AgentScheduler.WORKSTEALING }) {
+			assertFalse(shared.isDedicated());
+			assertSame(shared.getExecutor("a"), shared.getExecutor("b"));
+		}
+	}
+
+	@Test
+	public void testDedicatedExecutor() throws Exception {
+		assertTrue(AgentScheduler.DEDICATED.isDedicated());
+		ExecutorService first = (ExecutorService) AgentScheduler.DEDICATED
+				.getExecutor("first");
+		ExecutorService second = (ExecutorService) AgentScheduler.DEDICATED
+				.getExecutor("second");
+		try {
+			assertNotSame(first, second);
+			assertEquals("first", getThreadName(first));
+			assertEquals("second", getThreadName(second));
+		} finally {
+			first.shutdown();
+			second.shutdown();
+		}
+	}
+
+	@Test
+	public void testFixedTerminates() throws Exception {
+		assertTerminates(AgentScheduler.FIXED);
+	}
+
+	@Test
+	public void testWorkStealingTerminates() throws Exception {
+		assertTerminates(AgentScheduler.WORKSTEALING);
+	}
+
+	@Test
+	public void testDedicatedTerminates() throws Exception {
+		assertTerminates(AgentScheduler.DEDICATED);
+	}
+
+	/**
+	 * Runs an agent that terminates by itself on a scheduler, and checks that
+	 * its termination future completes.
+	 */
+	private static void assertTerminates(AgentScheduler scheduler)
+			throws Exception {
+		PMPreferences.setAgentScheduler(scheduler);
+		AgentId id = new AgentId("TestAgent");
+		AgentProgram program = PlatformManager.createNew().parseGOALFile(
+				new File("src/test/resources/goal/core/agent/fibonaci.goal"),
+				KRFactory.getDefaultInterface());
+		NOPDebugger debugger = new NOPDebugger(id);
+		GOALInterpreter<NOPDebugger> controller = new GOALInterpreter<>(
+				program, debugger, new FileLearner(id.getName(), program));
+		new Agent<>(id, new NoEnvironmentCapabilities(),
+				new NoMessagingCapabilities(), new NoLoggingCapabilities(),
+				controller);
+
+		// Not started yet.
+		assertTrue(controller.getTermination().isDone());
+		controller.run();
+		Future<Void> termination = controller.getTermination();
+		termination.get(10, TimeUnit.SECONDS);
+		assertTrue(controller.isTerminated());
+		assertFalse(controller.isRunning());
+
+		// Every run has a future of its own.
+		controller.reset();
+		assertNotSame(termination, controller.getTermination());
+		controller.getTermination().get(10, TimeUnit.SECONDS);
+		assertTrue(controller.isTerminated());
+	}
+
+	private static String getThreadName(ExecutorService executor)
+			throws Exception {
+		return executor.submit(new Callable<String>() {
+			@Override
+			public String call() {
+				return Thread.currentThread().getName();
+			}
+		}).get();
+	}
+}
@@ -0,0 +1,173 @@
+package goal.core.agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import goal.core.runtime.MessagingService;
+import goal.tools.PlatformManager;
+import goal.tools.logging.Loggers;
+import goalhub.krTools.KRFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import languageTools.program.agent.AgentId;
+import languageTools.program.agent.AgentProgram;
+import languageTools.program.agent.Module;
+import languageTools.program.agent.actions.SendAction;
+import languageTools.program.agent.msg.Message;
+import localmessaging.LocalMessaging;
+import nl.tudelft.goal.messaging.messagebox.MessageBoxId;
+import nl.tudelft.goal.messaging.messagebox.MessageBoxId.Type;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests that {@link DefaultMessagingCapabilities} delivers messages to the
+ * message box it remembered for a receiver, looks the receiver up again when
+ * that fails, and only warns when the receiver has left.
+ */
+public class DefaultMessagingCapabilitiesTest {
+	/**
+	 * How long a message is given to arrive, in milliseconds.
+	 */
+	private static final long WAIT = 5000;
+
+	private MessagingService messaging;
+	private final List<DefaultMessagingCapabilities> capabilities = new ArrayList<>();
+	private DefaultMessagingCapabilities alice;
+	private Message message;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Loggers.addConsoleLogger();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() {
+		Loggers.removeConsoleLogger();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		this.messaging = new MessagingService("localhost", new LocalMessaging());
+		this.alice = create("alice");
+		AgentProgram program = PlatformManager.createNew().parseGOALFile(
+				new File("src/test/resources/goal/core/agent/send.goal"),
+				KRFactory.getDefaultInterface());
+		for (Module module : program.getModules()) {
+			if (module.getName().equals("main")) {
+				this.message = ((SendAction) module.getRules().get(0)
+						.getAction().getActions().get(0)).getMessage();
+			}
+		}
+		this.message.setSender(new AgentId("alice"));
+		this.message.setReceivers(Collections.singleton(new AgentId("bob")));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		for (DefaultMessagingCapabilities capabilities : this.capabilities) {
+			capabilities.dispose();
+		}
+		this.messaging.shutDown();
+	}
+
+	@Test
+	public void testPostMessage() throws Exception {
+		DefaultMessagingCapabilities bob = create("bob");
+		this.alice.postMessage(this.message);
+		assertEquals(Collections.singleton(this.message), receive(bob));
+	}
+
+	@Test
+	public void testUnknownReceiver() {
+		// Only a warning; the sender carries on.
+		this.alice.postMessage(this.message);
+	}
+
+	@Test
+	public void testReceiverLeft() throws Exception {
+		DefaultMessagingCapabilities bob = create("bob");
+		this.alice.postMessage(this.message);
+		receive(bob);
+		// The sender still has the message box of the receiver that left:
+		// sending to it fails, and then the receiver is not found.
+		leave(bob);
+		this.alice.postMessage(this.message);
+	}
+
+	@Test
+	public void testReceiverReplaced() throws Exception {
+		DefaultMessagingCapabilities bob = create("bob");
+		this.alice.postMessage(this.message);
+		receive(bob);
+		leave(bob);
+		// The sender is not told that bob was replaced, so it first sends to
+		// the old message box, and then looks bob up again.
+		DefaultMessagingCapabilities newBob = create("bob");
+		assumeTrue(newBob != null);
+		this.alice.postMessage(this.message);
+		assertEquals(Collections.singleton(this.message), receive(newBob));
+	}
+
+	@Test
+	public void testAvailabilityUpdate() throws Exception {
+		DefaultMessagingCapabilities bob = create("bob");
+		this.alice.postMessage(this.message);
+		receive(bob);
+		leave(bob);
+		this.alice.updateAgentAvailability(new AgentId("bob"), false);
+		DefaultMessagingCapabilities newBob = create("bob");
+		assumeTrue(newBob != null);
+		this.alice.updateAgentAvailability(new AgentId("bob"), true);
+		this.alice.postMessage(this.message);
+		assertEquals(Collections.singleton(this.message), receive(newBob));
+	}
+
+	/**
+	 * Creates the messaging capabilities of an agent.
+	 *
+	 * @return The capabilities, or {@code null} if the messaging system did
+	 *         not give the agent the name asked for.
+	 */
+	private DefaultMessagingCapabilities create(String name) throws Exception {
+		MessageBoxId id = this.messaging.getNewUniqueID(name, Type.GOALAGENT);
+		DefaultMessagingCapabilities capabilities = new DefaultMessagingCapabilities(
+				this.messaging, this.messaging.getNewMessageBox(id));
+		this.capabilities.add(capabilities);
+		return id.getName().equals(name) ? capabilities : null;
+	}
+
+	/**
+	 * Removes the message box of an agent, as when the agent is killed.
+	 */
+	private void leave(DefaultMessagingCapabilities capabilities) {
+		this.capabilities.remove(capabilities);
+		capabilities.dispose();
+	}
+
+	/**
+	 * Waits until an agent received a message.
+	 *
+	 * @return The messages received.
+	 */
+	private static Set<Message> receive(
+			DefaultMessagingCapabilities capabilities) throws Exception {
+		long end = System.currentTimeMillis() + WAIT;
+		Set<Message> messages = capabilities.getAllMessages();
+		while (messages.isEmpty() && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+			messages = capabilities.getAllMessages();
+		}
+		assertTrue("no message received", !messages.isEmpty());
+		return messages;
+	}
+}
@@ -0,0 +1,176 @@
+package goal.core.agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that a {@link WakeUpSignal} wakes up an agent that waits or parks on
+ * it when it is raised before or while the agent sleeps, and after
+ * {@link WakeUpSignal#RECHECK_INTERVAL} otherwise.
+ */
+public class WakeUpSignalTest {
+	private WakeUpSignal signal;
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		this.signal = new WakeUpSignal();
+		this.executor = Executors.newSingleThreadExecutor();
+	}
+
+	@After
+	public void tearDown() {
+		this.executor.shutdownNow();
+	}
+
+	@Test
+	public void testSignalBeforePark() throws Exception {
+		this.signal.signal();
+		long start = System.nanoTime();
+		park().await();
+		// Submitted right away, not after the recheck.
+		assertTrue(elapsed(start) < WakeUpSignal.RECHECK_INTERVAL);
+	}
+
+	@Test
+	public void testSignalWhileParked() throws Exception {
+		CountDownLatch ran = park();
+		assertFalse(ran.await(WakeUpSignal.RECHECK_INTERVAL / 4,
+				TimeUnit.MILLISECONDS));
+		this.signal.signal();
+		assertTrue(ran.await(WakeUpSignal.RECHECK_INTERVAL / 2,
+				TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testRecheckWhileParked() throws Exception {
+		long start = System.nanoTime();
+		CountDownLatch ran = park();
+		assertTrue(ran.await(10 * WakeUpSignal.RECHECK_INTERVAL,
+				TimeUnit.MILLISECONDS));
+		assertTrue(elapsed(start) >= WakeUpSignal.RECHECK_INTERVAL / 2);
+	}
+
+	@Test
+	public void testClearedSignalDoesNotWake() throws Exception {
+		this.signal.signal();
+		this.signal.clear();
+		assertFalse(this.signal.isSignalled());
+		long start = System.nanoTime();
+		park().await();
+		assertTrue(elapsed(start) >= WakeUpSignal.RECHECK_INTERVAL / 2);
+	}
+
+	@Test
+	public void testParkedTaskRunsOnce() throws Exception {
+		final AtomicInteger runs = new AtomicInteger();
+		this.signal.park(this.executor, new Runnable() {
+			@Override
+			public void run() {
+				runs.incrementAndGet();
+			}
+		});
+		this.signal.signal();
+		this.signal.signal();
+		// Also not again by the recheck.
+		Thread.sleep(2 * WakeUpSignal.RECHECK_INTERVAL);
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	public void testSignalBeforeAwait() throws Exception {
+		this.signal.signal();
+		long start = System.nanoTime();
+		this.signal.await();
+		assertTrue(elapsed(start) < WakeUpSignal.RECHECK_INTERVAL);
+	}
+
+	@Test
+	public void testSignalWhileAwaiting() throws Exception {
+		final CountDownLatch woken = new CountDownLatch(1);
+		Thread agent = new Thread() {
+			@Override
+			public void run() {
+				try {
+					// Spurious wake-ups aside, only the signal ends the wait
+					// before the recheck.
+					WakeUpSignalTest.this.signal.await();
+					woken.countDown();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		long start = System.nanoTime();
+		agent.start();
+		Thread.sleep(WakeUpSignal.RECHECK_INTERVAL / 4);
+		this.signal.signal();
+		assertTrue(woken.await(10 * WakeUpSignal.RECHECK_INTERVAL,
+				TimeUnit.MILLISECONDS));
+		assertTrue(elapsed(start) < WakeUpSignal.RECHECK_INTERVAL);
+		agent.join();
+	}
+
+	@Test
+	public void testRecheckWhileAwaiting() throws Exception {
+		long start = System.nanoTime();
+		this.signal.await();
+		assertTrue(elapsed(start) >= WakeUpSignal.RECHECK_INTERVAL / 2);
+		assertFalse(this.signal.isSignalled());
+	}
+
+	@Test
+	public void testParkedOnShutDownExecutor() throws Exception {
+		final CountDownLatch ran = new CountDownLatch(1);
+		this.signal.park(this.executor, new Runnable() {
+			@Override
+			public void run() {
+				ran.countDown();
+			}
+		});
+		// The agent terminated while its task was parked.
+		this.executor.shutdown();
+		this.signal.signal();
+		assertTrue(this.executor.awaitTermination(1, TimeUnit.SECONDS));
+		// Parking after the shut down does not fail either.
+		this.signal.park(this.executor, new Runnable() {
+			@Override
+			public void run() {
+			}
+		});
+	}
+
+	/**
+	 * Parks a task on the signal.
+	 *
+	 * @return A latch that is counted down when the task has run.
+	 */
+	private CountDownLatch park() {
+		final CountDownLatch ran = new CountDownLatch(1);
+		this.signal.park(this.executor, new Runnable() {
+			@Override
+			public void run() {
+				ran.countDown();
+			}
+		});
+		return ran;
+	}
+
+	/**
+	 * @return The milliseconds since a time from {@link System#nanoTime()}.
+	 */
+	private static long elapsed(long start) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+}
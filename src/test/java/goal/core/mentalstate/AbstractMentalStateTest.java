@@ -0,0 +1,121 @@
+package goal.core.mentalstate;
+
+import goal.tools.PlatformManager;
+import goal.tools.debugger.NOPDebugger;
+import goal.tools.logging.Loggers;
+import goalhub.krTools.KRFactory;
+
+import java.io.File;
+import java.util.List;
+
+import krTools.language.DatabaseFormula;
+import krTools.language.Query;
+import languageTools.program.agent.AgentId;
+import languageTools.program.agent.AgentProgram;
+import languageTools.program.agent.Module;
+import languageTools.program.agent.msc.MentalLiteral;
+import mentalState.BASETYPE;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+
+/**
+ * Base for tests of a {@link MentalState} of an agent program, without
+ * running the agent. The beliefs of its modules and the literals of the
+ * conditions of its rules serve as the updates and queries of the tests.
+ */
+public abstract class AbstractMentalStateTest {
+	protected AgentId id;
+	protected NOPDebugger debugger;
+	protected AgentProgram program;
+	protected MentalState mentalState;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Loggers.addConsoleLogger();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		Loggers.removeConsoleLogger();
+	}
+
+	@After
+	public void tearDown() {
+		if (this.mentalState != null) {
+			this.mentalState.cleanUp();
+		}
+	}
+
+	/**
+	 * Parses a program and creates the mental state of an agent running it.
+	 *
+	 * @param name
+	 *            The name of the program in
+	 *            src/test/resources/goal/core/mentalstate.
+	 */
+	protected void load(String name) throws Exception {
+		this.id = new AgentId("testAgent");
+		this.debugger = new NOPDebugger(this.id);
+		this.program = PlatformManager.createNew().parseGOALFile(
+				new File("src/test/resources/goal/core/mentalstate/" + name),
+				KRFactory.getDefaultInterface());
+		this.mentalState = new MentalState(this.id, this.program,
+				this.debugger);
+	}
+
+	/**
+	 * Inserts the beliefs and adopts the goals of a module, as entering the
+	 * module does.
+	 *
+	 * @param name
+	 *            The name of a module of the program.
+	 */
+	protected void enter(String name) throws Exception {
+		Module module = getModule(name);
+		for (DatabaseFormula belief : module.getBeliefs()) {
+			this.mentalState.insert(belief, BASETYPE.BELIEFBASE,
+					this.debugger, this.id);
+		}
+		for (Query goal : module.getGoals()) {
+			this.mentalState.adopt(goal.toUpdate(), true, this.debugger,
+					this.id);
+		}
+	}
+
+	/**
+	 * @param name
+	 *            The name of a module of the program.
+	 * @return The module.
+	 */
+	protected Module getModule(String name) {
+		for (Module module : this.program.getModules()) {
+			if (module.getName().equals(name)) {
+				return module;
+			}
+		}
+		throw new IllegalArgumentException("no module " + name);
+	}
+
+	/**
+	 * @param module
+	 *            The name of a module of the program.
+	 * @return The beliefs of the module.
+	 */
+	protected List<DatabaseFormula> getBeliefs(String module) {
+		return getModule(module).getBeliefs();
+	}
+
+	/**
+	 * @param module
+	 *            The name of a module of the program.
+	 * @param rule
+	 *            The index of a rule of the module.
+	 * @return The first literal of the condition of the rule.
+	 */
+	protected MentalLiteral getLiteral(String module, int rule) {
+		return getModule(module).getRules().get(rule).getCondition()
+				.getAllLiterals().get(0);
+	}
+}
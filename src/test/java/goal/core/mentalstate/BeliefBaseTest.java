@@ -0,0 +1,218 @@
+package goal.core.mentalstate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import goal.tools.errorhandling.exceptions.GOALDatabaseException;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import krTools.database.Database;
+import krTools.errors.exceptions.KRDatabaseException;
+import krTools.language.DatabaseFormula;
+import languageTools.program.agent.actions.SendAction;
+import languageTools.program.agent.msg.Message;
+import languageTools.program.agent.rules.Rule;
+import mentalState.BASETYPE;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that an update of a {@link BeliefBase}, or an insert of a batch of
+ * messages into a mailbox, that the KR database fails to apply halfway leaves
+ * both the theory and the database as they were.
+ */
+public class BeliefBaseTest extends AbstractMentalStateTest {
+	private BeliefBase beliefs;
+	private DatabaseFormula onA;
+	private DatabaseFormula onB;
+
+	@Before
+	public void setUp() throws Exception {
+		load("querycache.goal");
+		enter("init");
+		this.beliefs = this.mentalState.getOwnBase(BASETYPE.BELIEFBASE);
+		this.onA = getBeliefs("init").get(0);
+		this.onB = getBeliefs("stack").get(0);
+	}
+
+	@Test
+	public void testFailedUpdateIsUndone() throws Exception {
+		Set<DatabaseFormula> theory = new HashSet<>(this.beliefs.getTheory()
+				.getFormulas());
+		// Moving block a off the table: the delete is applied, then the
+		// insert fails.
+		failInsertOf(this.onB);
+		try {
+			this.beliefs.update(Arrays.asList(this.onB),
+					Arrays.asList(this.onA), this.debugger);
+			fail("the insert of " + this.onB + " should fail");
+		} catch (GOALDatabaseException e) {
+			assertEquals(0, e.getSuppressed().length);
+		}
+		assertEquals(theory, new HashSet<>(this.beliefs.getTheory()
+				.getFormulas()));
+		assertOnTable(1);
+	}
+
+	@Test
+	public void testFailedUndoIsSuppressed() throws Exception {
+		failInsertOf(this.onB, this.onA);
+		try {
+			this.beliefs.update(Arrays.asList(this.onB),
+					Arrays.asList(this.onA), this.debugger);
+			fail("the insert of " + this.onB + " should fail");
+		} catch (GOALDatabaseException e) {
+			assertEquals(1, e.getSuppressed().length);
+		}
+	}
+
+	@Test
+	public void testUpdateIsApplied() throws Exception {
+		failInsertOf();
+		assertEquals(true, this.beliefs.update(Arrays.asList(this.onB),
+				Arrays.asList(this.onA), this.debugger));
+		assertEquals(new HashSet<>(Arrays.asList(this.onB)), new HashSet<>(
+				this.beliefs.getTheory().getFormulas()));
+		assertOnTable(1);
+	}
+
+	@Test
+	public void testMessagesAreInserted() throws Exception {
+		BeliefBase mails = this.mentalState.getOwnBase(BASETYPE.MAILBOX);
+		int before = mails.getTheory().getFormulas().size();
+		long version = mails.getVersion();
+		mails.insert(getMessages(), true, this.debugger);
+		assertEquals(before + 3, mails.getTheory().getFormulas().size());
+		assertTrue(mails.getVersion() > version);
+		assertReceived(3);
+	}
+
+	@Test
+	public void testFailedMessagesAreUndone() throws Exception {
+		BeliefBase mails = this.mentalState.getOwnBase(BASETYPE.MAILBOX);
+		Set<DatabaseFormula> theory = new HashSet<>(mails.getTheory()
+				.getFormulas());
+		// The first message is inserted, then the second fails.
+		failInsert(mails, 2);
+		try {
+			mails.insert(getMessages(), true, this.debugger);
+			fail("the insert of the second message should fail");
+		} catch (GOALDatabaseException e) {
+			assertEquals(0, e.getSuppressed().length);
+		}
+		assertEquals(theory, new HashSet<>(mails.getTheory().getFormulas()));
+		assertReceived(0);
+	}
+
+	/**
+	 * @return The messages of the send actions of the mails module, sent by
+	 *         the agent to itself.
+	 */
+	private List<Message> getMessages() {
+		List<Message> messages = new ArrayList<>();
+		for (Rule rule : getModule("mails").getRules()) {
+			if (rule.getAction().getActions().get(0) instanceof SendAction) {
+				Message message = ((SendAction) rule.getAction().getActions()
+						.get(0)).getMessage();
+				message.setSender(this.id);
+				messages.add(message);
+			}
+		}
+		return messages;
+	}
+
+	/**
+	 * Checks the number of messages received according to the database,
+	 * through the last rule of the mails module.
+	 */
+	private void assertReceived(int messages) throws Exception {
+		this.mentalState.clearQueryCache();
+		assertEquals(messages,
+				this.mentalState.query(getLiteral("mails", 3), this.debugger)
+						.size());
+	}
+
+	/**
+	 * Checks the number of blocks on the table according to the database,
+	 * through the first rule of the main module.
+	 */
+	private void assertOnTable(int blocks) throws Exception {
+		this.mentalState.clearQueryCache();
+		assertEquals(blocks,
+				this.mentalState.query(getLiteral("main", 0), this.debugger)
+						.size());
+	}
+
+	/**
+	 * Makes the database of a base fail its nth insert from now on, as a KR
+	 * technology may.
+	 */
+	private void failInsert(BeliefBase base, final int n) throws Exception {
+		Field field = BeliefBase.class.getDeclaredField("database");
+		field.setAccessible(true);
+		final Database database = (Database) field.get(base);
+		field.set(base, Proxy.newProxyInstance(
+				Database.class.getClassLoader(),
+				new Class<?>[] { Database.class }, new InvocationHandler() {
+					private int inserts = 0;
+
+					@Override
+					public Object invoke(Object proxy, Method method,
+							Object[] args) throws Throwable {
+						if (method.getName().equals("insert")
+								&& ++this.inserts == n) {
+							throw new KRDatabaseException("cannot insert "
+									+ args[0]);
+						}
+						try {
+							return method.invoke(database, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					}
+				}));
+	}
+
+	/**
+	 * Makes the database of the belief base fail to insert some formulas, as
+	 * a KR technology may.
+	 *
+	 * @param failures
+	 *            The formulas that cannot be inserted.
+	 */
+	private void failInsertOf(DatabaseFormula... failures) throws Exception {
+		final List<DatabaseFormula> failing = Arrays.asList(failures);
+		Field field = BeliefBase.class.getDeclaredField("database");
+		field.setAccessible(true);
+		final Database database = (Database) field.get(this.beliefs);
+		field.set(this.beliefs, Proxy.newProxyInstance(
+				Database.class.getClassLoader(),
+				new Class<?>[] { Database.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method,
+							Object[] args) throws Throwable {
+						if (method.getName().equals("insert")
+								&& failing.contains(args[0])) {
+							throw new KRDatabaseException("cannot insert "
+									+ args[0]);
+						}
+						try {
+							return method.invoke(database, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					}
+				}));
+	}
+}
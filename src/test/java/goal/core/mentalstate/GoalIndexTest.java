@@ -0,0 +1,120 @@
+package goal.core.mentalstate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import krTools.language.Query;
+import krTools.language.Substitution;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that goal queries selecting goals through the {@link GoalIndex} give
+ * the same results as querying every goal, also when the index cannot
+ * restrict the goals and after goals are dropped and adopted again.
+ */
+public class GoalIndexTest extends AbstractMentalStateTest {
+	@Before
+	public void setUp() throws Exception {
+		load("goalindex.goal");
+		enter("tower");
+		enter("free");
+	}
+
+	@Test
+	public void testIndexedFunctor() throws Exception {
+		assertEquals(3, assertUnindexed(0).size());
+		assertEquals(1, assertUnindexed(3).size());
+		assertTrue(assertUnindexed(5).isEmpty());
+	}
+
+	@Test
+	public void testNoMatchingFunctor() throws Exception {
+		// No goal has ever contained above/2 facts, but the knowledge derives
+		// them from the goals.
+		assertEquals(3, assertUnindexed(4).size());
+	}
+
+	@Test
+	public void testNoGoalWithFunctor() throws Exception {
+		drop("free", 0);
+		assertTrue(assertUnindexed(3).isEmpty());
+		assertEquals(3, assertUnindexed(0).size());
+	}
+
+	@Test
+	public void testVariableInKey() throws Exception {
+		assertEquals(1, assertUnindexed(1).size());
+		assertEquals(1, assertUnindexed(2).size());
+	}
+
+	@Test
+	public void testDropped() throws Exception {
+		drop("tower", 1);
+		assertEquals(2, assertUnindexed(0).size());
+		assertEquals(1, assertUnindexed(1).size());
+		assertEquals(2, assertUnindexed(4).size());
+
+		// No goal with on/2 facts is left; the goal with clear/1 facts does
+		// not make the queries fail with an error.
+		drop("tower", 0);
+		assertTrue(assertUnindexed(0).isEmpty());
+		assertTrue(assertUnindexed(1).isEmpty());
+		assertTrue(assertUnindexed(2).isEmpty());
+		assertTrue(assertUnindexed(4).isEmpty());
+		assertEquals(1, assertUnindexed(3).size());
+	}
+
+	@Test
+	public void testAdoptedAgain() throws Exception {
+		drop("tower", 0);
+		drop("tower", 1);
+		assertTrue(assertUnindexed(0).isEmpty());
+		enter("tower");
+		assertEquals(3, assertUnindexed(0).size());
+		assertEquals(1, assertUnindexed(1).size());
+		assertEquals(1, assertUnindexed(2).size());
+		assertEquals(3, assertUnindexed(4).size());
+	}
+
+	/**
+	 * Checks that a goal query gives the same results as querying each goal
+	 * of the goal base by itself.
+	 *
+	 * @param rule
+	 *            The index of the rule of the main module whose condition is
+	 *            the query.
+	 * @return The results of the query.
+	 */
+	private Set<Substitution> assertUnindexed(int rule) throws Exception {
+		GoalBase goals = this.mentalState.getAttentionSet();
+		Query query = getLiteral("main", rule).getFormula();
+		Set<Substitution> unindexed = new LinkedHashSet<>();
+		for (SingleGoal goal : goals.getGoals()) {
+			unindexed.addAll(goals.query(goal, query, this.debugger));
+		}
+		Set<Substitution> indexed = goals.query(query, this.debugger);
+		assertEquals(unindexed, indexed);
+		return indexed;
+	}
+
+	/**
+	 * Drops a goal of a module, and checks it has been dropped.
+	 *
+	 * @param module
+	 *            The name of a module of the program.
+	 * @param goal
+	 *            The index of a goal of the module.
+	 */
+	private void drop(String module, int goal) throws Exception {
+		int before = this.mentalState.getAttentionSet().getGoals().size();
+		this.mentalState.drop(getModule(module).getGoals().get(goal)
+				.toUpdate(), this.debugger);
+		assertTrue(this.mentalState.getAttentionSet().getGoals().size()
+				< before);
+	}
+}
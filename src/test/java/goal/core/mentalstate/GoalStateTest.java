@@ -0,0 +1,130 @@
+package goal.core.mentalstate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import eis.iilang.Identifier;
+import eis.iilang.Percept;
+
+import java.util.Collections;
+
+import krTools.language.DatabaseFormula;
+import languageTools.program.agent.actions.SendAction;
+import languageTools.program.agent.msg.Message;
+import mentalState.BASETYPE;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that {@link MentalState#updateGoalState(goal.tools.debugger.Debugger,
+ * languageTools.program.agent.AgentId...)} drops a goal once it is believed,
+ * however the belief comes about, while a goal is not queried again after a
+ * change that it does not depend on.
+ */
+public class GoalStateTest extends AbstractMentalStateTest {
+	private DatabaseFormula onB;
+	private DatabaseFormula onC;
+	private DatabaseFormula clearA;
+
+	@Before
+	public void setUp() throws Exception {
+		load("goalstate.goal");
+		enter("init");
+		this.onB = getBeliefs("updates").get(0);
+		this.onC = getBeliefs("updates").get(1);
+		this.clearA = getBeliefs("updates").get(2);
+	}
+
+	@Test
+	public void testDroppedByPercept() throws Exception {
+		enter("percepts");
+		assertNotAchieved();
+		this.mentalState.getOwnBase(BASETYPE.PERCEPTBASE).updatePercepts(
+				Collections.singleton(new Percept("on", new Identifier("b"),
+						new Identifier("table"))),
+				Collections.<Percept> emptySet(), this.debugger);
+		assertAchieved();
+	}
+
+	@Test
+	public void testDroppedByMessage() throws Exception {
+		enter("mails");
+		assertNotAchieved();
+		SendAction send = (SendAction) getModule("main").getRules().get(0)
+				.getAction().getActions().get(0);
+		Message message = send.getMessage();
+		message.setSender(this.id);
+		this.mentalState.getOwnBase(BASETYPE.MAILBOX).insert(message, true,
+				this.debugger);
+		assertAchieved();
+	}
+
+	@Test
+	public void testDroppedByBeliefRule() throws Exception {
+		enter("rules");
+		assertNotAchieved();
+		insert(this.onC);
+		assertAchieved();
+	}
+
+	@Test
+	public void testDroppedByFact() throws Exception {
+		enter("facts");
+		assertNotAchieved();
+		insert(this.clearA);
+		assertAchieved();
+	}
+
+	@Test
+	public void testSkippedAfterUnrelatedChange() throws Exception {
+		enter("facts");
+		assertNotAchieved();
+		long version = this.mentalState.getVersion();
+		insert(this.onB);
+		assertTrue(this.mentalState.getVersion() > version);
+		long count = this.mentalState.getCount();
+		this.mentalState.updateGoalState(this.debugger);
+		assertEquals(count, this.mentalState.getCount());
+		assertFalse(this.mentalState.getAttentionSet().isEmpty());
+	}
+
+	@Test
+	public void testCheckedAgainAfterRelatedChange() throws Exception {
+		enter("facts");
+		assertNotAchieved();
+		// Deleting a fact the goal depends on does not achieve it, but the
+		// goal is queried again.
+		insert(this.clearA);
+		this.mentalState.delete(this.clearA, BASETYPE.BELIEFBASE,
+				this.debugger);
+		long count = this.mentalState.getCount();
+		this.mentalState.updateGoalState(this.debugger);
+		assertTrue(this.mentalState.getCount() > count);
+		assertFalse(this.mentalState.getAttentionSet().isEmpty());
+	}
+
+	/**
+	 * Checks that the goals have not been achieved, which also records that
+	 * they have been checked.
+	 */
+	private void assertNotAchieved() {
+		long count = this.mentalState.getCount();
+		this.mentalState.updateGoalState(this.debugger);
+		assertTrue(this.mentalState.getCount() > count);
+		assertFalse(this.mentalState.getAttentionSet().isEmpty());
+	}
+
+	/**
+	 * Checks that the goals have been achieved and dropped.
+	 */
+	private void assertAchieved() {
+		this.mentalState.updateGoalState(this.debugger);
+		assertTrue(this.mentalState.getAttentionSet().isEmpty());
+	}
+
+	private void insert(DatabaseFormula belief) throws Exception {
+		this.mentalState.insert(belief, BASETYPE.BELIEFBASE, this.debugger,
+				this.id);
+	}
+}
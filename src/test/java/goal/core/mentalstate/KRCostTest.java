@@ -0,0 +1,82 @@
+package goal.core.mentalstate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import goal.preferences.PMPreferences;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that a {@link KRCost} always counts operations, and only times them
+ * when accounting is on.
+ */
+public class KRCostTest {
+	private boolean accounting;
+	private int sampling;
+
+	@Before
+	public void setUp() {
+		this.accounting = PMPreferences.getKRCostAccounting();
+		this.sampling = PMPreferences.getKRCostSampling();
+	}
+
+	@After
+	public void tearDown() {
+		PMPreferences.setKRCostAccounting(this.accounting);
+		PMPreferences.setKRCostSampling(this.sampling);
+	}
+
+	@Test
+	public void testCountedWhenOff() {
+		PMPreferences.setKRCostAccounting(false);
+		KRCost cost = new KRCost();
+		for (int i = 0; i < 10; i++) {
+			cost.stop(cost.start());
+		}
+		assertEquals(10, cost.getCount());
+		assertEquals(0, cost.getTime());
+	}
+
+	@Test
+	public void testTimedWhenOn() throws Exception {
+		PMPreferences.setKRCostAccounting(true);
+		PMPreferences.setKRCostSampling(1);
+		KRCost cost = new KRCost();
+		long start = cost.start();
+		Thread.sleep(1);
+		cost.stop(start);
+		assertEquals(1, cost.getCount());
+		assertTrue(cost.getTime() > 0);
+	}
+
+	@Test
+	public void testSampled() {
+		PMPreferences.setKRCostAccounting(true);
+		PMPreferences.setKRCostSampling(4);
+		KRCost cost = new KRCost();
+		int timed = 0;
+		for (int i = 0; i < 8; i++) {
+			long start = cost.start();
+			if (start != 0) {
+				timed++;
+			}
+			cost.stop(start);
+		}
+		assertEquals(8, cost.getCount());
+		assertEquals(2, timed);
+	}
+
+	@Test
+	public void testAdd() {
+		PMPreferences.setKRCostAccounting(false);
+		KRCost cost = new KRCost();
+		KRCost other = new KRCost();
+		cost.stop(cost.start());
+		other.stop(other.start());
+		other.stop(other.start());
+		cost.add(other);
+		assertEquals(3, cost.getCount());
+	}
+}
@@ -0,0 +1,111 @@
+package goal.core.mentalstate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import languageTools.program.agent.AgentId;
+import mentalState.BASETYPE;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the {@link MentalModel} of another agent is only created when it
+ * is first queried or updated, and that until then queries on the agent give
+ * the same results as on the empty model that used to be created when the
+ * agent became known.
+ */
+public class MentalModelsTest extends AbstractMentalStateTest {
+	private AgentId other;
+
+	@Before
+	public void setUp() throws Exception {
+		load("mentalmodels.goal");
+		enter("init");
+		this.other = new AgentId("otherAgent");
+		this.mentalState.addAgentModel(this.other, this.debugger);
+	}
+
+	@Test
+	public void testKnownWithoutModel() throws Exception {
+		assertTrue(this.program.usesMentalModels());
+		assertTrue(this.mentalState.getKnownAgents().contains(this.other));
+		assertFalse(isModeled(this.other));
+		// The agent fact is there before the model.
+		assertEquals(2, query(2));
+		assertFalse(isModeled(this.other));
+	}
+
+	@Test
+	public void testCreatedOnFirstQuery() throws Exception {
+		assertEquals(0, query(0));
+		assertTrue(isModeled(this.other));
+		assertEquals(0, query(1));
+	}
+
+	@Test
+	public void testCreatedOnFirstGoalQuery() throws Exception {
+		assertEquals(0, query(1));
+		assertTrue(isModeled(this.other));
+		assertEquals(0, query(0));
+	}
+
+	@Test
+	public void testCreatedOnFirstUpdate() throws Exception {
+		this.mentalState.insert(getBeliefs("model").get(0),
+				BASETYPE.BELIEFBASE, this.debugger, this.other);
+		assertTrue(isModeled(this.other));
+		// The own beliefs of the agent are not part of the model.
+		assertEquals(1, query(0));
+		this.mentalState.delete(getBeliefs("model").get(0),
+				BASETYPE.BELIEFBASE, this.debugger, this.other);
+		assertEquals(0, query(0));
+	}
+
+	@Test
+	public void testGoalStateWithoutModel() throws Exception {
+		this.mentalState.updateGoalState(this.debugger, this.other);
+		assertFalse(isModeled(this.other));
+	}
+
+	@Test
+	public void testRemovedWithoutModel() throws Exception {
+		this.mentalState.removeAgentModel(this.other);
+		assertFalse(this.mentalState.getKnownAgents().contains(this.other));
+		assertFalse(isModeled(this.other));
+		assertEquals(1, query(2));
+	}
+
+	@Test
+	public void testRemovedWithModel() throws Exception {
+		query(0);
+		this.mentalState.removeAgentModel(this.other);
+		assertFalse(isModeled(this.other));
+		assertEquals(1, query(2));
+	}
+
+	/**
+	 * @param rule
+	 *            The index of a rule of the main module.
+	 * @return The number of results of the condition of the rule.
+	 */
+	private int query(int rule) throws Exception {
+		this.mentalState.clearQueryCache();
+		return this.mentalState.query(getLiteral("main", rule), this.debugger)
+				.size();
+	}
+
+	/**
+	 * @return {@code true} if the mental state has created a model of the
+	 *         agent.
+	 */
+	private boolean isModeled(AgentId agent) throws Exception {
+		Field field = MentalState.class.getDeclaredField("models");
+		field.setAccessible(true);
+		return ((Map<?, ?>) field.get(this.mentalState)).containsKey(agent);
+	}
+}
@@ -0,0 +1,142 @@
+package goal.core.mentalstate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import krTools.language.DatabaseFormula;
+import krTools.language.Substitution;
+import languageTools.program.agent.msc.MentalLiteral;
+import mentalState.BASETYPE;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the cache of query results of a {@link MentalModel}. Whether a query
+ * was answered from the cache is seen from the number of queries performed on
+ * the bases; see {@link MentalState#getCount()}.
+ */
+public class QueryCacheTest extends AbstractMentalStateTest {
+	private MentalLiteral onTable;
+	private MentalLiteral block;
+	private MentalLiteral random;
+	private MentalLiteral onTableAgain;
+	private MentalLiteral write;
+
+	@Before
+	public void setUp() throws Exception {
+		load("querycache.goal");
+		enter("init");
+		this.onTable = getLiteral("main", 0);
+		this.block = getLiteral("main", 1);
+		this.random = getLiteral("main", 2);
+		this.onTableAgain = getLiteral("main", 3);
+		this.write = getLiteral("main", 4);
+	}
+
+	@Test
+	public void testRepeatedQueryIsCached() throws Exception {
+		long before = this.mentalState.getCount();
+		Set<Substitution> first = this.mentalState.query(this.onTable,
+				this.debugger);
+		long count = this.mentalState.getCount();
+		assertTrue(count > before);
+		Set<Substitution> second = this.mentalState.query(this.onTable,
+				this.debugger);
+		assertEquals(first, second);
+		assertEquals(count, this.mentalState.getCount());
+	}
+
+	@Test
+	public void testEqualQueryIsCached() throws Exception {
+		// Another literal with the same query, as in another rule.
+		assertNotSame(this.onTable, this.onTableAgain);
+		assertEquals(this.onTable, this.onTableAgain);
+		Set<Substitution> first = this.mentalState.query(this.onTable,
+				this.debugger);
+		long count = this.mentalState.getCount();
+		assertEquals(first, this.mentalState.query(this.onTableAgain,
+				this.debugger));
+		assertEquals(count, this.mentalState.getCount());
+	}
+
+	@Test
+	public void testOutputQueryIsNotCached() throws Exception {
+		this.mentalState.query(this.write, this.debugger);
+		long count = this.mentalState.getCount();
+		this.mentalState.query(this.write, this.debugger);
+		assertTrue(this.mentalState.getCount() > count);
+	}
+
+	@Test
+	public void testCachedResultCanBeModified() throws Exception {
+		this.mentalState.query(this.onTable, this.debugger).clear();
+		assertEquals(1, this.mentalState.query(this.onTable, this.debugger)
+				.size());
+	}
+
+	@Test
+	public void testInsertInvalidatesCache() throws Exception {
+		assertEquals(1, this.mentalState.query(this.onTable, this.debugger)
+				.size());
+		assertEquals(1, this.mentalState.query(this.block, this.debugger)
+				.size());
+		for (DatabaseFormula belief : getBeliefs("stack")) {
+			this.mentalState.insert(belief, BASETYPE.BELIEFBASE,
+					this.debugger, this.id);
+		}
+		assertEquals(2, this.mentalState.query(this.onTable, this.debugger)
+				.size());
+		// Also queries of rules of the knowledge using the beliefs.
+		assertEquals(2, this.mentalState.query(this.block, this.debugger)
+				.size());
+	}
+
+	@Test
+	public void testClearQueryCache() throws Exception {
+		this.mentalState.query(this.onTable, this.debugger);
+		this.mentalState.clearQueryCache();
+		long count = this.mentalState.getCount();
+		this.mentalState.query(this.onTable, this.debugger);
+		assertTrue(this.mentalState.getCount() > count);
+	}
+
+	@Test
+	public void testImpureQueryIsNotCached() throws Exception {
+		this.mentalState.query(this.random, this.debugger);
+		long count = this.mentalState.getCount();
+		this.mentalState.query(this.random, this.debugger);
+		assertTrue(this.mentalState.getCount() > count);
+	}
+
+	@Test
+	public void testReadingAttentionStackKeepsCache() throws Exception {
+		this.mentalState.query(this.onTable, this.debugger);
+		long version = this.mentalState.getVersion();
+		long count = this.mentalState.getCount();
+		this.mentalState.getAttentionStack();
+		this.mentalState.getTimeUsedByKR();
+		assertEquals(version, this.mentalState.getVersion());
+		this.mentalState.query(this.onTable, this.debugger);
+		assertEquals(count, this.mentalState.getCount());
+	}
+
+	@Test
+	public void testReplacingAttentionStackInvalidatesCache() throws Exception {
+		long version = this.mentalState.getVersion();
+		this.mentalState.setAttentionStack(new ArrayList<>(this.mentalState
+				.getAttentionStack()));
+		assertTrue(this.mentalState.getVersion() > version);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testAttentionStackCannotBeModified() {
+		List<GoalBase> stack = this.mentalState.getAttentionStack();
+		stack.remove(0);
+	}
+}
@@ -0,0 +1,114 @@
+package goal.core.mentalstate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import krTools.language.DatabaseFormula;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the views of the formulas of a {@link Theory}: they cannot be
+ * modified, and one view is shared by all readers until the theory changes.
+ */
+public class TheoryTest extends AbstractMentalStateTest {
+	private DatabaseFormula onA;
+	private DatabaseFormula onB;
+	private Theory theory;
+
+	@Before
+	public void setUp() throws Exception {
+		load("querycache.goal");
+		this.onA = getBeliefs("init").get(0);
+		this.onB = getBeliefs("stack").get(0);
+		this.theory = new Theory(Arrays.asList(this.onA));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testViewCannotBeModified() {
+		this.theory.getFormulas().add(this.onB);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testViewCannotBeCleared() {
+		this.theory.getFormulas().clear();
+	}
+
+	@Test
+	public void testViewIsShared() {
+		Set<DatabaseFormula> view = this.theory.getFormulas();
+		assertSame(view, this.theory.getFormulas());
+		// Reading does not change the theory.
+		this.theory.getFormulaList();
+		this.theory.isEmpty();
+		assertSame(view, this.theory.getFormulas());
+	}
+
+	@Test
+	public void testNewViewAfterChange() {
+		Set<DatabaseFormula> view = this.theory.getFormulas();
+		long version = this.theory.getVersion();
+		assertTrue(this.theory.add(this.onB));
+		assertTrue(this.theory.getVersion() > version);
+		Set<DatabaseFormula> changed = this.theory.getFormulas();
+		assertNotSame(view, changed);
+		assertEquals(Arrays.asList(this.onA, this.onB), new ArrayList<>(
+				changed));
+		assertSame(changed, this.theory.getFormulas());
+		// The old view still shows the theory as it was.
+		assertEquals(Collections.singleton(this.onA), view);
+	}
+
+	@Test
+	public void testSameViewWithoutChange() {
+		Set<DatabaseFormula> view = this.theory.getFormulas();
+		long version = this.theory.getVersion();
+		assertEquals(false, this.theory.add(this.onA));
+		assertEquals(false, this.theory.remove(this.onB));
+		assertEquals(false, this.theory.update(
+				Arrays.asList(this.onA), Arrays.asList(this.onB),
+				new ArrayList<DatabaseFormula>(),
+				new ArrayList<DatabaseFormula>()));
+		assertEquals(version, this.theory.getVersion());
+		assertSame(view, this.theory.getFormulas());
+	}
+
+	@Test
+	public void testNewViewAfterEachKindOfChange() {
+		Set<DatabaseFormula> initial = this.theory.getFormulas();
+		this.theory.remove(this.onA);
+		Set<DatabaseFormula> removed = this.theory.getFormulas();
+		assertNotSame(initial, removed);
+		assertTrue(removed.isEmpty());
+
+		this.theory.update(Arrays.asList(this.onA, this.onB),
+				new ArrayList<DatabaseFormula>(0),
+				new ArrayList<DatabaseFormula>(),
+				new ArrayList<DatabaseFormula>());
+		Set<DatabaseFormula> updated = this.theory.getFormulas();
+		assertNotSame(removed, updated);
+		assertEquals(2, updated.size());
+
+		this.theory.eraseContent();
+		Set<DatabaseFormula> erased = this.theory.getFormulas();
+		assertNotSame(updated, erased);
+		assertTrue(erased.isEmpty());
+	}
+
+	@Test
+	public void testFormulaListIsCopy() {
+		List<DatabaseFormula> list = this.theory.getFormulaList();
+		list.add(this.onB);
+		assertEquals(Collections.singleton(this.onA),
+				this.theory.getFormulas());
+	}
+}
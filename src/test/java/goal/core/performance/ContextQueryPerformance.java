@@ -0,0 +1,141 @@
+package goal.core.performance;
+
+import goal.core.executors.MentalStateConditionExecutor;
+import goal.core.mentalstate.GoalBase;
+import goal.core.mentalstate.MentalState;
+import goal.core.mentalstate.SingleGoal;
+import goal.tools.PlatformManager;
+import goal.tools.debugger.NOPDebugger;
+import goal.tools.logging.Loggers;
+import goalhub.krTools.KRFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import krTools.language.DatabaseFormula;
+import krTools.language.Query;
+import krTools.language.Substitution;
+import languageTools.program.agent.AgentId;
+import languageTools.program.agent.AgentProgram;
+import languageTools.program.agent.Module;
+import languageTools.program.agent.msc.MentalStateCondition;
+import languageTools.program.agent.rules.Rule;
+import mentalState.BASETYPE;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+
+/**
+ * Performance test for
+ * {@link MentalState#contextQuery(MentalStateCondition, java.util.Map, goal.tools.debugger.Debugger)}
+ * , which evaluates the conditions of single-goal rules.
+ *
+ * Compares evaluating the rule conditions of a blocks world program with
+ * goal queries scoped to a single goal against the way this was done before:
+ * pushing a temporary goal base holding only that goal for every goal.
+ */
+public class ContextQueryPerformance {
+	private final static int ROUNDS = 1000;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Loggers.addConsoleLogger();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		Loggers.removeConsoleLogger();
+	}
+
+	// @Test
+	public void testContextQuery() throws Exception {
+		AgentId id = new AgentId("stackBuilder");
+		NOPDebugger debugger = new NOPDebugger(id);
+		File file = new File(
+				"src/test/resources/goal/core/performance/contextquery/stackBuilder.goal");
+		AgentProgram program = PlatformManager.createNew().parseGOALFile(file,
+				KRFactory.getDefaultInterface());
+		MentalState mentalState = new MentalState(id, program, debugger);
+
+		List<MentalStateCondition> conditions = new ArrayList<>();
+		for (Module module : program.getModules()) {
+			for (DatabaseFormula belief : module.getBeliefs()) {
+				mentalState.insert(belief, BASETYPE.BELIEFBASE, debugger, id);
+			}
+			for (Query goal : module.getGoals()) {
+				mentalState.adopt(goal.toUpdate(), true, debugger, id);
+			}
+			for (Rule rule : module.getRules()) {
+				conditions.add(rule.getCondition());
+			}
+		}
+
+		// Warm up both paths, and check that they agree.
+		for (MentalStateCondition condition : conditions) {
+			Set<Substitution> scoped = mentalState.contextQuery(condition,
+					new HashMap<Substitution, List<SingleGoal>>(), debugger);
+			Set<Substitution> pushed = pushedContextQuery(mentalState,
+					condition, debugger);
+			if (!scoped.equals(pushed)) {
+				throw new AssertionError("results differ for " + condition
+						+ ": " + scoped + " versus " + pushed);
+			}
+		}
+
+		long start = System.nanoTime();
+		for (int i = 0; i < ROUNDS; i++) {
+			for (MentalStateCondition condition : conditions) {
+				pushedContextQuery(mentalState, condition, debugger);
+			}
+		}
+		long pushed = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int i = 0; i < ROUNDS; i++) {
+			for (MentalStateCondition condition : conditions) {
+				mentalState.contextQuery(condition,
+						new HashMap<Substitution, List<SingleGoal>>(),
+						debugger);
+			}
+		}
+		long scoped = System.nanoTime() - start;
+
+		System.out.println(String.format(
+				"%d goals, %d conditions, %d rounds: temporary goal bases "
+						+ "%d ms, scoped goal queries %d ms.", mentalState
+						.getAttentionSet().getGoals().size(), conditions
+						.size(), ROUNDS, pushed / 1000000, scoped / 1000000));
+	}
+
+	/**
+	 * The context query as it was done before goal queries could be scoped to
+	 * a single goal: a goal base with only one goal is pushed on the
+	 * attention stack for every goal in the attention set.
+	 */
+	private static Set<Substitution> pushedContextQuery(
+			MentalState mentalState, MentalStateCondition context,
+			NOPDebugger debugger) throws Exception {
+		AgentId id = mentalState.getAgentId();
+		Set<Substitution> substitutions = new LinkedHashSet<>();
+		List<GoalBase> stack = new ArrayList<>(mentalState.getAttentionStack());
+		for (SingleGoal goal : mentalState.getAttentionSet()) {
+			GoalBase pushed = new GoalBase(goal, mentalState.getState(), id,
+					mentalState.getOwner(), id.getName(), debugger, id);
+			List<GoalBase> focused = new ArrayList<>(stack);
+			focused.add(pushed);
+			mentalState.setAttentionStack(focused);
+			try {
+				substitutions.addAll(new MentalStateConditionExecutor(context)
+						.evaluate(mentalState, debugger));
+			} finally {
+				mentalState.setAttentionStack(stack);
+				pushed.cleanUp();
+			}
+		}
+		return substitutions;
+	}
+}
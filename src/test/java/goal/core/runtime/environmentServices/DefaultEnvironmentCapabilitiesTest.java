@@ -0,0 +1,145 @@
+package goal.core.runtime.environmentServices;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import eis.exceptions.EnvironmentInterfaceException;
+import eis.iilang.Action;
+import eis.iilang.Parameter;
+import eis.iilang.Percept;
+import goal.core.agent.DefaultEnvironmentCapabilities;
+import goal.core.runtime.MessagingService;
+import goal.core.runtime.service.environment.LocalMessagingEnvironment;
+import goal.core.runtime.service.environmentport.EnvironmentPort;
+import goal.core.runtime.service.environmentport.PerceptDelta;
+import goal.tools.logging.Loggers;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import languageTools.program.agent.AgentId;
+import localmessaging.LocalMessaging;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests that {@link DefaultEnvironmentCapabilities} merges the percepts
+ * returned by actions with the percept changes sent by the environment, and
+ * returns all percepts again after a reset. The entity of the
+ * {@link MockEnvironment} always perceives a percept named after itself, and
+ * an action returns a percept named after the action.
+ */
+public class DefaultEnvironmentCapabilitiesTest {
+	private static final String AGENT = "existingAgent";
+	private static final String ENTITY = "existingEntity";
+
+	private final Percept entity = new Percept(ENTITY);
+	private final Percept act = new Percept("act");
+	private MessagingService messaging;
+	private LocalMessagingEnvironment environment;
+	private EnvironmentPort environmentPort;
+	private DefaultEnvironmentCapabilities capabilities;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Loggers.addConsoleLogger();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() {
+		Loggers.removeConsoleLogger();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		this.messaging = new MessagingService("localhost", new LocalMessaging());
+		this.environment = new LocalMessagingEnvironment(new MockEnvironment(),
+				"dummyEnvironment", new HashMap<String, Parameter>(),
+				this.messaging);
+		this.environment.initialize();
+		this.environmentPort = new EnvironmentPort(
+				this.environment.getMessageBoxId(), this.messaging);
+		this.environmentPort.startPort();
+		this.environmentPort.registerAgent(AGENT);
+		this.environmentPort.associateEntity(AGENT, ENTITY);
+		this.capabilities = new DefaultEnvironmentCapabilities(new AgentId(
+				AGENT), this.environmentPort);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.environment.shutDown();
+		this.environmentPort.shutDown();
+		this.messaging.shutDown();
+	}
+
+	@Test
+	public void testOnlyChanges() throws Exception {
+		assertDelta(Collections.singleton(this.entity),
+				Collections.<Percept> emptySet());
+		assertTrue(this.capabilities.getPerceptDelta().isEmpty());
+	}
+
+	@Test
+	public void testActionPerceptForOneCycle() throws Exception {
+		this.capabilities.getPerceptDelta();
+		this.capabilities.performAction(new Action("act"));
+		assertDelta(Collections.singleton(this.act),
+				Collections.<Percept> emptySet());
+		assertDelta(Collections.<Percept> emptySet(),
+				Collections.singleton(this.act));
+	}
+
+	@Test
+	public void testActionPerceptAlsoFromEnvironment() throws Exception {
+		this.capabilities.getPerceptDelta();
+		// The action returns the percept the entity already perceives: it
+		// is neither added nor removed.
+		this.capabilities.performAction(new Action(ENTITY));
+		assertTrue(this.capabilities.getPerceptDelta().isEmpty());
+		assertTrue(this.capabilities.getPerceptDelta().isEmpty());
+	}
+
+	@Test
+	public void testResyncAfterReset() throws Exception {
+		this.capabilities.getPerceptDelta();
+		this.capabilities.performAction(new Action("act"));
+		this.capabilities.reset();
+		// The percepts of the action before the reset are dropped.
+		assertDelta(Collections.singleton(this.entity),
+				Collections.<Percept> emptySet());
+		assertTrue(this.capabilities.getPerceptDelta().isEmpty());
+	}
+
+	@Test
+	public void testActionPerceptKeptWhenEnvironmentFails() throws Exception {
+		this.capabilities.getPerceptDelta();
+		this.capabilities.performAction(new Action("act"));
+		this.environmentPort.freeAgent(AGENT);
+		try {
+			this.capabilities.getPerceptDelta();
+			fail("the agent is not registered");
+		} catch (EnvironmentInterfaceException e) {
+			// expected
+		}
+		this.environmentPort.registerAgent(AGENT);
+		this.environmentPort.associateEntity(AGENT, ENTITY);
+		// The environment sends the entity's percept again, as it forgot
+		// the agent; the percept of the action was not lost.
+		assertDelta(Collections.singleton(this.act),
+				Collections.<Percept> emptySet());
+	}
+
+	private void assertDelta(Set<Percept> added, Set<Percept> removed)
+			throws Exception {
+		PerceptDelta delta = this.capabilities.getPerceptDelta();
+		assertEquals(added, delta.getAdded());
+		assertEquals(removed, delta.getRemoved());
+	}
+}
@@ -13,6 +13,7 @@ import eis.iilang.Parameter;
 import goal.core.runtime.MessagingService;
 import goal.core.runtime.service.environment.LocalMessagingEnvironment;
 import goal.core.runtime.service.environmentport.EnvironmentPort;
+import goal.core.runtime.service.environmentport.PerceptDelta;
 import goal.tools.logging.Loggers;
 
 import java.util.HashMap;
@@ -140,6 +141,20 @@ public class EnvironmentPortTest {
 		assertFalse(this.environmentPort.getPercepts("existingAgent").isEmpty());
 	}
 
+	@Test
+	public void testGetPerceptDelta() throws MessagingException,
+	EnvironmentInterfaceException {
+		this.environmentPort.registerAgent("existingAgent");
+		this.environmentPort.associateEntity("existingAgent", "existingEntity");
+		PerceptDelta first = this.environmentPort
+				.getPerceptDelta("existingAgent");
+		assertFalse(first.getAdded().isEmpty());
+		assertTrue(first.getRemoved().isEmpty());
+		// Percepts of the mock environment do not change.
+		assertTrue(this.environmentPort.getPerceptDelta("existingAgent")
+				.isEmpty());
+	}
+
 	@Test
 	public void testGetReward() throws MessagingException,
 	EnvironmentInterfaceException {
@@ -1,7 +1,10 @@
 package goal.core.runtime.environmentServices;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
@@ -27,6 +30,8 @@ import eis.iilang.Parameter;
 import eis.iilang.Percept;
 import goal.core.runtime.MessagingService;
 import goal.core.runtime.service.environment.LocalMessagingEnvironment;
+import goal.core.runtime.service.environment.LocalMessagingEnvironment.Messages2Environment;
+import goal.core.runtime.service.environmentport.actions.GetReward;
 import goal.tools.logging.Loggers;
 
 public class LocalMessagingEnvironmentTest {
@@ -123,4 +128,49 @@ public class LocalMessagingEnvironmentTest {
 		assertNotNull(this.environment.getMessageBoxId());
 	}
 
+	@Test(timeout = 5000)
+	public void testDirectCall() throws Exception {
+		LocalMessagingEnvironment direct = new LocalMessagingEnvironment(
+				new MockEnvironment(), "mockEnvironment", this.initialization,
+				this.messaging);
+		try {
+			assertEquals(Double.valueOf(42.0), direct.call(new GetReward("existingEntity")));
+		} finally {
+			direct.shutDown();
+		}
+	}
+
+	@Test(timeout = 5000)
+	public void testDirectCallAfterShutDown() throws Exception {
+		final LocalMessagingEnvironment direct = new LocalMessagingEnvironment(
+				new MockEnvironment(), "mockEnvironment", this.initialization,
+				this.messaging);
+		direct.shutDown();
+		// Seen by another thread than the one that shut it down.
+		final Serializable[] result = new Serializable[1];
+		Thread agent = new Thread() {
+			@Override
+			public void run() {
+				result[0] = direct.call(new GetReward("existingEntity"));
+			}
+		};
+		agent.start();
+		agent.join();
+		assertTrue(result[0] instanceof NoEnvironmentException);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDirectCallOfEnvironmentWideRequest() {
+		this.environment
+				.call(new goal.core.runtime.service.environmentport.actions.Action() {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					public Serializable invoke(
+							Messages2Environment messages2Environment) {
+						return null;
+					}
+				});
+	}
+
 }
@@ -0,0 +1,116 @@
+package goal.core.runtime.environmentServices;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import eis.iilang.Identifier;
+import eis.iilang.Percept;
+import goal.core.runtime.service.environment.PerceptCache;
+import goal.core.runtime.service.environmentport.PerceptDelta;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that a {@link PerceptCache} only reports a percept as added when the
+ * first entity perceives it, and as removed when the last entity no longer
+ * perceives it.
+ */
+public class PerceptCacheTest {
+	private final Percept red = new Percept("color", new Identifier("red"));
+	private final Percept blue = new Percept("color", new Identifier("blue"));
+	private PerceptCache cache;
+	private Map<String, Collection<Percept>> percepts;
+
+	@Before
+	public void setUp() {
+		this.cache = new PerceptCache();
+		this.percepts = new HashMap<>();
+	}
+
+	@Test
+	public void testFirstUpdateAddsAll() {
+		perceive("one", this.red, this.blue);
+		assertDelta(this.cache.update(this.percepts), Arrays.asList(this.red,
+				this.blue), Collections.<Percept> emptyList());
+	}
+
+	@Test
+	public void testUnchanged() {
+		perceive("one", this.red);
+		this.cache.update(this.percepts);
+		assertTrue(this.cache.update(this.percepts).isEmpty());
+	}
+
+	@Test
+	public void testChanged() {
+		perceive("one", this.red);
+		this.cache.update(this.percepts);
+		perceive("one", this.blue);
+		assertDelta(this.cache.update(this.percepts),
+				Arrays.asList(this.blue), Arrays.asList(this.red));
+	}
+
+	@Test
+	public void testPerceivedByTwoEntities() {
+		perceive("one", this.red);
+		perceive("two", this.red);
+		assertDelta(this.cache.update(this.percepts),
+				Arrays.asList(this.red), Collections.<Percept> emptyList());
+
+		// Still perceived by the other entity.
+		perceive("one");
+		assertTrue(this.cache.update(this.percepts).isEmpty());
+
+		perceive("two");
+		assertDelta(this.cache.update(this.percepts),
+				Collections.<Percept> emptyList(), Arrays.asList(this.red));
+	}
+
+	@Test
+	public void testMovedToOtherEntity() {
+		perceive("one", this.red);
+		this.cache.update(this.percepts);
+		perceive("one");
+		perceive("two", this.red);
+		assertTrue(this.cache.update(this.percepts).isEmpty());
+	}
+
+	@Test
+	public void testEntityGone() {
+		perceive("one", this.red);
+		perceive("two", this.red, this.blue);
+		this.cache.update(this.percepts);
+		this.percepts.remove("two");
+		assertDelta(this.cache.update(this.percepts),
+				Collections.<Percept> emptyList(), Arrays.asList(this.blue));
+		this.percepts.remove("one");
+		assertDelta(this.cache.update(this.percepts),
+				Collections.<Percept> emptyList(), Arrays.asList(this.red));
+	}
+
+	@Test
+	public void testClear() {
+		perceive("one", this.red);
+		this.cache.update(this.percepts);
+		this.cache.clear();
+		assertDelta(this.cache.update(this.percepts),
+				Arrays.asList(this.red), Collections.<Percept> emptyList());
+	}
+
+	private void perceive(String entity, Percept... percepts) {
+		this.percepts.put(entity, Arrays.asList(percepts));
+	}
+
+	private static void assertDelta(PerceptDelta delta,
+			Collection<Percept> added, Collection<Percept> removed) {
+		assertEquals(new HashSet<>(added), new HashSet<>(delta.getAdded()));
+		assertEquals(new HashSet<>(removed), new HashSet<>(delta.getRemoved()));
+	}
+}
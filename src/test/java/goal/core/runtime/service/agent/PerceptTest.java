@@ -0,0 +1,161 @@
+package goal.core.runtime.service.agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import eis.exceptions.EnvironmentInterfaceException;
+import eis.exceptions.PerceiveException;
+import eis.iilang.Action;
+import eis.iilang.Identifier;
+import eis.iilang.Percept;
+import goal.core.agent.EnvironmentCapabilities;
+import goal.core.agent.NoLoggingCapabilities;
+import goal.core.agent.NoMessagingCapabilities;
+import goal.core.agent.WakeUpSignal;
+import goal.core.runtime.service.environmentport.PerceptDelta;
+import goal.tools.PlatformManager;
+import goal.tools.debugger.NOPDebugger;
+import goal.tools.logging.Loggers;
+import goalhub.krTools.KRFactory;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.Queue;
+
+import languageTools.program.agent.AgentId;
+import mentalState.BASETYPE;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests that the percept base of an agent follows the percept changes of its
+ * environment, also when getting them fails and after a reset.
+ */
+public class PerceptTest {
+	private final AgentId id = new AgentId("testAgent");
+	private final Percept onB = new Percept("on", new Identifier("b"),
+			new Identifier("table"));
+	private ScriptedCapabilities environment;
+	private RunState<NOPDebugger> runState;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Loggers.addConsoleLogger();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		Loggers.removeConsoleLogger();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		this.environment = new ScriptedCapabilities();
+		this.runState = new RunState<>(null, this.id, this.environment,
+				new NoMessagingCapabilities(), new NoLoggingCapabilities(),
+				PlatformManager.createNew().parseGOALFile(
+						new File("src/test/resources/goal/core/runtime/"
+								+ "service/agent/snapshot.goal"),
+						KRFactory.getDefaultInterface()), new NOPDebugger(
+						this.id), null, null);
+	}
+
+	@After
+	public void tearDown() {
+		this.runState.dispose();
+	}
+
+	@Test
+	public void testPerceptsKeptWhenEnvironmentFails() throws Exception {
+		this.environment.deltas.add(added());
+		this.runState.startCycle(false);
+		assertEquals(1, getPercepts());
+
+		// The environment fails: the percepts of the previous cycle are
+		// kept, as the next delta is relative to them.
+		this.environment.deltas.add(null);
+		this.runState.startCycle(false);
+		assertEquals(1, getPercepts());
+
+		this.environment.deltas.add(new PerceptDelta(Collections
+				.<Percept> emptySet(), Collections.singleton(this.onB)));
+		this.runState.startCycle(false);
+		assertEquals(0, getPercepts());
+	}
+
+	@Test
+	public void testResetResyncs() throws Exception {
+		this.environment.deltas.add(added());
+		this.runState.startCycle(false);
+		this.runState.reset();
+		assertTrue(this.environment.reset);
+		assertEquals(0, getPercepts());
+		// After a reset the environment sends all percepts again.
+		this.environment.deltas.add(added());
+		this.runState.startCycle(false);
+		assertEquals(1, getPercepts());
+	}
+
+	private PerceptDelta added() {
+		return new PerceptDelta(Collections.singleton(this.onB),
+				Collections.<Percept> emptySet());
+	}
+
+	private int getPercepts() {
+		return this.runState.getMentalState()
+				.getOwnBase(BASETYPE.PERCEPTBASE).getTheory().getFormulas()
+				.size();
+	}
+
+	/**
+	 * An environment that returns the deltas put in its queue, one per cycle,
+	 * and fails for a null delta.
+	 */
+	private static class ScriptedCapabilities implements
+			EnvironmentCapabilities {
+		private final Queue<PerceptDelta> deltas = new LinkedList<>();
+		private boolean reset = false;
+
+		@Override
+		public Double getReward() {
+			return 0.0;
+		}
+
+		@Override
+		public PerceptDelta getPerceptDelta()
+				throws EnvironmentInterfaceException {
+			if (this.deltas.isEmpty()) {
+				return PerceptDelta.EMPTY;
+			}
+			PerceptDelta delta = this.deltas.remove();
+			if (delta == null) {
+				throw new PerceiveException("no percepts");
+			}
+			return delta;
+		}
+
+		@Override
+		public void reset() {
+			this.reset = true;
+		}
+
+		@Override
+		public void performAction(Action action) {
+			throw new IllegalStateException("no actions");
+		}
+
+		@Override
+		public void setWakeUpSignal(WakeUpSignal signal) {
+			// Never raised.
+		}
+
+		@Override
+		public void dispose() {
+			// Does nothing.
+		}
+	}
+}
@@ -0,0 +1,218 @@
+package goal.core.runtime.service.agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import eis.iilang.Identifier;
+import eis.iilang.Percept;
+import goal.core.agent.NoEnvironmentCapabilities;
+import goal.core.agent.NoLoggingCapabilities;
+import goal.core.agent.NoMessagingCapabilities;
+import goal.core.mentalstate.MentalState;
+import goal.core.runtime.service.environmentport.PerceptDelta;
+import goal.preferences.CorePreferences;
+import goal.tools.PlatformManager;
+import goal.tools.SnapshotCache;
+import goal.tools.debugger.NOPDebugger;
+import goal.tools.logging.Loggers;
+import goalhub.krTools.KRFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import krTools.language.DatabaseFormula;
+import krTools.language.Update;
+import languageTools.program.agent.AgentId;
+import languageTools.program.agent.AgentProgram;
+import mentalState.BASETYPE;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests that the mental state of an agent after its init module is restored
+ * from a snapshot only when that gives the same mental state as running the
+ * init module.
+ */
+public class SnapshotTest {
+	private final AgentId id = new AgentId("testAgent");
+	private final NOPDebugger debugger = new NOPDebugger(this.id);
+	private final List<RunState<NOPDebugger>> runStates = new ArrayList<>();
+	private AgentProgram program;
+	private SnapshotCache snapshots;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Loggers.addConsoleLogger();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		Loggers.removeConsoleLogger();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		this.program = parse("snapshot.goal");
+		this.snapshots = new SnapshotCache();
+	}
+
+	@After
+	public void tearDown() {
+		for (RunState<NOPDebugger> runState : this.runStates) {
+			runState.dispose();
+		}
+	}
+
+	@Test
+	public void testRestoredEqualsInit() throws Exception {
+		MentalState init = start(new NoEnvironmentCapabilities());
+		assertNotNull(this.snapshots.get(this.program, this.id.getName()));
+		MentalState restored = start(new NoEnvironmentCapabilities());
+		// The rules of the init module were not evaluated again.
+		assertTrue(restored.getCount() < init.getCount());
+		assertEquals(getBeliefs(init), getBeliefs(restored));
+		assertEquals(getGoals(init), getGoals(restored));
+	}
+
+	@Test
+	public void testRestoredKeepsKnownAgents() throws Exception {
+		AgentId other = new AgentId("otherAgent");
+		RunState<NOPDebugger> runState = create(new NoEnvironmentCapabilities());
+		runState.getMentalState().addAgentModel(other, this.debugger);
+		runState.startCycle(false);
+		MentalState init = runState.getMentalState();
+
+		runState = create(new NoEnvironmentCapabilities());
+		runState.getMentalState().addAgentModel(other, this.debugger);
+		runState.startCycle(false);
+		MentalState restored = runState.getMentalState();
+		assertEquals(getBeliefs(init), getBeliefs(restored));
+		assertEquals(init.getKnownAgents(), restored.getKnownAgents());
+	}
+
+	@Test
+	public void testNotRestoredWithPercepts() throws Exception {
+		MentalState init = start(new NoEnvironmentCapabilities());
+		MentalState perceived = start(new PerceivingCapabilities());
+		// The init module also believes on(b,table) and clear(b).
+		assertEquals(getBeliefs(init).size() + 2, getBeliefs(perceived).size());
+	}
+
+	@Test
+	public void testNoSnapshotWithPercepts() throws Exception {
+		start(new PerceivingCapabilities());
+		assertNull(this.snapshots.get(this.program, this.id.getName()));
+	}
+
+	@Test
+	public void testNoSnapshotWhenLearning() throws Exception {
+		boolean learning = CorePreferences.isLearning();
+		CorePreferences.setLearning(true);
+		try {
+			start(new NoEnvironmentCapabilities());
+		} finally {
+			CorePreferences.setLearning(learning);
+		}
+		assertNull(this.snapshots.get(this.program, this.id.getName()));
+	}
+
+	@Test
+	public void testNoSnapshotWithUnorderedCalledModule() throws Exception {
+		this.program = parse("snapshotrandom.goal");
+		start(new NoEnvironmentCapabilities());
+		assertNull(this.snapshots.get(this.program, this.id.getName()));
+	}
+
+	@Test
+	public void testNoSnapshotWithEffectInCalledModule() throws Exception {
+		this.program = parse("snapshotprint.goal");
+		start(new NoEnvironmentCapabilities());
+		assertNull(this.snapshots.get(this.program, this.id.getName()));
+	}
+
+	/**
+	 * @param name
+	 *            The name of a program in
+	 *            src/test/resources/goal/core/runtime/service/agent.
+	 * @return The parsed program.
+	 */
+	private static AgentProgram parse(String name) throws Exception {
+		return PlatformManager.createNew().parseGOALFile(
+				new File("src/test/resources/goal/core/runtime/service/agent/"
+						+ name), KRFactory.getDefaultInterface());
+	}
+
+	/**
+	 * Creates a run state of the agent that shares the snapshots of this
+	 * test.
+	 */
+	private RunState<NOPDebugger> create(NoEnvironmentCapabilities environment)
+			throws Exception {
+		RunState<NOPDebugger> runState = new RunState<>(null, this.id,
+				environment, new NoMessagingCapabilities(),
+				new NoLoggingCapabilities(), this.program, this.debugger,
+				null, this.snapshots);
+		this.runStates.add(runState);
+		return runState;
+	}
+
+	/**
+	 * Runs the first cycle of a new run state of the agent, in which it runs
+	 * or restores its init module.
+	 *
+	 * @return The mental state after the first cycle.
+	 */
+	private MentalState start(NoEnvironmentCapabilities environment)
+			throws Exception {
+		RunState<NOPDebugger> runState = create(environment);
+		runState.startCycle(false);
+		return runState.getMentalState();
+	}
+
+	private static Set<String> getBeliefs(MentalState mentalState) {
+		Set<String> beliefs = new HashSet<>();
+		for (DatabaseFormula formula : mentalState
+				.getOwnBase(BASETYPE.BELIEFBASE).getTheory().getFormulas()) {
+			beliefs.add(formula.toString());
+		}
+		return beliefs;
+	}
+
+	private static Set<String> getGoals(MentalState mentalState) {
+		Set<String> goals = new HashSet<>();
+		for (Update goal : mentalState.getAttentionStack().get(0)
+				.getSnapshot()) {
+			goals.add(goal.toString());
+		}
+		return goals;
+	}
+
+	/**
+	 * An environment in which the agent perceives that block b is on the
+	 * table in its first cycle.
+	 */
+	private static class PerceivingCapabilities extends
+			NoEnvironmentCapabilities {
+		private boolean perceived = false;
+
+		@Override
+		public PerceptDelta getPerceptDelta() {
+			if (this.perceived) {
+				return PerceptDelta.EMPTY;
+			}
+			this.perceived = true;
+			return new PerceptDelta(Collections.singleton(new Percept("on",
+					new Identifier("b"), new Identifier("table"))),
+					Collections.<Percept> emptySet());
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package goal.core.runtime.service.environment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import goal.tools.logging.Loggers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests that {@link RequestLanes} run the requests of one lane in the order
+ * they were dispatched, the requests of different lanes in parallel, and
+ * that {@link RequestLanes#awaitIdle()} waits for the requests that are
+ * still queued.
+ */
+public class RequestLanesTest {
+	private RequestLanes lanes;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Loggers.addConsoleLogger();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		Loggers.removeConsoleLogger();
+	}
+
+	@Before
+	public void setUp() {
+		this.lanes = new RequestLanes(4, "test lanes");
+	}
+
+	@After
+	public void tearDown() {
+		this.lanes.shutDown();
+	}
+
+	@Test
+	public void testLaneInOrder() throws Exception {
+		List<Integer> a = Collections
+				.synchronizedList(new ArrayList<Integer>());
+		List<Integer> b = Collections
+				.synchronizedList(new ArrayList<Integer>());
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			this.lanes.dispatch("a", add(a, i));
+			this.lanes.dispatch("b", add(b, i));
+			expected.add(i);
+		}
+		this.lanes.awaitIdle();
+		assertEquals(expected, a);
+		assertEquals(expected, b);
+	}
+
+	@Test
+	public void testAwaitIdleWaitsForQueued() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger runs = new AtomicInteger();
+		this.lanes.dispatch("a", new Runnable() {
+			@Override
+			public void run() {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				runs.incrementAndGet();
+			}
+		});
+		// Queued behind the blocked request.
+		for (int i = 0; i < 10; i++) {
+			this.lanes.dispatch("a", count(runs));
+		}
+		final CountDownLatch idle = new CountDownLatch(1);
+		Thread waiter = new Thread() {
+			@Override
+			public void run() {
+				try {
+					RequestLanesTest.this.lanes.awaitIdle();
+					idle.countDown();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		waiter.start();
+		assertFalse(idle.await(100, TimeUnit.MILLISECONDS));
+		release.countDown();
+		assertTrue(idle.await(10, TimeUnit.SECONDS));
+		assertEquals(11, runs.get());
+		waiter.join();
+	}
+
+	@Test
+	public void testLanesInParallel() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		this.lanes.dispatch("a", new Runnable() {
+			@Override
+			public void run() {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		final CountDownLatch ran = new CountDownLatch(1);
+		this.lanes.dispatch("b", new Runnable() {
+			@Override
+			public void run() {
+				ran.countDown();
+			}
+		});
+		// Not held up by the blocked request on the other lane.
+		assertTrue(ran.await(10, TimeUnit.SECONDS));
+		release.countDown();
+		this.lanes.awaitIdle();
+	}
+
+	@Test
+	public void testFailedRequestKeepsLane() throws Exception {
+		AtomicInteger runs = new AtomicInteger();
+		this.lanes.dispatch("a", new Runnable() {
+			@Override
+			public void run() {
+				throw new IllegalStateException("request failed");
+			}
+		});
+		this.lanes.dispatch("a", count(runs));
+		this.lanes.awaitIdle();
+		assertEquals(1, runs.get());
+	}
+
+	/**
+	 * @return A request that adds a number to a list.
+	 */
+	private static Runnable add(final List<Integer> list, final int i) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				list.add(i);
+			}
+		};
+	}
+
+	/**
+	 * @return A request that counts its runs.
+	 */
+	private static Runnable count(final AtomicInteger runs) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				runs.incrementAndGet();
+			}
+		};
+	}
+}
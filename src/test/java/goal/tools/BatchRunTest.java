@@ -0,0 +1,87 @@
+package goal.tools;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import goal.preferences.CorePreferences;
+import goal.preferences.PMPreferences;
+import goal.tools.errorhandling.exceptions.GOALRunFailedException;
+import goal.tools.logging.Loggers;
+
+import java.io.File;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import rmimessaging.RmiMessaging;
+
+public class BatchRunTest {
+	private static final File MAS = new File(
+			"src/test/resources/goal/tools/testselect.mas2g");
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Loggers.addConsoleLogger();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		Loggers.removeConsoleLogger();
+	}
+
+	@Test
+	public void testParallel() throws Exception {
+		BatchRun run = new BatchRun(MAS, MAS);
+		run.setRepeats(3);
+		run.setParallelism(4);
+		assertTrue(run.isParallel());
+		run.run();
+	}
+
+	@Test(expected = GOALRunFailedException.class)
+	public void testParallelFailure() throws Exception {
+		BatchRun run = new BatchRun(MAS, new File("doesnotexist.mas2g"));
+		run.setRepeats(2);
+		run.setParallelism(2);
+		run.run();
+	}
+
+	@Test
+	public void testSequentialByDefault() {
+		assertFalse(new BatchRun(MAS).isParallel());
+	}
+
+	@Test
+	public void testSequentialWithSharedMessaging() {
+		BatchRun run = new BatchRun(MAS);
+		run.setParallelism(4);
+		run.setMessaging(new RmiMessaging());
+		assertFalse(run.isParallel());
+	}
+
+	@Test
+	public void testSequentialWhenLearning() {
+		BatchRun run = new BatchRun(MAS);
+		run.setParallelism(4);
+		boolean learning = CorePreferences.isLearning();
+		CorePreferences.setLearning(true);
+		try {
+			assertFalse(run.isParallel());
+		} finally {
+			CorePreferences.setLearning(learning);
+		}
+	}
+
+	@Test
+	public void testSequentialWithMetrics() {
+		BatchRun run = new BatchRun(MAS);
+		run.setParallelism(4);
+		boolean metrics = PMPreferences.getMetrics();
+		PMPreferences.setMetrics(true);
+		try {
+			assertFalse(run.isParallel());
+		} finally {
+			PMPreferences.setMetrics(metrics);
+		}
+	}
+}
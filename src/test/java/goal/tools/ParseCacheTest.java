@@ -0,0 +1,87 @@
+package goal.tools;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import goal.tools.logging.Loggers;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ParseCacheTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File mas;
+	private File agent;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Loggers.addConsoleLogger();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		Loggers.removeConsoleLogger();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		this.mas = copy("testselect.mas2g");
+		this.agent = copy("testselect.goal");
+	}
+
+	@Test
+	public void testReused() throws Exception {
+		ParseCache cache = new ParseCache();
+		ParseCache.ParsedMAS parsed = cache.getMAS(this.mas);
+		assertSame(parsed, cache.getMAS(this.mas));
+	}
+
+	@Test
+	public void testParsedAgainWhenMASChanged() throws Exception {
+		ParseCache cache = new ParseCache();
+		ParseCache.ParsedMAS parsed = cache.getMAS(this.mas);
+		append(this.mas);
+		ParseCache.ParsedMAS again = cache.getMAS(this.mas);
+		assertNotSame(parsed, again);
+		assertSame(again, cache.getMAS(this.mas));
+	}
+
+	@Test
+	public void testParsedAgainWhenAgentChanged() throws Exception {
+		ParseCache cache = new ParseCache();
+		ParseCache.ParsedMAS parsed = cache.getMAS(this.mas);
+		append(this.agent);
+		assertNotSame(parsed, cache.getMAS(this.mas));
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		ParseCache cache = new ParseCache();
+		ParseCache.ParsedMAS parsed = cache.getMAS(this.mas);
+		cache.clear();
+		assertNotSame(parsed, cache.getMAS(this.mas));
+	}
+
+	private File copy(String name) throws Exception {
+		File copy = new File(this.folder.getRoot(), name);
+		Files.copy(new File("src/test/resources/goal/tools/" + name).toPath(),
+				copy.toPath());
+		return copy;
+	}
+
+	private static void append(File file) throws Exception {
+		try (Writer writer = new FileWriter(file, true)) {
+			writer.write("\n% changed\n");
+		}
+	}
+}
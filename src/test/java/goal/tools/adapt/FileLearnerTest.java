@@ -3,7 +3,6 @@ package goal.tools.adapt;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import eis.iilang.Action;
-import eis.iilang.Percept;
 import goal.core.agent.Agent;
 import goal.core.agent.EnvironmentCapabilities;
 import goal.core.agent.GOALInterpreter;
@@ -11,14 +10,14 @@ import goal.core.agent.LoggingCapabilities;
 import goal.core.agent.MessagingCapabilities;
 import goal.core.agent.NoLoggingCapabilities;
 import goal.core.agent.NoMessagingCapabilities;
+import goal.core.agent.WakeUpSignal;
+import goal.core.runtime.service.environmentport.PerceptDelta;
 import goal.tools.PlatformManager;
 import goal.tools.debugger.NOPDebugger;
 import goal.tools.logging.Loggers;
 import goalhub.krTools.KRFactory;
 
 import java.io.File;
-import java.util.HashSet;
-import java.util.Set;
 
 import krTools.KRInterface;
 import languageTools.program.agent.AgentId;
@@ -43,8 +42,16 @@ public class FileLearnerTest {
 		}
 
 		@Override
-		public Set<Percept> getPercepts() {
-			return new HashSet<Percept>();
+		public PerceptDelta getPerceptDelta() {
+			return PerceptDelta.EMPTY;
+		}
+
+		@Override
+		public void reset() {
+		}
+
+		@Override
+		public void setWakeUpSignal(WakeUpSignal signal) {
 		}
 
 		@Override
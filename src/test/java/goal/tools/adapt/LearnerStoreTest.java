@@ -0,0 +1,278 @@
+package goal.tools.adapt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LearnerStoreTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File file;
+	private LearnerStore.Contents contents;
+	private QLearner learner;
+
+	@Before
+	public void setUp() throws Exception {
+		this.file = new File(this.folder.getRoot(), "test.lrn");
+		this.contents = new LearnerStore.Contents();
+		this.contents.runCount = 3;
+		for (int state = 1; state <= 10; state++) {
+			this.contents.stateid.put("key" + state, state);
+			this.contents.statestr.put("key" + state, "state " + state);
+		}
+		this.contents.actionstr.put(1, "move(a,b)");
+		this.contents.actionstr.put(2, "move(b,a)");
+		this.contents.universe.addAll(Arrays.asList("on(a,b)", "on(b,a)"));
+		this.learner = new QLearner(0.5, 0.1, 0.9, 0.8);
+		for (int state = 1; state <= 10; state++) {
+			this.learner.getValues().put(state, 1, state);
+			this.learner.getValues().put(state, 2, -state);
+		}
+		this.contents.learners.put("main", this.learner);
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		new LearnerStore(this.file).write(this.contents);
+		assertTrue(LearnerStore.isStore(this.file));
+		assertContents(this.contents, new LearnerStore(this.file).read());
+	}
+
+	@Test
+	public void testAppend() throws Exception {
+		LearnerStore store = new LearnerStore(this.file);
+		store.write(this.contents);
+		byte[] written = read(this.file);
+
+		this.contents.runCount++;
+		this.contents.stateid.put("key11", 11);
+		this.contents.statestr.put("key11", "state 11");
+		this.learner.getValues().put(11, 1, 11);
+		this.learner.getValues().put(1, 1, 100);
+		store.write(this.contents);
+
+		// Only the changes have been added.
+		byte[] appended = read(this.file);
+		assertArrayEquals(written, Arrays.copyOf(appended, written.length));
+		assertTrue(appended.length - written.length < written.length / 2);
+		assertContents(this.contents, new LearnerStore(this.file).read());
+	}
+
+	@Test
+	public void testRewriteWhenModifiedElsewhere() throws Exception {
+		LearnerStore store = new LearnerStore(this.file);
+		store.write(this.contents);
+		long length = this.file.length();
+
+		// Another store appends to the file.
+		LearnerStore other = new LearnerStore(this.file);
+		other.read();
+		this.learner.getValues().put(1, 1, 100);
+		other.write(this.contents);
+		assertTrue(this.file.length() > length);
+
+		// The first store no longer knows what the file holds.
+		this.learner.getValues().put(2, 1, 200);
+		store.write(this.contents);
+		assertEquals(length, this.file.length());
+		assertContents(this.contents, new LearnerStore(this.file).read());
+	}
+
+	@Test
+	public void testRewriteWhenMostlySuperseded() throws Exception {
+		LearnerStore store = new LearnerStore(this.file);
+		store.write(this.contents);
+		long length = this.file.length();
+		for (int i = 0; i < 100; i++) {
+			for (int state = 1; state <= 10; state++) {
+				this.learner.getValues().put(state, 1, i);
+			}
+			store.write(this.contents);
+		}
+		assertTrue(this.file.length() < 3 * length);
+		assertContents(this.contents, new LearnerStore(this.file).read());
+	}
+
+	@Test
+	public void testTruncatedRecord() throws Exception {
+		new LearnerStore(this.file).write(this.contents);
+		try (RandomAccessFile access = new RandomAccessFile(this.file, "rw")) {
+			// Cut the last value in half.
+			access.setLength(access.length() - 4);
+		}
+		LearnerStore store = new LearnerStore(this.file);
+		LearnerStore.Contents read = store.read();
+		assertEquals(this.learner.getValues().size() - 1, read.learners
+				.get("main").getValues().size());
+
+		// The next write repairs the file.
+		store.write(this.contents);
+		assertContents(this.contents, new LearnerStore(this.file).read());
+	}
+
+	@Test
+	public void testNegativeStringLength() throws Exception {
+		assertIgnored(new Record() {
+			@Override
+			void write(DataOutputStream output) throws Exception {
+				output.writeByte('S');
+				output.writeInt(11);
+				output.writeInt(-5);
+			}
+		});
+	}
+
+	@Test
+	public void testStringBeyondEnd() throws Exception {
+		assertIgnored(new Record() {
+			@Override
+			void write(DataOutputStream output) throws Exception {
+				output.writeByte('U');
+				output.writeInt(1000000);
+				output.write("on(c,d)".getBytes(StandardCharsets.UTF_8));
+			}
+		});
+	}
+
+	@Test
+	public void testUnknownModule() throws Exception {
+		assertIgnored(new Record() {
+			@Override
+			void write(DataOutputStream output) throws Exception {
+				output.writeByte('Q');
+				output.writeInt(7);
+				output.writeInt(1);
+				output.writeInt(1);
+				output.writeDouble(1.0);
+			}
+		});
+	}
+
+	@Test
+	public void testUnknownTag() throws Exception {
+		assertIgnored(new Record() {
+			@Override
+			void write(DataOutputStream output) throws Exception {
+				output.writeByte('Z');
+				output.writeInt(1);
+			}
+		});
+	}
+
+	@Test
+	public void testLegacyLearner() throws Exception {
+		OLearner legacy = new OLearner(0.5, 0.1, 0.9, 0.8);
+		for (int state = 1; state <= 10; state++) {
+			legacy.setValue(state, 1, state);
+			legacy.setValue(state, 2, -state);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+			output.writeObject(legacy);
+		}
+		byte[] stream = replace(bytes.toByteArray(), OLearner.class.getName(),
+				QLearner.class.getName());
+		QLearner imported;
+		try (ObjectInputStream input = new ObjectInputStream(
+				new ByteArrayInputStream(stream))) {
+			imported = (QLearner) input.readObject();
+		}
+		assertEquals(0.5, imported.getAlpha(), 0);
+		assertEquals(0.8, imported.getGamma(), 0);
+		assertValues(this.learner.getValues(), imported.getValues());
+
+		// Converted on the next save.
+		this.contents.learners.put("main", imported);
+		new LearnerStore(this.file).write(this.contents);
+		assertContents(this.contents, new LearnerStore(this.file).read());
+	}
+
+	/**
+	 * A record that is appended to a valid file.
+	 */
+	private abstract static class Record {
+		abstract void write(DataOutputStream output) throws Exception;
+	}
+
+	/**
+	 * Checks that a malformed record at the end of a file is ignored, and
+	 * that the next write rewrites the file without it.
+	 */
+	private void assertIgnored(Record record) throws Exception {
+		new LearnerStore(this.file).write(this.contents);
+		try (DataOutputStream output = new DataOutputStream(
+				new FileOutputStream(this.file, true))) {
+			record.write(output);
+		}
+		LearnerStore store = new LearnerStore(this.file);
+		assertContents(this.contents, store.read());
+		long length = this.file.length();
+		store.write(this.contents);
+		assertContents(this.contents, new LearnerStore(this.file).read());
+		assertTrue(this.file.length() < length);
+	}
+
+	private static void assertContents(LearnerStore.Contents expected,
+			LearnerStore.Contents actual) {
+		assertEquals(expected.runCount, actual.runCount);
+		assertEquals(expected.stateid, actual.stateid);
+		assertEquals(expected.statestr, actual.statestr);
+		assertEquals(expected.actionstr, actual.actionstr);
+		assertEquals(expected.universe, actual.universe);
+		assertEquals(expected.learners.keySet(), actual.learners.keySet());
+		for (String module : expected.learners.keySet()) {
+			QLearner learner = expected.learners.get(module);
+			QLearner other = actual.learners.get(module);
+			assertEquals(learner.getAlpha(), other.getAlpha(), 0);
+			assertEquals(learner.getEpsilon(), other.getEpsilon(), 0);
+			assertEquals(learner.getEpsilonDecay(), other.getEpsilonDecay(),
+					0);
+			assertEquals(learner.getGamma(), other.getGamma(), 0);
+			assertValues(learner.getValues(), other.getValues());
+		}
+	}
+
+	private static void assertValues(QValueTable expected, QValueTable actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int entry = 0; entry < expected.size(); entry++) {
+			int state = expected.getState(entry);
+			int action = expected.getAction(entry);
+			assertEquals(expected.getValue(entry),
+					actual.get(state, action, Double.NaN), 0);
+		}
+	}
+
+	private static byte[] read(File file) throws Exception {
+		return java.nio.file.Files.readAllBytes(file.toPath());
+	}
+
+	private static byte[] replace(byte[] bytes, String from, String to) {
+		byte[] pattern = from.getBytes(StandardCharsets.UTF_8);
+		byte[] replacement = to.getBytes(StandardCharsets.UTF_8);
+		byte[] result = bytes.clone();
+		for (int i = 0; i + pattern.length <= result.length; i++) {
+			if (Arrays.equals(pattern,
+					Arrays.copyOfRange(result, i, i + pattern.length))) {
+				System.arraycopy(replacement, 0, result, i, pattern.length);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,40 @@
+package goal.tools.adapt;
+
+import java.io.Serializable;
+import java.util.Hashtable;
+import java.util.Random;
+
+/**
+ * Has the serialized form of a {@link QLearner} as it was before the value
+ * function was a {@link QValueTable}. Its name has the same length as that
+ * of {@link QLearner}, so that a serialized instance becomes a serialized old
+ * {@link QLearner} by replacing the name; see {@link LearnerStoreTest}.
+ */
+class OLearner implements Serializable {
+	private static final long serialVersionUID = -8719214041255496994L;
+	private final Random randGenerator = new Random();
+	private final Hashtable<Integer, Hashtable<Integer, Double>> valueFunction = new Hashtable<>();
+	private final double alpha;
+	private double epsilon;
+	private final double epsilon_decay;
+	private final double gamma;
+	private Integer newaction;
+	private Integer newstate;
+	private final int DEFAULT_VALUE = 0;
+
+	OLearner(double step, double epsilon, double decay, double gamma) {
+		this.alpha = step;
+		this.epsilon = epsilon;
+		this.epsilon_decay = decay;
+		this.gamma = gamma;
+	}
+
+	void setValue(int state, int action, double value) {
+		Hashtable<Integer, Double> actions = this.valueFunction.get(state);
+		if (actions == null) {
+			actions = new Hashtable<>();
+			this.valueFunction.put(state, actions);
+		}
+		actions.put(action, value);
+	}
+}
@@ -0,0 +1,121 @@
+package goal.tools.adapt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Hashtable;
+
+import org.junit.Test;
+
+public class QValueTableTest {
+	@Test
+	public void testPutAndGet() {
+		QValueTable table = new QValueTable();
+		assertFalse(table.contains(1, 2));
+		assertEquals(-1.0, table.get(1, 2, -1.0), 0);
+		table.put(1, 2, 0.5);
+		assertTrue(table.contains(1, 2));
+		assertTrue(table.containsState(1));
+		assertFalse(table.containsState(2));
+		assertEquals(0.5, table.get(1, 2, -1.0), 0);
+		table.put(1, 2, 0.75);
+		assertEquals(1, table.size());
+		assertEquals(0.75, table.get(1, 2, -1.0), 0);
+	}
+
+	@Test
+	public void testGrowth() {
+		QValueTable table = new QValueTable();
+		for (int state = 0; state < 1000; state++) {
+			for (int action = 0; action < 10; action++) {
+				table.put(state, action, state + action / 10.0);
+			}
+		}
+		assertEquals(10000, table.size());
+		for (int state = 0; state < 1000; state++) {
+			for (int action = 0; action < 10; action++) {
+				assertEquals(state + action / 10.0,
+						table.get(state, action, -1.0), 0);
+			}
+			assertEquals(state + 0.9, table.getMax(state, -1.0), 1e-9);
+			assertEquals(10, table.getActionValues(state).size());
+		}
+		assertFalse(table.contains(1000, 0));
+	}
+
+	@Test
+	public void testCollisions() {
+		QValueTable table = new QValueTable();
+		// These pairs hash the same.
+		table.put(0, 31, 1.0);
+		table.put(1, 0, 2.0);
+		table.put(-1, 62, 3.0);
+		assertEquals(3, table.size());
+		assertEquals(1.0, table.get(0, 31, -1.0), 0);
+		assertEquals(2.0, table.get(1, 0, -1.0), 0);
+		assertEquals(3.0, table.get(-1, 62, -1.0), 0);
+		assertFalse(table.contains(0, 0));
+		assertFalse(table.contains(1, 31));
+
+		// Each state keeps its own actions.
+		Hashtable<Integer, Double> values = table.getActionValues(1);
+		assertEquals(1, values.size());
+		assertEquals(Double.valueOf(2.0), values.get(0));
+		assertEquals(-1.0, table.getMax(2, -1.0), 0);
+	}
+
+	@Test
+	public void testCollisionsSurviveGrowth() {
+		QValueTable table = new QValueTable();
+		for (int i = 0; i < 1000; i++) {
+			// 31 * state + action is the same for all i.
+			table.put(i, 31 * (1000 - i), i);
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i, table.get(i, 31 * (1000 - i), -1.0), 0);
+			assertEquals(1, table.getActionValues(i).size());
+		}
+	}
+
+	@Test
+	public void testDirty() {
+		QValueTable table = new QValueTable();
+		table.put(1, 1, 1.0);
+		table.put(2, 2, 2.0);
+		assertEquals(2, table.getDirty().cardinality());
+		table.markClean();
+		assertTrue(table.getDirty().isEmpty());
+		table.put(2, 2, 3.0);
+		assertEquals(1, table.getDirty().cardinality());
+		assertEquals(2, table.getState(table.getDirty().nextSetBit(0)));
+	}
+
+	@Test
+	public void testSerialization() throws Exception {
+		QValueTable table = new QValueTable();
+		for (int i = 0; i < 100; i++) {
+			table.put(i % 7, i, i);
+		}
+		table.markClean();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+			output.writeObject(table);
+		}
+		QValueTable copy;
+		try (ObjectInputStream input = new ObjectInputStream(
+				new ByteArrayInputStream(bytes.toByteArray()))) {
+			copy = (QValueTable) input.readObject();
+		}
+		assertEquals(100, copy.size());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i, copy.get(i % 7, i, -1.0), 0);
+		}
+		// Nothing is known to be saved.
+		assertEquals(100, copy.getDirty().cardinality());
+	}
+}
@@ -0,0 +1,120 @@
+package goal.tools.debugger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import goal.tools.debugger.SteppingDebugger.RunMode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import krTools.parser.SourceInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the mask of observed channels of an {@link ObservableDebugger}, which
+ * decides both {@link ObservableDebugger#isActive(Channel)} and which events
+ * are sent.
+ */
+public class ObservableDebuggerTest {
+	private ObservableDebugger debugger;
+	private final List<DebugEvent> events = new ArrayList<>();
+	private final DebugObserver observer = new DebugObserver() {
+		@Override
+		public String getObserverName() {
+			return "test observer";
+		}
+
+		@Override
+		public void notifyBreakpointHit(DebugEvent event) {
+			ObservableDebuggerTest.this.events.add(event);
+		}
+	};
+
+	@Before
+	public void setUp() {
+		this.debugger = new ObservableDebugger("testAgent", null);
+	}
+
+	@Test
+	public void testOnlyObservedChannelsAreActive() {
+		this.debugger.subscribe(this.observer, Channel.BB_UPDATES);
+		for (Channel channel : Channel.values()) {
+			assertEquals(channel.toString(), channel == Channel.BB_UPDATES,
+					this.debugger.isActive(channel));
+		}
+	}
+
+	@Test
+	public void testEveryChannelCanBeObserved() {
+		for (Channel channel : Channel.values()) {
+			this.debugger.subscribe(this.observer, channel);
+			assertTrue(channel.toString(), this.debugger.isActive(channel));
+			this.debugger.unsubscribe(this.observer, channel);
+			assertFalse(channel.toString(), this.debugger.isActive(channel));
+		}
+	}
+
+	@Test
+	public void testUnsubscribeAll() {
+		this.debugger.subscribe(this.observer, Channel.BB_UPDATES);
+		this.debugger.subscribe(this.observer, Channel.GB_UPDATES);
+		this.debugger.unsubscribe(this.observer);
+		assertFalse(this.debugger.isActive(Channel.BB_UPDATES));
+		assertFalse(this.debugger.isActive(Channel.GB_UPDATES));
+	}
+
+	@Test
+	public void testChannelStaysActiveWhileObserved() {
+		DebugObserver other = new DebugObserver() {
+			@Override
+			public String getObserverName() {
+				return "other observer";
+			}
+
+			@Override
+			public void notifyBreakpointHit(DebugEvent event) {
+			}
+		};
+		this.debugger.subscribe(this.observer, Channel.BB_UPDATES);
+		this.debugger.subscribe(other, Channel.BB_UPDATES);
+		this.debugger.unsubscribe(other);
+		assertTrue(this.debugger.isActive(Channel.BB_UPDATES));
+	}
+
+	@Test
+	public void testEventsOnlyForObservedChannels() {
+		this.debugger.subscribe(this.observer, Channel.BB_UPDATES);
+		this.debugger.breakpoint(Channel.GB_UPDATES, null, null, "goal");
+		this.debugger.breakpoint(Channel.BB_UPDATES, null, null, "belief %s",
+				"on(a,b)");
+		assertEquals(1, this.events.size());
+		assertEquals(Channel.BB_UPDATES, this.events.get(0).getChannel());
+	}
+
+	@Test
+	public void testRunModeStillActiveWithoutObservers() {
+		assertFalse(this.debugger.isActive(Channel.ACTION_EXECUTED_USERSPEC));
+		this.debugger.setRunMode(RunMode.STEPPING);
+		assertTrue(this.debugger.isActive(Channel.ACTION_EXECUTED_USERSPEC));
+		this.debugger.run();
+		assertFalse(this.debugger.isActive(Channel.ACTION_EXECUTED_USERSPEC));
+	}
+
+	@Test
+	public void testUserBreakpointActiveWithoutObservers() throws Exception {
+		SourceInfo source = SteppingDebuggerTest.getSourceInfo();
+		this.debugger.setBreakpoint(source);
+		assertTrue(this.debugger.isActive(Channel.RULE_CONDITION_EVALUATION));
+	}
+
+	@Test(expected = DebuggerKilledException.class)
+	public void testKill() {
+		this.debugger.kill();
+		assertTrue(this.debugger.isActive(Channel.REASONING_CYCLE_SEPARATOR));
+		this.debugger.breakpoint(Channel.REASONING_CYCLE_SEPARATOR, null,
+				null, "cycle");
+	}
+}
@@ -0,0 +1,169 @@
+package goal.tools.debugger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import goal.tools.PlatformManager;
+import goal.tools.debugger.SteppingDebugger.RunMode;
+import goalhub.krTools.KRFactory;
+
+import java.io.File;
+
+import krTools.parser.SourceInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the guards on {@link Debugger#isActive(Channel)} do not keep a
+ * {@link SteppingDebugger} from pausing or killing an agent, and that a
+ * {@link NOPDebugger} still ends an agent after a kill.
+ */
+public class SteppingDebuggerTest {
+	/**
+	 * How long a breakpoint that should pause is given to return anyway.
+	 */
+	private static final long WAIT = 200;
+
+	private SteppingDebugger debugger;
+
+	@Before
+	public void setUp() {
+		this.debugger = new SteppingDebugger("testAgent", null);
+	}
+
+	@Test
+	public void testRunningIsNotActive() {
+		assertEquals(RunMode.RUNNING, this.debugger.getRunMode());
+		for (Channel channel : Channel.values()) {
+			assertFalse(this.debugger.isActive(channel));
+		}
+	}
+
+	@Test
+	public void testActiveInOtherRunModes() {
+		for (RunMode mode : new RunMode[] { RunMode.STEPPING,
+				RunMode.FINESTEPPING, RunMode.PAUSED, RunMode.KILLED }) {
+			this.debugger.setRunMode(mode);
+			assertTrue(mode.toString(),
+					this.debugger.isActive(Channel.ACTION_EXECUTED_USERSPEC));
+		}
+		this.debugger.run();
+		assertFalse(this.debugger.isActive(Channel.ACTION_EXECUTED_USERSPEC));
+	}
+
+	@Test
+	public void testKeepRunningIsNotActive() {
+		this.debugger.setRunMode(RunMode.STEPPING);
+		this.debugger.setKeepRunning(true);
+		assertFalse(this.debugger.isActive(Channel.ACTION_EXECUTED_USERSPEC));
+	}
+
+	@Test
+	public void testUserBreakpointIsActive() throws Exception {
+		SourceInfo source = getSourceInfo();
+		this.debugger.setBreakpoint(source);
+		assertTrue(this.debugger.isActive(Channel.RULE_CONDITION_EVALUATION));
+		this.debugger.unsetBreakpoint(source);
+		assertFalse(this.debugger.isActive(Channel.RULE_CONDITION_EVALUATION));
+	}
+
+	@Test
+	public void testUserBreakpointPauses() throws Exception {
+		SourceInfo source = getSourceInfo();
+		this.debugger.setBreakpoint(source);
+		Thread agent = breakpoint(Channel.RULE_CONDITION_EVALUATION, source);
+		agent.join(WAIT);
+		assertTrue(agent.isAlive());
+		assertEquals(RunMode.PAUSED, this.debugger.getRunMode());
+		this.debugger.run();
+		agent.join();
+	}
+
+	@Test
+	public void testSteppingPausesOnPausingChannel() throws Exception {
+		this.debugger.addPause(Channel.ACTION_EXECUTED_USERSPEC);
+		this.debugger.step();
+		assertTrue(this.debugger.isActive(Channel.ACTION_EXECUTED_USERSPEC));
+
+		// Not on other channels.
+		Thread agent = breakpoint(Channel.GOAL_ACHIEVED, null);
+		agent.join(WAIT);
+		assertFalse(agent.isAlive());
+
+		agent = breakpoint(Channel.ACTION_EXECUTED_USERSPEC, null);
+		agent.join(WAIT);
+		assertTrue(agent.isAlive());
+		this.debugger.run();
+		agent.join();
+	}
+
+	@Test
+	public void testKillEndsPausedAgent() throws Exception {
+		this.debugger.setRunMode(RunMode.PAUSED);
+		final DebuggerKilledException[] killed = new DebuggerKilledException[1];
+		Thread agent = new Thread() {
+			@Override
+			public void run() {
+				try {
+					SteppingDebuggerTest.this.debugger.breakpoint(
+							Channel.ACTION_EXECUTED_USERSPEC, null, null,
+							"paused");
+				} catch (DebuggerKilledException e) {
+					killed[0] = e;
+				}
+			}
+		};
+		agent.start();
+		agent.join(WAIT);
+		assertTrue(agent.isAlive());
+		this.debugger.kill();
+		agent.join();
+		assertTrue(killed[0] != null);
+	}
+
+	@Test(expected = DebuggerKilledException.class)
+	public void testKillIsActive() {
+		this.debugger.kill();
+		assertTrue(this.debugger.isActive(Channel.REASONING_CYCLE_SEPARATOR));
+		this.debugger.breakpoint(Channel.REASONING_CYCLE_SEPARATOR, null,
+				null, "cycle");
+	}
+
+	@Test(expected = DebuggerKilledException.class)
+	public void testNOPDebuggerKill() {
+		NOPDebugger nop = new NOPDebugger("testAgent");
+		assertFalse(nop.isActive(Channel.REASONING_CYCLE_SEPARATOR));
+		nop.kill();
+		assertTrue(nop.isActive(Channel.REASONING_CYCLE_SEPARATOR));
+		nop.breakpoint(Channel.REASONING_CYCLE_SEPARATOR, null, null, "cycle");
+	}
+
+	/**
+	 * Hits a breakpoint on another thread, as an agent would.
+	 */
+	private Thread breakpoint(final Channel channel, final SourceInfo source) {
+		Thread agent = new Thread() {
+			@Override
+			public void run() {
+				SteppingDebuggerTest.this.debugger.breakpoint(channel, null,
+						source, "breakpoint");
+			}
+		};
+		agent.start();
+		return agent;
+	}
+
+	/**
+	 * @return The source position of a module of a program.
+	 */
+	static SourceInfo getSourceInfo() throws Exception {
+		return PlatformManager
+				.createNew()
+				.parseGOALFile(
+						new File(
+								"src/test/resources/goal/core/mentalstate/querycache.goal"),
+						KRFactory.getDefaultInterface()).getModules().get(0)
+				.getSourceInfo();
+	}
+}
@@ -0,0 +1,258 @@
+package goal.tools.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import goal.tools.logging.AsyncLogHandler.Overflow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class AsyncLogHandlerTest {
+	/**
+	 * How long a thread that should wait is given to return anyway.
+	 */
+	private static final long WAIT = 200;
+
+	private final List<AsyncLogHandler> handlers = new ArrayList<>();
+
+	@After
+	public void tearDown() {
+		for (AsyncLogHandler handler : this.handlers) {
+			((Target) handler.getTarget()).release();
+			handler.close();
+		}
+	}
+
+	@Test
+	public void testPublishesInOrder() throws Exception {
+		final AsyncLogHandler handler = create(16, Overflow.BLOCK);
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final String name = "thread" + t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 1000; i++) {
+						handler.publish(new LogRecord(Level.INFO, name + " "
+								+ i));
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		handler.flush();
+
+		Target target = (Target) handler.getTarget();
+		assertEquals(4000, target.records.size());
+		assertEquals(0, handler.getDropped());
+		// The records of each thread are published in the order logged.
+		Map<String, Integer> next = new HashMap<>();
+		for (LogRecord record : target.records) {
+			String[] message = record.getMessage().split(" ");
+			Integer expected = next.get(message[0]);
+			assertEquals((expected == null) ? 0 : expected.intValue(),
+					Integer.parseInt(message[1]));
+			next.put(message[0], Integer.parseInt(message[1]) + 1);
+		}
+	}
+
+	@Test
+	public void testRecordIsPublishedUnchanged() throws Exception {
+		AsyncLogHandler handler = create(16, Overflow.BLOCK);
+		LogRecord record = new LogRecord(Level.INFO, "message");
+		record.setSourceClassName("Source");
+		record.setSourceMethodName("method");
+		handler.publish(record);
+		handler.flush();
+		LogRecord published = ((Target) handler.getTarget()).records.get(0);
+		assertSame(record, published);
+		assertEquals("Source", published.getSourceClassName());
+		assertEquals("method", published.getSourceMethodName());
+	}
+
+	@Test
+	public void testNotLoggable() throws Exception {
+		AsyncLogHandler handler = create(16, Overflow.BLOCK);
+		handler.getTarget().setLevel(Level.WARNING);
+		handler.publish(new LogRecord(Level.INFO, "info"));
+		handler.publish(new LogRecord(Level.SEVERE, "severe"));
+		handler.flush();
+		List<LogRecord> records = ((Target) handler.getTarget()).records;
+		assertEquals(1, records.size());
+		assertEquals("severe", records.get(0).getMessage());
+	}
+
+	@Test
+	public void testDropWhenFull() throws Exception {
+		AsyncLogHandler handler = create(4, Overflow.DROP);
+		Target target = (Target) handler.getTarget();
+		target.hold();
+		for (int i = 0; i < 100; i++) {
+			handler.publish(new LogRecord(Level.INFO, Integer.toString(i)));
+		}
+		assertTrue(handler.getDropped() > 0);
+		target.release();
+		handler.flush();
+		assertEquals(100, target.records.size() + handler.getDropped());
+		// The first records are kept.
+		assertEquals("0", target.records.get(0).getMessage());
+	}
+
+	@Test
+	public void testBlockWhenFull() throws Exception {
+		final AsyncLogHandler handler = create(4, Overflow.BLOCK);
+		Target target = (Target) handler.getTarget();
+		target.hold();
+		Thread logging = new Thread() {
+			@Override
+			public void run() {
+				for (int i = 0; i < 100; i++) {
+					handler.publish(new LogRecord(Level.INFO, Integer
+							.toString(i)));
+				}
+			}
+		};
+		logging.start();
+		logging.join(WAIT);
+		assertTrue(logging.isAlive());
+		target.release();
+		logging.join();
+		handler.flush();
+		assertEquals(0, handler.getDropped());
+		assertEquals(100, target.records.size());
+	}
+
+	@Test
+	public void testFlushPublishesFirst() throws Exception {
+		AsyncLogHandler handler = create(1024, Overflow.BLOCK);
+		for (int i = 0; i < 1000; i++) {
+			handler.publish(new LogRecord(Level.INFO, Integer.toString(i)));
+		}
+		handler.flush();
+		Target target = (Target) handler.getTarget();
+		assertEquals(1000, target.records.size());
+		assertEquals("flush", target.events.get(target.events.size() - 1));
+	}
+
+	@Test
+	public void testClosePublishesFirst() throws Exception {
+		AsyncLogHandler handler = create(1024, Overflow.BLOCK);
+		for (int i = 0; i < 1000; i++) {
+			handler.publish(new LogRecord(Level.INFO, Integer.toString(i)));
+		}
+		handler.close();
+		Target target = (Target) handler.getTarget();
+		assertEquals(1000, target.records.size());
+		assertEquals("close", target.events.get(target.events.size() - 1));
+		assertEquals(1, Collections.frequency(target.events, "close"));
+
+		// Records logged after closing are ignored.
+		handler.publish(new LogRecord(Level.INFO, "closed"));
+		handler.close();
+		assertEquals(1000, target.records.size());
+		assertEquals(1, Collections.frequency(target.events, "close"));
+	}
+
+	@Test
+	public void testCloseWaitsForBatch() throws Exception {
+		final AsyncLogHandler handler = create(16, Overflow.BLOCK);
+		Target target = (Target) handler.getTarget();
+		target.hold();
+		handler.publish(new LogRecord(Level.INFO, "held"));
+		Thread closing = new Thread() {
+			@Override
+			public void run() {
+				handler.close();
+			}
+		};
+		closing.start();
+		closing.join(WAIT);
+		// The writer is still publishing the record, so the target may not
+		// be closed yet.
+		assertTrue(closing.isAlive());
+		assertFalse(target.events.contains("close"));
+		target.release();
+		closing.join();
+		assertEquals(1, target.records.size());
+		assertEquals(Arrays.asList("publish", "flush", "close"), target.events);
+	}
+
+	@Test
+	public void testHandlersShareWriter() throws Exception {
+		AsyncLogHandler first = create(16, Overflow.BLOCK);
+		AsyncLogHandler second = create(16, Overflow.BLOCK);
+		first.publish(new LogRecord(Level.INFO, "first"));
+		second.publish(new LogRecord(Level.INFO, "second"));
+		first.flush();
+		second.flush();
+		Thread writer = ((Target) first.getTarget()).thread;
+		assertSame(writer, ((Target) second.getTarget()).thread);
+		assertFalse(writer == Thread.currentThread());
+	}
+
+	private AsyncLogHandler create(int capacity, Overflow overflow) {
+		AsyncLogHandler handler = new AsyncLogHandler(new Target(), capacity,
+				overflow);
+		this.handlers.add(handler);
+		return handler;
+	}
+
+	/**
+	 * Keeps the records published to it, and what was done with it, and can
+	 * be made to wait before publishing records.
+	 */
+	private static class Target extends Handler {
+		private final List<LogRecord> records = Collections
+				.synchronizedList(new ArrayList<LogRecord>());
+		private final List<String> events = Collections
+				.synchronizedList(new ArrayList<String>());
+		private volatile CountDownLatch held = new CountDownLatch(0);
+		private volatile Thread thread;
+
+		void hold() {
+			this.held = new CountDownLatch(1);
+		}
+
+		void release() {
+			this.held.countDown();
+		}
+
+		@Override
+		public void publish(LogRecord record) {
+			try {
+				this.held.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			this.thread = Thread.currentThread();
+			this.records.add(record);
+			this.events.add("publish");
+		}
+
+		@Override
+		public void flush() {
+			this.events.add("flush");
+		}
+
+		@Override
+		public void close() {
+			this.events.add("close");
+		}
+	}
+}
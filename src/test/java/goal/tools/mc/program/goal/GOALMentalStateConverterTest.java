@@ -0,0 +1,130 @@
+package goal.tools.mc.program.goal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import goal.core.mentalstate.AbstractMentalStateTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import krTools.language.DatabaseFormula;
+import krTools.language.Query;
+import mentalState.BASETYPE;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that a {@link GOALMentalStateConverter} translates a mental state
+ * again after it changed, and reuses its earlier translation otherwise.
+ * Whether a part was translated again is seen from the elements that the
+ * translation looked up in the universe.
+ */
+public class GOALMentalStateConverterTest extends AbstractMentalStateTest {
+	private GOALMentalStateConverter converter;
+	private RecordingUniverse universe;
+
+	@Before
+	public void setUp() throws Exception {
+		load("querycache.goal");
+		enter("init");
+		this.converter = new GOALMentalStateConverter(this.mentalState);
+		this.universe = new RecordingUniverse();
+		this.converter.setUniverse(this.universe);
+	}
+
+	@Test
+	public void testUnchangedStateIsReused() {
+		GOALState first = this.converter.translate();
+		this.universe.looked.clear();
+		assertEquals(first, this.converter.translate());
+		assertTrue(this.universe.looked.isEmpty());
+	}
+
+	@Test
+	public void testBeliefUpdateIsTranslated() throws Exception {
+		GOALState first = this.converter.translate();
+		int size = this.universe.size();
+		for (DatabaseFormula belief : getBeliefs("stack")) {
+			this.mentalState.insert(belief, BASETYPE.BELIEFBASE,
+					this.debugger, this.id);
+		}
+		GOALState second = this.converter.translate();
+		assertFalse(first.equals(second));
+		assertEquals(size + 1, this.universe.size());
+		assertTrue(second.get(this.universe.size() - 1));
+
+		// The goals did not change.
+		this.universe.looked.clear();
+		for (DatabaseFormula belief : getBeliefs("stack")) {
+			this.mentalState.delete(belief, BASETYPE.BELIEFBASE,
+					this.debugger);
+		}
+		assertEquals(first, this.converter.translate());
+		assertEquals(this.mentalState.getOwnBase(BASETYPE.BELIEFBASE)
+				.getTheory().getFormulas().size(),
+				this.universe.looked.size());
+		for (GOALConversionElement element : this.universe.looked) {
+			assertTrue(element instanceof GOALCE_Belief);
+		}
+	}
+
+	@Test
+	public void testGoalUpdateIsTranslated() throws Exception {
+		GOALState first = this.converter.translate();
+		int size = this.universe.size();
+		for (Query goal : getModule("stack").getGoals()) {
+			this.mentalState.adopt(goal.toUpdate(), true, this.debugger,
+					this.id);
+		}
+		GOALState second = this.converter.translate();
+		assertFalse(first.equals(second));
+		assertEquals(size + 1, this.universe.size());
+		assertTrue(second.get(this.universe.size() - 1));
+
+		// The beliefs did not change.
+		this.universe.looked.clear();
+		this.mentalState.drop(getModule("stack").getGoals().get(0).toUpdate(),
+				this.debugger);
+		this.converter.translate();
+		assertFalse(this.universe.looked.isEmpty());
+		for (GOALConversionElement element : this.universe.looked) {
+			assertFalse(element instanceof GOALCE_Belief);
+		}
+	}
+
+	@Test
+	public void testNewUniverseIsUsed() throws Exception {
+		GOALState first = this.converter.translate();
+		int size = this.universe.size();
+		// An element that is not in the mental state takes the first index of
+		// the new universe, so all elements of the state get other indices.
+		GOALConversionUniverse other = new GOALConversionUniverse();
+		other.addIfNotContains(new GOALCE_Belief(getBeliefs("stack").get(0)));
+		this.converter.setUniverse(other);
+		GOALState second = this.converter.translate();
+		assertEquals(size + 1, other.size());
+		assertFalse(second.get(0));
+		assertEquals(first.cardinality(), second.cardinality());
+		for (int index = first.nextSetBit(0); index >= 0; index = first
+				.nextSetBit(index + 1)) {
+			assertTrue(second.get(other.getIndex(this.universe
+					.getAtIndex(index))));
+		}
+	}
+
+	/**
+	 * A universe that records which elements have been looked up in it.
+	 */
+	private static class RecordingUniverse extends GOALConversionUniverse {
+		private static final long serialVersionUID = 1L;
+		private final List<GOALConversionElement> looked = new ArrayList<>();
+
+		@Override
+		public int addIfNotContains(GOALConversionElement element) {
+			this.looked.add(element);
+			return super.addIfNotContains(element);
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package goal.tools.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import goal.tools.metrics.AgentMetrics.Timing;
+import goal.tools.metrics.Metrics.Counter;
+import goal.tools.metrics.Metrics.Timer;
+
+import org.junit.Test;
+
+public class AgentMetricsTest {
+	@Test
+	public void testCount() {
+		AgentMetrics metrics = new AgentMetrics("agent");
+		assertTrue(metrics.isEnabled());
+		metrics.count(Counter.CYCLES);
+		metrics.count(Counter.CYCLES, 2);
+		metrics.count(Counter.PERCEPTS, 5);
+		assertEquals(3, metrics.getCount(Counter.CYCLES));
+		assertEquals(5, metrics.getCount(Counter.PERCEPTS));
+		assertEquals(0, metrics.getCount(Counter.ACTIONS));
+	}
+
+	@Test
+	public void testNoneDoesNothing() {
+		AgentMetrics none = AgentMetrics.NONE;
+		assertFalse(none.isEnabled());
+		none.count(Counter.CYCLES);
+		long start = none.start();
+		assertEquals(0, start);
+		none.stop(Timer.CYCLE, start);
+		none.time(Timer.CYCLE, 100);
+		assertEquals(0, none.getCount(Counter.CYCLES));
+		assertEquals(0, none.getTiming(Timer.CYCLE).getCount());
+	}
+
+	@Test
+	public void testStartAndStop() {
+		AgentMetrics metrics = new AgentMetrics("agent");
+		long start = metrics.start();
+		assertTrue(start != 0);
+		metrics.stop(Timer.ENVIRONMENT, start);
+		assertEquals(1, metrics.getTiming(Timer.ENVIRONMENT).getCount());
+		assertEquals(0, metrics.getTiming(Timer.CYCLE).getCount());
+	}
+
+	@Test
+	public void testSummary() {
+		Timing timing = new Timing();
+		for (long time = 1; time <= 1000; time++) {
+			timing.add(time);
+		}
+		assertEquals(1000, timing.getCount());
+		assertEquals(500500, timing.getTotal());
+		assertEquals(1000, timing.getMax());
+	}
+
+	@Test
+	public void testEmpty() {
+		Timing timing = new Timing();
+		assertEquals(0, timing.getPercentile(50));
+		assertEquals(0, timing.getMax());
+	}
+
+	@Test
+	public void testSmallTimesAreExact() {
+		for (long time = 0; time < 4; time++) {
+			Timing timing = new Timing();
+			timing.add(time);
+			assertEquals(time, timing.getPercentile(50));
+		}
+	}
+
+	@Test
+	public void testNegativeTimeCountsAsZero() {
+		Timing timing = new Timing();
+		timing.add(-5);
+		assertEquals(1, timing.getCount());
+		assertEquals(0, timing.getTotal());
+		assertEquals(0, timing.getPercentile(100));
+	}
+
+	@Test
+	public void testPercentilesWithinOnePercent() {
+		Timing timing = new Timing();
+		for (long time = 1; time <= 100000; time++) {
+			timing.add(time * 1000);
+		}
+		for (double percentile : new double[] { 1, 10, 50, 90, 99 }) {
+			double actual = percentile * 1000 * 1000;
+			long estimate = timing.getPercentile(percentile);
+			assertTrue(percentile + ": " + estimate,
+					Math.abs(estimate - actual) <= 0.01 * actual);
+		}
+	}
+
+	@Test
+	public void testPercentileDoesNotExceedMax() {
+		Timing timing = new Timing();
+		timing.add(1000);
+		assertEquals(1000, timing.getPercentile(100));
+		// Out of range percentiles are clamped.
+		assertEquals(1000, timing.getPercentile(150));
+		assertEquals(timing.getPercentile(0), timing.getPercentile(-10));
+	}
+
+	@Test
+	public void testLongestTime() {
+		Timing timing = new Timing();
+		timing.add(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, timing.getMax());
+		assertEquals(Long.MAX_VALUE, timing.getPercentile(50));
+	}
+
+	@Test
+	public void testAdd() {
+		AgentMetrics first = new AgentMetrics("first");
+		AgentMetrics second = new AgentMetrics("second");
+		first.count(Counter.QUERIES, 3);
+		second.count(Counter.QUERIES, 4);
+		first.time(Timer.CYCLE, 10);
+		second.time(Timer.CYCLE, 1000);
+		AgentMetrics total = new AgentMetrics(null);
+		total.add(first);
+		total.add(second);
+		assertEquals(7, total.getCount(Counter.QUERIES));
+		Timing timing = total.getTiming(Timer.CYCLE);
+		assertEquals(2, timing.getCount());
+		assertEquals(1010, timing.getTotal());
+		assertEquals(1000, timing.getMax());
+		assertEquals(1000, timing.getPercentile(100));
+		assertTrue(timing.getPercentile(50) <= 12);
+	}
+}
@@ -0,0 +1,138 @@
+package goal.tools.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import goal.preferences.PMPreferences;
+import goal.tools.metrics.Metrics.Counter;
+import goal.tools.metrics.Metrics.Timer;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetricsTest {
+	private boolean metrics;
+	private String file;
+	private int port;
+
+	@Before
+	public void setUp() {
+		this.metrics = PMPreferences.getMetrics();
+		this.file = PMPreferences.getMetricsFile();
+		this.port = PMPreferences.getMetricsPort();
+		// Do not export the metrics of the test.
+		PMPreferences.setMetricsFile("");
+		PMPreferences.setMetricsPort(0);
+		PMPreferences.setMetrics(true);
+	}
+
+	@After
+	public void tearDown() {
+		Metrics.remove("alice");
+		Metrics.remove("bob \"b\"");
+		PMPreferences.setMetrics(this.metrics);
+		PMPreferences.setMetricsFile(this.file);
+		PMPreferences.setMetricsPort(this.port);
+	}
+
+	@Test
+	public void testOff() {
+		PMPreferences.setMetrics(false);
+		assertSame(AgentMetrics.NONE, Metrics.forAgent("alice"));
+	}
+
+	@Test
+	public void testNoName() {
+		assertSame(AgentMetrics.NONE, Metrics.forAgent(null));
+	}
+
+	@Test
+	public void testForAgent() {
+		AgentMetrics alice = Metrics.forAgent("alice");
+		assertSame(alice, Metrics.forAgent("alice"));
+		assertEquals("alice", alice.getAgent());
+		assertTrue(Metrics.getAgents().contains(alice));
+	}
+
+	@Test
+	public void testRemove() {
+		AgentMetrics alice = Metrics.forAgent("alice");
+		alice.count(Counter.CYCLES);
+		Metrics.remove("alice");
+		assertTrue(!Metrics.getAgents().contains(alice));
+		AgentMetrics again = Metrics.forAgent("alice");
+		assertNotSame(alice, again);
+		assertEquals(0, again.getCount(Counter.CYCLES));
+	}
+
+	@Test
+	public void testRemovedStaysInTotal() {
+		AgentMetrics alice = Metrics.forAgent("alice");
+		alice.count(Counter.CYCLES, 2);
+		alice.time(Timer.CYCLE, 1000);
+		AgentMetrics before = Metrics.getTotal();
+		Metrics.remove("alice");
+		AgentMetrics after = Metrics.getTotal();
+		assertEquals(before.getCount(Counter.CYCLES),
+				after.getCount(Counter.CYCLES));
+		assertEquals(before.getTiming(Timer.CYCLE).getCount(), after
+				.getTiming(Timer.CYCLE).getCount());
+		assertEquals(before.getTiming(Timer.CYCLE).getTotal(), after
+				.getTiming(Timer.CYCLE).getTotal());
+
+		// A new agent with the same name adds to the total.
+		Metrics.forAgent("alice").count(Counter.CYCLES);
+		assertEquals(before.getCount(Counter.CYCLES) + 1, Metrics.getTotal()
+				.getCount(Counter.CYCLES));
+	}
+
+	@Test
+	public void testWrite() throws Exception {
+		// Agents removed by other tests are in the totals.
+		AgentMetrics before = Metrics.getTotal();
+		AgentMetrics alice = Metrics.forAgent("alice");
+		AgentMetrics bob = Metrics.forAgent("bob \"b\"");
+		alice.count(Counter.CYCLES, 2);
+		bob.count(Counter.CYCLES, 3);
+		alice.time(Timer.ENVIRONMENT, 2000000000L);
+
+		StringBuilder out = new StringBuilder();
+		Metrics.write(out);
+		List<String> lines = Arrays.asList(out.toString().split("\n"));
+
+		assertTrue(lines.contains("# TYPE goal_cycles_total counter"));
+		assertTrue(lines.contains("goal_cycles_total "
+				+ (before.getCount(Counter.CYCLES) + 5)));
+		assertTrue(lines.contains("goal_cycles_total{agent=\"alice\"} 2"));
+		// Quotes in names are escaped.
+		assertTrue(lines.contains("goal_cycles_total{agent=\"bob \\\"b\\\"\"} 3"));
+
+		assertTrue(lines.contains("# TYPE goal_environment_seconds summary"));
+		assertTrue(lines
+				.contains("goal_environment_seconds{agent=\"alice\",quantile=\"0.5\"} 2.0"));
+		assertTrue(lines
+				.contains("goal_environment_seconds{agent=\"alice\",quantile=\"0.99\"} 2.0"));
+		assertTrue(lines
+				.contains("goal_environment_seconds_sum{agent=\"alice\"} 2.0"));
+		assertTrue(lines
+				.contains("goal_environment_seconds_count{agent=\"alice\"} 1"));
+		assertTrue(lines.contains("goal_environment_seconds_count "
+				+ (before.getTiming(Timer.ENVIRONMENT).getCount() + 1)));
+
+		// Every counter and timer of the total and of every agent.
+		int samples = 0;
+		for (String line : lines) {
+			if (!line.startsWith("#")) {
+				samples++;
+			}
+		}
+		assertEquals((Metrics.getAgents().size() + 1)
+				* (Counter.values().length + 5 * Timer.values().length),
+				samples);
+	}
+}
@@ -0,0 +1,109 @@
+package goal.tools.unittest.testcondition.executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import goal.core.mentalstate.AbstractMentalStateTest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+import krTools.language.DatabaseFormula;
+import krTools.language.Substitution;
+import krTools.language.Term;
+import languageTools.program.agent.actions.UserSpecAction;
+import mentalState.BASETYPE;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that an {@link EvaluationCache} reuses results while the state of the
+ * agent is unchanged, and forgets them when the mental state, the last action
+ * or the reasoning cycle changes. The results are those of a query
+ * evaluated on an actual mental state.
+ */
+public class EvaluationCacheTest extends AbstractMentalStateTest {
+	private EvaluationCache cache;
+	private Set<Substitution> result;
+	private UserSpecAction action;
+
+	@Before
+	public void setUp() throws Exception {
+		load("querycache.goal");
+		enter("init");
+		this.cache = new EvaluationCache();
+		this.result = new HashSet<>(this.mentalState.query(
+				getLiteral("main", 0), this.debugger));
+		this.action = new UserSpecAction("move", new ArrayList<Term>(0),
+				false, null, null, null, null);
+	}
+
+	@Test
+	public void testHit() {
+		long version = this.mentalState.getVersion();
+		assertNull(this.cache.get(version, this.action, 1, null, null));
+		Set<Substitution> cached = this.cache.put(null, null, this.result);
+		assertEquals(this.result, cached);
+		assertSame(cached,
+				this.cache.get(version, this.action, 1, null, null));
+		assertSame(cached,
+				this.cache.get(this.mentalState.getVersion(), this.action, 1,
+						null, null));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testResultCannotBeModified() {
+		this.cache.get(this.mentalState.getVersion(), this.action, 1, null,
+				null);
+		this.cache.put(null, null, this.result).clear();
+	}
+
+	@Test
+	public void testInvalidatedByBeliefChange() throws Exception {
+		long version = this.mentalState.getVersion();
+		this.cache.get(version, this.action, 1, null, null);
+		this.cache.put(null, null, this.result);
+		for (DatabaseFormula belief : getBeliefs("stack")) {
+			this.mentalState.insert(belief, BASETYPE.BELIEFBASE,
+					this.debugger, this.id);
+		}
+		assertTrue(this.mentalState.getVersion() != version);
+		assertNull(this.cache.get(this.mentalState.getVersion(), this.action,
+				1, null, null));
+	}
+
+	@Test
+	public void testInvalidatedByAction() {
+		long version = this.mentalState.getVersion();
+		this.cache.get(version, this.action, 1, null, null);
+		this.cache.put(null, null, this.result);
+		// Also by another performance of the same action.
+		UserSpecAction again = new UserSpecAction("move",
+				new ArrayList<Term>(0), false, null, null, null, null);
+		assertNull(this.cache.get(version, again, 1, null, null));
+		this.cache.put(null, null, this.result);
+		assertNull(this.cache.get(version, null, 1, null, null));
+	}
+
+	@Test
+	public void testInvalidatedByRound() {
+		long version = this.mentalState.getVersion();
+		this.cache.get(version, this.action, 1, null, null);
+		this.cache.put(null, null, this.result);
+		assertNull(this.cache.get(version, this.action, 2, null, null));
+	}
+
+	@Test
+	public void testInvalidatedResultsAreForgotten() {
+		long version = this.mentalState.getVersion();
+		this.cache.get(version, this.action, 1, null, null);
+		this.cache.put(null, null, this.result);
+		this.cache.get(version, this.action, 2, null, null);
+		// Back in the state the result was computed for.
+		this.cache.get(version, this.action, 1, null, null);
+		assertNull(this.cache.get(version, this.action, 1, null, null));
+	}
+}
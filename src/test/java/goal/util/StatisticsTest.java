@@ -0,0 +1,54 @@
+package goal.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class StatisticsTest {
+	@Test
+	public void testMoments() {
+		Statistics statistics = new Statistics(Arrays.asList(2.0, 4.0, 4.0,
+				4.0, 5.0, 5.0, 7.0, 9.0));
+		assertEquals(8, statistics.getSize());
+		assertEquals(40.0, statistics.getSum(), 0);
+		assertEquals(5.0, statistics.getMean(), 1e-12);
+		assertEquals(4.0, statistics.getVariance(), 1e-12);
+		assertEquals(2.0, statistics.getMinimum(), 0);
+		assertEquals(9.0, statistics.getMaximum(), 0);
+	}
+
+	@Test
+	public void testMerge() {
+		Statistics left = new Statistics(Arrays.asList(2.0, 4.0, 4.0, 4.0));
+		Statistics right = new Statistics(Arrays.asList(5.0, 5.0, 7.0, 9.0));
+		left.merge(right);
+		assertEquals(8, left.getSize());
+		assertEquals(5.0, left.getMean(), 1e-12);
+		assertEquals(4.0, left.getVariance(), 1e-12);
+		assertEquals(9.0, left.getPercentile(100), 0);
+	}
+
+	@Test
+	public void testPercentiles() {
+		Statistics statistics = new Statistics();
+		for (int i = 1; i <= 100000; i++) {
+			statistics.add(i);
+		}
+		assertEquals(50000, statistics.getPercentile(50), 500);
+		assertEquals(99000, statistics.getPercentile(99), 990);
+		assertEquals(99900, statistics.getPercentile(99.9), 999);
+		assertEquals(1, statistics.getPercentile(0), 0.01);
+	}
+
+	@Test
+	public void testNegativeAndZeroPercentiles() {
+		Statistics statistics = new Statistics(Arrays.asList(-8.0, -1.0, 0.0,
+				0.0, 3.0));
+		assertEquals(-8.0, statistics.getPercentile(20), 0.1);
+		assertEquals(-1.0, statistics.getPercentile(40), 0.01);
+		assertEquals(0.0, statistics.getPercentile(60), 0);
+		assertEquals(3.0, statistics.getPercentile(100), 0);
+	}
+}